@@ -21,8 +21,13 @@ import net.neoforged.gradle.common.runtime.definition.CommonRuntimeDefinition;
 import net.neoforged.gradle.common.runtime.extensions.RuntimesExtension;
 import net.neoforged.gradle.common.runtime.naming.OfficialNamingChannelConfigurator;
 import net.neoforged.gradle.common.services.caching.CachedExecutionService;
+import net.neoforged.gradle.common.services.download.DownloadService;
+import net.neoforged.gradle.common.services.download.OfflineBundle;
+import net.neoforged.gradle.common.services.metadata.MinecraftMetadataService;
 import net.neoforged.gradle.common.tasks.CleanCache;
 import net.neoforged.gradle.common.tasks.DisplayMappingsLicenseTask;
+import net.neoforged.gradle.common.tasks.ExportOfflineBundle;
+import net.neoforged.gradle.common.tasks.ImportOfflineBundle;
 import net.neoforged.gradle.common.util.CommonRuntimeTaskUtils;
 import net.neoforged.gradle.common.util.ConfigurationUtils;
 import net.neoforged.gradle.common.util.run.RunsUtil;
@@ -42,6 +47,7 @@ import org.gradle.api.Project;
 import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.problems.Problems;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Delete;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
@@ -51,6 +57,8 @@ import org.gradle.plugins.ide.idea.IdeaPlugin;
 import org.jetbrains.gradle.ext.IdeaExtPlugin;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 public class CommonProjectPlugin implements Plugin<Project> {
 
@@ -71,7 +79,9 @@ public class CommonProjectPlugin implements Plugin<Project> {
         project.getPluginManager().apply(JavaPlugin.class);
 
         //Register the services
-        CachedExecutionService.register(project);
+        final Provider<CachedExecutionService> cachedExecutionService = CachedExecutionService.register(project);
+        DownloadService.register(project);
+        MinecraftMetadataService.register(project);
 
         // Apply both the idea and eclipse IDE plugins
         project.getPluginManager().apply(IdeaPlugin.class);
@@ -115,6 +125,19 @@ public class CommonProjectPlugin implements Plugin<Project> {
             e.metadataSources(MavenArtifactRepository.MetadataSources::mavenPom);
         });
 
+        //The tools of the offline bundle in use are resolved from the repository they were extracted to.
+        final OfflineBundle offlineBundle = DownloadService.get(project.getGradle().getSharedServices()).getOfflineBundle();
+        if (!offlineBundle.getTools().isEmpty()) {
+            final MavenArtifactRepository offlineTools = project.getRepositories().maven(e -> {
+                e.setName("NeoGradle Offline Tools");
+                e.setUrl(offlineBundle.getToolsDirectory().toURI());
+                e.metadataSources(MavenArtifactRepository.MetadataSources::mavenPom);
+                e.content(content -> offlineBundle.getTools().forEach(tool -> content.includeVersion(tool.group(), tool.name(), tool.version())));
+            });
+            project.getRepositories().remove(offlineTools);
+            project.getRepositories().addFirst(offlineTools);
+        }
+
         project.getExtensions().getByType(SourceSetContainer.class).configureEach(sourceSet -> {
             sourceSet.getExtensions().create(ProjectHolder.class, ProjectHolderExtension.NAME, ProjectHolderExtension.class, project);
             sourceSet.getExtensions().create(RunnableSourceSet.NAME, RunnableSourceSet.class, project);
@@ -145,9 +168,21 @@ public class CommonProjectPlugin implements Plugin<Project> {
         //Clean the shared cache
         project.getTasks().register("cleanCache", CleanCache.class);
 
-        //Clean the configuration data location.
+        //Move the remote inputs of the runtimes between machines
+        project.getTasks().register("exportOfflineBundle", ExportOfflineBundle.class);
+        project.getTasks().register("importOfflineBundle", ImportOfflineBundle.class);
+
+        //Clean the configuration data location, and bring the shared cache back within its bounds.
         project.getTasks().named("clean", Delete.class, delete -> {
             delete.delete(configurationData.getLocation());
+            delete.usesService(cachedExecutionService);
+            delete.doLast(task -> {
+                try {
+                    cachedExecutionService.get().evict();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to evict entries from the cache", e);
+                }
+            });
         });
 
         //Set up reporting tasks
@@ -1,21 +1,25 @@
 package net.neoforged.gradle.common.extensions;
 
 import com.google.common.collect.ImmutableMap;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import net.minecraftforge.gdi.ConfigurableDSLElement;
+import net.neoforged.gradle.common.services.download.DownloadPrefetcher;
+import net.neoforged.gradle.common.services.download.DownloadService;
+import net.neoforged.gradle.common.services.download.FileDownload;
+import net.neoforged.gradle.common.services.download.FreshnessPolicy;
+import net.neoforged.gradle.common.services.download.VerifiedFiles;
+import net.neoforged.gradle.common.services.metadata.MinecraftMetadataService;
 import net.neoforged.gradle.common.tasks.MinecraftVersionManifestFileCacheProvider;
 import net.neoforged.gradle.common.util.FileCacheUtils;
 import net.neoforged.gradle.common.util.FileDownloadingUtils;
+import net.neoforged.gradle.common.util.LauncherManifest;
 import net.neoforged.gradle.common.util.MinecraftArtifactType;
-import net.neoforged.gradle.common.util.SerializationUtils;
+import net.neoforged.gradle.common.util.VersionJson;
 import net.neoforged.gradle.dsl.common.extensions.MinecraftArtifactCache;
 import net.neoforged.gradle.dsl.common.tasks.WithOutput;
 import net.neoforged.gradle.dsl.common.util.CacheFileSelector;
 import net.neoforged.gradle.dsl.common.util.DistributionType;
 import net.neoforged.gradle.dsl.common.util.GameArtifact;
 import net.neoforged.gradle.dsl.common.util.MinecraftVersionAndUrl;
-import net.neoforged.gradle.util.HashFunction;
 import net.neoforged.gradle.util.UrlConstants;
 import org.gradle.api.Project;
 import org.gradle.api.file.DirectoryProperty;
@@ -26,6 +30,7 @@ import org.jetbrains.annotations.NotNull;
 import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.util.EnumMap;
 import java.util.Map;
@@ -104,13 +109,16 @@ public abstract class MinecraftArtifactCacheExtension implements ConfigurableDSL
             GameArtifact.CLIENT_MAPPINGS.doWhenRequired(side, () -> results.put(GameArtifact.CLIENT_MAPPINGS, FileCacheUtils.createArtifactFileCacheProvidingTask(project, resolvedVersion.getVersion(), DistributionType.CLIENT, MinecraftArtifactType.MAPPINGS, manifest, results.values())));
             GameArtifact.SERVER_MAPPINGS.doWhenRequired(side, () -> results.put(GameArtifact.SERVER_MAPPINGS, FileCacheUtils.createArtifactFileCacheProvidingTask(project, resolvedVersion.getVersion(), DistributionType.SERVER, MinecraftArtifactType.MAPPINGS, manifest, results.values())));
 
+            prefetchGameVersion(resolvedVersion, side);
+
             return results;
         });
     }
 
     @Override
     public final File cacheLauncherMetadata() {
-        return this.cache(UrlConstants.MOJANG_MANIFEST, CacheFileSelector.launcherMetadata());
+        final CacheFileSelector selector = CacheFileSelector.launcherMetadata();
+        return this.cacheFiles.computeIfAbsent(selector, cacheKey -> downloadJsonToCache(project, UrlConstants.MOJANG_MANIFEST, getCacheDirectory().getAsFile().get(), selector, getDownloads().getLauncherManifestFreshness()));
     }
 
     @Override
@@ -150,29 +158,15 @@ public abstract class MinecraftArtifactCacheExtension implements ConfigurableDSL
 
     @Override
     public final File cache(final String url, final CacheFileSelector selector) {
-        return this.cacheFiles.computeIfAbsent(selector, cacheKey -> downloadJsonToCache(project, url, getCacheDirectory().getAsFile().get(), selector));
+        return this.cacheFiles.computeIfAbsent(selector, cacheKey -> downloadJsonToCache(project, url, getCacheDirectory().getAsFile().get(), selector, FreshnessPolicy.ALWAYS));
     }
 
     private File downloadVersionManifestToCache(Project project, final File cacheDirectory, final String minecraftVersion) {
         final File manifestFile = new File(new File(cacheDirectory, CacheFileSelector.launcherMetadata().getCacheDirectory()), CacheFileSelector.launcherMetadata().getCacheFileName());
 
-        String url = null;
-
-        JsonObject json = SerializationUtils.fromJson(manifestFile, JsonObject.class);
-
-        for (JsonElement e : json.getAsJsonArray("versions")) {
-            String v = e.getAsJsonObject().get("id").getAsString();
-            if (Objects.equals(minecraftVersion, "+") || v.equals(minecraftVersion)) {
-                url = e.getAsJsonObject().get("url").getAsString();
-                break;
-            }
-        }
+        final String url = getMetadata().getLauncherManifest(manifestFile).getVersion(minecraftVersion).getUrl();
 
-        if (url == null) {
-            throw new IllegalStateException("Could not find the correct version json for version: " + minecraftVersion);
-        }
-
-        return downloadJsonToCache(project, url, cacheDirectory, CacheFileSelector.forVersionJson(minecraftVersion));
+        return downloadJsonToCache(project, url, cacheDirectory, CacheFileSelector.forVersionJson(minecraftVersion), getDownloads().getVersionMetadataFreshness());
     }
 
     private File downloadVersionArtifactToCache(final Project project, final File cacheDirectory, String minecraftVersion, final DistributionType side) {
@@ -203,54 +197,140 @@ public abstract class MinecraftArtifactCacheExtension implements ConfigurableDSL
         final File versionManifestFile = this.cacheVersionManifest(minecraftVersionAndUrl);
 
         try {
-            JsonObject json = SerializationUtils.fromJson(versionManifestFile, JsonObject.class);
+            final VersionJson json = getMetadata().getVersionJson(versionManifestFile);
+
+            final VersionJson.Download artifactInfo = Objects.requireNonNull(json.getDownloads(), "downloads").get(artifact);
+            String url = artifactInfo.getUrl().toString();
+            String hash = artifactInfo.getSha1();
+            String version = json.getId();
 
-            JsonObject artifactInfo = json.getAsJsonObject("downloads").getAsJsonObject(artifact);
-            String url = artifactInfo.get("url").getAsString();
-            String hash = artifactInfo.get("sha1").getAsString();
-            String version = json.getAsJsonObject().get("id").getAsString();
+            final File cacheFile = new File(new File(cacheDirectory, cacheFileSelector.getCacheDirectory()), cacheFileSelector.getCacheFileName());
+
+            if (getDownloads().getOfflineBundle().materialize(cacheFileSelector.getCacheDirectory() + "/" + cacheFileSelector.getCacheFileName(), cacheFile, getDownloads().getVerifiedFiles())) {
+                return cacheFile;
+            }
 
             final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(url, hash, "jar", version, artifact);
+            final VerifiedFiles verifiedFiles = getDownloads().getVerifiedFiles();
 
-            final File cacheFile = new File(new File(cacheDirectory, cacheFileSelector.getCacheDirectory()), cacheFileSelector.getCacheFileName());
+            if (verifiedFiles.isVerified(cacheFile, hash)) {
+                return cacheFile;
+            }
 
-            if (cacheFile.exists()) {
-                final String fileHash = HashFunction.SHA1.hash(cacheFile);
-                if (fileHash.equals(hash)) {
-                    return cacheFile;
-                }
+            if (FileDownloadingUtils.copyFromLauncher(info, cacheFile, verifiedFiles)) {
+                return cacheFile;
+            }
+
+            if (!project.getGradle().getStartParameter().isOffline()) {
+                //Joins the download if it was already prefetched, only blocking on the artifact which is actually read.
+                return DownloadPrefetcher.join(getDownloads().getPrefetcher().prefetch(new FileDownload(url, hash, cacheFile)));
             }
 
-            FileDownloadingUtils.downloadTo(project.getGradle().getStartParameter().isOffline(), info, cacheFile);
+            FileDownloadingUtils.downloadTo(true, info, cacheFile, verifiedFiles);
             return cacheFile;
         } catch (IOException e) {
             throw new RuntimeException(potentialError, e);
         }
     }
 
-    private File downloadJsonToCache(Project project, final String url, final File cacheDirectory, final CacheFileSelector selector) {
+    /**
+     * Starts downloading the artifacts of the given version which are required for the given side in the background.
+     * Configuration only waits for the artifacts it reads, the tasks which cache the artifacts wait for the rest when they execute.
+     */
+    private void prefetchGameVersion(final MinecraftVersionAndUrl resolvedVersion, final DistributionType side) {
+        if (project.getGradle().getStartParameter().isOffline()) {
+            return;
+        }
+
+        try {
+            final VersionJson json = getMetadata().getVersionJson(this.cacheVersionManifest(resolvedVersion));
+            final Map<String, VersionJson.Download> downloads = Objects.requireNonNull(json.getDownloads(), "downloads");
+            final File cacheDirectory = getCacheDirectory().get().getAsFile();
+
+            for (GameArtifact artifact : GameArtifact.values()) {
+                if (artifact == GameArtifact.VERSION_MANIFEST) {
+                    continue;
+                }
+
+                artifact.doWhenRequired(side, () -> {
+                    final CacheFileSelector selector = artifact.getCacheSelectorForVersion(resolvedVersion.getVersion());
+                    final VersionJson.Download download = downloads.get(getDownloadKey(artifact));
+                    if (download != null) {
+                        final File cacheFile = new File(new File(cacheDirectory, selector.getCacheDirectory()), selector.getCacheFileName());
+                        final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(download.getUrl().toString(), download.getSha1(), "jar", json.getId(), getDownloadKey(artifact));
+                        try {
+                            //A client jar of the installed launcher does not need to be downloaded at all.
+                            if (FileDownloadingUtils.copyFromLauncher(info, cacheFile, getDownloads().getVerifiedFiles())) {
+                                return;
+                            }
+                        } catch (IOException e) {
+                            project.getLogger().debug("Failed to take {} from the installed launcher", cacheFile, e);
+                        }
+
+                        getDownloads().getPrefetcher().prefetch(new FileDownload(download.getUrl().toString(), download.getSha1(), cacheFile));
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            //Prefetching is only an optimization, the tasks download the artifacts themselves and report any failure.
+            project.getLogger().debug("Failed to prefetch the artifacts of Minecraft {}", resolvedVersion.getVersion(), e);
+        }
+    }
+
+    private static String getDownloadKey(final GameArtifact artifact) {
+        return switch (artifact) {
+            case CLIENT_JAR -> MinecraftArtifactType.EXECUTABLE.createIdentifier(DistributionType.CLIENT);
+            case SERVER_JAR -> MinecraftArtifactType.EXECUTABLE.createIdentifier(DistributionType.SERVER);
+            case CLIENT_MAPPINGS -> MinecraftArtifactType.MAPPINGS.createIdentifier(DistributionType.CLIENT);
+            case SERVER_MAPPINGS -> MinecraftArtifactType.MAPPINGS.createIdentifier(DistributionType.SERVER);
+            default -> throw new IllegalArgumentException("Not a downloadable artifact: " + artifact);
+        };
+    }
+
+    private File downloadJsonToCache(Project project, final String url, final File cacheDirectory, final CacheFileSelector selector, final FreshnessPolicy freshness) {
         final File cacheFile = new File(new File(cacheDirectory, selector.getCacheDirectory()), selector.getCacheFileName());
-        downloadJsonTo(project, url, cacheFile);
+        final boolean bundled;
+        try {
+            bundled = getDownloads().getOfflineBundle().materialize(selector.getCacheDirectory() + "/" + selector.getCacheFileName(), cacheFile, getDownloads().getVerifiedFiles());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to take %s from the offline bundle".formatted(cacheFile.getAbsolutePath()), e);
+        }
+
+        //Metadata from the offline bundle is revalidated like any other cached metadata, and only used as is when that is not possible.
+        try {
+            downloadJsonTo(project, url, cacheFile, freshness);
+        } catch (RuntimeException e) {
+            if (!bundled) {
+                throw e;
+            }
+
+            project.getLogger().info("Failed to revalidate {}, using the file of the offline bundle", cacheFile, e);
+        }
         return cacheFile;
     }
 
-    private void downloadJsonTo(Project project, String url, File file) {
-        FileDownloadingUtils.downloadThrowing(project.getGradle().getStartParameter().isOffline(), new FileDownloadingUtils.DownloadInfo(url, null, "json", null, null), file);
+    private void downloadJsonTo(Project project, String url, File file, FreshnessPolicy freshness) {
+        FileDownloadingUtils.downloadThrowing(project.getGradle().getStartParameter().isOffline(), new FileDownloadingUtils.DownloadInfo(url, null, "json", null, null), file, freshness);
     }
 
     @Override
     public MinecraftVersionAndUrl resolveVersion(final String gameVersion) {
         final File launcherMetadata = this.cacheLauncherMetadata();
 
-        JsonObject json = SerializationUtils.fromJson(launcherMetadata, JsonObject.class);
-
-        for (JsonElement e : json.getAsJsonArray("versions")) {
-            if (gameVersion.equals("+") || e.getAsJsonObject().get("id").getAsString().equals(gameVersion)) {
-                return new MinecraftVersionAndUrl(e.getAsJsonObject().get("id").getAsString(), e.getAsJsonObject().get("url").getAsString());
-            }
+        final LauncherManifest.Version version = getMetadata().getLauncherManifest(launcherMetadata).findVersion(gameVersion);
+        if (version == null) {
+            throw new IllegalStateException("Could not find the correct version json.");
         }
 
-        throw new IllegalStateException("Could not find the correct version json.");
+        return new MinecraftVersionAndUrl(version.getId(), version.getUrl());
+    }
+
+    private DownloadService getDownloads() {
+        return DownloadService.get(project.getGradle().getSharedServices());
+    }
+
+    private MinecraftMetadataService getMetadata() {
+        return MinecraftMetadataService.get(project.getGradle().getSharedServices());
     }
 
     public Provider<MinecraftVersionAndUrl> resolveVersion(Provider<String> gameVersion) {
@@ -1,9 +1,12 @@
 package net.neoforged.gradle.common.runtime.tasks;
 
 import com.google.common.collect.Maps;
+import net.neoforged.gradle.common.runtime.tasks.action.DownloadBatchAction;
 import net.neoforged.gradle.common.runtime.tasks.action.DownloadFileAction;
+import net.neoforged.gradle.common.services.metadata.MinecraftMetadataService;
 import net.neoforged.gradle.common.services.caching.CachedExecutionService;
 import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
+import net.neoforged.gradle.common.services.download.FileDownload;
 import net.neoforged.gradle.common.util.FileCacheUtils;
 import net.neoforged.gradle.common.util.SerializationUtils;
 import net.neoforged.gradle.common.util.VersionJson;
@@ -25,7 +28,11 @@ import org.jetbrains.annotations.NotNull;
 import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @SuppressWarnings({"UnstableApiUsage"})
 @CacheableTask
@@ -42,7 +49,7 @@ public abstract class DownloadAssets extends DefaultTask implements WithWorkspac
         getAssetIndexFileName().convention(getAssetIndex().map(index -> index + ".json"));
         getAssetIndexTargetFile().convention(getRegularFileInAssetsDirectory(getAssetIndexFileName().map(name -> "indexes/" + name)));
         getAssetIndexFile().convention(getAssetIndexTargetFile());
-        getVersionJson().convention(getVersionJsonFile().map(TransformerUtils.guard(file -> VersionJson.get(file.getAsFile()))));
+        getVersionJson().convention(getVersionJsonFile().zip(MinecraftMetadataService.register(getProject()), (file, metadata) -> metadata.getVersionJson(file.getAsFile())));
         getAssetRepository().convention("https://resources.download.minecraft.net/");
         getIsOffline().convention(getProject().getGradle().getStartParameter().isOffline());
     }
@@ -75,7 +82,7 @@ public abstract class DownloadAssets extends DefaultTask implements WithWorkspac
                         ICacheableJob.Initial.file("assetIndex", getAssetIndexFile(), this::downloadAssetIndex)
                 )
                 .withStage(
-                        ICacheableJob.Initial.directory("assets", assetsObjects, this::downloadAssets)
+                        ICacheableJob.Reference.directory("assets", assetsObjects, this::downloadAssets)
                 )
                 .execute();
     }
@@ -98,29 +105,30 @@ public abstract class DownloadAssets extends DefaultTask implements WithWorkspac
         return null;
     }
 
-    private Void downloadAssets() {
+    private Set<File> downloadAssets() {
         final AssetIndex assetIndex = SerializationUtils.fromJson(getAssetIndexFile().getAsFile().get(), AssetIndex.class);
 
-        final WorkQueue executor = getWorkerExecutor().noIsolation();
+        final String repository = getAssetRepository().map(repo -> repo.endsWith("/") ? repo : repo + "/").get();
+        final Set<File> assetFiles = new HashSet<>();
+        final List<FileDownload> downloads = new ArrayList<>();
 
         assetIndex.getObjects().values().stream().distinct().forEach((asset) -> {
-            final Provider<File> assetFile = getFileInAssetsDirectory(asset.getPath());
-            final Provider<String> assetUrl = getAssetRepository()
-                    .map(repo -> repo.endsWith("/") ? repo : repo + "/")
-                    .map(TransformerUtils.guard(repository -> repository + asset.getPath()));
-
-            executor.submit(DownloadFileAction.class, params -> {
-                params.getIsOffline().set(getIsOffline());
-                params.getShouldValidateHash().set(true);
-                params.getOutputFile().fileProvider(assetFile);
-                params.getUrl().set(assetUrl);
-                params.getSha1().set(asset.getHash());
-            });
+            final File assetFile = getFileInAssetsDirectory(asset.getPath()).get();
+            downloads.add(new FileDownload(repository + asset.getPath(), asset.getHash(), assetFile));
+            assetFiles.add(assetFile);
+        });
+
+        //A single work action for all objects, the download service drives them concurrently over shared connections.
+        final WorkQueue executor = getWorkerExecutor().noIsolation();
+        executor.submit(DownloadBatchAction.class, params -> {
+            params.getDownloads().set(downloads);
+            params.getDescription().set("assets");
+            params.getIsOffline().set(getIsOffline());
         });
 
         executor.await();
 
-        return null;
+        return assetFiles;
     }
 
     @Inject
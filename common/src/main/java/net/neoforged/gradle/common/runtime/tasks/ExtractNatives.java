@@ -1,80 +1,72 @@
 package net.neoforged.gradle.common.runtime.tasks;
 
-import net.neoforged.gradle.util.TransformerUtils;
-import net.neoforged.gradle.common.runtime.tasks.action.DownloadFileAction;
-import net.neoforged.gradle.common.runtime.tasks.action.ExtractFileAction;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.services.download.DownloadService;
+import net.neoforged.gradle.common.services.metadata.MinecraftMetadataService;
+import net.neoforged.gradle.common.services.natives.NativesCache;
+import net.neoforged.gradle.common.util.FileCacheUtils;
 import net.neoforged.gradle.common.util.VersionJson;
+import net.neoforged.gradle.util.FileUtils;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logging;
 import org.gradle.api.provider.Property;
+import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.*;
-import org.gradle.workers.WorkQueue;
-import org.gradle.workers.WorkerExecutor;
 
-import javax.inject.Inject;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.List;
 
 @CacheableTask()
 public abstract class ExtractNatives extends DefaultRuntime {
 
     public ExtractNatives() {
-        getVersionJson().convention(getVersionJsonFile().map(TransformerUtils.guard(file -> VersionJson.get(file.getAsFile()))));
+        getVersionJson().convention(getVersionJsonFile().zip(MinecraftMetadataService.register(getProject()), (file, metadata) -> metadata.getVersionJson(file.getAsFile())));
         getLibrariesDirectory().convention(getOutputDirectory().map(dir -> dir.dir("libraries")));
+        getNativesCacheDirectory().convention(FileCacheUtils.getNativesCacheDirectory(getProject()));
+        getIsOffline().convention(getProject().getGradle().getStartParameter().isOffline());
     }
 
     @TaskAction
-    public void extract() {
-        downloadNatives();
-        extractNatives();
-    }
-
-    private void downloadNatives() {
-        final VersionJson versionJson = getVersionJson().get();
+    public void extract() throws IOException {
+        final List<VersionJson.LibraryDownload> natives = getVersionJson().get().getNatives().stream()
+                .sorted(Comparator.comparing(VersionJson.LibraryDownload::getPath))
+                .toList();
+
+        final NativesCache cache = new NativesCache(
+                getNativesCacheDirectory().get().getAsFile(),
+                getDownloadService().get().getDownloader(),
+                getIsOffline().get(),
+                new CacheLogger(Logging.getLogger(ExtractNatives.class), getPath(), false, false)
+        );
+
+        //Natives which are not cached yet are downloaded and extracted in parallel, the cache locks every entry on its own.
+        final List<NativesCache.Entry> entries;
+        try {
+            entries = natives.parallelStream().map(library -> {
+                try {
+                    return cache.get(library.getUrl().toString(), library.getSha1());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
 
-        final WorkQueue executor = getWorkerExecutor().noIsolation();
         final File librariesDirectory = ensureFileWorkspaceReady(getLibrariesDirectory().get().getAsFile());
-
-        versionJson.getNatives().forEach(library -> {
-            final File outputFile = new File(librariesDirectory, library.getPath());
-            executor.submit(DownloadFileAction.class, params -> {
-                params.getIsOffline().set(getProject().getGradle().getStartParameter().isOffline());
-                params.getShouldValidateHash().set(true);
-                params.getOutputFile().set(outputFile);
-                params.getUrl().set(library.getUrl().toString());
-                params.getSha1().set(library.getSha1());
-            });
-        });
-
-        executor.await();
+        final File outputDirectory = getOutputDirectory().get().getAsFile();
+        for (int i = 0; i < natives.size(); i++) {
+            FileUtils.linkOrCopy(entries.get(i).jar().toPath(), new File(librariesDirectory, natives.get(i).getPath()).toPath());
+            NativesCache.linkFiles(entries.get(i).files(), outputDirectory);
+        }
     }
 
-    private void extractNatives() {
-        final VersionJson versionJson = getVersionJson().get();
-
-        final WorkQueue executor = getWorkerExecutor().noIsolation();
-        final File librariesDirectory = ensureFileWorkspaceReady(getLibrariesDirectory().get().getAsFile());
-
-        versionJson.getNatives().forEach(library -> {
-            final File outputFile = new File(librariesDirectory, library.getPath());
-
-            executor.submit(ExtractFileAction.class, params -> {
-                params.getInputFile().set(outputFile);
-                params.getOutputDirectory().set(getOutputDirectory());
-                params.getShouldOverride().set(true);
-                params.getShouldCleanTarget().set(false);
-                params.getFilter().set(patternFilterable -> patternFilterable.exclude(fileTreeElement -> fileTreeElement.getPath().startsWith("META-INF")));
-                params.getRenamer().set(path -> {
-                    int lastPathSeparatorIndex = path.lastIndexOf('/');
-                    return lastPathSeparatorIndex == -1 ? path : path.substring(lastPathSeparatorIndex);
-                });
-            });
-        });
-
-        executor.await();
-    }
-
-    @Inject
-    protected abstract WorkerExecutor getWorkerExecutor();
+    @ServiceReference(DownloadService.NAME)
+    public abstract Property<DownloadService> getDownloadService();
 
     @InputFile
     @Optional
@@ -86,4 +78,10 @@ public abstract class ExtractNatives extends DefaultRuntime {
 
     @OutputDirectory
     public abstract DirectoryProperty getLibrariesDirectory();
+
+    @Internal
+    public abstract DirectoryProperty getNativesCacheDirectory();
+
+    @Internal
+    public abstract Property<Boolean> getIsOffline();
 }
@@ -4,10 +4,11 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import net.neoforged.gradle.common.services.caching.CachedExecutionService;
 import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
+import net.neoforged.gradle.common.services.download.DownloadService;
+import net.neoforged.gradle.common.services.download.VerifiedFiles;
 import net.neoforged.gradle.common.runtime.tasks.action.DownloadFileAction;
 import net.neoforged.gradle.common.util.FileCacheUtils;
 import net.neoforged.gradle.common.util.SerializationUtils;
-import net.neoforged.gradle.util.HashFunction;
 import net.neoforged.gradle.util.TransformerUtils;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
@@ -56,13 +57,16 @@ public abstract class ListLibraries extends DefaultRuntime {
     @ServiceReference(CachedExecutionService.NAME)
     public abstract Property<CachedExecutionService> getCacheService();
 
+    @ServiceReference(DownloadService.NAME)
+    public abstract Property<DownloadService> getDownloadService();
+
     
     @TaskAction
     public void run() throws IOException {
         getCacheService().get()
                 .cached(
                         this,
-                        ICacheableJob.Initial.directory("collect", getLibrariesDirectory(), this::extractAndCollect)
+                        ICacheableJob.Reference.directory("collect", getLibrariesDirectory(), this::extractAndCollect)
                 )
                 .withStage(
                         ICacheableJob.Staged.file("list", getOutput(), this::createList)
@@ -147,13 +151,14 @@ public abstract class ListLibraries extends DefaultRuntime {
         final File outputDir = getLibrariesDirectory().get().getAsFile();
         
         final List<FileList.Entry> libraryPaths = listBundleLibraries(bundleFs);
+        final VerifiedFiles verifiedFiles = getDownloadService().get().getVerifiedFiles();
         
         return libraryPaths.stream()
                        .map(entry -> {
                            final String path = String.format("META-INF/libraries/%s", entry.path);
                            final File output = new File(outputDir, path);
                            try {
-                               if (!output.exists() || !HashFunction.SHA1.hash(output).equalsIgnoreCase(entry.hash)) {
+                               if (!verifiedFiles.isVerified(output, entry.hash)) {
                                    Files.copy(bundleFs.getPath(path), output.toPath());
                                }
                            } catch (IOException e) {
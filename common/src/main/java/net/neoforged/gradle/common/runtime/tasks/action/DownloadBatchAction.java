@@ -0,0 +1,57 @@
+package net.neoforged.gradle.common.runtime.tasks.action;
+
+import net.neoforged.gradle.common.services.download.DownloadService;
+import net.neoforged.gradle.common.services.download.FileDownload;
+import net.neoforged.gradle.util.GradleInternalUtils;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildServiceRegistry;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Downloads many files in a single work action, instead of one work action per file.
+ * The files are downloaded concurrently by the shared {@link DownloadService}, progress is reported for the batch as a whole.
+ */
+public abstract class DownloadBatchAction implements WorkAction<DownloadBatchAction.Params> {
+    private static final Logger LOGGER = Logging.getLogger(DownloadBatchAction.class);
+
+    @Inject
+    public abstract BuildServiceRegistry getBuildServiceRegistry();
+
+    @Override
+    public void execute() {
+        try {
+            final Params params = getParameters();
+            final List<FileDownload> downloads = params.getDownloads().get();
+
+            final GradleInternalUtils.ProgressLoggerWrapper progress = GradleInternalUtils.getProgressLogger(LOGGER, getBuildServiceRegistry(), "Downloading " + params.getDescription().get());
+            progress.setDestFileName(params.getDescription().get());
+            progress.setSize(downloads.size());
+            progress.started();
+
+            DownloadService.get(getBuildServiceRegistry()).createBatch().download(downloads, params.getIsOffline().get(), download -> {
+                synchronized (progress) {
+                    progress.incrementProcessedFileCount();
+                }
+            });
+
+            progress.completed();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public interface Params extends WorkParameters {
+        ListProperty<FileDownload> getDownloads();
+
+        Property<String> getDescription();
+
+        Property<Boolean> getIsOffline();
+    }
+}
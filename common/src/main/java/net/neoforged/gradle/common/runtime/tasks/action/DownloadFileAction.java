@@ -1,13 +1,11 @@
 package net.neoforged.gradle.common.runtime.tasks.action;
 
+import net.neoforged.gradle.common.services.download.DownloadService;
+import net.neoforged.gradle.common.services.download.HttpDownloader;
+import net.neoforged.gradle.common.services.download.LocalFileSource;
 import net.neoforged.gradle.util.FileUtils;
 import net.neoforged.gradle.util.GradleInternalUtils;
 import net.neoforged.gradle.util.HashFunction;
-import net.neoforged.gradle.util.UrlUtils;
-import org.apache.ivy.core.settings.TimeoutConstraint;
-import org.apache.ivy.util.CopyProgressEvent;
-import org.apache.ivy.util.CopyProgressListener;
-import org.apache.ivy.util.FileUtil;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
@@ -18,11 +16,9 @@ import org.gradle.workers.WorkParameters;
 
 import javax.inject.Inject;
 import java.io.File;
-import java.net.URL;
+import java.net.URI;
 
 public abstract class DownloadFileAction implements WorkAction<DownloadFileAction.Params> {
-    private static final int MAX_ATTEMPTS = 10;
-    private static final int ATTEMPT_DELAY = 100;
     private static final Logger LOGGER = Logging.getLogger(DownloadFileAction.class);
 
     @Inject
@@ -33,16 +29,20 @@ public abstract class DownloadFileAction implements WorkAction<DownloadFileActio
         try {
             final Params params = getParameters();
             final File output = params.getOutputFile().get().getAsFile();
+            final DownloadService service = DownloadService.get(getBuildServiceRegistry());
 
             if (output.exists()) {
                 if (params.getShouldValidateHash().get()) {
-                    final String hash = HashFunction.SHA1.hash(output);
-                    if (hash.equals(params.getSha1().get())) {
+                    if (service.getVerifiedFiles().isVerified(output, params.getSha1().get())) {
                         return;
                     }
                 }
             }
 
+            if (params.getShouldValidateHash().get() && LocalFileSource.materialize(service.getLocalSources(), output, params.getSha1().get())) {
+                return;
+            }
+
             final GradleInternalUtils.ProgressLoggerWrapper progress = GradleInternalUtils.getProgressLogger(LOGGER, getBuildServiceRegistry(), "Downloading file: " + params.getUrl().get());
             progress.setDestFileName(params.getOutputFile().getAsFile().get().getName());
 
@@ -67,77 +67,44 @@ public abstract class DownloadFileAction implements WorkAction<DownloadFileActio
                 return;
             }
 
-            final URL url = new URL(params.getUrl().get());
-
-            // Try downloading multiple times with a small delay in case of blocked connections
-            for (int attempt = 0; attempt < MAX_ATTEMPTS; ++attempt) {
-                try {
-                    progress.setSize(UrlUtils.getFileSize(url));
-
-                    FileUtil.copy(
-                            url,
-                            output,
-                            new Monitor(progress),
-                            Timeout.NONE
-                    );
-
-                    break; // Success
-                } catch (Exception e) {
-                    if (attempt == MAX_ATTEMPTS - 1) {
-                        throw e;
-                    }
-
-                    try {
-                        Thread.sleep(ATTEMPT_DELAY);
-                    } catch (InterruptedException interruptedException) {
-                        throw new RuntimeException(interruptedException);
-                    }
-                }
-            }
+            //The hash is validated while downloading, a mismatching file never replaces the output.
+            final String expectedHash = params.getShouldValidateHash().get() ? params.getSha1().get() : null;
+            final HttpDownloader downloader = service.getDownloader();
+            final String hash = downloader.download(URI.create(params.getUrl().get()), output, expectedHash, new Monitor(progress));
+            progress.completed();
 
-            if (params.getShouldValidateHash().get()) {
-                final String hash = HashFunction.SHA1.hash(output);
-                if (!hash.equals(params.getSha1().get())) {
-                    throw new IllegalStateException(String.format("Cannot validate asset %s as Gradle is running in offline mode and the file does not match the expected hash. Expected: %s Actual: %s", params.getUrl().get(), params.getSha1().get(), hash));
-                }
+            if (expectedHash != null) {
+                service.getVerifiedFiles().record(output, hash);
             }
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
-    private record Monitor(GradleInternalUtils.ProgressLoggerWrapper progress) implements CopyProgressListener {
+    private static final class Monitor implements HttpDownloader.Listener {
+        private final GradleInternalUtils.ProgressLoggerWrapper progress;
+        private boolean started = false;
 
-        @Override
-        public void start(CopyProgressEvent evt) {
-            progress.started();
-            progress.incrementDownloadProgress(evt.getReadBytes());
+        private Monitor(GradleInternalUtils.ProgressLoggerWrapper progress) {
+            this.progress = progress;
         }
 
         @Override
-        public void progress(CopyProgressEvent evt) {
-            progress.incrementDownloadProgress(evt.getReadBytes());
-        }
-
-        @Override
-        public void end(CopyProgressEvent evt) {
-            progress.incrementDownloadProgress(evt.getReadBytes());
-            progress.completed();
-        }
-    }
-
-    private static final class Timeout implements TimeoutConstraint {
-
-        private static final Timeout NONE = new Timeout();
+        public void started(long size, long resumedFrom) {
+            //A retried attempt reports its start again, the progress logger can only be started once.
+            if (started)
+                return;
 
-        @Override
-        public int getConnectionTimeout() {
-            return -1;
+            started = true;
+            if (size >= 0)
+                progress.setSize(size);
+            progress.started();
+            progress.incrementDownloadProgress(resumedFrom);
         }
 
         @Override
-        public int getReadTimeout() {
-            return -1;
+        public void progress(long bytes) {
+            progress.incrementDownloadProgress(bytes);
         }
     }
 
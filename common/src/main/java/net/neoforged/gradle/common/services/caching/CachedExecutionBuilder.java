@@ -1,17 +1,25 @@
 package net.neoforged.gradle.common.services.caching;
 
+import net.neoforged.gradle.common.services.caching.cache.BlobStore;
 import net.neoforged.gradle.common.services.caching.cache.DirectoryCache;
 import net.neoforged.gradle.common.services.caching.cache.FileCache;
 import net.neoforged.gradle.common.services.caching.cache.ICache;
+import net.neoforged.gradle.common.services.caching.cache.PackedDirectoryCache;
+import net.neoforged.gradle.common.services.caching.cache.ReferenceCache;
+import net.neoforged.gradle.common.services.caching.eviction.CacheEvictor;
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.services.caching.hasher.PathNormalizer;
 import net.neoforged.gradle.common.services.caching.hasher.TaskHasher;
 import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
 import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
 import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.services.caching.remote.RemoteCache;
+import net.neoforged.gradle.common.services.caching.report.CacheReport;
+import net.neoforged.gradle.common.services.caching.report.InputFingerprints;
 import net.neoforged.gradle.common.util.hash.HashCode;
 import net.neoforged.gradle.common.util.hash.Hasher;
-import net.neoforged.gradle.common.util.hash.Hashing;
+import net.neoforged.gradle.common.util.hash.HashFunction;
 import net.neoforged.gradle.util.GradleInternalUtils;
-import org.apache.commons.io.FileUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.Task;
 import org.jetbrains.annotations.NotNull;
@@ -19,42 +27,62 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
-import java.util.function.Function;
 
 public class CachedExecutionBuilder<T> {
 
     public record LoggingOptions(boolean cacheHits, boolean debug) {}
 
-    public record Options(boolean enabled, File cache, LoggingOptions logging) {}
+    public record Options(boolean enabled, File cache, boolean packDirectories, BlobStore blobs, FileHashIndex fileHashes, PathNormalizer normalizer, CacheEvictor evictor, LoggingOptions logging, @Nullable CacheReport report, @Nullable RemoteCache remote) {}
 
-    private record JobHasher(HashCode taskHash, ICacheableJob<?,?> job, Hasher hasher) {
+    /**
+     * The version of the layout of the cache entries, it is part of every entry hash,
+     * so that entries written in an older layout are never read.
+     */
+    private static final String CACHE_LAYOUT_VERSION = "2";
 
-        public JobHasher(HashCode taskHash, ICacheableJob<?, ?> job) {
-            this(taskHash, job, Hashing.sha256().newHasher());
+    private record JobHasher(HashCode taskHash, ICacheableJob<?,?> job, String format, Hasher hasher) {
+
+        public JobHasher(HashFunction hashFunction, HashCode taskHash, ICacheableJob<?, ?> job, String format) {
+            this(taskHash, job, format, hashFunction.newHasher());
         }
 
         public HashCode hash() {
+            hasher.putString(CACHE_LAYOUT_VERSION);
             hasher.putHash(taskHash);
             hasher.putString(job.name());
+            hasher.putString(format);
             return hasher.hash();
         }
     }
 
-    private record CacheStatus(@Nullable FileBasedLock lock, boolean shouldExecute, @Nullable ICache cache) implements AutoCloseable {
+    private enum CacheFormat {
+        FILE,
+        DIRECTORY,
+        PACKED_DIRECTORY,
+        REFERENCES
+    }
 
-        private static CacheStatus alwaysUnlocked() {
-            return new CacheStatus(null, true, null);
-        }
+    /**
+     * @param fetchable Whether the stage missed the local cache, but might be fetched from the remote cache. It is planned as a hit until it is fetched.
+     */
+    private record CacheStatus(@Nullable FileBasedLock lock, boolean shouldExecute, boolean fetchable, @Nullable ICache cache) implements AutoCloseable {
 
         public static CacheStatus runWithLock(FileBasedLock lock, ICache cache) {
-            return new CacheStatus(lock, true, cache);
+            return new CacheStatus(lock, true, false, cache);
         }
 
-        public static CacheStatus cachedWithLock(FileBasedLock lock) {
-            return new CacheStatus(lock, false, null);
+        public static CacheStatus cachedWithLock(FileBasedLock lock, ICache cache) {
+            return new CacheStatus(lock, false, false, cache);
+        }
+
+        public static CacheStatus fetchableWithLock(FileBasedLock lock, ICache cache) {
+            return new CacheStatus(lock, false, true, cache);
         }
 
         @NotNull
@@ -88,20 +116,20 @@ public class CachedExecutionBuilder<T> {
     private final CacheLogger logger;
 
     public CachedExecutionBuilder(Options options, Task targetTask, ICacheableJob<Void, T> initialJob) {
-        this(options, targetTask, List.of(initialJob));
+        this(options, targetTask, List.of(initialJob), new CacheLogger(targetTask, options.logging().debug(), options.logging().cacheHits(), options.enabled() ? options.report() : null));
     }
 
-    private CachedExecutionBuilder(Options options, Task targetTask, List<ICacheableJob<?, ?>> stages) {
+    private CachedExecutionBuilder(Options options, Task targetTask, List<ICacheableJob<?, ?>> stages, CacheLogger logger) {
         this.options = options;
         this.targetTask = targetTask;
         this.stages = stages;
-        this.logger = new CacheLogger(targetTask, options.logging().debug(), options.logging().cacheHits());
+        this.logger = logger;
     }
 
     public <Y> CachedExecutionBuilder<Y> withStage(ICacheableJob<T, Y> job) {
         List<ICacheableJob<?, ?>> newStages = new ArrayList<>(stages);
         newStages.add(job);
-        return new CachedExecutionBuilder<>(options, targetTask, newStages);
+        return new CachedExecutionBuilder<>(options, targetTask, newStages, logger);
     }
 
     /**
@@ -113,73 +141,327 @@ public class CachedExecutionBuilder<T> {
         //When caching is disabled, we do not need to do anything.
         if (!options.enabled()) {
             logger.debug("Caching is disabled, executing all stages.");
-            executeAll(
-                    (stage) -> CacheStatus.alwaysUnlocked(),
-                    (stage, status) -> logger.onCacheMiss(stage)
-            );
+            executeAll();
             return;
         }
 
         //Create the hash of the task
-        final TaskHasher hasher = new TaskHasher(targetTask, logger);
+        final long hashingStart = System.nanoTime();
+        final TaskHasher hasher = new TaskHasher(targetTask, options.fileHashes(), options.normalizer(), logger);
         final HashCode taskHash = hasher.create();
+        logger.onTaskHashed(taskHash, millisSince(hashingStart));
 
-        logger.debug("Task hash: %s".formatted(taskHash));
-        executeAll(
-                shouldExecuteCachedFor(targetTask, taskHash),
-                afterExecution()
-        );
+        executeCached(taskHash, hasher.fingerprint());
     }
 
     /**
-     * Creates a function that determines if a stage should be executed.
+     * Executes all stages against the cache.
+     * <p>
+     * The status of every stage is determined before anything is executed or restored, so that the outputs of
+     * stages which hit the cache are only restored when they are actually needed:
+     * <ul>
+     *     <li>A stage which misses needs the in-memory result of its predecessor, if it consumes input, so that predecessor is executed as well,
+     *     unless its cache can reconstruct the result.</li>
+     *     <li>Stages before a stage which is executed are restored, as the executed stage might read their outputs.</li>
+     *     <li>Stages whose output is a declared output of the task, or the final output, are always restored.</li>
+     * </ul>
+     * All other stages are left untouched.
+     * Stages which missed the local cache are planned as hits, and are only fetched from the remote cache once the plan needs them.
      *
-     * @param targetTask The target task.
      * @param taskHash The hash of the task.
-     * @return The function that determines if a stage should be executed.
+     * @param fingerprint The hashes of the individual inputs of the task, used to report which inputs caused a miss.
      */
-    private Function<ICacheableJob<?,?>, CacheStatus> shouldExecuteCachedFor(Task targetTask, HashCode taskHash) {
-        return (stage) -> {
-            //Create the cache
-            final ICache cache = createCache(taskHash, stage);
+    private void executeCached(HashCode taskHash, Map<String, HashCode> fingerprint) {
+        final List<CacheStatus> statuses = new ArrayList<>(stages.size());
+        Throwable failure = null;
+        try {
+            for (ICacheableJob<?, ?> stage : stages) {
+                statuses.add(lookup(taskHash, stage));
+            }
 
-            //Create and acquire the lock on the cache
-            final FileBasedLock lock = cache.createLock(logger);
+            boolean[] execute = planExecution(statuses);
+            boolean[] restore = planRestoration(execute);
+            while (fetchRemote(taskHash, statuses, execute, restore)) {
+                //A stage the plan relied on is not in the remote cache either, so it is executed, which might need other stages.
+                execute = planExecution(statuses);
+                restore = planRestoration(execute);
+            }
 
-            try {
-                //A cached execution is only healthy if the healthy file exists
-                if (lock.hasPreviousFailure()) {
-                    logger.debug("Previous failure detected for stage: %s".formatted(stage));
-                    return CacheStatus.runWithLock(lock, cache);
+            if (options.report() != null && logger.isReporting()) {
+                reportChangedInputs(options.report(), statuses, fingerprint);
+            }
+
+            //Stages which are not executed are left as they are, so their entries remain healthy whatever happens with the rest
+            for (int i = 0; i < stages.size(); i++) {
+                if (!execute[i] && !statuses.get(i).fetchable()) {
+                    statuses.get(i).onSuccess();
                 }
+            }
 
-                //We have a healthy lock, and the previous execution was successful
-                //We can now attempt to restore the cache
-                if (!cache.restoreTo(stage.output())) {
-                    //No cache restore was needed, we can skip the stage
-                    logger.onCacheEquals(stage);
+            //Holds the current state.
+            Object state = null;
+            boolean didWork = false;
+
+            for (int i = 0; i < stages.size(); i++) {
+                final ICacheableJob<?, ?> stage = stages.get(i);
+                final CacheStatus status = statuses.get(i);
+
+                try {
+                    if (execute[i]) {
+                        if (status.shouldExecute()) {
+                            logger.onCacheMiss(stage);
+                        } else {
+                            logger.onCacheBypassed(stage);
+                        }
+
+                        final long executionStart = System.nanoTime();
+                        state = executeStage(stage, state);
+                        status.cache().loadFrom(stage.output(), state);
+                        logger.onStageExecuted(stage, millisSince(executionStart), logger.isReporting() ? status.cache().contentSize() : 0);
+
+                        //Only real misses are shared, a bypassed stage is already known to the cache
+                        if (options.remote() != null && status.shouldExecute() && !stage.isShared()) {
+                            options.remote().store(remoteKey(taskHash, stage), stage.output(), stage.createsDirectory());
+                        }
+
+                        options.evictor().onEntryStored();
+                        status.onSuccess();
+                        didWork = true;
+                        continue;
+                    }
+
+                    if (status.fetchable()) {
+                        //Neither the output nor the result of the stage is needed, so it was not fetched.
+                        state = null;
+                        logger.onCacheSkipped(stage);
+                        continue;
+                    }
+
+                    //The state of a stage is generally not cached, it is only available when the stage is executed.
+                    state = status.cache().providesResult() ? status.cache().restoreResult() : null;
+                    logger.onCacheHit(stage);
+
+                    if (!restore[i]) {
+                        logger.onCacheSkipped(stage);
+                        continue;
+                    }
+
+                    final long restoreStart = System.nanoTime();
+                    if (status.cache().restoreTo(stage.output())) {
+                        logger.onStageRestored(stage, millisSince(restoreStart), logger.isReporting() ? status.cache().contentSize() : 0);
+                    } else {
+                        //No cache restore was needed
+                        logger.onCacheEquals(stage);
+                    }
+                } catch (Throwable e) {
+                    //We do not need to notify the status of the failure, as it will be closed and assumes failure
+                    //if it is not marked as successful.
+                    throw new GradleException("Failed to execute stage: %s".formatted(stage), e);
                 }
+            }
 
+            if (!didWork) {
                 targetTask.setDidWork(false);
-
-                //The cache was restored successfully, we do not need to execute the stage
-                return CacheStatus.cachedWithLock(lock);
-            } catch (Exception e) {
-                throw new GradleException("Failed to restore cache for stage: %s".formatted(stage), e);
             }
-        };
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            closeAll(statuses, failure);
+        }
     }
 
-    private AfterExecute afterExecution() {
-        //Return a consumer that logs the cache hit or miss
-        return (stage, status) -> {
-            if (status.shouldExecute()) {
-                logger.onCacheMiss(stage);
-                status.cache().loadFrom(stage.output());
+    /**
+     * Determines the status of the given stage in the cache, acquiring its lock.
+     *
+     * @param taskHash The hash of the task.
+     * @param stage The stage.
+     * @return The status of the stage, holding the lock on its cache entry.
+     */
+    private CacheStatus lookup(HashCode taskHash, ICacheableJob<?, ?> stage) {
+        //Create the cache
+        final ICache cache = createCache(taskHash, stage);
+
+        //Create and acquire the lock on the cache
+        final long lockStart = System.nanoTime();
+        final FileBasedLock lock = cache.createLock(logger);
+        logger.onStageLocked(stage, millisSince(lockStart));
+
+        //A cached execution is only healthy if the healthy file exists
+        if (lock.hasPreviousFailure()) {
+            logger.debug("Previous failure detected for stage: %s".formatted(stage));
+            return miss(stage, lock, cache);
+        }
+
+        //The entry might have been stored successfully, but its content is no longer available
+        if (!cache.isRestorable()) {
+            logger.debug("Incomplete cache entry detected for stage: %s".formatted(stage));
+            return miss(stage, lock, cache);
+        }
+
+        //We have a healthy lock, and the previous execution was successful
+        return CacheStatus.cachedWithLock(lock, cache);
+    }
+
+    /**
+     * Handles a stage which missed the local cache.
+     *
+     * @param stage The stage.
+     * @param lock The lock on the local cache entry.
+     * @param cache The local cache of the stage.
+     * @return The status of the stage, fetchable if there is a remote cache which might hold its entry.
+     */
+    private CacheStatus miss(ICacheableJob<?, ?> stage, FileBasedLock lock, ICache cache) {
+        if (options.remote() == null || stage.isShared()) {
+            return CacheStatus.runWithLock(lock, cache);
+        }
+
+        return CacheStatus.fetchableWithLock(lock, cache);
+    }
+
+    /**
+     * Fetches the stages which missed the local cache from the remote cache, if the given plan needs them:
+     * when their output is restored, or a later stage which is executed requires their result.
+     * Stages which are executed anyway are not fetched.
+     *
+     * @param taskHash The hash of the task.
+     * @param statuses The statuses of the stages, fetched stages are replaced by their new status.
+     * @param execute For each stage, whether it is executed.
+     * @param restore For each stage, whether it is restored.
+     * @return True if a needed stage could not be fetched, in which case it now has to be executed and the plan has to be made again.
+     */
+    private boolean fetchRemote(HashCode taskHash, List<CacheStatus> statuses, boolean[] execute, boolean[] restore) {
+        boolean missed = false;
+        for (int i = 0; i < stages.size(); i++) {
+            final CacheStatus status = statuses.get(i);
+            if (!status.fetchable()) {
+                continue;
+            }
+
+            final ICacheableJob<?, ?> stage = stages.get(i);
+            if (execute[i]) {
+                statuses.set(i, CacheStatus.runWithLock(status.lock(), status.cache()));
+                continue;
+            }
+
+            final boolean resultNeeded = i + 1 < stages.size() && execute[i + 1] && stages.get(i + 1).requiresInput();
+            if (!restore[i] && !resultNeeded) {
+                continue;
+            }
+
+            if (options.remote().fetch(remoteKey(taskHash, stage), status.cache(), stage.createsDirectory()) && status.cache().isRestorable()) {
+                logger.debug("Loaded stage: %s from the remote cache".formatted(stage));
+                statuses.set(i, CacheStatus.cachedWithLock(status.lock(), status.cache()));
             } else {
-                logger.onCacheHit(stage);
+                statuses.set(i, CacheStatus.runWithLock(status.lock(), status.cache()));
+                missed = true;
             }
-        };
+        }
+
+        return missed;
+    }
+
+    /**
+     * Determines the key of the given stage in the remote cache.
+     * Unlike the local entries, remote entries are independent of the local storage format.
+     *
+     * @param taskHash The hash of the task.
+     * @param stage The stage.
+     * @return The key of the remote entry.
+     */
+    private String remoteKey(HashCode taskHash, ICacheableJob<?, ?> stage) {
+        final String format = stage.createsDirectory() ? CacheFormat.DIRECTORY.name() : CacheFormat.FILE.name();
+        return new JobHasher(options.blobs().hashFunction(), taskHash, stage, "REMOTE_" + format).hash().toString();
+    }
+
+    /**
+     * Determines which stages need to be executed.
+     * Next to the stages which missed the cache, this includes the predecessors of executed stages which consume their input.
+     *
+     * @param statuses The statuses of the stages.
+     * @return For each stage, whether it needs to be executed.
+     */
+    private boolean[] planExecution(List<CacheStatus> statuses) {
+        final boolean[] execute = new boolean[stages.size()];
+        for (int i = 0; i < stages.size(); i++) {
+            execute[i] = statuses.get(i).shouldExecute();
+        }
+
+        for (int i = stages.size() - 1; i > 0; i--) {
+            if (execute[i] && stages.get(i).requiresInput() && !execute[i - 1] && !statuses.get(i - 1).cache().providesResult()) {
+                logger.debug("Stage: %s requires the result of stage: %s, executing it".formatted(stages.get(i), stages.get(i - 1)));
+                execute[i - 1] = true;
+            }
+        }
+
+        return execute;
+    }
+
+    /**
+     * Determines which stages, that are not executed, need to be restored from the cache.
+     *
+     * @param execute For each stage, whether it is executed.
+     * @return For each stage, whether it needs to be restored.
+     */
+    private boolean[] planRestoration(boolean[] execute) {
+        final boolean[] restore = new boolean[stages.size()];
+        boolean laterStageExecutes = false;
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            if (!execute[i]) {
+                restore[i] = laterStageExecutes || i == stages.size() - 1 || isDeclaredOutput(stages.get(i).output());
+            }
+            laterStageExecutes |= execute[i];
+        }
+        return restore;
+    }
+
+    private boolean isDeclaredOutput(File output) {
+        final Path outputPath = output.toPath().toAbsolutePath().normalize();
+        for (File declared : targetTask.getOutputs().getFiles().getFiles()) {
+            if (outputPath.startsWith(declared.toPath().toAbsolutePath().normalize())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remembers the fingerprint of the task inputs, and reports which inputs changed since the last execution if any stage missed the cache.
+     *
+     * @param report The cache report.
+     * @param statuses The statuses of the stages.
+     * @param fingerprint The hashes of the individual inputs of the task.
+     */
+    private void reportChangedInputs(CacheReport report, List<CacheStatus> statuses, Map<String, HashCode> fingerprint) {
+        final List<InputFingerprints.Change> changes = report.fingerprints().update(targetTask.getPath(), fingerprint);
+        if (changes != null && statuses.stream().anyMatch(CacheStatus::shouldExecute)) {
+            logger.onInputsChanged(changes);
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private void closeAll(List<CacheStatus> statuses, @Nullable Throwable failure) {
+        GradleException closeFailure = null;
+        for (int i = statuses.size() - 1; i >= 0; i--) {
+            try {
+                statuses.get(i).close();
+            } catch (Exception e) {
+                if (failure != null) {
+                    failure.addSuppressed(e);
+                } else if (closeFailure == null) {
+                    closeFailure = new GradleException("Failed to release the cache lock of stage: %s".formatted(stages.get(i)), e);
+                } else {
+                    closeFailure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (closeFailure != null) {
+            throw closeFailure;
+        }
     }
 
     /**
@@ -190,10 +472,25 @@ public class CachedExecutionBuilder<T> {
      * @return The cache for the given task hash and job.
      */
     private ICache createCache(final HashCode taskHash, final ICacheableJob<?,?> job) {
-        final JobHasher jobHasher = new JobHasher(taskHash, job);
+        final CacheFormat format;
+        if (job.isShared()) {
+            format = CacheFormat.REFERENCES;
+        } else if (!job.createsDirectory()) {
+            format = CacheFormat.FILE;
+        } else {
+            format = options.packDirectories() ? CacheFormat.PACKED_DIRECTORY : CacheFormat.DIRECTORY;
+        }
+
+        //The format is part of the entry, so that entries in different formats never get mixed up
+        final JobHasher jobHasher = new JobHasher(options.blobs().hashFunction(), taskHash, job, format.name());
         final File cacheDir = new File(options.cache(), jobHasher.hash().toString());
 
-        return job.createsDirectory() ? new DirectoryCache(cacheDir) : new FileCache(cacheDir);
+        return switch (format) {
+            case REFERENCES -> new ReferenceCache(cacheDir, job.output(), options.blobs().hashFunction());
+            case FILE -> new FileCache(cacheDir, options.blobs());
+            case DIRECTORY -> new DirectoryCache(cacheDir, options.blobs(), options.fileHashes());
+            case PACKED_DIRECTORY -> new PackedDirectoryCache(cacheDir, options.blobs(), options.fileHashes());
+        };
     }
 
     /**
@@ -208,7 +505,14 @@ public class CachedExecutionBuilder<T> {
     private Object executeStage(ICacheableJob job, Object input) throws Throwable {
         final File intendedOutput = job.output();
 
-        prepareWorkspace(intendedOutput, job.createsDirectory());
+        //A shared output is never cleaned, the job only adds to it.
+        if (job.isShared()) {
+            if (!intendedOutput.exists() && !intendedOutput.mkdirs()) {
+                throw new RuntimeException("Failed to create directory: %s".formatted(intendedOutput.getAbsolutePath()));
+            }
+        } else {
+            prepareWorkspace(intendedOutput, job.createsDirectory());
+        }
 
         return job.execute(input);
     }
@@ -226,55 +530,28 @@ public class CachedExecutionBuilder<T> {
                 throw new RuntimeException("Failed to create directory: %s".formatted(output.getAbsolutePath()));
             }
 
-            if (output.exists()) {
-                FileUtils.cleanDirectory(output);
-            }
+            //Outputs restored from the cache are read-only links to their blob, they are replaced instead of written into.
+            options.blobs().cleanDirectory(output.toPath());
         } else {
-            if (output.exists() && !output.delete()) {
-                throw new RuntimeException("Failed to delete file: %s".formatted(output.getAbsolutePath()));
-            }
+            options.blobs().delete(output.toPath());
         }
     }
 
     /**
-     * Executes all stages.
-     *
-     * @param beforeExecute The function to execute before executing a stage.
-     * @param afterExecute The consumer to execute after executing a stage.
+     * Executes all stages, without consulting the cache.
      */
-    private void executeAll(
-            final Function<ICacheableJob<?,?>, CacheStatus> beforeExecute,
-            final AfterExecute afterExecute
-            ) {
+    private void executeAll() {
         //Holds the current state.
         Object state = null;
 
-        //Loop over all stages and execute them if needed.
+        //Loop over all stages and execute them.
         for (ICacheableJob<?, ?> stage : stages) {
-
-            //Grab a cache status for the stage
-            try(CacheStatus status = beforeExecute.apply(stage)) {
-
-                //If we should execute the stage, execute it.
-                if (status.shouldExecute()) {
-                    state = executeStage(stage, state);
-                }
-
-                //Run the after execute consumer
-                afterExecute.accept(stage, status);
-
-                //Mark the status as successful
-                status.onSuccess();
+            try {
+                logger.onCacheMiss(stage);
+                state = executeStage(stage, state);
             } catch (Throwable e) {
-                //If an exception occurs, throw a Gradle exception.
-                //We do not need to notify the status of the failure, as it will be closed and assumes failure
-                //if it is not marked as successful.
                 throw new GradleException("Failed to execute stage: %s".formatted(stage), e);
             }
         }
     }
-
-    private interface AfterExecute {
-        void accept(ICacheableJob<?,?> stage, CacheStatus status) throws Exception;
-    }
 }
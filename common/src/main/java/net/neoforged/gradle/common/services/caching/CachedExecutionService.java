@@ -1,19 +1,37 @@
 package net.neoforged.gradle.common.services.caching;
 
 
+import net.neoforged.gradle.common.services.caching.cache.BlobStore;
+import net.neoforged.gradle.common.services.caching.eviction.CacheEvictor;
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.services.caching.hasher.PathNormalizer;
 import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.services.caching.remote.HttpRemoteCacheBackend;
+import net.neoforged.gradle.common.services.caching.remote.RemoteCache;
+import net.neoforged.gradle.common.services.caching.report.CacheReport;
+import net.neoforged.gradle.common.services.caching.report.InputFingerprints;
+import net.neoforged.gradle.common.util.hash.HashFunction;
+import net.neoforged.gradle.common.util.hash.Hashing;
 import org.apache.commons.io.FileUtils;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logging;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.services.BuildService;
 import org.gradle.api.services.BuildServiceParameters;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-public abstract class CachedExecutionService implements BuildService<CachedExecutionService.Parameters> {
+public abstract class CachedExecutionService implements BuildService<CachedExecutionService.Parameters>, AutoCloseable {
 
     public static final String NAME = "CachedExecutionService";
 
@@ -23,25 +41,95 @@ public abstract class CachedExecutionService implements BuildService<CachedExecu
     public static final String CACHE_DIRECTORY_PROPERTY = CACHING_PROPERTY_PREFIX + "cacheDirectory";
     public static final String LOG_CACHE_HITS_PROPERTY = CACHING_PROPERTY_PREFIX + "logCacheHits";
     public static final String MAX_CACHE_SIZE_PROPERTY = CACHING_PROPERTY_PREFIX + "maxCacheSize";
+    public static final String MAX_CACHE_DISK_USAGE_PROPERTY = CACHING_PROPERTY_PREFIX + "maxCacheDiskUsage";
     public static final String DEBUG_CACHE_PROPERTY = CACHING_PROPERTY_PREFIX + "debug";
     public static final String IS_ENABLED_PROPERTY = CACHING_PROPERTY_PREFIX + "enabled";
+    public static final String HASH_FUNCTION_PROPERTY = CACHING_PROPERTY_PREFIX + "hashFunction";
+    public static final String PACK_DIRECTORIES_PROPERTY = CACHING_PROPERTY_PREFIX + "packDirectories";
+    public static final String REPORT_PROPERTY = CACHING_PROPERTY_PREFIX + "report";
+    public static final String REMOTE_URL_PROPERTY = CACHING_PROPERTY_PREFIX + "remote.url";
+    public static final String REMOTE_PUSH_PROPERTY = CACHING_PROPERTY_PREFIX + "remote.push";
+    public static final String REMOTE_USERNAME_PROPERTY = CACHING_PROPERTY_PREFIX + "remote.username";
+    public static final String REMOTE_PASSWORD_PROPERTY = CACHING_PROPERTY_PREFIX + "remote.password";
+
+    public static final String REPORT_FILE = "reports/neogradle/cache-report.json";
 
 
     public interface Parameters extends BuildServiceParameters {
 
         DirectoryProperty getCacheDirectory();
 
+        /**
+         * @return The root directory of the build, paths inside it are hashed relative to it.
+         */
+        DirectoryProperty getProjectDirectory();
+
+        /**
+         * @return The Gradle user home, paths inside it are hashed relative to it.
+         */
+        DirectoryProperty getGradleUserHome();
+
         Property<Boolean> getLogCacheHits();
 
+        /**
+         * @return The maximum amount of entries in the cache, zero or less for no limit.
+         */
         Property<Integer> getMaxCacheSize();
 
+        /**
+         * @return The maximum amount of megabytes the entries in the cache may occupy, zero or less for no limit.
+         */
+        Property<Long> getMaxCacheDiskUsage();
+
         Property<Boolean> getDebugCache();
 
         Property<Boolean> getIsEnabled();
+
+        /**
+         * @return The name of the hash function used for cache keys and content, for example "sha256" or "murmur3".
+         */
+        Property<String> getHashFunction();
+
+        /**
+         * @return True if directory outputs are stored as a single archive per entry, instead of one blob per file.
+         */
+        Property<Boolean> getPackDirectories();
+
+        /**
+         * @return True if a report of the effectiveness of the cache is written at the end of the build.
+         */
+        Property<Boolean> getReport();
+
+        /**
+         * @return The file the cache report is written to.
+         */
+        RegularFileProperty getReportFile();
+
+        /**
+         * @return The url of the remote cache, if any.
+         */
+        Property<String> getRemoteUrl();
+
+        /**
+         * @return True if entries which are executed locally are stored in the remote cache.
+         */
+        Property<Boolean> getRemotePush();
+
+        Property<String> getRemoteUsername();
+
+        Property<String> getRemotePassword();
     }
 
-    public static void register(Project project) {
-        project.getGradle().getSharedServices().registerIfAbsent(
+    private BlobStore blobs;
+    private CacheEvictor evictor;
+    private FileHashIndex fileHashes;
+    private CacheReport report;
+    private RemoteCache remote;
+    private boolean remoteResolved;
+    private PathNormalizer normalizer;
+
+    public static Provider<CachedExecutionService> register(Project project) {
+        return project.getGradle().getSharedServices().registerIfAbsent(
                 NAME,
                 CachedExecutionService.class,
                 spec -> {
@@ -49,10 +137,21 @@ public abstract class CachedExecutionService implements BuildService<CachedExecu
                             .fileProvider(project.getProviders().gradleProperty(CACHE_DIRECTORY_PROPERTY)
                                     .map(File::new)
                                     .orElse(new File(new File(project.getGradle().getGradleUserHomeDir(), "caches"), DIRECTORY_NAME)));
+                    spec.getParameters().getProjectDirectory().set(project.getRootProject().getLayout().getProjectDirectory());
+                    spec.getParameters().getGradleUserHome().set(project.getGradle().getGradleUserHomeDir());
                     spec.getParameters().getLogCacheHits().set(project.getProviders().gradleProperty(LOG_CACHE_HITS_PROPERTY).map(Boolean::parseBoolean).orElse(false));
                     spec.getParameters().getMaxCacheSize().set(project.getProviders().gradleProperty(MAX_CACHE_SIZE_PROPERTY).map(Integer::parseInt).orElse(100));
+                    spec.getParameters().getMaxCacheDiskUsage().set(project.getProviders().gradleProperty(MAX_CACHE_DISK_USAGE_PROPERTY).map(Long::parseLong).orElse(0L));
                     spec.getParameters().getDebugCache().set(project.getProviders().gradleProperty(DEBUG_CACHE_PROPERTY).map(Boolean::parseBoolean).orElse(false));
                     spec.getParameters().getIsEnabled().set(project.getProviders().gradleProperty(IS_ENABLED_PROPERTY).map(Boolean::parseBoolean).orElse(true));
+                    spec.getParameters().getHashFunction().set(project.getProviders().gradleProperty(HASH_FUNCTION_PROPERTY).orElse("sha256"));
+                    spec.getParameters().getPackDirectories().set(project.getProviders().gradleProperty(PACK_DIRECTORIES_PROPERTY).map(Boolean::parseBoolean).orElse(false));
+                    spec.getParameters().getReport().set(project.getProviders().gradleProperty(REPORT_PROPERTY).map(Boolean::parseBoolean).orElse(false));
+                    spec.getParameters().getReportFile().set(project.getRootProject().getLayout().getBuildDirectory().file(REPORT_FILE));
+                    spec.getParameters().getRemoteUrl().set(project.getProviders().gradleProperty(REMOTE_URL_PROPERTY));
+                    spec.getParameters().getRemotePush().set(project.getProviders().gradleProperty(REMOTE_PUSH_PROPERTY).map(Boolean::parseBoolean).orElse(false));
+                    spec.getParameters().getRemoteUsername().set(project.getProviders().gradleProperty(REMOTE_USERNAME_PROPERTY));
+                    spec.getParameters().getRemotePassword().set(project.getProviders().gradleProperty(REMOTE_PASSWORD_PROPERTY));
                 }
         );
     }
@@ -61,6 +160,123 @@ public abstract class CachedExecutionService implements BuildService<CachedExecu
         FileUtils.cleanDirectory(getParameters().getCacheDirectory().get().getAsFile());
     }
 
+    /**
+     * Evicts the least recently used entries, until the cache is within its configured bounds.
+     *
+     * @throws IOException If the cache could not be read.
+     */
+    public void evict() throws IOException {
+        getEvictor().evict();
+    }
+
+    /**
+     * @return The hash function used for cache keys and the content of cache entries.
+     */
+    public HashFunction getHashFunction() {
+        return Hashing.forName(getParameters().getHashFunction().get());
+    }
+
+    /**
+     * @return The content addressed store which holds the content of all cache entries.
+     */
+    public synchronized BlobStore getBlobStore() {
+        if (blobs == null) {
+            blobs = new BlobStore(getParameters().getCacheDirectory().get().getAsFile(), getHashFunction());
+        }
+
+        return blobs;
+    }
+
+    /**
+     * @return The index of the content hashes of task input files, shared by all tasks in the build.
+     */
+    public synchronized FileHashIndex getFileHashIndex() {
+        if (fileHashes == null) {
+            fileHashes = FileHashIndex.load(getParameters().getCacheDirectory().get().getAsFile(), getHashFunction());
+        }
+
+        return fileHashes;
+    }
+
+    /**
+     * @return The normalizer which makes cache keys independent of the location of the project, the Gradle user home and the cache.
+     */
+    public synchronized PathNormalizer getPathNormalizer() {
+        if (normalizer == null) {
+            final Map<String, File> roots = new LinkedHashMap<>();
+            roots.put("project", getParameters().getProjectDirectory().get().getAsFile());
+            roots.put("gradleUserHome", getParameters().getGradleUserHome().get().getAsFile());
+            roots.put("cache", getParameters().getCacheDirectory().get().getAsFile());
+            normalizer = new PathNormalizer(roots);
+        }
+
+        return normalizer;
+    }
+
+    /**
+     * @return The evictor which keeps the cache within its configured bounds.
+     */
+    public synchronized CacheEvictor getEvictor() {
+        if (evictor == null) {
+            evictor = new CacheEvictor(
+                    getParameters().getCacheDirectory().get().getAsFile(),
+                    getParameters().getMaxCacheSize().get(),
+                    getParameters().getMaxCacheDiskUsage().get() * 1024 * 1024,
+                    createServiceLogger()
+            );
+        }
+
+        return evictor;
+    }
+
+    private CacheLogger createServiceLogger() {
+        return new CacheLogger(
+                Logging.getLogger(CachedExecutionService.class),
+                NAME,
+                getParameters().getDebugCache().get(),
+                getParameters().getLogCacheHits().get()
+        );
+    }
+
+    /**
+     * @return The report of the effectiveness of the cache in this build, or null if no report is requested.
+     */
+    @Nullable
+    public synchronized CacheReport getReport() {
+        if (report == null && getParameters().getReport().get()) {
+            report = new CacheReport(new InputFingerprints(
+                    getParameters().getCacheDirectory().get().getAsFile(),
+                    getParameters().getProjectDirectory().get().getAsFile()
+            ));
+        }
+
+        return report;
+    }
+
+    /**
+     * @return The remote tier of the cache, or null if no remote cache is configured.
+     */
+    @Nullable
+    public synchronized RemoteCache getRemoteCache() {
+        if (!remoteResolved) {
+            remoteResolved = true;
+            if (getParameters().getRemoteUrl().isPresent()) {
+                remote = new RemoteCache(
+                        new HttpRemoteCacheBackend(
+                                URI.create(getParameters().getRemoteUrl().get()),
+                                getParameters().getRemoteUsername().getOrNull(),
+                                getParameters().getRemotePassword().getOrNull()
+                        ),
+                        getParameters().getRemotePush().get(),
+                        getParameters().getCacheDirectory().get().getAsFile(),
+                        createServiceLogger()
+                );
+            }
+        }
+
+        return remote;
+    }
+
     public <T> CachedExecutionBuilder<T> cached(
             Task task,
             ICacheableJob<Void, T> initial
@@ -69,14 +285,51 @@ public abstract class CachedExecutionService implements BuildService<CachedExecu
                 new CachedExecutionBuilder.Options(
                         getParameters().getIsEnabled().get(),
                         getParameters().getCacheDirectory().get().getAsFile(),
+                        getParameters().getPackDirectories().get(),
+                        getBlobStore(),
+                        getFileHashIndex(),
+                        getPathNormalizer(),
+                        getEvictor(),
                         new CachedExecutionBuilder.LoggingOptions(
                                 getParameters().getLogCacheHits().get(),
                                 getParameters().getDebugCache().get()
-                        )
+                        ),
+                        getReport(),
+                        getRemoteCache()
                 ),
                 task,
                 initial
         );
     }
 
+    @Override
+    public void close() throws Exception {
+        try {
+            //Entries are uploaded in the background, the build is only finished once they are shared.
+            if (remote != null) {
+                remote.close();
+            }
+        } finally {
+            closeLocal();
+        }
+    }
+
+    private void closeLocal() throws IOException {
+        try {
+            //Only evict when this build added entries, builds that only hit the cache can not have grown it.
+            if (evictor != null) {
+                evictor.evictIfNeeded();
+            }
+        } finally {
+            try {
+                if (fileHashes != null) {
+                    fileHashes.save();
+                }
+            } finally {
+                if (report != null) {
+                    report.write(getParameters().getReportFile().get().getAsFile());
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,118 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
+import net.neoforged.gradle.common.services.caching.locking.LockManager;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.util.hash.HashCode;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Base class for caches which keep their content in the shared {@link BlobStore},
+ * and only store a {@link CacheManifest} in the cache entry itself.
+ */
+public abstract class BlobBackedCache implements ICache {
+
+    protected final File cacheDir;
+    protected final BlobStore blobs;
+
+    protected BlobBackedCache(File cacheDir, BlobStore blobs) {
+        this.cacheDir = cacheDir;
+        this.blobs = blobs;
+    }
+
+    protected File manifestFile() {
+        return new File(cacheDir, CacheManifest.FILE_NAME);
+    }
+
+    protected CacheManifest readManifest() throws IOException {
+        return CacheManifest.read(manifestFile());
+    }
+
+    /**
+     * Stores the given file in the blob store.
+     *
+     * @param file The file to store.
+     * @param path The path of the file relative to the output.
+     * @return The manifest entry of the file.
+     * @throws IOException If the file could not be stored.
+     */
+    protected CacheManifest.Entry store(File file, String path) throws IOException {
+        return store(file, path, blobs.hashFunction().hashFile(file));
+    }
+
+    /**
+     * Stores the given file, whose content hash is already known, in the blob store.
+     *
+     * @param file The file to store.
+     * @param path The path of the file relative to the output.
+     * @param hash The content hash of the file.
+     * @return The manifest entry of the file.
+     * @throws IOException If the file could not be stored.
+     */
+    protected CacheManifest.Entry store(File file, String path, HashCode hash) throws IOException {
+        blobs.put(file, hash);
+        final File blob = blobs.blob(hash);
+        return new CacheManifest.Entry(path, hash, blob.length(), blob.lastModified());
+    }
+
+    /**
+     * Checks if the given file has the content described by the given entry.
+     *
+     * @param entry The entry.
+     * @param file The file to check.
+     * @return True if the file has the content of the entry.
+     * @throws IOException If the file could not be hashed.
+     */
+    protected boolean matches(CacheManifest.Entry entry, File file) throws IOException {
+        return matchesWithoutHashing(entry, file) && (blobs.isBlob(entry.hash(), file) || blobs.hashFunction().hashFile(file).equals(entry.hash()));
+    }
+
+    /**
+     * Checks if the given file could have the content described by the given entry, without reading the file.
+     *
+     * @param entry The entry.
+     * @param file The file to check.
+     * @return False if the file certainly does not have the content of the entry.
+     */
+    protected boolean matchesWithoutHashing(CacheManifest.Entry entry, File file) {
+        return file.isFile() && file.length() == entry.size();
+    }
+
+    @Override
+    public boolean isRestorable() {
+        final File manifestFile = manifestFile();
+        if (!manifestFile.exists()) {
+            return false;
+        }
+
+        try {
+            final CacheManifest manifest = readManifest();
+            for (CacheManifest.Entry entry : manifest.files()) {
+                final File blob = blobs.blob(entry.hash());
+                //A blob that changed since it was stored has been tampered with through one of its links.
+                if (!blob.exists() || blob.length() != entry.size() || blob.lastModified() != entry.lastModified()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public long contentSize() {
+        try {
+            return readManifest().size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public FileBasedLock createLock(CacheLogger logger) {
+        return LockManager.createLock(cacheDir, logger);
+    }
+}
@@ -0,0 +1,302 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.services.caching.locking.ReadWriteFileLock;
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.HashFunction;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.UUID;
+
+/**
+ * A content addressed store for the files held by the cache.
+ * <p>
+ * Every unique file content is stored exactly once, named by its hash.
+ * Files are brought into and out of the store with hard links where the filesystem supports them,
+ * so that storing and restoring an entry only costs metadata operations.
+ * When linking is not possible (different volumes, unsupported filesystems) a copy is made instead,
+ * which lets the JDK use copy offloading (reflinks) where the filesystem supports it.
+ * <p>
+ * Blobs are read-only, and so are all links to them, as writing into a link would change every output which shares its content.
+ * Files which are links to a blob can only be replaced, which is done with {@link #delete(Path)}.
+ * <p>
+ * Windows does not delete read-only files, and all links of a file share that attribute, so a link can not be made writable without
+ * making its blob writable too. Such links are moved next to their blob instead, and are removed together with it.
+ */
+public final class BlobStore {
+
+    public static final String DIRECTORY_NAME = "blobs";
+
+    public static final String LOCK_FILE_NAME = "blobs.lock";
+
+    /**
+     * The suffix of links to a blob which were deleted from their output, but could not be removed without making the blob writable.
+     */
+    public static final String DELETED_SUFFIX = ".deleted";
+
+    private final File root;
+    private final HashFunction hashFunction;
+    private final ReadWriteFileLock lock;
+
+    private volatile boolean linksSupported = true;
+
+    public BlobStore(File cacheDirectory, HashFunction hashFunction) {
+        this.root = new File(cacheDirectory, DIRECTORY_NAME);
+        this.hashFunction = hashFunction;
+        this.lock = lock(cacheDirectory);
+    }
+
+    /**
+     * Gets the lock which guards the blobs of the given cache against being collected while entries are stored.
+     * The blobs of an entry are stored before its manifest references them, so unreferenced blobs may only be collected while the lock is held exclusively.
+     *
+     * @param cacheDirectory The cache directory.
+     * @return The lock.
+     */
+    public static ReadWriteFileLock lock(File cacheDirectory) {
+        return ReadWriteFileLock.of(new File(cacheDirectory, LOCK_FILE_NAME));
+    }
+
+    /**
+     * Locks the store for storing an entry, until the returned handle is closed.
+     * Any amount of entries can be stored at the same time.
+     *
+     * @return The handle which releases the lock.
+     * @throws IOException If the store could not be locked.
+     */
+    public Closeable lockForStoring() throws IOException {
+        return lock.lockShared();
+    }
+
+    /**
+     * @return The hash function used to address the blobs in this store.
+     */
+    public HashFunction hashFunction() {
+        return hashFunction;
+    }
+
+    /**
+     * Gets the file in which the blob with the given hash is stored.
+     *
+     * @param hash The hash of the blob.
+     * @return The file of the blob, it might not exist.
+     */
+    public File blob(HashCode hash) {
+        final String name = hash.toString();
+        return new File(new File(root, name.substring(0, 2)), name);
+    }
+
+    /**
+     * Adds the given file to the store.
+     *
+     * @param source The file to add.
+     * @return The hash under which the file is stored.
+     * @throws IOException If the file could not be stored.
+     */
+    public HashCode put(File source) throws IOException {
+        return put(source, hashFunction.hashFile(source));
+    }
+
+    /**
+     * Adds the given file, whose hash is already known, to the store.
+     *
+     * @param source The file to add.
+     * @param hash The hash of the file.
+     * @return The hash under which the file is stored.
+     * @throws IOException If the file could not be stored.
+     */
+    public HashCode put(File source, HashCode hash) throws IOException {
+        final File blob = blob(hash);
+        if (blob.exists()) {
+            return hash;
+        }
+
+        final File parent = blob.getParentFile();
+        if (!parent.exists() && !parent.mkdirs() && !parent.exists()) {
+            throw new IOException("Failed to create blob directory: %s".formatted(parent.getAbsolutePath()));
+        }
+
+        //We always go through a temporary file, so that a blob is either fully present or absent.
+        final Path temp = new File(parent, "%s.%s.tmp".formatted(blob.getName(), UUID.randomUUID())).toPath();
+        try {
+            transfer(source.toPath(), temp);
+            //When linked, this also protects the source, which now shares its content with the blob.
+            makeReadOnly(temp.toFile());
+            try {
+                Files.move(temp, blob.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, blob.toPath());
+            } catch (FileAlreadyExistsException e) {
+                //Somebody else stored the same content in the meantime, which is fine.
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        return hash;
+    }
+
+    /**
+     * Materializes the blob with the given hash at the given target.
+     * The target must not exist.
+     * <p>
+     * A target which is linked to the blob is read-only, a copy of the blob is writable.
+     *
+     * @param hash The hash of the blob.
+     * @param target The target file.
+     * @throws IOException If the blob could not be materialized.
+     */
+    public void restore(HashCode hash, File target) throws IOException {
+        final File blob = blob(hash);
+        if (!blob.exists()) {
+            throw new IOException("Missing blob %s in cache: %s".formatted(hash, blob.getAbsolutePath()));
+        }
+
+        final File parent = target.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs() && !parent.exists()) {
+            throw new IOException("Failed to create directory: %s".formatted(parent.getAbsolutePath()));
+        }
+
+        if (transfer(blob.toPath(), target.toPath())) {
+            //Protects the blob again, in case it was made writable outside of the store.
+            makeReadOnly(target);
+        } else if (!target.canWrite() && !target.setWritable(true)) {
+            throw new IOException("Failed to make restored file writable: %s".formatted(target.getAbsolutePath()));
+        }
+    }
+
+    /**
+     * Deletes the given file or directory, if it exists, even when it is or contains read-only links to blobs.
+     * Outputs restored from the store have to be deleted this way before they can be written again.
+     *
+     * @param file The file or directory to delete.
+     * @throws IOException If the file could not be deleted.
+     */
+    public void delete(Path file) throws IOException {
+        if (!Files.isDirectory(file)) {
+            deleteFile(file);
+            return;
+        }
+
+        cleanDirectory(file);
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Deletes everything within the given directory, like {@link #delete(Path)} does.
+     *
+     * @param directory The directory to clean.
+     * @throws IOException If the directory could not be cleaned.
+     */
+    public void cleanDirectory(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                deleteFile(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+
+                if (!dir.equals(directory)) {
+                    Files.delete(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void deleteFile(Path file) throws IOException {
+        try {
+            Files.deleteIfExists(file);
+        } catch (AccessDeniedException e) {
+            //Windows does not delete read-only files, a link to a blob is unlinked by moving it next to its blob instead.
+            final HashCode hash = hashFunction.hashFile(file.toFile());
+            if (!isBlob(hash, file.toFile())) {
+                deleteUnreferenced(file);
+                return;
+            }
+
+            final File blob = blob(hash);
+            final File deleted = new File(blob.getParentFile(), "%s.%s%s".formatted(blob.getName(), UUID.randomUUID(), DELETED_SUFFIX));
+            Files.move(file, deleted.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Deletes a file which is no longer shared with any blob that is still in use, for example an unreferenced blob itself.
+     * Read-only files are made writable first, which affects all of their links.
+     *
+     * @param file The file to delete.
+     * @throws IOException If the file could not be deleted.
+     */
+    public static void deleteUnreferenced(Path file) throws IOException {
+        try {
+            Files.deleteIfExists(file);
+        } catch (AccessDeniedException e) {
+            //Windows does not delete read-only files.
+            if (!file.toFile().setWritable(true)) {
+                throw e;
+            }
+
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Checks if the given file is the blob with the given hash, meaning that it is a link to it.
+     *
+     * @param hash The hash of the blob.
+     * @param file The file to check.
+     * @return True if the file is the blob.
+     */
+    public boolean isBlob(HashCode hash, File file) {
+        final File blob = blob(hash);
+        try {
+            return blob.exists() && file.exists() && Files.isSameFile(blob.toPath(), file.toPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void makeReadOnly(File file) throws IOException {
+        if (file.canWrite() && !file.setReadOnly()) {
+            throw new IOException("Failed to make blob read-only: %s".formatted(file.getAbsolutePath()));
+        }
+    }
+
+    /**
+     * @return True if the target was linked to the source, false if it was copied.
+     */
+    private boolean transfer(Path source, Path target) throws IOException {
+        if (linksSupported) {
+            try {
+                Files.createLink(target, source);
+                return true;
+            } catch (UnsupportedOperationException e) {
+                linksSupported = false;
+            } catch (FileAlreadyExistsException e) {
+                throw e;
+            } catch (IOException ignored) {
+                //Linking is not possible between these two paths (for example across volumes), copy instead.
+            }
+        }
+
+        Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+        return false;
+    }
+}
@@ -0,0 +1,146 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.util.hash.HashCode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The manifest of a cache entry, it describes the files (and directories) that make up the output of a cached stage.
+ * <p>
+ * The manifest is stored as a simple tab separated text file, with one line per file or directory.
+ * File paths are relative to the output of the stage, a single file output has an empty path.
+ *
+ * @param files The files in the entry.
+ * @param directories The directories in the entry, needed to restore empty directories.
+ */
+public record CacheManifest(List<Entry> files, List<String> directories) {
+
+    public static final String FILE_NAME = "manifest";
+
+    private static final String HEADER = "# ng-cache-manifest 1";
+    private static final String FILE_MARKER = "F";
+    private static final String DIRECTORY_MARKER = "D";
+
+    /**
+     * A single file in the manifest.
+     *
+     * @param path The path of the file, relative to the output of the stage.
+     * @param hash The hash of the content of the file.
+     * @param size The size of the file.
+     * @param lastModified The last modified time of the stored blob, used to detect tampering with the blob.
+     */
+    public record Entry(String path, HashCode hash, long size, long lastModified) {}
+
+    public CacheManifest {
+        files = Collections.unmodifiableList(files);
+        directories = Collections.unmodifiableList(directories);
+    }
+
+    /**
+     * @return A manifest without any files, indicating that the stage did not produce an output.
+     */
+    public static CacheManifest empty() {
+        return new CacheManifest(List.of(), List.of());
+    }
+
+    /**
+     * @return The total size of all files in the manifest.
+     */
+    public long size() {
+        return files.stream().mapToLong(Entry::size).sum();
+    }
+
+    /**
+     * Reads the manifest from the given file.
+     *
+     * @param file The file to read.
+     * @return The manifest.
+     * @throws IOException If the manifest could not be read, or is invalid.
+     */
+    public static CacheManifest read(File file) throws IOException {
+        final List<Entry> files = new ArrayList<>();
+        final List<String> directories = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            final String header = reader.readLine();
+            if (!HEADER.equals(header)) {
+                throw new IOException("Invalid cache manifest: %s".formatted(file.getAbsolutePath()));
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+
+                if (line.startsWith(DIRECTORY_MARKER + "\t")) {
+                    directories.add(line.substring(2));
+                    continue;
+                }
+
+                final String[] parts = line.split("\t", 5);
+                if (parts.length != 5 || !parts[0].equals(FILE_MARKER)) {
+                    throw new IOException("Invalid cache manifest line: %s in %s".formatted(line, file.getAbsolutePath()));
+                }
+
+                try {
+                    files.add(new Entry(parts[4], HashCode.fromString(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3])));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid cache manifest line: %s in %s".formatted(line, file.getAbsolutePath()), e);
+                }
+            }
+        }
+
+        return new CacheManifest(files, directories);
+    }
+
+    /**
+     * Writes the manifest to the given file, atomically replacing the previous manifest if it exists.
+     *
+     * @param file The file to write to.
+     * @throws IOException If the manifest could not be written.
+     */
+    public void write(File file) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs() && !parent.exists()) {
+            throw new IOException("Failed to create directory: %s".formatted(parent.getAbsolutePath()));
+        }
+
+        final Path temp = new File(parent, "%s.%s.tmp".formatted(file.getName(), UUID.randomUUID())).toPath();
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+
+                for (String directory : directories) {
+                    writer.write(DIRECTORY_MARKER + "\t" + directory);
+                    writer.newLine();
+                }
+
+                for (Entry entry : files) {
+                    writer.write(String.join("\t", FILE_MARKER, entry.hash().toString(), String.valueOf(entry.size()), String.valueOf(entry.lastModified()), entry.path()));
+                    writer.newLine();
+                }
+            }
+
+            try {
+                Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
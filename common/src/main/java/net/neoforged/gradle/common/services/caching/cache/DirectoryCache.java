@@ -1,68 +1,232 @@
 package net.neoforged.gradle.common.services.caching.cache;
 
-import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
-import net.neoforged.gradle.common.services.caching.locking.LockManager;
-import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
-import net.neoforged.gradle.common.util.hash.Hashing;
-import org.apache.commons.io.FileUtils;
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.util.hash.DirectoryHasher;
+import net.neoforged.gradle.common.util.hash.HashCode;
 import org.gradle.api.GradleException;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
-public class DirectoryCache implements ICache {
+/**
+ * A cache for jobs which produce a directory.
+ * <p>
+ * Every file is stored as a blob, the entry holds a manifest with the relative path, size and content hash of every file.
+ * Restoring compares the workspace to the manifest and only rewrites what differs: files which are links to their blob are trusted,
+ * the others are checked through the {@link FileHashIndex}, so that unchanged files are recognized from their metadata without being read.
+ */
+public class DirectoryCache extends BlobBackedCache {
 
-    private final File cacheDir;
+    /**
+     * The differences between a workspace directory and a manifest.
+     *
+     * @param toDelete The files and directories in the workspace which are not part of the manifest, or have the wrong type.
+     * @param toWrite The entries of the manifest which are missing in the workspace or have a different content.
+     */
+    protected record Difference(List<Path> toDelete, List<CacheManifest.Entry> toWrite) {
 
-    public DirectoryCache(File cacheDir) {
-        this.cacheDir = cacheDir;
+        public boolean isEmpty() {
+            return toDelete.isEmpty() && toWrite.isEmpty();
+        }
+    }
+
+    protected final FileHashIndex fileHashes;
+
+    public DirectoryCache(File cacheDir, BlobStore blobs, FileHashIndex fileHashes) {
+        super(cacheDir, blobs);
+        this.fileHashes = fileHashes;
     }
 
     @Override
     public void loadFrom(File file) throws IOException {
-        if (file.exists()) {
-            final File output = new File(cacheDir, "output");
-            if (!output.exists()) {
-                output.mkdirs();
+        if (!file.isDirectory()) {
+            CacheManifest.empty().write(manifestFile());
+            return;
+        }
+
+        final List<String> directories = listDirectories(file);
+
+        try (Closeable storing = blobs.lockForStoring()) {
+            //Hash all files in parallel, storing them is only linking in the common case.
+            final List<CacheManifest.Entry> files = new ArrayList<>();
+            for (Map.Entry<String, HashCode> entry : DirectoryHasher.tree(blobs.hashFunction(), file).files().entrySet()) {
+                files.add(store(new File(file, entry.getKey()), entry.getKey(), entry.getValue()));
             }
 
-            FileUtils.cleanDirectory(output);
-            FileUtils.copyDirectory(file, output);
+            new CacheManifest(files, directories).write(manifestFile());
         }
     }
 
     @Override
     public boolean restoreTo(File file) throws IOException {
-        final File output = new File(cacheDir, "output");
+        final CacheManifest manifest = readManifest();
 
-        if (file.exists()) {
-            if (file.isDirectory() && output.exists()) {
-                if (Hashing.hashDirectory(file).equals(Hashing.hashDirectory(output))) {
-                    return false;
-                }
+        final Difference difference = prepare(manifest, file);
+        if (difference == null) {
+            return false;
+        }
+
+        try {
+            for (CacheManifest.Entry entry : difference.toWrite()) {
+                blobs.restore(entry.hash(), new File(file, entry.path()));
             }
+        } catch (IOException e) {
+            throw new GradleException("Failed to restore cache.", e);
+        }
 
-            if (file.isDirectory()) {
-                FileUtils.cleanDirectory(file);
+        return true;
+    }
+
+    /**
+     * Brings the structure of the given directory in line with the manifest:
+     * everything which is not part of the manifest is deleted, the directories of the manifest are created,
+     * and files whose content differs are removed so that they can be written.
+     *
+     * @param manifest The manifest.
+     * @param file The directory to restore to.
+     * @return The files which need to be written, or null if the directory already is equal to the manifest.
+     * @throws IOException If the directory could not be read or modified.
+     */
+    @Nullable
+    protected Difference prepare(CacheManifest manifest, File file) throws IOException {
+        final Difference difference;
+        if (file.isDirectory()) {
+            difference = diff(manifest, file);
+            if (difference.isEmpty()) {
+                return null;
             }
-            file.delete();
+        } else {
+            blobs.delete(file.toPath());
+            difference = new Difference(List.of(), manifest.files());
+        }
+
+        for (Path path : difference.toDelete()) {
+            blobs.delete(path);
         }
 
         file.mkdirs();
+        for (String directory : manifest.directories()) {
+            new File(file, directory).mkdirs();
+        }
 
-        if (output.exists()) {
-            try {
-                FileUtils.copyDirectory(output, file);
-            } catch (IOException e) {
-                throw new GradleException("Failed to restore cache.", e);
+        for (CacheManifest.Entry entry : difference.toWrite()) {
+            blobs.delete(new File(file, entry.path()).toPath());
+        }
+
+        return difference;
+    }
+
+    /**
+     * Lists all directories within the given directory.
+     *
+     * @param directory The directory to list.
+     * @return The '/' separated paths of the directories relative to the given directory, sorted.
+     * @throws IOException If the directory could not be listed.
+     */
+    protected static List<String> listDirectories(File directory) throws IOException {
+        final List<String> directories = new ArrayList<>();
+
+        final Path root = directory.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted().toList()) {
+                if (!path.equals(root) && Files.isDirectory(path)) {
+                    directories.add(relativePath(root, path));
+                }
             }
         }
 
-        return true;
+        return directories;
     }
 
-    @Override
-    public FileBasedLock createLock(CacheLogger logger) {
-        return LockManager.createLock(cacheDir, logger);
+    /**
+     * Determines how the given directory differs from the content described by the given manifest.
+     * <p>
+     * Only metadata is used where possible: files with a different size are known to differ,
+     * files which are links to their blob are known to be equal, and the remaining files are hashed through the index.
+     *
+     * @param manifest The manifest.
+     * @param directory The directory to check.
+     * @return The differences, empty if the directory is equal to the manifest.
+     * @throws IOException If the directory could not be read.
+     */
+    protected Difference diff(CacheManifest manifest, File directory) throws IOException {
+        final Set<String> directories = new HashSet<>(manifest.directories());
+        final Map<String, CacheManifest.Entry> files = new HashMap<>();
+        for (CacheManifest.Entry entry : manifest.files()) {
+            files.put(entry.path(), entry);
+        }
+
+        final Path root = directory.toPath();
+        final List<Path> toDelete = new ArrayList<>();
+        final Set<String> present = new HashSet<>();
+        final List<CacheManifest.Entry> candidates = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                if (dir.equals(root) || directories.contains(relativePath(root, dir))) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                toDelete.add(dir);
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+                final CacheManifest.Entry entry = files.get(relativePath(root, path));
+                if (entry == null || !attributes.isRegularFile()) {
+                    toDelete.add(path);
+                } else if (attributes.size() == entry.size()) {
+                    present.add(entry.path());
+                    candidates.add(entry);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        final List<CacheManifest.Entry> toWrite = new ArrayList<>();
+        for (CacheManifest.Entry entry : manifest.files()) {
+            if (!present.contains(entry.path())) {
+                toWrite.add(entry);
+            }
+        }
+
+        //Files restored from the cache are links to the blob, the others are only read if their metadata changed.
+        final List<CacheManifest.Entry> changed = candidates.parallelStream()
+                .filter(entry -> !isUnchanged(entry, new File(directory, entry.path())))
+                .toList();
+        toWrite.addAll(changed);
+
+        return new Difference(toDelete, toWrite);
+    }
+
+    private boolean isUnchanged(CacheManifest.Entry entry, File file) {
+        if (blobs.isBlob(entry.hash(), file)) {
+            return true;
+        }
+
+        try {
+            return fileHashes.hashFile(file).equals(entry.hash());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String relativePath(Path root, Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
     }
 }
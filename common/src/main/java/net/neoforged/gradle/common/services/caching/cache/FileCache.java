@@ -1,71 +1,54 @@
 package net.neoforged.gradle.common.services.caching.cache;
 
-import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
-import net.neoforged.gradle.common.services.caching.locking.LockManager;
-import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
-import net.neoforged.gradle.common.util.hash.Hashing;
-import org.apache.commons.io.FileUtils;
 import org.gradle.api.GradleException;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
-public class FileCache implements ICache {
+public class FileCache extends BlobBackedCache {
 
-    private final File cacheDir;
-
-    public FileCache(File cacheDir) {
-        this.cacheDir = cacheDir;
+    public FileCache(File cacheDir, BlobStore blobs) {
+        super(cacheDir, blobs);
     }
 
     @Override
     public void loadFrom(File file) throws IOException {
-        final File cacheFile = new File(cacheDir, "output");
-        if (cacheFile.exists()) {
-            cacheFile.delete();
-        }
-
-        // If the file does not exist, there is nothing to load
-        if (!file.exists()) {
+        // If the file does not exist, there is nothing to load, we record that with an empty manifest
+        if (!file.isFile()) {
+            CacheManifest.empty().write(manifestFile());
             return;
         }
 
-        FileUtils.copyFile(file, cacheFile);
+        try (Closeable storing = blobs.lockForStoring()) {
+            new CacheManifest(List.of(store(file, "")), List.of()).write(manifestFile());
+        }
     }
 
     @Override
     public boolean restoreTo(File file) throws IOException {
-        final File cacheFile = new File(cacheDir, "output");
+        final CacheManifest manifest = readManifest();
+        final CacheManifest.Entry entry = manifest.files().isEmpty() ? null : manifest.files().get(0);
 
         if (file.exists()) {
-            if (file.isFile() && cacheFile.exists()) {
-                if (Hashing.hashFile(file).equals(Hashing.hashFile(cacheFile))) {
-                    return false;
-                }
+            if (entry != null && matches(entry, file)) {
+                return false;
             }
 
-            if (file.isDirectory()) {
-                FileUtils.cleanDirectory(file);
-            }
-
-            file.delete();
+            blobs.delete(file.toPath());
         }
 
-        //If the file exists we can restore it, that means if previous executions did not create an output
-        //Then we should not restore it as our cache file would not exist.
-        if (cacheFile.exists()) {
+        //If the entry exists we can restore it, that means if previous executions did not create an output
+        //Then we should not restore it as our manifest would be empty.
+        if (entry != null) {
             try {
-                FileUtils.copyFile(cacheFile, file);
+                blobs.restore(entry.hash(), file);
             } catch (IOException e) {
-                throw new GradleException("Failed to restore cache. Copying of the cache file failed.", e);
+                throw new GradleException("Failed to restore cache. Restoring of the cache file failed.", e);
             }
         }
 
         return true;
     }
-
-    @Override
-    public FileBasedLock createLock(CacheLogger logger) {
-        return LockManager.createLock(cacheDir, logger);
-    }
 }
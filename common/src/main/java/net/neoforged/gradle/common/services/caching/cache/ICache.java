@@ -2,6 +2,7 @@ package net.neoforged.gradle.common.services.caching.cache;
 
 import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
 import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -18,6 +19,17 @@ public interface ICache {
      */
     void loadFrom(File file) throws IOException;
 
+    /**
+     * Clears the current cache and loads the cache from the given file or directory, produced by a job with the given result.
+     *
+     * @param file The file to load the cache from.
+     * @param result The result of the job which produced the file.
+     * @implSpec By default the result is ignored.
+     */
+    default void loadFrom(File file, @Nullable Object result) throws IOException {
+        loadFrom(file);
+    }
+
     /**
      * Restores the cache to the given file or directory.
      *
@@ -26,6 +38,45 @@ public interface ICache {
      */
     boolean restoreTo(File file) throws IOException;
 
+    /**
+     * Indicates whether the cache holds a complete entry that can be restored.
+     * An incomplete entry, for example one whose stored content went missing, is treated as a cache miss.
+     *
+     * @return True if the cache can be restored.
+     */
+    default boolean isRestorable() {
+        return true;
+    }
+
+    /**
+     * Indicates whether the cache can reconstruct the result of the job which produced the cached output.
+     * If it can not, the result is only available when the job is executed.
+     *
+     * @return True if {@link #restoreResult()} is supported.
+     */
+    default boolean providesResult() {
+        return false;
+    }
+
+    /**
+     * Reconstructs the result of the job which produced the cached output.
+     *
+     * @return The result of the job.
+     */
+    @Nullable
+    default Object restoreResult() throws IOException {
+        return null;
+    }
+
+    /**
+     * Returns the size of the content held by the cache, used to report how many bytes were stored and restored.
+     *
+     * @return The size in bytes, or 0 if the cache does not hold any content itself.
+     */
+    default long contentSize() {
+        return 0;
+    }
+
     /**
      * Creates a lock for the cache.
      *
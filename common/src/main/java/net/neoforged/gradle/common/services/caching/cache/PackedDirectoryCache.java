@@ -0,0 +1,140 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.util.hash.DirectoryHasher;
+import net.neoforged.gradle.common.util.hash.HashCode;
+import org.gradle.api.GradleException;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A directory cache which packs the whole directory into a single archive in the cache entry, instead of storing every file as a blob.
+ * <p>
+ * Directories with many small files, like compiled classes, then only cost a single file in the cache,
+ * storing is a single sequential write and restoring extracts the files from the indexed archive in parallel.
+ * Comparing the workspace to the cache still only uses the manifest, and only the files which differ are extracted.
+ */
+public class PackedDirectoryCache extends DirectoryCache {
+
+    public static final String ARCHIVE_FILE_NAME = "archive.zip";
+
+    public PackedDirectoryCache(File cacheDir, BlobStore blobs, FileHashIndex fileHashes) {
+        super(cacheDir, blobs, fileHashes);
+    }
+
+    private File archiveFile() {
+        return new File(cacheDir, ARCHIVE_FILE_NAME);
+    }
+
+    @Override
+    public void loadFrom(File file) throws IOException {
+        if (!file.isDirectory()) {
+            Files.deleteIfExists(archiveFile().toPath());
+            CacheManifest.empty().write(manifestFile());
+            return;
+        }
+
+        final List<String> directories = listDirectories(file);
+        final Map<String, HashCode> hashes = DirectoryHasher.tree(blobs.hashFunction(), file).files();
+        final List<CacheManifest.Entry> files = new ArrayList<>(hashes.size());
+
+        final Path archive = archiveFile().toPath();
+        final Path temp = new File(cacheDir, "%s.%s.tmp".formatted(ARCHIVE_FILE_NAME, UUID.randomUUID())).toPath();
+        try {
+            Files.createDirectories(cacheDir.toPath());
+            try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                zip.setLevel(Deflater.BEST_SPEED);
+
+                for (String directory : directories) {
+                    zip.putNextEntry(new ZipEntry(directory + "/"));
+                    zip.closeEntry();
+                }
+
+                for (Map.Entry<String, HashCode> entry : hashes.entrySet()) {
+                    final File source = new File(file, entry.getKey());
+                    zip.putNextEntry(new ZipEntry(entry.getKey()));
+                    final long size = Files.copy(source.toPath(), zip);
+                    zip.closeEntry();
+
+                    files.add(new CacheManifest.Entry(entry.getKey(), entry.getValue(), size, 0));
+                }
+            }
+
+            try {
+                Files.move(temp, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        new CacheManifest(files, directories).write(manifestFile());
+    }
+
+    @Override
+    public boolean restoreTo(File file) throws IOException {
+        final CacheManifest manifest = readManifest();
+
+        final Difference difference = prepare(manifest, file);
+        if (difference == null) {
+            return false;
+        }
+
+        if (difference.toWrite().isEmpty()) {
+            return true;
+        }
+
+        try (ZipFile zip = new ZipFile(archiveFile())) {
+            difference.toWrite().parallelStream().forEach(entry -> {
+                final ZipEntry zipEntry = zip.getEntry(entry.path());
+                if (zipEntry == null) {
+                    throw new UncheckedIOException(new IOException("Missing entry in cache archive: %s".formatted(entry.path())));
+                }
+
+                try (InputStream stream = zip.getInputStream(zipEntry)) {
+                    Files.copy(stream, new File(file, entry.path()).toPath());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            throw new GradleException("Failed to restore cache.", e);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean isRestorable() {
+        if (!manifestFile().exists()) {
+            return false;
+        }
+
+        if (archiveFile().exists()) {
+            return true;
+        }
+
+        try {
+            return readManifest().files().isEmpty();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
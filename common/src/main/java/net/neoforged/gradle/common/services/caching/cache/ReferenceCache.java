@@ -0,0 +1,178 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
+import net.neoforged.gradle.common.services.caching.locking.LockManager;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.util.hash.DirectoryHasher;
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.HashFunction;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A cache for jobs which produce files in a shared directory, like the global assets and libraries stores.
+ * <p>
+ * The content of the files is never copied into the cache, only a manifest of the files the job produced and their hashes is stored.
+ * The shared directory is never cleaned or replaced, a hit only verifies that the referenced files are still intact:
+ * files whose size and last modified time did not change are trusted, only the others are hashed again.
+ * A referenced file which went missing or changed its content turns the entry into a miss.
+ */
+public class ReferenceCache implements ICache {
+
+    public static final String FILE_NAME = "references";
+
+    private final File cacheDir;
+    private final File output;
+    private final HashFunction hashFunction;
+
+    public ReferenceCache(File cacheDir, File output, HashFunction hashFunction) {
+        this.cacheDir = cacheDir;
+        this.output = output;
+        this.hashFunction = hashFunction;
+    }
+
+    private File manifestFile() {
+        return new File(cacheDir, FILE_NAME);
+    }
+
+    @Override
+    public void loadFrom(File file) {
+        throw new IllegalStateException("A reference cache can only be loaded from the files referenced by the job result.");
+    }
+
+    @Override
+    public void loadFrom(File file, @Nullable Object result) throws IOException {
+        if (!(result instanceof Collection<?> references)) {
+            throw new IllegalStateException("A reference cache requires the job to return the files it references, got: %s".formatted(result));
+        }
+
+        final List<File> files = new ArrayList<>();
+        for (Object reference : references) {
+            files.add((File) reference);
+        }
+        files.sort(Comparator.comparing(File::getAbsolutePath));
+
+        final List<Long> sizes = new ArrayList<>(files.size());
+        final List<Long> lastModified = new ArrayList<>(files.size());
+        for (File reference : files) {
+            if (!reference.isFile()) {
+                throw new IOException("Referenced file does not exist: %s".formatted(reference.getAbsolutePath()));
+            }
+
+            //Record the stat before hashing, a concurrent modification then results in a rehash instead of a stale entry.
+            sizes.add(reference.length());
+            lastModified.add(reference.lastModified());
+        }
+
+        final List<HashCode> hashes = DirectoryHasher.hashFiles(hashFunction, files);
+        final List<CacheManifest.Entry> entries = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            entries.add(new CacheManifest.Entry(pathOf(files.get(i)), hashes.get(i), sizes.get(i), lastModified.get(i)));
+        }
+
+        new CacheManifest(entries, List.of()).write(manifestFile());
+    }
+
+    /**
+     * The referenced files have already been verified by {@link #isRestorable()}, there is nothing to restore.
+     *
+     * @param file The output of the job.
+     * @return Always false, the shared output is never touched.
+     */
+    @Override
+    public boolean restoreTo(File file) {
+        return false;
+    }
+
+    @Override
+    public boolean isRestorable() {
+        final File manifestFile = manifestFile();
+        if (!manifestFile.exists()) {
+            return false;
+        }
+
+        try {
+            final CacheManifest manifest = CacheManifest.read(manifestFile);
+
+            final List<Integer> toHash = new ArrayList<>();
+            final List<File> filesToHash = new ArrayList<>();
+            for (int i = 0; i < manifest.files().size(); i++) {
+                final CacheManifest.Entry entry = manifest.files().get(i);
+                final File file = fileOf(entry.path());
+                if (!file.isFile() || file.length() != entry.size()) {
+                    return false;
+                }
+
+                if (file.lastModified() != entry.lastModified()) {
+                    toHash.add(i);
+                    filesToHash.add(file);
+                }
+            }
+
+            if (toHash.isEmpty()) {
+                return true;
+            }
+
+            final List<HashCode> hashes = DirectoryHasher.hashFiles(hashFunction, filesToHash);
+            for (int i = 0; i < hashes.size(); i++) {
+                if (!hashes.get(i).equals(manifest.files().get(toHash.get(i)).hash())) {
+                    return false;
+                }
+            }
+
+            //The files were only touched, remember their new timestamps so that they do not need to be hashed again.
+            final List<CacheManifest.Entry> updated = new ArrayList<>(manifest.files());
+            for (int i = 0; i < toHash.size(); i++) {
+                final CacheManifest.Entry entry = updated.get(toHash.get(i));
+                updated.set(toHash.get(i), new CacheManifest.Entry(entry.path(), entry.hash(), entry.size(), filesToHash.get(i).lastModified()));
+            }
+            new CacheManifest(updated, List.of()).write(manifestFile);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean providesResult() {
+        return true;
+    }
+
+    @Override
+    public Set<File> restoreResult() throws IOException {
+        final Set<File> files = new LinkedHashSet<>();
+        for (CacheManifest.Entry entry : CacheManifest.read(manifestFile()).files()) {
+            files.add(fileOf(entry.path()));
+        }
+        return files;
+    }
+
+    @Override
+    public FileBasedLock createLock(CacheLogger logger) {
+        return LockManager.createLock(cacheDir, logger);
+    }
+
+    private String pathOf(File file) {
+        final Path root = output.toPath().toAbsolutePath().normalize();
+        final Path path = file.toPath().toAbsolutePath().normalize();
+        if (path.startsWith(root)) {
+            return root.relativize(path).toString().replace(File.separatorChar, '/');
+        }
+
+        return path.toString();
+    }
+
+    private File fileOf(String path) {
+        final File file = new File(path);
+        return file.isAbsolute() ? file : new File(output, path);
+    }
+}
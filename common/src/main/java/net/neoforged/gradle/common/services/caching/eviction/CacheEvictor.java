@@ -0,0 +1,298 @@
+package net.neoforged.gradle.common.services.caching.eviction;
+
+import net.neoforged.gradle.common.services.caching.cache.BlobStore;
+import net.neoforged.gradle.common.services.caching.cache.CacheManifest;
+import net.neoforged.gradle.common.services.caching.cache.PackedDirectoryCache;
+import net.neoforged.gradle.common.services.caching.cache.ReferenceCache;
+import net.neoforged.gradle.common.services.caching.locking.ChannelBasedFileLock;
+import net.neoforged.gradle.common.services.caching.locking.IOControlledFileBasedLock;
+import net.neoforged.gradle.common.services.caching.locking.LockManager;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.util.hash.HashCode;
+import org.apache.commons.io.FileUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Evicts the least recently used entries from the cache, until the cache is within its configured bounds.
+ * <p>
+ * The last access time of an entry is the last modified time of its lock file, which is updated every time the entry is used.
+ * Entries which are currently locked are never evicted.
+ * After entries have been evicted, blobs which are no longer referenced by any entry are removed from the blob store,
+ * unless entries are being stored at that moment.
+ */
+public final class CacheEvictor {
+
+    public static final String LOCK_DIRECTORY_NAME = "eviction";
+
+    private static final Pattern ENTRY_NAME = Pattern.compile("[0-9a-f]{8,}");
+
+    private final File cacheDirectory;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final CacheLogger logger;
+
+    private volatile boolean hasStoredEntries = false;
+
+    /**
+     * Creates a new evictor.
+     *
+     * @param cacheDirectory The cache directory.
+     * @param maxEntries The maximum amount of entries, zero or less for no limit.
+     * @param maxBytes The maximum amount of bytes the entries may occupy, zero or less for no limit.
+     * @param logger The logger.
+     */
+    public CacheEvictor(File cacheDirectory, int maxEntries, long maxBytes, CacheLogger logger) {
+        this.cacheDirectory = cacheDirectory;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.logger = logger;
+    }
+
+    /**
+     * Marks that an entry has been stored in the cache, meaning that it might have outgrown its bounds.
+     */
+    public void onEntryStored() {
+        hasStoredEntries = true;
+    }
+
+    /**
+     * Evicts entries if any have been stored since the last eviction run.
+     *
+     * @throws IOException If the cache could not be read.
+     */
+    public void evictIfNeeded() throws IOException {
+        if (!hasStoredEntries) {
+            return;
+        }
+
+        hasStoredEntries = false;
+        evict();
+    }
+
+    /**
+     * Evicts the least recently used entries, until the cache is within its bounds.
+     * If another process is already evicting entries from this cache, this is a no-op.
+     *
+     * @throws IOException If the cache could not be read.
+     */
+    public void evict() throws IOException {
+        if (maxEntries <= 0 && maxBytes <= 0) {
+            return;
+        }
+
+        if (!cacheDirectory.isDirectory()) {
+            return;
+        }
+
+        final AutoCloseable evictionLock = LockManager.tryLock(new File(cacheDirectory, LOCK_DIRECTORY_NAME), logger);
+        if (evictionLock == null) {
+            logger.debug("Cache eviction is already running in another process.");
+            return;
+        }
+
+        try (evictionLock) {
+            doEvict();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to release the eviction lock", e);
+        }
+    }
+
+    private void doEvict() throws IOException {
+        final File indexFile = new File(cacheDirectory, CacheIndex.FILE_NAME);
+        final CacheIndex index = CacheIndex.read(indexFile);
+
+        final List<CacheIndex.Entry> entries = new ArrayList<>();
+        final List<String> names = new ArrayList<>();
+        for (File entryDirectory : Objects.requireNonNull(cacheDirectory.listFiles(File::isDirectory))) {
+            final String name = entryDirectory.getName();
+            if (!ENTRY_NAME.matcher(name).matches()) {
+                continue;
+            }
+
+            names.add(name);
+
+            //Entries without a manifest have already been evicted or never completed, they take no space.
+            //Entries which only reference files in a shared directory do not occupy space in the cache either.
+            final File manifestFile = new File(entryDirectory, CacheManifest.FILE_NAME);
+            final File referencesFile = new File(entryDirectory, ReferenceCache.FILE_NAME);
+            if (!manifestFile.exists() && !referencesFile.exists()) {
+                continue;
+            }
+            final boolean isReference = !manifestFile.exists();
+
+            final File lockFile = new File(entryDirectory, LockManager.LOCK_FILE_NAME);
+            final long lastAccess = lockFile.exists() ? lockFile.lastModified() : entryDirectory.lastModified();
+            final long manifestLastModified = isReference ? referencesFile.lastModified() : manifestFile.lastModified();
+
+            final CacheIndex.Entry known = index.get(name);
+            final long size;
+            final File archiveFile = new File(entryDirectory, PackedDirectoryCache.ARCHIVE_FILE_NAME);
+            if (isReference) {
+                size = 0;
+            } else if (archiveFile.exists()) {
+                size = archiveFile.length();
+            } else if (known != null && known.manifestLastModified() == manifestLastModified) {
+                size = known.size();
+            } else {
+                size = measure(manifestFile);
+            }
+
+            final CacheIndex.Entry entry = new CacheIndex.Entry(name, lastAccess, manifestLastModified, size);
+            index.put(entry);
+            entries.add(entry);
+        }
+        index.retain(names);
+
+        int count = entries.size();
+        long bytes = entries.stream().mapToLong(CacheIndex.Entry::size).sum();
+        logger.debug("Cache contains %d entries, occupying %d bytes.".formatted(count, bytes));
+
+        entries.sort(Comparator.comparingLong(CacheIndex.Entry::lastAccess));
+
+        int evicted = 0;
+        for (CacheIndex.Entry entry : entries) {
+            if (!isOverBounds(count, bytes)) {
+                break;
+            }
+
+            if (evictEntry(entry)) {
+                index.remove(entry.name());
+                count--;
+                bytes -= entry.size();
+                evicted++;
+                logger.onCacheEvicted(entry.name(), entry.size());
+            }
+        }
+
+        if (evicted > 0) {
+            removeUnreferencedBlobs();
+        }
+
+        index.write(indexFile);
+    }
+
+    private boolean isOverBounds(int count, long bytes) {
+        return (maxEntries > 0 && count > maxEntries) || (maxBytes > 0 && bytes > maxBytes);
+    }
+
+    private long measure(File manifestFile) {
+        try {
+            return CacheManifest.read(manifestFile).size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Evicts the given entry, if it is not locked.
+     * The lock file is deleted last, while it is still held, and is then marked so that builds which were waiting on it lock a new one.
+     *
+     * @param entry The entry to evict.
+     * @return True if the entry was evicted.
+     * @throws IOException If the entry could not be deleted.
+     */
+    private boolean evictEntry(CacheIndex.Entry entry) throws IOException {
+        final File entryDirectory = new File(cacheDirectory, entry.name());
+        final ChannelBasedFileLock lock = LockManager.tryLock(entryDirectory, logger);
+        if (lock == null) {
+            logger.debug("Skipping eviction of locked cache entry: %s".formatted(entry.name()));
+            return false;
+        }
+
+        try (lock) {
+            //Remove the healthy marker first, so that the entry is considered failed if we are interrupted.
+            Files.deleteIfExists(new File(entryDirectory, IOControlledFileBasedLock.HEALTHY_FILE_NAME).toPath());
+
+            for (File file : Objects.requireNonNull(entryDirectory.listFiles())) {
+                if (file.getName().equals(LockManager.LOCK_FILE_NAME)) {
+                    continue;
+                }
+
+                FileUtils.forceDelete(file);
+            }
+
+            lock.delete();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to release the lock of cache entry: %s".formatted(entry.name()), e);
+        }
+
+        try {
+            Files.deleteIfExists(entryDirectory.toPath());
+        } catch (DirectoryNotEmptyException e) {
+            //Another build stored the entry again in the meantime.
+            logger.debug("Cache entry was recreated during its eviction: %s".formatted(entry.name()));
+        }
+
+        return true;
+    }
+
+    private void removeUnreferencedBlobs() throws IOException {
+        final File blobDirectory = new File(cacheDirectory, BlobStore.DIRECTORY_NAME);
+        if (!blobDirectory.isDirectory()) {
+            return;
+        }
+
+        //The blobs of an entry are stored before its manifest is written, so no entry may be stored while the manifests are read.
+        final Closeable collecting = BlobStore.lock(cacheDirectory).tryLockExclusive();
+        if (collecting == null) {
+            logger.debug("Skipping removal of unreferenced blobs, entries are being stored.");
+            return;
+        }
+
+        try (collecting) {
+            final Set<HashCode> referenced = new HashSet<>();
+            for (File entryDirectory : Objects.requireNonNull(cacheDirectory.listFiles(File::isDirectory))) {
+                final File manifestFile = new File(entryDirectory, CacheManifest.FILE_NAME);
+                if (!manifestFile.exists()) {
+                    continue;
+                }
+
+                try {
+                    CacheManifest.read(manifestFile).files().forEach(file -> referenced.add(file.hash()));
+                } catch (IOException e) {
+                    logger.debug("Failed to read cache manifest: %s".formatted(manifestFile.getAbsolutePath()), e);
+                }
+            }
+
+            try (Stream<Path> paths = Files.walk(blobDirectory.toPath())) {
+                for (Path path : paths.filter(Files::isRegularFile).toList()) {
+                    final File blob = path.toFile();
+                    if (!isReferenced(blob, referenced)) {
+                        logger.debug("Removing unreferenced blob: %s".formatted(blob.getAbsolutePath()));
+                        BlobStore.deleteUnreferenced(path);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isReferenced(File blob, Set<HashCode> referenced) {
+        //Deleted links to a blob are kept as long as the blob, removing them would make it writable on Windows.
+        final String name = blob.getName();
+        final String hash = name.endsWith(BlobStore.DELETED_SUFFIX) ? name.substring(0, name.indexOf('.')) : name;
+        try {
+            return referenced.contains(HashCode.fromString(hash));
+        } catch (IllegalArgumentException e) {
+            //Not a blob, but a leftover temporary file.
+            return false;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package net.neoforged.gradle.common.services.caching.eviction;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A persistent index of the entries in the cache, their last access time and their size.
+ * <p>
+ * The index allows the eviction to run incrementally, only entries whose manifest changed since the last run need to be measured again.
+ * The index is a pure optimization, a missing or corrupt index is simply rebuilt.
+ */
+public final class CacheIndex {
+
+    public static final String FILE_NAME = "index";
+
+    private static final String HEADER = "# ng-cache-index 1";
+
+    /**
+     * A single entry in the index.
+     *
+     * @param name The name of the entry, which is its directory name in the cache.
+     * @param lastAccess The last time the entry was accessed.
+     * @param manifestLastModified The last modified time of the manifest of the entry, when the size was measured.
+     * @param size The size of the entry.
+     */
+    public record Entry(String name, long lastAccess, long manifestLastModified, long size) {}
+
+    private final Map<String, Entry> entries;
+
+    private CacheIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Reads the index from the given file, returning an empty index if the file does not exist or is corrupt.
+     *
+     * @param file The file to read from.
+     * @return The index.
+     */
+    public static CacheIndex read(File file) {
+        final Map<String, Entry> entries = new HashMap<>();
+        if (!file.exists()) {
+            return new CacheIndex(entries);
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                return new CacheIndex(new HashMap<>());
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] parts = line.split("\t");
+                if (parts.length != 4) {
+                    continue;
+                }
+
+                entries.put(parts[0], new Entry(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3])));
+            }
+        } catch (IOException | NumberFormatException e) {
+            return new CacheIndex(new HashMap<>());
+        }
+
+        return new CacheIndex(entries);
+    }
+
+    public Entry get(String name) {
+        return entries.get(name);
+    }
+
+    public void put(Entry entry) {
+        entries.put(entry.name(), entry);
+    }
+
+    public void remove(String name) {
+        entries.remove(name);
+    }
+
+    public Collection<Entry> entries() {
+        return entries.values();
+    }
+
+    /**
+     * Only keeps the entries with the given names in the index.
+     *
+     * @param names The names of the entries to keep.
+     */
+    public void retain(Collection<String> names) {
+        entries.keySet().retainAll(names);
+    }
+
+    /**
+     * Writes the index to the given file, atomically replacing the previous index.
+     *
+     * @param file The file to write to.
+     * @throws IOException If the index could not be written.
+     */
+    public void write(File file) throws IOException {
+        final Path temp = new File(file.getParentFile(), "%s.%s.tmp".formatted(file.getName(), UUID.randomUUID())).toPath();
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Entry entry : entries.values()) {
+                    writer.write(String.join("\t", entry.name(), String.valueOf(entry.lastAccess()), String.valueOf(entry.manifestLastModified()), String.valueOf(entry.size())));
+                    writer.newLine();
+                }
+            }
+
+            try {
+                Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package net.neoforged.gradle.common.services.caching.hasher;
+
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.HashFunction;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A persistent index of the content hashes of files, keyed by their path and file system metadata.
+ * <p>
+ * As long as the size, last modified time and file key (the inode on most systems) of a file remain the same,
+ * its content is assumed to be unchanged and the previously computed hash is returned without reading the file.
+ * Files which were modified very recently are not indexed, as a further modification within the timestamp
+ * granularity of the file system would go unnoticed.
+ */
+public final class FileHashIndex {
+
+    private static final String FILE_NAME_PREFIX = "file-hashes.";
+    private static final String HEADER = "# ng-file-hash-index 1";
+
+    /**
+     * The window in which a modification is considered racy, this covers file systems with a coarse timestamp granularity.
+     */
+    private static final long RACY_WINDOW = TimeUnit.SECONDS.toMillis(2);
+
+    private record Entry(long size, long lastModified, String fileKey, HashCode hash) {}
+
+    private final File indexFile;
+    private final HashFunction hashFunction;
+    private final Map<String, Entry> entries;
+
+    private volatile boolean dirty = false;
+
+    private FileHashIndex(File indexFile, HashFunction hashFunction, Map<String, Entry> entries) {
+        this.indexFile = indexFile;
+        this.hashFunction = hashFunction;
+        this.entries = entries;
+    }
+
+    /**
+     * Loads the index for the given hash function from the cache directory.
+     * A missing or corrupt index results in an empty index.
+     *
+     * @param cacheDirectory The cache directory.
+     * @param hashFunction The hash function to hash files with.
+     * @return The index.
+     */
+    public static FileHashIndex load(File cacheDirectory, HashFunction hashFunction) {
+        final String name = FILE_NAME_PREFIX + hashFunction.getAlgorithm().toLowerCase(Locale.ROOT).replace("-", "");
+        final File indexFile = new File(cacheDirectory, name);
+        final Map<String, Entry> entries = new ConcurrentHashMap<>(read(indexFile));
+        return new FileHashIndex(indexFile, hashFunction, entries);
+    }
+
+    private static Map<String, Entry> read(File indexFile) {
+        final Map<String, Entry> entries = new HashMap<>();
+        if (!indexFile.exists()) {
+            return entries;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            if (HEADER.equals(reader.readLine())) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final String[] parts = line.split("\t", 5);
+                    if (parts.length != 5) {
+                        continue;
+                    }
+
+                    entries.put(parts[4], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3], HashCode.fromString(parts[0])));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            entries.clear();
+        }
+        return entries;
+    }
+
+    public HashFunction hashFunction() {
+        return hashFunction;
+    }
+
+    /**
+     * Returns the hash of the content of the given file, only reading the file if it changed since it was last hashed.
+     *
+     * @param file The file to hash.
+     * @return The hash of the content of the file.
+     * @throws IOException If the file could not be read.
+     */
+    public HashCode hashFile(File file) throws IOException {
+        return hashFile(file, false);
+    }
+
+    /**
+     * Returns the hash of the content of the given file, always reading the file, and updates the index with it.
+     *
+     * @param file The file to hash.
+     * @return The hash of the content of the file.
+     * @throws IOException If the file could not be read.
+     */
+    public HashCode rehashFile(File file) throws IOException {
+        return hashFile(file, true);
+    }
+
+    private HashCode hashFile(File file, boolean force) throws IOException {
+        final String path = file.getAbsolutePath();
+        final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        final long size = attributes.size();
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final String fileKey = Objects.toString(attributes.fileKey(), "");
+
+        final Entry known = entries.get(path);
+        if (!force && known != null && known.size() == size && known.lastModified() == lastModified && known.fileKey().equals(fileKey)) {
+            return known.hash();
+        }
+
+        final HashCode hash = hashFunction.hashFile(file);
+        if (System.currentTimeMillis() - lastModified > RACY_WINDOW) {
+            entries.put(path, new Entry(size, lastModified, fileKey, hash));
+            dirty = true;
+        } else if (known != null) {
+            entries.remove(path);
+            dirty = true;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Remembers the hash of a file whose content the caller just computed, for example while writing it.
+     * <p>
+     * Unlike {@link #hashFile(File)} the file is indexed even if it was modified very recently,
+     * the caller guarantees that it is not modified again, like a download which was atomically moved into place.
+     *
+     * @param file The file.
+     * @param hash The hash of the content of the file.
+     * @throws IOException If the metadata of the file could not be read.
+     */
+    public void record(File file, HashCode hash) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        entries.put(file.getAbsolutePath(), new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), Objects.toString(attributes.fileKey(), ""), hash));
+        dirty = true;
+    }
+
+    /**
+     * Writes the index to disk if it changed, dropping entries for files which no longer exist.
+     * Entries which another build wrote to the index in the meantime are kept, so that the index can be shared.
+     *
+     * @throws IOException If the index could not be written.
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+
+        dirty = false;
+        read(indexFile).forEach(entries::putIfAbsent);
+        entries.keySet().removeIf(path -> !new File(path).isFile());
+
+        indexFile.getParentFile().mkdirs();
+        final Path temp = new File(indexFile.getParentFile(), "%s.%s.tmp".formatted(indexFile.getName(), UUID.randomUUID())).toPath();
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    final Entry value = entry.getValue();
+                    writer.write(String.join("\t",
+                            value.hash().toString(),
+                            String.valueOf(value.size()),
+                            String.valueOf(value.lastModified()),
+                            value.fileKey(),
+                            entry.getKey()));
+                    writer.newLine();
+                }
+            }
+
+            try {
+                Files.move(temp, indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (NoSuchFileException e) {
+            //The cache directory was removed while we were running, the index is a pure optimization so we can skip it.
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
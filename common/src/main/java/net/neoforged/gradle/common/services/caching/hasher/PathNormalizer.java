@@ -0,0 +1,148 @@
+package net.neoforged.gradle.common.services.caching.hasher;
+
+import org.gradle.api.file.FileSystemLocation;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Makes task inputs independent of the location of the workspace and of the machine they are hashed on.
+ * <p>
+ * Every occurrence of a well-known root directory, like the project directory or the Gradle user home, in a path or string
+ * is replaced by a placeholder for that root. The same inputs in two checkouts, or on two machines with different home directories,
+ * then produce the same values, and thus the same cache keys.
+ * Paths outside of all roots are left as they are.
+ */
+public final class PathNormalizer {
+
+    private record Root(String placeholder, List<String> prefixes) {}
+
+    private final List<Root> roots = new ArrayList<>();
+
+    /**
+     * Creates a new normalizer for the given roots.
+     *
+     * @param roots The roots, by their name.
+     */
+    public PathNormalizer(Map<String, File> roots) {
+        roots.forEach((name, directory) -> {
+            final String path = directory.toPath().toAbsolutePath().normalize().toString();
+            final String portable = path.replace(File.separatorChar, '/');
+            this.roots.add(new Root("${%s}".formatted(name), portable.equals(path) ? List.of(path) : List.of(path, portable)));
+        });
+
+        //Nested roots, like a cache inside the Gradle user home, need to be replaced before their parents
+        this.roots.sort(Comparator.comparingInt((Root root) -> root.prefixes().get(0).length()).reversed());
+    }
+
+    /**
+     * @return A normalizer which does not change anything.
+     */
+    public static PathNormalizer identity() {
+        return new PathNormalizer(Map.of());
+    }
+
+    /**
+     * Replaces all occurrences of the roots in the given string.
+     *
+     * @param value The string to normalize.
+     * @return The normalized string.
+     */
+    public String normalize(String value) {
+        String result = value;
+        for (Root root : roots) {
+            for (String prefix : root.prefixes()) {
+                result = replace(result, prefix, root.placeholder());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Normalizes the given path.
+     *
+     * @param file The path to normalize.
+     * @return The path relative to its root, with forward slashes, or the absolute path if it is not located in any root.
+     */
+    public String normalize(File file) {
+        return normalize(file.toPath().toAbsolutePath().normalize().toString()).replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Identifies the given file independently of where the roots are located.
+     *
+     * @param file The file to identify.
+     * @return The path relative to its root, or only the name of the file if it is not located in any root.
+     */
+    public String identify(File file) {
+        final String normalized = normalize(file);
+        //Absolute paths never start with a placeholder, only paths within a root do.
+        return normalized.startsWith("${") ? normalized : file.getName();
+    }
+
+    /**
+     * Normalizes a task input value.
+     * Paths and strings are normalized, collections and maps are normalized element by element, other values are returned as they are.
+     *
+     * @param value The value.
+     * @return The normalized value.
+     */
+    @Nullable
+    public Object normalizeValue(@Nullable Object value) {
+        if (value instanceof File file) {
+            return normalize(file);
+        } else if (value instanceof Path path) {
+            return normalize(path.toFile());
+        } else if (value instanceof FileSystemLocation location) {
+            return normalize(location.getAsFile());
+        } else if (value instanceof CharSequence sequence) {
+            return normalize(sequence.toString());
+        } else if (value instanceof Collection<?> collection) {
+            final List<Object> result = new ArrayList<>(collection.size());
+            for (Object element : collection) {
+                result.add(normalizeValue(element));
+            }
+            return result;
+        } else if (value instanceof Map<?, ?> map) {
+            //Map properties do not guarantee a stable iteration order
+            final Map<String, Object> result = new TreeMap<>();
+            map.forEach((key, element) -> result.put(String.valueOf(normalizeValue(key)), normalizeValue(element)));
+            return result;
+        }
+
+        return value;
+    }
+
+    /**
+     * Replaces the occurrences of the given path, which are not just a prefix of a longer file name.
+     */
+    private static String replace(String value, String path, String placeholder) {
+        int index = value.indexOf(path);
+        if (index < 0) {
+            return value;
+        }
+
+        final StringBuilder builder = new StringBuilder(value.length());
+        int start = 0;
+        while (index >= 0) {
+            final int end = index + path.length();
+            if (end == value.length() || isBoundary(value.charAt(end))) {
+                builder.append(value, start, index).append(placeholder);
+                start = end;
+            }
+            index = value.indexOf(path, end);
+        }
+        return builder.append(value, start, value.length()).toString();
+    }
+
+    private static boolean isBoundary(char c) {
+        return !Character.isLetterOrDigit(c) && c != '-' && c != '_' && c != '.';
+    }
+}
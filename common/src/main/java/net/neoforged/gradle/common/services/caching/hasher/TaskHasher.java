@@ -2,11 +2,10 @@ package net.neoforged.gradle.common.services.caching.hasher;
 
 import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
 import net.neoforged.gradle.common.util.hash.HashCode;
-import net.neoforged.gradle.common.util.hash.HashFunction;
 import net.neoforged.gradle.common.util.hash.Hasher;
-import net.neoforged.gradle.common.util.hash.Hashing;
 import org.gradle.api.Task;
 import org.gradle.api.tasks.TaskInputs;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -16,14 +15,19 @@ import java.util.*;
 import java.util.stream.Stream;
 
 public final class TaskHasher {
-    private final HashFunction hashFunction = Hashing.sha256();
-    private final Hasher hasher = hashFunction.newHasher();
+    private final FileHashIndex fileHashes;
+    private final PathNormalizer normalizer;
+    private final Hasher hasher;
+    private final Map<String, HashCode> fingerprint = new TreeMap<>();
 
     private final Task task;
     private final CacheLogger logger;
 
-    public TaskHasher(Task task, CacheLogger logger) {
+    public TaskHasher(Task task, FileHashIndex fileHashes, PathNormalizer normalizer, CacheLogger logger) {
         this.task = task;
+        this.fileHashes = fileHashes;
+        this.normalizer = normalizer;
+        this.hasher = fileHashes.hashFunction().newHasher();
         this.logger = logger;
     }
 
@@ -40,8 +44,14 @@ public final class TaskHasher {
         inputs.getProperties().forEach((key, value) -> {
             logger.debug("Hashing task input property: " + key);
             hasher.putString(key);
-            logger.debug("Hashing task input property value: " + value);
-            hasher.put(value, false); //We skin unknown types (mostly file collections)
+            //Paths are hashed relative to their roots, so that the key does not depend on where the workspace is located
+            final Object normalized = normalizer.normalizeValue(value);
+            logger.debug("Hashing task input property value: " + normalized);
+            putValue(hasher, normalized);
+
+            final Hasher propertyHasher = fileHashes.hashFunction().newHasher();
+            putValue(propertyHasher, normalized);
+            fingerprint.put("property:" + key, propertyHasher.hash());
         });
 
         final Set<File> inputFiles = new HashSet<>();
@@ -54,16 +64,57 @@ public final class TaskHasher {
             }
         }
 
-        final List<File> files = new ArrayList<>(inputFiles);
-        files.sort(Comparator.comparing(File::getAbsolutePath));
-
-        for (File file : files) {
+        //Files are ordered and identified by their normalized path, so that neither depends on where the workspace is located.
+        //Files outside of all roots are only identified by their name, equally named ones are ordered by their content.
+        final Map<String, List<HashCode>> files = new TreeMap<>();
+        for (File file : inputFiles) {
             logger.debug("Hashing task input file: " + file.getAbsolutePath());
-            hasher.putString(file.getName());
-            final HashCode code = hashFunction.hashFile(file);
+            final HashCode code = fileHashes.hashFile(file);
             logger.debug("Hashing task input file hash: " + code);
-            hasher.putHash(code);
+            files.computeIfAbsent(normalizer.identify(file), identity -> new ArrayList<>()).add(code);
         }
+
+        for (Map.Entry<String, List<HashCode>> file : files.entrySet()) {
+            final List<HashCode> codes = file.getValue();
+            codes.sort(Comparator.comparing(HashCode::toString));
+
+            final Hasher fileHasher = fileHashes.hashFunction().newHasher();
+            for (HashCode code : codes) {
+                hasher.putString(file.getKey());
+                hasher.putHash(code);
+                fileHasher.putHash(code);
+            }
+            fingerprint.put("file:" + file.getKey(), codes.size() == 1 ? codes.get(0) : fileHasher.hash());
+        }
+    }
+
+    /**
+     * Hashes a normalized input value, including the elements of collections and maps.
+     */
+    private static void putValue(Hasher hasher, @Nullable Object value) {
+        if (value instanceof List<?> list) {
+            hasher.putString("[");
+            hasher.putInt(list.size());
+            for (Object element : list) {
+                putValue(hasher, element);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            hasher.putString("{");
+            hasher.putInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                putValue(hasher, entry.getKey());
+                putValue(hasher, entry.getValue());
+            }
+        } else {
+            hasher.put(value, false); //We skip unknown types (mostly file collections)
+        }
+    }
+
+    /**
+     * @return The hashes of the individual inputs of the task, by input name, available after the task was hashed.
+     */
+    public Map<String, HashCode> fingerprint() {
+        return Collections.unmodifiableMap(fingerprint);
     }
 
     public HashCode create() throws IOException {
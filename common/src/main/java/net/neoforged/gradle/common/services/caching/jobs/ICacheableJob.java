@@ -8,6 +8,7 @@ import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Provider;
 
 import java.io.File;
+import java.util.Set;
 
 /**
  * Defines a job that can be cached.
@@ -43,6 +44,23 @@ public interface ICacheableJob<I, O> {
      */
     boolean createsDirectory();
 
+    /**
+     * @return True if the job consumes the result of the previous job, which is only available when that job is executed.
+     * @implSpec By default a job does not consume any input.
+     */
+    default boolean requiresInput() {
+        return false;
+    }
+
+    /**
+     * @return True if the output is a directory shared with other consumers, which the job only adds files to.
+     * The cache then only records references to the files the job produced, it never copies, cleans or replaces the output.
+     * @implSpec By default a job owns its output.
+     */
+    default boolean isShared() {
+        return false;
+    }
+
     /**
      * The functional interface for a runnable that throws an exception.
      */
@@ -165,5 +183,50 @@ public interface ICacheableJob<I, O> {
         public O execute(I input) throws Throwable {
             return job.apply(input);
         }
+
+        @Override
+        public boolean requiresInput() {
+            return true;
+        }
+    }
+
+    /**
+     * Creates a new cacheable job that adds files to a shared directory, for example one of the global stores in the Gradle user home.
+     * The job returns the files it produced, or that it relies on, in the shared directory.
+     * Only references to these files are cached, when they are all still intact the job is not executed and its result is reconstructed from the references.
+     *
+     * @param name The name of the job.
+     * @param output The shared directory.
+     * @param execute The code to execute, returning the referenced files.
+     */
+    record Reference(String name, File output, ThrowingSupplier<Set<File>> execute) implements ICacheableJob<Void, Set<File>> {
+
+        /**
+         * Creates a new cacheable job that adds files to the shared directory provided by the provider.
+         * Realising the provider when this method is called.
+         *
+         * @param name The name of the job.
+         * @param output The shared directory.
+         * @param execute The code to execute, returning the referenced files.
+         * @return The created job.
+         */
+        public static Reference directory(String name, Provider<Directory> output, ThrowingSupplier<Set<File>> execute) {
+            return new Reference(name, output.get().getAsFile(), execute);
+        }
+
+        @Override
+        public Set<File> execute(Void input) throws Throwable {
+            return execute().get();
+        }
+
+        @Override
+        public boolean createsDirectory() {
+            return true;
+        }
+
+        @Override
+        public boolean isShared() {
+            return true;
+        }
     }
 }
@@ -0,0 +1,268 @@
+package net.neoforged.gradle.common.services.caching.locking;
+
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An exclusive lock on a file, which works across threads and processes.
+ * <p>
+ * Threads of the current process wait on a shared reentrant lock per lock file, so they are woken up as soon as the lock is released.
+ * The first thread which acquires that in-process lock, then acquires an OS level lock on the lock file, to exclude other processes.
+ * The OS releases that lock when the owning process dies, so no stale lock can remain.
+ * The in-process locks only exist once per class loader, while the OS lock is held for the whole process,
+ * so a lock file held through another class loader is polled with an increasing delay until it is released.
+ * <p>
+ * The owner of a lock may delete the lock file, together with the target it guards.
+ * The deleted lock file is marked, so that processes which were still waiting on it do not share the lock with the owner of its replacement.
+ */
+public final class ChannelBasedFileLock implements AutoCloseable {
+
+    private static final Map<String, PathLock> FILE_LOCKS = new ConcurrentHashMap<>();
+
+    private static final byte[] DELETED_MARKER = "deleted".getBytes(StandardCharsets.UTF_8);
+
+    static final long MIN_BACKOFF_MILLIS = 1;
+    static final long MAX_BACKOFF_MILLIS = 200;
+
+    private final File lockFile;
+    private final CacheLogger logger;
+    private final PathLock pathLock;
+
+    public ChannelBasedFileLock(File lockFile, CacheLogger logger) {
+        this.lockFile = lockFile;
+        this.logger = logger;
+        this.pathLock = retain(lockFile);
+
+        try {
+            lockFile();
+        } catch (RuntimeException e) {
+            release(lockFile);
+            throw e;
+        }
+    }
+
+    private ChannelBasedFileLock(File lockFile, CacheLogger logger, PathLock pathLock) {
+        this.lockFile = lockFile;
+        this.logger = logger;
+        this.pathLock = pathLock;
+    }
+
+    /**
+     * Attempts to acquire the lock on the given file, without waiting for it to be released by its current owner.
+     *
+     * @param lockFile The lock file.
+     * @param logger The logger.
+     * @return The acquired lock, or null if the lock is currently held by somebody else.
+     */
+    @Nullable
+    public static ChannelBasedFileLock tryLock(File lockFile, CacheLogger logger) {
+        final PathLock pathLock = retain(lockFile);
+        if (!pathLock.lock.tryLock()) {
+            logger.debug("Lock file is held by another thread: " + lockFile.getAbsolutePath());
+            release(lockFile);
+            return null;
+        }
+
+        try {
+            if (pathLock.lock.getHoldCount() == 1 && !lockChannel(pathLock, lockFile, false)) {
+                logger.debug("Lock file is held by another process: " + lockFile.getAbsolutePath());
+                pathLock.lock.unlock();
+                release(lockFile);
+                return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Failed to acquire lock on file: " + lockFile.getAbsolutePath(), e);
+            pathLock.lock.unlock();
+            release(lockFile);
+            return null;
+        }
+
+        return new ChannelBasedFileLock(lockFile, logger, pathLock);
+    }
+
+    private void lockFile() {
+        logger.debug("Attempting to acquire lock on file: " + lockFile.getAbsolutePath());
+        final long start = System.nanoTime();
+
+        if (pathLock.lock.getOwner() != null && !pathLock.lock.isHeldByCurrentThread()) {
+            logger.debug("Lock file is held by thread: " + pathLock.lock.getOwner().getId() + " - " + pathLock.lock.getOwner().getName() + " current thread: " + Thread.currentThread().getId() + " - " + Thread.currentThread().getName());
+        }
+
+        try {
+            pathLock.lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for lock on file: " + lockFile.getAbsolutePath(), e);
+        }
+
+        //Only the outermost holder within this process needs to exclude other processes
+        if (pathLock.lock.getHoldCount() == 1) {
+            try {
+                lockChannel(pathLock, lockFile, true);
+            } catch (IOException | RuntimeException e) {
+                pathLock.lock.unlock();
+                throw new RuntimeException("Failed to acquire lock on file: " + lockFile.getAbsolutePath(), e);
+            }
+        }
+
+        logger.onLockAcquired(lockFile, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Acquires the OS level lock on the lock file, skipping lock files which were deleted by their owner while waiting on them.
+     *
+     * @return True if the lock was acquired, false if the lock file is held by another process and we should not wait.
+     */
+    private static boolean lockChannel(PathLock pathLock, File lockFile, boolean wait) throws IOException {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (true) {
+            final FileChannel channel = openChannel(lockFile);
+            try {
+                final FileLock fileLock;
+                try {
+                    fileLock = wait ? channel.lock() : channel.tryLock();
+                } catch (OverlappingFileLockException e) {
+                    //Held by this process, through a copy of this class which was loaded by another class loader.
+                    //The OS does not notify us when it is released, so we poll for it.
+                    channel.close();
+                    if (!wait) {
+                        return false;
+                    }
+
+                    backoff = backoff(lockFile, backoff);
+                    continue;
+                }
+
+                if (fileLock == null) {
+                    channel.close();
+                    return false;
+                }
+
+                if (channel.size() == 0) {
+                    pathLock.channel = channel;
+                    pathLock.fileLock = fileLock;
+                    return true;
+                }
+
+                //The previous owner deleted this lock file, the next attempt locks its replacement.
+                fileLock.release();
+                channel.close();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Waits before the next attempt to lock a file which is held by another class loader of this process.
+     *
+     * @param lockFile The lock file.
+     * @param millis The time to wait.
+     * @return The time to wait before the attempt after the next one.
+     * @throws IOException If the thread was interrupted while waiting.
+     */
+    static long backoff(File lockFile, long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for lock on file: " + lockFile.getAbsolutePath());
+        }
+
+        return Math.min(millis * 2, MAX_BACKOFF_MILLIS);
+    }
+
+    private static FileChannel openChannel(File lockFile) throws IOException {
+        final File parent = lockFile.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+
+        try {
+            return FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            if (parent == null) {
+                throw e;
+            }
+
+            //The directory was removed together with its previous lock file in the meantime.
+            parent.mkdirs();
+            return FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+    }
+
+    private static PathLock retain(File lockFile) {
+        return FILE_LOCKS.compute(lockFile.getAbsolutePath(), (path, existing) -> {
+            final PathLock pathLock = existing == null ? new PathLock() : existing;
+            pathLock.users++;
+            return pathLock;
+        });
+    }
+
+    private static void release(File lockFile) {
+        FILE_LOCKS.computeIfPresent(lockFile.getAbsolutePath(), (path, existing) -> --existing.users == 0 ? null : existing);
+    }
+
+    /**
+     * Deletes the lock file, for owners which remove the target guarded by the lock entirely.
+     * The lock is still held until it is closed.
+     *
+     * @throws IOException If the lock file could not be deleted.
+     */
+    public void delete() throws IOException {
+        if (pathLock.lock.getHoldCount() != 1 || pathLock.channel == null) {
+            throw new IllegalStateException("Can not delete the lock file while the lock is held reentrantly: " + lockFile.getAbsolutePath());
+        }
+
+        Files.delete(lockFile.toPath());
+        pathLock.channel.write(ByteBuffer.wrap(DELETED_MARKER), 0);
+        logger.debug("Deleted lock file: " + lockFile.getAbsolutePath());
+    }
+
+    @Override
+    public void close() throws Exception {
+        logger.debug("Releasing lock on file: " + lockFile.getAbsolutePath());
+        try {
+            if (pathLock.lock.getHoldCount() == 1 && pathLock.channel != null) {
+                logger.debug("Unlocking: " + Thread.currentThread().getId() + " - " + Thread.currentThread().getName());
+                try {
+                    pathLock.fileLock.release();
+                } finally {
+                    pathLock.channel.close();
+                    pathLock.channel = null;
+                    pathLock.fileLock = null;
+                }
+            }
+        } finally {
+            pathLock.lock.unlock();
+            release(lockFile);
+        }
+    }
+
+    /**
+     * The state of a single lock file within this process.
+     * The channel and OS lock are only accessed by the thread holding {@link #lock}, the user count only within {@link #FILE_LOCKS}.
+     */
+    private static final class PathLock {
+        private final OwnerAwareReentrantLock lock = new OwnerAwareReentrantLock();
+        private int users;
+        private FileChannel channel;
+        private FileLock fileLock;
+    }
+}
@@ -11,14 +11,14 @@ public final class IOControlledFileBasedLock extends HealthFileUsingFileBasedLoc
     private final File lockFile;
     private final CacheLogger logger;
 
-    private final PIDBasedFileLock pidBasedFileLock;
+    private final ChannelBasedFileLock channelBasedFileLock;
 
     public IOControlledFileBasedLock(File lockFile, CacheLogger logger) {
         super(new File(lockFile.getParentFile(), HEALTHY_FILE_NAME));
         this.lockFile = lockFile;
         this.logger = logger;
         
-        this.pidBasedFileLock = new PIDBasedFileLock(lockFile, logger);
+        this.channelBasedFileLock = new ChannelBasedFileLock(lockFile, logger);
     }
 
     @Override
@@ -34,7 +34,7 @@ public final class IOControlledFileBasedLock extends HealthFileUsingFileBasedLoc
     public void close() throws Exception {
         //Close the super first, this ensures that the healthy file is created only if the lock was successful
         super.close();
-        this.pidBasedFileLock.close();
+        this.channelBasedFileLock.close();
         logger.debug("Lock file closed: %s".formatted(lockFile.getAbsolutePath()));
     }
 }
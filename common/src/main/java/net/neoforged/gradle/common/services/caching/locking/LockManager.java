@@ -1,6 +1,7 @@
 package net.neoforged.gradle.common.services.caching.locking;
 
 import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 
@@ -13,4 +14,19 @@ public final class LockManager {
 
         return new IOControlledFileBasedLock(lockFile, logger);
     }
+
+    /**
+     * Attempts to exclusively lock the given target, without waiting for a current owner to release it.
+     * Unlike {@link #createLock(File, CacheLogger)} the returned lock does not track the health of the target.
+     *
+     * @param target The target to lock.
+     * @param logger The logger.
+     * @return The lock, or null if the target is currently locked by somebody else.
+     */
+    @Nullable
+    public static ChannelBasedFileLock tryLock(File target, CacheLogger logger) {
+        final File lockFile = new File(target, LOCK_FILE_NAME);
+
+        return ChannelBasedFileLock.tryLock(lockFile, logger);
+    }
 }
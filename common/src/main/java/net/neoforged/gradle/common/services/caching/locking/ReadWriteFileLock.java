@@ -0,0 +1,154 @@
+package net.neoforged.gradle.common.services.caching.locking;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A lock on a file which is either held shared, by any amount of threads and processes, or exclusively by a single one of them.
+ * <p>
+ * The OS only allows a single lock per file and process, so all threads of the current process which hold the lock shared also share a single OS level lock.
+ * It is acquired by the first of them, and released by the last one.
+ */
+public final class ReadWriteFileLock {
+
+    private static final Map<String, ReadWriteFileLock> FILE_LOCKS = new ConcurrentHashMap<>();
+
+    private final File lockFile;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int sharedHolders;
+    private FileChannel channel;
+    private FileLock fileLock;
+
+    private ReadWriteFileLock(File lockFile) {
+        this.lockFile = lockFile;
+    }
+
+    /**
+     * Gets the lock for the given file, which is the same for all users within this process.
+     *
+     * @param lockFile The lock file.
+     * @return The lock.
+     */
+    public static ReadWriteFileLock of(File lockFile) {
+        return FILE_LOCKS.computeIfAbsent(lockFile.getAbsolutePath(), path -> new ReadWriteFileLock(new File(path)));
+    }
+
+    /**
+     * Acquires the lock shared, waiting until it is no longer held exclusively.
+     *
+     * @return The handle which releases the lock when closed.
+     * @throws IOException If the lock file could not be locked.
+     */
+    public Closeable lockShared() throws IOException {
+        lock.readLock().lock();
+        try {
+            synchronized (this) {
+                if (sharedHolders == 0) {
+                    acquire(true, true);
+                }
+                sharedHolders++;
+            }
+        } catch (IOException | RuntimeException e) {
+            lock.readLock().unlock();
+            throw e;
+        }
+
+        return () -> {
+            try {
+                synchronized (this) {
+                    if (--sharedHolders == 0) {
+                        release();
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        };
+    }
+
+    /**
+     * Attempts to acquire the lock exclusively, without waiting for its current holders.
+     *
+     * @return The handle which releases the lock when closed, or null if the lock is currently held by somebody else.
+     * @throws IOException If the lock file could not be locked.
+     */
+    @Nullable
+    public Closeable tryLockExclusive() throws IOException {
+        if (!lock.writeLock().tryLock()) {
+            return null;
+        }
+
+        try {
+            if (!acquire(false, false)) {
+                lock.writeLock().unlock();
+                return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            lock.writeLock().unlock();
+            throw e;
+        }
+
+        return () -> {
+            try {
+                release();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+    }
+
+    private boolean acquire(boolean shared, boolean wait) throws IOException {
+        final File parent = lockFile.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+
+        long backoff = ChannelBasedFileLock.MIN_BACKOFF_MILLIS;
+        while (true) {
+            final FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                final FileLock fileLock = wait ? channel.lock(0, Long.MAX_VALUE, shared) : channel.tryLock(0, Long.MAX_VALUE, shared);
+                if (fileLock == null) {
+                    channel.close();
+                    return false;
+                }
+
+                this.channel = channel;
+                this.fileLock = fileLock;
+                return true;
+            } catch (OverlappingFileLockException e) {
+                //The lock is held by a copy of this class from another class loader within this process.
+                channel.close();
+                if (!wait) {
+                    return false;
+                }
+
+                backoff = ChannelBasedFileLock.backoff(lockFile, backoff);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+    }
+
+    private void release() throws IOException {
+        try {
+            fileLock.release();
+        } finally {
+            channel.close();
+            channel = null;
+            fileLock = null;
+        }
+    }
+}
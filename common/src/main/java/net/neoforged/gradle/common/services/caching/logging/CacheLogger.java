@@ -1,48 +1,159 @@
 package net.neoforged.gradle.common.services.caching.logging;
 
 import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
+import net.neoforged.gradle.common.services.caching.report.CacheReport;
+import net.neoforged.gradle.common.services.caching.report.InputFingerprints;
+import net.neoforged.gradle.common.util.hash.HashCode;
 import org.gradle.api.Task;
+import org.gradle.api.logging.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
 
 public class CacheLogger {
-    
-    private final Task task;
+
+    private final Logger logger;
+    private final String owner;
     private final boolean debug;
     private final boolean cacheHits;
+    @Nullable
+    private final CacheReport.Task report;
 
     public CacheLogger(Task task, boolean debug, boolean cacheHits) {
-        this.task = task;
+        this(task, debug, cacheHits, null);
+    }
+
+    public CacheLogger(Task task, boolean debug, boolean cacheHits, @Nullable CacheReport report) {
+        this(task.getLogger(), task.getPath(), debug, cacheHits, report == null ? null : report.task(task.getPath()));
+    }
+
+    public CacheLogger(Logger logger, String owner, boolean debug, boolean cacheHits) {
+        this(logger, owner, debug, cacheHits, null);
+    }
+
+    private CacheLogger(Logger logger, String owner, boolean debug, boolean cacheHits, @Nullable CacheReport.Task report) {
+        this.logger = logger;
+        this.owner = owner;
         this.debug = debug;
         this.cacheHits = cacheHits;
+        this.report = report;
+    }
+
+    /**
+     * @return True if the events are recorded into a cache report.
+     */
+    public boolean isReporting() {
+        return report != null;
+    }
+
+    public void onTaskHashed(HashCode taskHash, long millis) {
+        debug("Task hash: %s, computed in %dms".formatted(taskHash, millis));
+        if (report != null) {
+            report.onHashed(taskHash, millis);
+        }
     }
-    
+
+    public void onInputsChanged(List<InputFingerprints.Change> changes) {
+        if (debug) {
+            for (InputFingerprints.Change change : changes) {
+                debug("Task input %s: %s".formatted(change.type().name().toLowerCase(Locale.ROOT), change.input()));
+            }
+        }
+        if (report != null) {
+            report.onInputsChanged(changes);
+        }
+    }
+
+    public void onStageLocked(ICacheableJob<?,?> stage, long waitMillis) {
+        if (report != null) {
+            report.stage(stage.name()).onLocked(waitMillis);
+        }
+    }
+
     public void onCacheEquals(ICacheableJob<?,?> stage) {
         if (cacheHits) {
-            task.getLogger().lifecycle("Cache equal for task {} from {}", task.getPath(), stage.name());
+            logger.lifecycle("Cache equal for task {} from {}", owner, stage.name());
         }
+        record(stage, CacheReport.Result.EQUAL);
     }
 
     public void onCacheHit(ICacheableJob<?,?> stage) {
         if (cacheHits) {
-            task.getLogger().lifecycle("Cache hit for task {} from {}", task.getPath(), stage.name());
+            logger.lifecycle("Cache hit for task {} from {}", owner, stage.name());
         }
+        record(stage, CacheReport.Result.HIT);
+    }
+
+    public void onCacheSkipped(ICacheableJob<?,?> stage) {
+        debug("Skipping restore of stage: %s, its output is not needed".formatted(stage));
+        record(stage, CacheReport.Result.SKIPPED);
     }
 
     public void onCacheMiss(ICacheableJob<?,?> stage) {
         if (cacheHits) {
-            task.getLogger().lifecycle("Cache miss for task {} from {}", task.getPath(), stage.name());
+            logger.lifecycle("Cache miss for task {} from {}", owner, stage.name());
+        }
+        record(stage, CacheReport.Result.MISS);
+    }
+
+    public void onCacheBypassed(ICacheableJob<?,?> stage) {
+        if (cacheHits) {
+            logger.lifecycle("Cache bypassed for task {} from {}, its result is needed", owner, stage.name());
+        }
+        record(stage, CacheReport.Result.BYPASSED);
+    }
+
+    public void onStageExecuted(ICacheableJob<?,?> stage, long millis, long bytesStored) {
+        if (report != null) {
+            report.stage(stage.name()).onExecuted(millis, bytesStored);
+        }
+    }
+
+    public void onStageRestored(ICacheableJob<?,?> stage, long millis, long bytesRestored) {
+        if (report != null) {
+            report.stage(stage.name()).onRestored(millis, bytesRestored);
+        }
+    }
+
+    public void onCacheEvicted(String entry, long size) {
+        if (cacheHits) {
+            logger.lifecycle("Cache entry {} evicted, freeing {} bytes", entry, size);
+        }
+    }
+
+    public void onLockAcquired(File lockFile, long waitMillis) {
+        if (cacheHits && waitMillis > 0) {
+            logger.lifecycle("Waited {}ms for cache lock {} for task {}", waitMillis, lockFile.getParentFile().getName(), owner);
+        } else {
+            debug("Lock acquired on file: %s after %dms".formatted(lockFile.getAbsolutePath(), waitMillis));
+        }
+    }
+
+    private void record(ICacheableJob<?,?> stage, CacheReport.Result result) {
+        if (report != null) {
+            report.stage(stage.name()).onResult(result);
+        }
+    }
+
+    public void warn(String message, Exception e) {
+        if (debug) {
+            logger.warn(message, e);
+        } else {
+            logger.warn("{}: {}", message, e.toString());
         }
     }
 
     public void debug(String message) {
         if (debug) {
-            task.getLogger().lifecycle(" > [" + System.currentTimeMillis() + "] (" + ProcessHandle.current().pid() + "): " + message);
+            logger.lifecycle(" > [" + System.currentTimeMillis() + "] (" + ProcessHandle.current().pid() + "): " + message);
         }
     }
 
     public void debug(String message, Exception e) {
         if (debug) {
-            task.getLogger().lifecycle(" > [" + System.currentTimeMillis() + "] (" + ProcessHandle.current().pid() + "): " + message, e);
+            logger.lifecycle(" > [" + System.currentTimeMillis() + "] (" + ProcessHandle.current().pid() + "): " + message, e);
         }
     }
 }
-
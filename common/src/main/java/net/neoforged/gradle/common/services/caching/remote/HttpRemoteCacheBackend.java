@@ -0,0 +1,117 @@
+package net.neoforged.gradle.common.services.caching.remote;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * A remote cache which stores its entries on an HTTP server.
+ * <p>
+ * An entry is read with a {@code GET} and written with a {@code PUT} to {@code <url>/<key>}, a {@code 404} marks a missing entry.
+ * This is the same protocol as the one of the Gradle HTTP build cache, so any server which supports it can be used.
+ */
+public final class HttpRemoteCacheBackend implements RemoteCacheBackend {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
+    private final URI url;
+    @Nullable
+    private final String authorization;
+    private final HttpClient client;
+
+    public HttpRemoteCacheBackend(URI url, @Nullable String username, @Nullable String password) {
+        this.url = url.toString().endsWith("/") ? url : URI.create(url + "/");
+        this.authorization = username == null ? null : "Basic " + Base64.getEncoder().encodeToString(
+                "%s:%s".formatted(username, password == null ? "" : password).getBytes(StandardCharsets.UTF_8)
+        );
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Override
+    public boolean load(String key, File target) throws IOException {
+        final Path temp = new File(target.getParentFile(), "%s.%s.tmp".formatted(target.getName(), UUID.randomUUID())).toPath();
+        try {
+            Files.createDirectories(temp.getParent());
+            final HttpResponse<Path> response = send(request(key).GET().build(), HttpResponse.BodyHandlers.ofFile(temp));
+            if (response.statusCode() == 404) {
+                return false;
+            }
+
+            if (response.statusCode() != 200) {
+                throw new IOException("Failed to load cache entry %s from %s: HTTP %d".formatted(key, url, response.statusCode()));
+            }
+
+            try {
+                Files.move(temp, target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public void store(String key, File source) throws IOException {
+        final HttpRequest request;
+        try {
+            request = request(key)
+                    .header("Content-Type", "application/octet-stream")
+                    .PUT(HttpRequest.BodyPublishers.ofFile(source.toPath()))
+                    .build();
+        } catch (FileNotFoundException e) {
+            throw new IOException("Cache entry %s to store does not exist: %s".formatted(key, source.getAbsolutePath()), e);
+        }
+
+        final HttpResponse<Void> response = send(request, HttpResponse.BodyHandlers.discarding());
+        //Servers may refuse entries, for example when they are too large, which is not an error of the remote cache itself.
+        if (response.statusCode() == 413) {
+            return;
+        }
+
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Failed to store cache entry %s to %s: HTTP %d".formatted(key, url, response.statusCode()));
+        }
+    }
+
+    private HttpRequest.Builder request(String key) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(url.resolve(key)).timeout(REQUEST_TIMEOUT);
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        return builder;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return client.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while requesting: %s".formatted(request.uri()), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return url.toString();
+    }
+}
@@ -0,0 +1,258 @@
+package net.neoforged.gradle.common.services.caching.remote;
+
+import net.neoforged.gradle.common.services.caching.cache.ICache;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Puts a {@link RemoteCacheBackend} in front of the local cache.
+ * <p>
+ * Reads are read-through: an entry which misses locally is downloaded and loaded into the local cache, which then serves it as a hit.
+ * Writes are write-behind: the output of an executed stage is packed while its entry is still locked,
+ * the upload happens in the background and is awaited when the build finishes.
+ * <p>
+ * The remote cache is best effort, the first failure to reach it disables it for the rest of the build.
+ */
+public final class RemoteCache implements AutoCloseable {
+
+    public static final String DIRECTORY_NAME = "remote";
+
+    /**
+     * The single entry of the archive of a stage which produces a file.
+     */
+    private static final String FILE_ENTRY = "file";
+    /**
+     * The prefix of the entries of the archive of a stage which produces a directory.
+     */
+    private static final String DIRECTORY_PREFIX = "directory/";
+
+    private static final long UPLOAD_TIMEOUT_MINUTES = 10;
+
+    private final RemoteCacheBackend backend;
+    private final boolean push;
+    private final File workDirectory;
+    private final CacheLogger logger;
+    private final ExecutorService uploads;
+    private final List<Future<?>> pendingUploads = new ArrayList<>();
+
+    private volatile boolean disabled = false;
+
+    public RemoteCache(RemoteCacheBackend backend, boolean push, File cacheDirectory, CacheLogger logger) {
+        this.backend = backend;
+        this.push = push;
+        this.workDirectory = new File(cacheDirectory, DIRECTORY_NAME);
+        this.logger = logger;
+        this.uploads = Executors.newFixedThreadPool(2, runnable -> {
+            final Thread thread = new Thread(runnable, "NeoGradle remote cache upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the entry with the given key from the remote cache into the given local cache.
+     *
+     * @param key The key of the entry.
+     * @param cache The local cache to load the entry into, it needs to be locked by the caller.
+     * @param directory True if the entry holds a directory, false if it holds a single file.
+     * @return True if the entry was found and loaded.
+     */
+    public boolean fetch(String key, ICache cache, boolean directory) {
+        if (disabled) {
+            return false;
+        }
+
+        final File archive = temporaryFile(key, "zip");
+        final File extracted = temporaryFile(key, "content");
+        try {
+            if (!backend.load(key, archive)) {
+                logger.debug("Remote cache miss for entry: %s".formatted(key));
+                return false;
+            }
+
+            unpack(archive, extracted, directory);
+            cache.loadFrom(extracted);
+            logger.debug("Remote cache hit for entry: %s".formatted(key));
+            return true;
+        } catch (IOException e) {
+            disable("Failed to load entry %s from the remote cache %s".formatted(key, backend), e);
+            return false;
+        } finally {
+            FileUtils.deleteQuietly(archive);
+            FileUtils.deleteQuietly(extracted);
+        }
+    }
+
+    /**
+     * Stores the given output as the entry with the given key in the remote cache.
+     * The output is packed right away, the upload happens in the background.
+     *
+     * @param key The key of the entry.
+     * @param output The output of the stage.
+     * @param directory True if the output is a directory, false if it is a single file.
+     */
+    public void store(String key, File output, boolean directory) {
+        if (!push || disabled) {
+            return;
+        }
+
+        final File archive = temporaryFile(key, "zip");
+        try {
+            pack(output, archive, directory);
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(archive);
+            logger.debug("Failed to pack entry %s for the remote cache".formatted(key), e);
+            return;
+        }
+
+        synchronized (pendingUploads) {
+            pendingUploads.add(uploads.submit(() -> {
+                try {
+                    if (!disabled) {
+                        backend.store(key, archive);
+                        logger.debug("Stored entry %s in the remote cache".formatted(key));
+                    }
+                } catch (IOException e) {
+                    disable("Failed to store entry %s in the remote cache %s".formatted(key, backend), e);
+                } finally {
+                    FileUtils.deleteQuietly(archive);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Waits for all pending uploads, and releases the backend.
+     */
+    @Override
+    public void close() throws IOException {
+        final List<Future<?>> pending;
+        synchronized (pendingUploads) {
+            pending = new ArrayList<>(pendingUploads);
+            pendingUploads.clear();
+        }
+
+        try {
+            for (Future<?> upload : pending) {
+                upload.get(UPLOAD_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Failed to complete the uploads to the remote cache %s".formatted(backend), e);
+        } finally {
+            uploads.shutdownNow();
+            backend.close();
+        }
+    }
+
+    private void disable(String message, Exception e) {
+        if (!disabled) {
+            disabled = true;
+            logger.warn("%s, the remote cache is disabled for the rest of the build".formatted(message), e);
+        }
+    }
+
+    private File temporaryFile(String key, String extension) {
+        return new File(workDirectory, "%s.%s.%s".formatted(key, UUID.randomUUID(), extension));
+    }
+
+    static void pack(File output, File archive, boolean directory) throws IOException {
+        Files.createDirectories(archive.getParentFile().toPath());
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(archive.toPath())))) {
+            zip.setLevel(Deflater.BEST_SPEED);
+
+            if (!directory) {
+                zip.putNextEntry(new ZipEntry(FILE_ENTRY));
+                Files.copy(output.toPath(), zip);
+                zip.closeEntry();
+                return;
+            }
+
+            final Path root = output.toPath();
+            zip.putNextEntry(new ZipEntry(DIRECTORY_PREFIX));
+            zip.closeEntry();
+            if (!output.isDirectory()) {
+                return;
+            }
+
+            final List<Path> paths;
+            try (Stream<Path> stream = Files.walk(root)) {
+                paths = stream.filter(path -> !path.equals(root)).sorted().toList();
+            }
+
+            for (Path path : paths) {
+                final String name = DIRECTORY_PREFIX + root.relativize(path).toString().replace(File.separatorChar, '/');
+                if (Files.isDirectory(path)) {
+                    zip.putNextEntry(new ZipEntry(name + "/"));
+                    zip.closeEntry();
+                } else {
+                    zip.putNextEntry(new ZipEntry(name));
+                    Files.copy(path, zip);
+                    zip.closeEntry();
+                }
+            }
+        }
+    }
+
+    static void unpack(File archive, File target, boolean directory) throws IOException {
+        final Path root = target.toPath().toAbsolutePath().normalize();
+        boolean found = false;
+
+        try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(archive.toPath())))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!directory) {
+                    if (entry.getName().equals(FILE_ENTRY)) {
+                        Files.createDirectories(root.getParent());
+                        Files.copy(zip, root);
+                        found = true;
+                    }
+                    continue;
+                }
+
+                if (!entry.getName().startsWith(DIRECTORY_PREFIX)) {
+                    continue;
+                }
+
+                found = true;
+                final Path path = root.resolve(entry.getName().substring(DIRECTORY_PREFIX.length())).normalize();
+                if (!path.startsWith(root)) {
+                    throw new IOException("Remote cache entry contains a file outside of its root: %s".formatted(entry.getName()));
+                }
+
+                if (entry.isDirectory()) {
+                    Files.createDirectories(path);
+                } else {
+                    Files.createDirectories(path.getParent());
+                    Files.copy(zip, path);
+                }
+            }
+        }
+
+        if (!found) {
+            throw new IOException("Remote cache entry does not contain a %s: %s".formatted(directory ? "directory" : "file", archive.getName()));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package net.neoforged.gradle.common.services.caching.remote;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A remote tier of the cache, shared between machines.
+ * <p>
+ * Entries are opaque archives, addressed by the hash of the stage they were produced by.
+ * Implementations need to be thread safe, entries are loaded and stored concurrently.
+ */
+public interface RemoteCacheBackend extends AutoCloseable {
+
+    /**
+     * Loads the entry with the given key from the remote cache.
+     *
+     * @param key The key of the entry.
+     * @param target The file to write the entry to, it is only written if the entry exists.
+     * @return True if the entry exists and was loaded, false if the remote cache does not hold the entry.
+     * @throws IOException If the remote cache could not be reached or failed to deliver the entry.
+     */
+    boolean load(String key, File target) throws IOException;
+
+    /**
+     * Stores the given file as the entry with the given key in the remote cache.
+     *
+     * @param key The key of the entry.
+     * @param source The file holding the entry.
+     * @throws IOException If the remote cache could not be reached or rejected the entry.
+     */
+    void store(String key, File source) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
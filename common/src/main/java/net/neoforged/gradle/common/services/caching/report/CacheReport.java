@@ -0,0 +1,264 @@
+package net.neoforged.gradle.common.services.caching.report;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import net.neoforged.gradle.common.util.hash.HashCode;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the effectiveness of the cache during a build, and writes it as a structured JSON report.
+ * <p>
+ * The report contains, per task and per stage, whether the cache was hit, how long hashing and waiting for locks took,
+ * how many bytes were restored and stored, how long executing a miss took, and which inputs of the task changed on a miss.
+ */
+public final class CacheReport {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * The outcome of a stage in the cache.
+     */
+    public enum Result {
+        /**
+         * The stage was restored from the cache.
+         */
+        HIT,
+        /**
+         * The stage was found in the cache, its output was already up to date.
+         */
+        EQUAL,
+        /**
+         * The stage was found in the cache, its output was not needed and thus not restored.
+         */
+        SKIPPED,
+        /**
+         * The stage was found in the cache, but executed anyway because a later stage needed its result.
+         */
+        BYPASSED,
+        /**
+         * The stage was not found in the cache and executed.
+         */
+        MISS
+    }
+
+    private final List<Task> tasks = new ArrayList<>();
+    private final InputFingerprints fingerprints;
+
+    public CacheReport(InputFingerprints fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * @return The fingerprints of task inputs, used to determine which inputs changed on a miss.
+     */
+    public InputFingerprints fingerprints() {
+        return fingerprints;
+    }
+
+    /**
+     * Starts the report of the execution of the given task.
+     *
+     * @param path The path of the task.
+     * @return The report of the task.
+     */
+    public synchronized Task task(String path) {
+        final Task task = new Task(path);
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * Writes the report to the given file.
+     *
+     * @param file The file to write to.
+     * @throws IOException If the report could not be written.
+     */
+    public void write(File file) throws IOException {
+        final JsonObject report = toJson();
+        file.getParentFile().mkdirs();
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            GSON.toJson(report, writer);
+        }
+    }
+
+    private synchronized JsonObject toJson() {
+        final JsonObject summary = new JsonObject();
+        final JsonArray taskArray = new JsonArray();
+
+        int hits = 0;
+        int misses = 0;
+        long hashingMillis = 0;
+        long lockWaitMillis = 0;
+        long bytesRestored = 0;
+        long bytesStored = 0;
+        long executionMillis = 0;
+
+        for (Task task : tasks) {
+            synchronized (task) {
+                hashingMillis += task.hashingMillis;
+                for (Stage stage : task.stages) {
+                    synchronized (stage) {
+                        if (stage.result == Result.MISS) {
+                            misses++;
+                        } else if (stage.result != null && stage.result != Result.BYPASSED) {
+                            hits++;
+                        }
+                        lockWaitMillis += stage.lockWaitMillis;
+                        bytesRestored += stage.bytesRestored;
+                        bytesStored += stage.bytesStored;
+                        executionMillis += stage.executionMillis;
+                    }
+                }
+                taskArray.add(task.toJson());
+            }
+        }
+
+        summary.addProperty("tasks", tasks.size());
+        summary.addProperty("stageHits", hits);
+        summary.addProperty("stageMisses", misses);
+        summary.addProperty("hashingMillis", hashingMillis);
+        summary.addProperty("lockWaitMillis", lockWaitMillis);
+        summary.addProperty("bytesRestored", bytesRestored);
+        summary.addProperty("bytesStored", bytesStored);
+        summary.addProperty("executionMillis", executionMillis);
+
+        final JsonObject report = new JsonObject();
+        report.addProperty("version", FORMAT_VERSION);
+        report.add("summary", summary);
+        report.add("tasks", taskArray);
+        return report;
+    }
+
+    /**
+     * The report of a single cached task execution.
+     */
+    public static final class Task {
+        private final String path;
+        private final List<Stage> stages = new ArrayList<>();
+        @Nullable
+        private HashCode taskHash;
+        private long hashingMillis;
+        @Nullable
+        private List<InputFingerprints.Change> changedInputs;
+
+        private Task(String path) {
+            this.path = path;
+        }
+
+        public synchronized void onHashed(HashCode taskHash, long millis) {
+            this.taskHash = taskHash;
+            this.hashingMillis = millis;
+        }
+
+        public synchronized void onInputsChanged(List<InputFingerprints.Change> changes) {
+            this.changedInputs = List.copyOf(changes);
+        }
+
+        /**
+         * Returns the report of the given stage, creating it on first use.
+         *
+         * @param name The name of the stage.
+         * @return The report of the stage.
+         */
+        public synchronized Stage stage(String name) {
+            for (Stage stage : stages) {
+                if (stage.name.equals(name)) {
+                    return stage;
+                }
+            }
+
+            final Stage stage = new Stage(name);
+            stages.add(stage);
+            return stage;
+        }
+
+        private JsonObject toJson() {
+            final JsonObject json = new JsonObject();
+            json.addProperty("path", path);
+            if (taskHash != null) {
+                json.addProperty("hash", taskHash.toString());
+            }
+            json.addProperty("hashingMillis", hashingMillis);
+
+            if (changedInputs != null) {
+                final JsonArray changes = new JsonArray();
+                for (InputFingerprints.Change change : changedInputs) {
+                    final JsonObject changeJson = new JsonObject();
+                    changeJson.addProperty("input", change.input());
+                    changeJson.addProperty("change", change.type().name());
+                    changes.add(changeJson);
+                }
+                json.add("changedInputs", changes);
+            }
+
+            final JsonArray stageArray = new JsonArray();
+            for (Stage stage : stages) {
+                stageArray.add(stage.toJson());
+            }
+            json.add("stages", stageArray);
+            return json;
+        }
+    }
+
+    /**
+     * The report of a single stage of a cached task execution.
+     */
+    public static final class Stage {
+        private final String name;
+        @Nullable
+        private Result result;
+        private long lockWaitMillis;
+        private long executionMillis;
+        private long restoreMillis;
+        private long bytesRestored;
+        private long bytesStored;
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        public synchronized void onLocked(long waitMillis) {
+            this.lockWaitMillis += waitMillis;
+        }
+
+        public synchronized void onResult(Result result) {
+            this.result = result;
+        }
+
+        public synchronized void onExecuted(long millis, long bytesStored) {
+            this.executionMillis += millis;
+            this.bytesStored += bytesStored;
+        }
+
+        public synchronized void onRestored(long millis, long bytesRestored) {
+            this.restoreMillis += millis;
+            this.bytesRestored += bytesRestored;
+        }
+
+        private synchronized JsonObject toJson() {
+            final JsonObject json = new JsonObject();
+            json.addProperty("name", name);
+            if (result != null) {
+                json.addProperty("result", result.name());
+            }
+            json.addProperty("lockWaitMillis", lockWaitMillis);
+            json.addProperty("executionMillis", executionMillis);
+            json.addProperty("restoreMillis", restoreMillis);
+            json.addProperty("bytesRestored", bytesRestored);
+            json.addProperty("bytesStored", bytesStored);
+            return json;
+        }
+    }
+}
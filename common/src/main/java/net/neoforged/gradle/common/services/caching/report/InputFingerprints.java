@@ -0,0 +1,156 @@
+package net.neoforged.gradle.common.services.caching.report;
+
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Remembers the hashes of the individual inputs of tasks, from their last cached execution.
+ * <p>
+ * When the key of a task changes, comparing its current inputs to the remembered ones tells which inputs caused the miss.
+ * The fingerprints are remembered per root project, as equally named tasks of different projects share the cache directory.
+ */
+public final class InputFingerprints {
+
+    public static final String DIRECTORY_NAME = "fingerprints";
+
+    private static final String HEADER = "# ng-input-fingerprint 1";
+
+    /**
+     * The kind of change of an input.
+     */
+    public enum ChangeType {
+        ADDED,
+        REMOVED,
+        CHANGED
+    }
+
+    /**
+     * A single changed input.
+     *
+     * @param input The name of the input.
+     * @param type The kind of change.
+     */
+    public record Change(String input, ChangeType type) {}
+
+    private final File directory;
+    private final String rootProject;
+
+    /**
+     * @param cacheDirectory The directory of the cache, in which the fingerprints are stored.
+     * @param rootProjectDirectory The directory of the root project, which the tasks belong to.
+     */
+    public InputFingerprints(File cacheDirectory, File rootProjectDirectory) {
+        this.directory = new File(cacheDirectory, DIRECTORY_NAME);
+        this.rootProject = rootProjectDirectory.toPath().toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Compares the given fingerprint of the task to the remembered one, and remembers the given fingerprint.
+     *
+     * @param taskPath The path of the task within the root project.
+     * @param fingerprint The current hashes of the inputs of the task.
+     * @return The changed inputs, or null if nothing was remembered for the task.
+     */
+    @Nullable
+    public List<Change> update(String taskPath, Map<String, HashCode> fingerprint) {
+        final File file = new File(directory, Hashing.sha256().hashString(rootProject + '\n' + taskPath).toString());
+        final Map<String, HashCode> previous = read(file);
+
+        if (!fingerprint.equals(previous)) {
+            try {
+                write(file, fingerprint);
+            } catch (IOException e) {
+                //The fingerprints are only informational, failing to store them is not fatal.
+            }
+        }
+
+        return previous == null ? null : compare(previous, fingerprint);
+    }
+
+    private static List<Change> compare(Map<String, HashCode> previous, Map<String, HashCode> current) {
+        final TreeSet<String> inputs = new TreeSet<>(previous.keySet());
+        inputs.addAll(current.keySet());
+
+        final List<Change> changes = new ArrayList<>();
+        for (String input : inputs) {
+            final HashCode before = previous.get(input);
+            final HashCode after = current.get(input);
+            if (before == null) {
+                changes.add(new Change(input, ChangeType.ADDED));
+            } else if (after == null) {
+                changes.add(new Change(input, ChangeType.REMOVED));
+            } else if (!Objects.equals(before, after)) {
+                changes.add(new Change(input, ChangeType.CHANGED));
+            }
+        }
+        return changes;
+    }
+
+    @Nullable
+    private static Map<String, HashCode> read(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        final Map<String, HashCode> fingerprint = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                return null;
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] parts = line.split("\t", 2);
+                if (parts.length == 2) {
+                    fingerprint.put(parts[1], HashCode.fromString(parts[0]));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        return fingerprint;
+    }
+
+    private static void write(File file, Map<String, HashCode> fingerprint) throws IOException {
+        file.getParentFile().mkdirs();
+        final Path temp = new File(file.getParentFile(), "%s.%s.tmp".formatted(file.getName(), UUID.randomUUID())).toPath();
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Map.Entry<String, HashCode> entry : fingerprint.entrySet()) {
+                    writer.write(entry.getValue().toString());
+                    writer.write('\t');
+                    writer.write(entry.getKey());
+                    writer.newLine();
+                }
+            }
+
+            try {
+                Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package net.neoforged.gradle.common.services.download;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads many files at once over a shared {@link HttpDownloader}, using a bounded pool of threads.
+ * <p>
+ * Files which already exist with the expected hash are not downloaded again, their hash is checked through the {@link VerifiedFiles}.
+ * Files which one of the {@link LocalFileSource}s already contains are taken from it, instead of being downloaded.
+ * The first failed download cancels the remaining ones.
+ */
+public final class DownloadBatch {
+
+    /**
+     * Receives the progress of a batch.
+     * Invoked from the threads of the pool, implementations need to be thread safe.
+     */
+    public interface Listener {
+
+        /**
+         * Invoked when a file of the batch is available, either because it was downloaded or because it already existed.
+         *
+         * @param download The file which is available.
+         */
+        void completed(FileDownload download);
+    }
+
+    private final HttpDownloader downloader;
+    private final VerifiedFiles verifiedFiles;
+    private final List<LocalFileSource> localSources;
+    private final ExecutorService executor;
+
+    public DownloadBatch(HttpDownloader downloader, VerifiedFiles verifiedFiles, List<LocalFileSource> localSources, ExecutorService executor) {
+        this.downloader = downloader;
+        this.verifiedFiles = verifiedFiles;
+        this.localSources = List.copyOf(localSources);
+        this.executor = executor;
+    }
+
+    /**
+     * Downloads the given files, blocking until all of them are available.
+     *
+     * @param downloads The files to download.
+     * @param offline Whether Gradle runs in offline mode, in which case only existing files are accepted.
+     * @param listener The listener for the progress.
+     * @throws IOException If any of the files could not be downloaded.
+     */
+    public void download(List<FileDownload> downloads, boolean offline, Listener listener) throws IOException {
+        final List<Future<?>> futures = new ArrayList<>(downloads.size());
+        for (FileDownload download : downloads) {
+            futures.add(executor.submit(() -> {
+                downloadOne(download, offline);
+                listener.completed(download);
+                return null;
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw asIOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading files", e);
+        } catch (CancellationException e) {
+            throw new IOException("Download was cancelled", e);
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    void downloadOne(FileDownload download, boolean offline) throws IOException {
+        if (download.output().exists() && isVerified(download)) {
+            return;
+        }
+
+        if (download.sha1() != null && LocalFileSource.materialize(localSources, download.output(), download.sha1())) {
+            return;
+        }
+
+        if (offline) {
+            throw new IllegalStateException("Cannot download %s as Gradle is running in offline mode and the file does not exist".formatted(download.url()));
+        }
+
+        final String hash = downloader.download(URI.create(download.url()), download.output(), download.sha1(), null);
+        if (download.sha1() != null) {
+            verifiedFiles.record(download.output(), hash);
+        }
+    }
+
+    private boolean isVerified(FileDownload download) throws IOException {
+        return download.sha1() == null || verifiedFiles.isVerified(download.output(), download.sha1());
+    }
+
+    private static IOException asIOException(Throwable cause) {
+        if (cause instanceof IOException io) {
+            return io;
+        }
+
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+
+        return new IOException(cause);
+    }
+}
@@ -0,0 +1,103 @@
+package net.neoforged.gradle.common.services.download;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Starts downloads in the background as soon as they are known to be needed, so that nothing has to wait for them until their file is read.
+ * <p>
+ * Every file is only downloaded once per build: prefetching the same content again returns the download which is already running.
+ * A download which failed is started again by the next prefetch of its content.
+ * Content is identified by its SHA-1 hash, or by its url if the hash is not known.
+ * The downloads share the bounded pool of threads of the {@link DownloadService}.
+ */
+public final class DownloadPrefetcher {
+
+    private final DownloadBatch batch;
+    private final ExecutorService executor;
+    private final Map<String, CompletableFuture<File>> downloads = new ConcurrentHashMap<>();
+
+    public DownloadPrefetcher(DownloadBatch batch, ExecutorService executor) {
+        this.batch = batch;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts downloading the given file in the background, unless the same content is already being downloaded or was downloaded.
+     *
+     * @param download The file to download.
+     * @return The download, which completes with the downloaded file.
+     */
+    public CompletableFuture<File> prefetch(FileDownload download) {
+        return downloads.compute(keyOf(download), (key, existing) -> existing != null && !existing.isCompletedExceptionally() ? existing : start(download));
+    }
+
+    private CompletableFuture<File> start(FileDownload download) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                batch.downloadOne(download, false);
+                return download.output();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Waits for the prefetched download of the given content, if it was prefetched.
+     *
+     * @param sha1 The SHA-1 hash of the content.
+     * @return The downloaded file, or null if the content was not prefetched or its download failed.
+     */
+    @Nullable
+    public File await(String sha1) {
+        final CompletableFuture<File> download = downloads.get(sha1.toLowerCase(Locale.ROOT));
+        if (download == null) {
+            return null;
+        }
+
+        try {
+            return download.join();
+        } catch (CompletionException | CancellationException e) {
+            //The caller downloads the file itself, which reports the failure if it persists.
+            return null;
+        }
+    }
+
+    /**
+     * Waits for the given download, unwrapping its failure.
+     *
+     * @param download The download, as returned by {@link #prefetch(FileDownload)}.
+     * @return The downloaded file.
+     * @throws IOException If the file could not be downloaded.
+     */
+    public static File join(CompletableFuture<File> download) throws IOException {
+        try {
+            return download.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static String keyOf(FileDownload download) {
+        return download.sha1() != null ? download.sha1().toLowerCase(Locale.ROOT) : download.url();
+    }
+}
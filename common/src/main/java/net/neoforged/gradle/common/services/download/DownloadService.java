@@ -0,0 +1,337 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.common.util.FileCacheUtils;
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.api.services.BuildServiceRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Shares a single {@link HttpDownloader} between all downloads of the build, so that connections are reused.
+ */
+public abstract class DownloadService implements BuildService<DownloadService.Parameters>, AutoCloseable {
+
+    public static final String NAME = "DownloadService";
+
+    public static final String DOWNLOAD_PROPERTY_PREFIX = "net.neoforged.gradle.download.";
+    public static final String CONNECT_TIMEOUT_PROPERTY = DOWNLOAD_PROPERTY_PREFIX + "connectTimeout";
+    public static final String READ_TIMEOUT_PROPERTY = DOWNLOAD_PROPERTY_PREFIX + "readTimeout";
+    public static final String MAX_ATTEMPTS_PROPERTY = DOWNLOAD_PROPERTY_PREFIX + "maxAttempts";
+    public static final String PARALLELISM_PROPERTY = DOWNLOAD_PROPERTY_PREFIX + "parallelism";
+    public static final String VERIFY_EXISTING_PROPERTY = DOWNLOAD_PROPERTY_PREFIX + "verifyExisting";
+    public static final String LAUNCHER_MANIFEST_TTL_PROPERTY = DOWNLOAD_PROPERTY_PREFIX + "launcherManifestTtl";
+    public static final String VERSION_METADATA_TTL_PROPERTY = DOWNLOAD_PROPERTY_PREFIX + "versionMetadataTtl";
+    public static final String REUSE_LAUNCHER_FILES_PROPERTY = DOWNLOAD_PROPERTY_PREFIX + "reuseLauncherFiles";
+    public static final String LAUNCHER_DIRECTORIES_PROPERTY = DOWNLOAD_PROPERTY_PREFIX + "launcherDirectories";
+    public static final String REUSE_GRADLE_MODULES_PROPERTY = DOWNLOAD_PROPERTY_PREFIX + "reuseGradleModules";
+    public static final String OFFLINE_BUNDLE_PROPERTY = DOWNLOAD_PROPERTY_PREFIX + "offlineBundle";
+
+    public interface Parameters extends BuildServiceParameters {
+
+        /**
+         * @return The time in seconds to wait for a connection to be established.
+         */
+        Property<Integer> getConnectTimeout();
+
+        /**
+         * @return The time in seconds to wait for data before a download is considered stalled.
+         */
+        Property<Integer> getReadTimeout();
+
+        /**
+         * @return The amount of attempts for a single download.
+         */
+        Property<Integer> getMaxAttempts();
+
+        /**
+         * @return The maximum amount of files downloaded at the same time by batches.
+         */
+        Property<Integer> getParallelism();
+
+        /**
+         * @return The directory in which the index of verified files is stored.
+         */
+        DirectoryProperty getVerifiedFilesDirectory();
+
+        /**
+         * @return Whether existing files are always hashed again, instead of trusting the index of verified files.
+         */
+        Property<Boolean> getVerifyExisting();
+
+        /**
+         * @return The time in seconds after which the cached launcher manifest is checked for changes again, negative to never check it again.
+         */
+        Property<Long> getLauncherManifestTtl();
+
+        /**
+         * @return The time in seconds after which cached version jsons are checked for changes again, negative to never check them again.
+         */
+        Property<Long> getVersionMetadataTtl();
+
+        /**
+         * @return The installations of the official launcher, whose assets and libraries are used instead of downloading them.
+         */
+        ListProperty<File> getLauncherDirectories();
+
+        /**
+         * @return The directory in which the assets are cached.
+         */
+        DirectoryProperty getAssetsDirectory();
+
+        /**
+         * @return The directory in which the libraries are cached.
+         */
+        DirectoryProperty getLibrariesDirectory();
+
+        /**
+         * @return Whether libraries are taken from the module cache of Gradle, instead of downloading them.
+         */
+        Property<Boolean> getReuseGradleModules();
+
+        /**
+         * @return The files directory of the module cache of Gradle.
+         */
+        DirectoryProperty getGradleModulesDirectory();
+
+        /**
+         * @return The offline bundle which is imported into the caches before anything is downloaded.
+         */
+        RegularFileProperty getOfflineBundle();
+
+        /**
+         * @return Whether Gradle runs offline, in which case a previously imported offline bundle is used even if none is configured.
+         */
+        Property<Boolean> getOffline();
+    }
+
+    private HttpDownloader downloader;
+    private ExecutorService executor;
+    private VerifiedFiles verifiedFiles;
+    private DownloadPrefetcher prefetcher;
+    private List<LocalFileSource> localSources;
+    private OfflineBundle offlineBundle;
+
+    public static void register(Project project) {
+        project.getGradle().getSharedServices().registerIfAbsent(
+                NAME,
+                DownloadService.class,
+                spec -> {
+                    spec.getParameters().getConnectTimeout().set(project.getProviders().gradleProperty(CONNECT_TIMEOUT_PROPERTY).map(Integer::parseInt).orElse(10));
+                    spec.getParameters().getReadTimeout().set(project.getProviders().gradleProperty(READ_TIMEOUT_PROPERTY).map(Integer::parseInt).orElse(30));
+                    spec.getParameters().getMaxAttempts().set(project.getProviders().gradleProperty(MAX_ATTEMPTS_PROPERTY).map(Integer::parseInt).orElse(5));
+                    spec.getParameters().getParallelism().set(project.getProviders().gradleProperty(PARALLELISM_PROPERTY).map(Integer::parseInt).orElse(16));
+                    spec.getParameters().getVerifiedFilesDirectory().set(new File(project.getGradle().getGradleUserHomeDir(), "caches/minecraft"));
+                    spec.getParameters().getVerifyExisting().set(project.getProviders().gradleProperty(VERIFY_EXISTING_PROPERTY).map(Boolean::parseBoolean).orElse(false));
+
+                    spec.getParameters().getLauncherDirectories().set(project.getProviders().gradleProperty(REUSE_LAUNCHER_FILES_PROPERTY).map(Boolean::parseBoolean).orElse(true).zip(
+                            project.getProviders().gradleProperty(LAUNCHER_DIRECTORIES_PROPERTY).map(DownloadService::parseDirectories).orElse(LauncherFiles.getDefaultInstallations()),
+                            (reuse, directories) -> reuse ? directories : List.of()
+                    ));
+                    spec.getParameters().getAssetsDirectory().set(FileCacheUtils.getAssetsCacheDirectory(project));
+                    spec.getParameters().getLibrariesDirectory().set(FileCacheUtils.getLibrariesCacheDirectory(project));
+                    spec.getParameters().getReuseGradleModules().set(project.getProviders().gradleProperty(REUSE_GRADLE_MODULES_PROPERTY).map(Boolean::parseBoolean).orElse(true));
+                    spec.getParameters().getGradleModulesDirectory().set(new File(project.getGradle().getGradleUserHomeDir(), "caches/modules-2/files-2.1"));
+                    spec.getParameters().getOfflineBundle().set(project.getLayout().file(project.getProviders().gradleProperty(OFFLINE_BUNDLE_PROPERTY).map(File::new)));
+                    spec.getParameters().getOffline().set(project.getGradle().getStartParameter().isOffline());
+
+                    //--refresh-dependencies asks for all remote metadata to be checked again.
+                    final boolean refresh = project.getGradle().getStartParameter().isRefreshDependencies();
+                    spec.getParameters().getLauncherManifestTtl().set(project.getProviders().gradleProperty(LAUNCHER_MANIFEST_TTL_PROPERTY).map(Long::parseLong).orElse(3600L).map(ttl -> refresh ? 0L : ttl));
+                    spec.getParameters().getVersionMetadataTtl().set(project.getProviders().gradleProperty(VERSION_METADATA_TTL_PROPERTY).map(Long::parseLong).orElse(-1L).map(ttl -> refresh ? 0L : ttl));
+                }
+        );
+    }
+
+    private static List<File> parseDirectories(String directories) {
+        return Arrays.stream(directories.split(Pattern.quote(File.pathSeparator)))
+                .filter(directory -> !directory.isBlank())
+                .map(File::new)
+                .toList();
+    }
+
+    /**
+     * Looks up the service from the given registry, for work actions which can not have it injected.
+     *
+     * @param registry The build service registry.
+     * @return The download service.
+     */
+    public static DownloadService get(BuildServiceRegistry registry) {
+        return (DownloadService) registry.getRegistrations().getByName(NAME).getService().get();
+    }
+
+    /**
+     * @return The shared downloader.
+     */
+    public synchronized HttpDownloader getDownloader() {
+        if (downloader == null) {
+            downloader = new HttpDownloader(
+                    Duration.ofSeconds(getParameters().getConnectTimeout().get()),
+                    Duration.ofSeconds(getParameters().getReadTimeout().get()),
+                    getParameters().getMaxAttempts().get(),
+                    Duration.ofMillis(250)
+            );
+        }
+
+        return downloader;
+    }
+
+    /**
+     * @return The index of downloaded files which were verified against their expected hash, shared by all builds.
+     */
+    public synchronized VerifiedFiles getVerifiedFiles() {
+        if (verifiedFiles == null) {
+            verifiedFiles = VerifiedFiles.load(getParameters().getVerifiedFilesDirectory().get().getAsFile(), getParameters().getVerifyExisting().get());
+        }
+
+        return verifiedFiles;
+    }
+
+    /**
+     * @return The sources of files on this machine which are used instead of downloading them, in the order in which they are consulted:
+     * the installations of the official launcher, then the module cache of Gradle.
+     */
+    public synchronized List<LocalFileSource> getLocalSources() {
+        if (localSources == null) {
+            final List<LocalFileSource> sources = new ArrayList<>();
+            if (!getParameters().getLauncherDirectories().get().isEmpty()) {
+                sources.add(LauncherFiles.create(
+                        getParameters().getLauncherDirectories().get(),
+                        getParameters().getAssetsDirectory().get().getAsFile(),
+                        getParameters().getLibrariesDirectory().get().getAsFile(),
+                        getVerifiedFiles()
+                ));
+            }
+
+            if (getParameters().getReuseGradleModules().get()) {
+                sources.add(GradleModuleFiles.create(
+                        getParameters().getGradleModulesDirectory().get().getAsFile(),
+                        getParameters().getLibrariesDirectory().get().getAsFile(),
+                        getVerifiedFiles()
+                ));
+            }
+
+            localSources = List.copyOf(sources);
+        }
+
+        return localSources;
+    }
+
+    /**
+     * Returns the offline bundle whose files are used before anything is downloaded.
+     * If a bundle was configured, it is imported into the caches the first time this is called, unless it was imported before.
+     * A bundle which was imported by an earlier build is only used while Gradle runs offline, so that online builds keep their metadata up-to-date.
+     *
+     * @return The offline bundle in use, or {@link OfflineBundle#NONE} if no bundle is used.
+     */
+    public synchronized OfflineBundle getOfflineBundle() {
+        if (offlineBundle == null) {
+            //The index of verified files is stored in the root of the Minecraft cache.
+            final File cacheDirectory = getParameters().getVerifiedFilesDirectory().get().getAsFile();
+            if (getParameters().getOfflineBundle().isPresent()) {
+                final File archive = getParameters().getOfflineBundle().get().getAsFile();
+                try {
+                    offlineBundle = OfflineBundle.importIfChanged(archive, cacheDirectory, getVerifiedFiles());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to import the offline bundle: %s".formatted(archive.getAbsolutePath()), e);
+                }
+            } else if (getParameters().getOffline().get()) {
+                offlineBundle = OfflineBundle.load(cacheDirectory);
+            } else {
+                offlineBundle = OfflineBundle.NONE;
+            }
+        }
+
+        return offlineBundle;
+    }
+
+    /**
+     * Imports the given offline bundle into the caches, replacing the bundle which was imported before.
+     *
+     * @param archive The offline bundle.
+     * @return The imported bundle.
+     * @throws IOException If the bundle could not be read, or one of its files does not match its hash.
+     */
+    public synchronized OfflineBundle importOfflineBundle(File archive) throws IOException {
+        offlineBundle = OfflineBundle.importTo(archive, getParameters().getVerifiedFilesDirectory().get().getAsFile(), getVerifiedFiles());
+        return offlineBundle;
+    }
+
+    /**
+     * @return The freshness policy of the cached launcher manifest, which lists new versions and thus changes regularly.
+     */
+    public FreshnessPolicy getLauncherManifestFreshness() {
+        return FreshnessPolicy.ofSeconds(getParameters().getLauncherManifestTtl().get());
+    }
+
+    /**
+     * @return The freshness policy of cached version jsons, which do not change once a version was published.
+     */
+    public FreshnessPolicy getVersionMetadataFreshness() {
+        return FreshnessPolicy.ofSeconds(getParameters().getVersionMetadataTtl().get());
+    }
+
+    /**
+     * Creates a batch which downloads over the shared downloader.
+     * All batches of the build share the same bounded pool of threads, which limits the amount of concurrent downloads.
+     *
+     * @return The batch.
+     */
+    public synchronized DownloadBatch createBatch() {
+        return new DownloadBatch(getDownloader(), getVerifiedFiles(), getLocalSources(), getExecutor());
+    }
+
+    /**
+     * @return The prefetcher which downloads files in the background, shared by all projects of the build.
+     */
+    public synchronized DownloadPrefetcher getPrefetcher() {
+        if (prefetcher == null) {
+            prefetcher = new DownloadPrefetcher(createBatch(), getExecutor());
+        }
+
+        return prefetcher;
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            final AtomicInteger threads = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(Math.max(1, getParameters().getParallelism().get()), runnable -> {
+                final Thread thread = new Thread(runnable, "NeoGradle download " + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return executor;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        if (downloader != null) {
+            downloader.close();
+        }
+
+        if (verifiedFiles != null) {
+            verifiedFiles.save();
+        }
+    }
+}
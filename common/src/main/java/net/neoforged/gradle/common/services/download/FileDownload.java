@@ -0,0 +1,16 @@
+package net.neoforged.gradle.common.services.download;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.Serializable;
+
+/**
+ * A single file to download as part of a {@link DownloadBatch}.
+ *
+ * @param url The url to download from.
+ * @param sha1 The expected SHA-1 hash of the file, or null if it should not be validated.
+ * @param output The file to download to.
+ */
+public record FileDownload(String url, @Nullable String sha1, File output) implements Serializable {
+}
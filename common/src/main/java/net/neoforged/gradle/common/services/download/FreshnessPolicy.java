@@ -0,0 +1,138 @@
+package net.neoforged.gradle.common.services.download;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Decides whether a cached metadata file can be used as is, or has to be revalidated against the server.
+ * <p>
+ * When a file was last checked against the server is remembered in a small sidecar file next to it.
+ * As long as the file is younger than the time to live of the policy, and was not modified since it was checked,
+ * no request is made at all. Files of immutable artifacts, like the version json of a released version,
+ * are only checked once.
+ *
+ * @param timeToLive How long a checked file stays fresh, or null if it never has to be checked again.
+ */
+public record FreshnessPolicy(@Nullable Duration timeToLive) implements Serializable {
+
+    public static final String SIDECAR_EXTENSION = ".freshness";
+
+    private static final String HEADER = "# ng-freshness 1";
+
+    /**
+     * Checks the file against the server every time it is requested.
+     */
+    public static final FreshnessPolicy ALWAYS = new FreshnessPolicy(Duration.ZERO);
+
+    /**
+     * Never checks the file against the server again, once it was checked.
+     */
+    public static final FreshnessPolicy IMMUTABLE = new FreshnessPolicy(null);
+
+    /**
+     * Creates a policy from a time to live in seconds, where a negative time to live marks the file as immutable.
+     *
+     * @param seconds The time to live in seconds.
+     * @return The policy.
+     */
+    public static FreshnessPolicy ofSeconds(long seconds) {
+        if (seconds < 0) {
+            return IMMUTABLE;
+        }
+
+        return seconds == 0 ? ALWAYS : new FreshnessPolicy(Duration.ofSeconds(seconds));
+    }
+
+    /**
+     * Checks whether the given file was checked against the server recently enough to be used without a request.
+     *
+     * @param file The cached file.
+     * @return True if the file is fresh.
+     */
+    public boolean isFresh(File file) {
+        if (Duration.ZERO.equals(timeToLive) || !file.isFile()) {
+            return false;
+        }
+
+        final File sidecar = sidecarOf(file);
+        if (!sidecar.isFile()) {
+            return false;
+        }
+
+        try {
+            final List<String> lines = Files.readAllLines(sidecar.toPath(), StandardCharsets.UTF_8);
+            if (lines.size() != 4 || !HEADER.equals(lines.get(0))) {
+                return false;
+            }
+
+            //A file which was replaced or edited since it was checked is no longer known to match the server.
+            if (Long.parseLong(lines.get(2)) != file.length() || Long.parseLong(lines.get(3)) != file.lastModified()) {
+                return false;
+            }
+
+            if (timeToLive == null) {
+                return true;
+            }
+
+            final long checkedAt = Long.parseLong(lines.get(1));
+            final long age = System.currentTimeMillis() - checkedAt;
+            return age >= 0 && age < timeToLive.toMillis();
+        } catch (IOException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Remembers that the given file was just checked against the server, and matches it.
+     *
+     * @param file The cached file.
+     */
+    public static void markChecked(File file) {
+        final File sidecar = sidecarOf(file);
+        final Path temp = new File(sidecar.getParentFile(), "%s.%s.tmp".formatted(sidecar.getName(), UUID.randomUUID())).toPath();
+        try {
+            try {
+                try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    writer.write(HEADER);
+                    writer.newLine();
+                    writer.write(Long.toString(System.currentTimeMillis()));
+                    writer.newLine();
+                    writer.write(Long.toString(file.length()));
+                    writer.newLine();
+                    writer.write(Long.toString(file.lastModified()));
+                    writer.newLine();
+                }
+
+                try {
+                    Files.move(temp, sidecar.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            //The sidecar only saves requests, failing to write it only means the file is checked again next time.
+        }
+    }
+
+    /**
+     * @param file The cached file.
+     * @return The sidecar file which remembers when the given file was last checked.
+     */
+    public static File sidecarOf(File file) {
+        return new File(file.getAbsoluteFile().getParentFile(), file.getName() + SIDECAR_EXTENSION);
+    }
+}
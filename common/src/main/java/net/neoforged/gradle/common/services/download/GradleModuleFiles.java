@@ -0,0 +1,87 @@
+package net.neoforged.gradle.common.services.download;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Locates libraries in the module cache of Gradle, so that libraries which were already resolved as dependencies are not downloaded again.
+ * <p>
+ * The libraries cache uses the maven layout, so the group, name and version of a library follow from its path.
+ * Gradle stores every artifact of a module in a directory named after the SHA-1 hash of the artifact,
+ * which means a library is found by its coordinates and the hash from the library metadata alone.
+ */
+public final class GradleModuleFiles extends LocalFileSource {
+
+    private final File modulesDirectory;
+    private final File librariesDirectory;
+
+    private GradleModuleFiles(File modulesDirectory, File librariesDirectory, VerifiedFiles verifiedFiles) {
+        super(verifiedFiles);
+        this.modulesDirectory = modulesDirectory;
+        this.librariesDirectory = librariesDirectory;
+    }
+
+    /**
+     * Creates a locator for the given module cache.
+     *
+     * @param modulesDirectory The files directory of the module cache, {@code caches/modules-2/files-2.1} in the Gradle user home.
+     * @param librariesDirectory The libraries cache, which uses the maven layout.
+     * @param verifiedFiles The index used to verify the hashes of the located files.
+     * @return The locator.
+     */
+    public static GradleModuleFiles create(File modulesDirectory, File librariesDirectory, VerifiedFiles verifiedFiles) {
+        return new GradleModuleFiles(modulesDirectory.getAbsoluteFile(), librariesDirectory.getAbsoluteFile(), verifiedFiles);
+    }
+
+    /**
+     * Looks up the library with the given hash, which is about to be stored at the given output in the libraries cache.
+     *
+     * @param output The file in the libraries cache.
+     * @param sha1 The expected SHA-1 hash of the library.
+     * @return The matching file of the module cache, or null if the module cache does not contain it.
+     * @throws IOException If a candidate could not be read.
+     */
+    @Nullable
+    @Override
+    public File find(File output, String sha1) throws IOException {
+        if (!modulesDirectory.isDirectory()) {
+            return null;
+        }
+
+        final Path path = output.getAbsoluteFile().toPath();
+        final Path root = librariesDirectory.toPath();
+        if (!path.startsWith(root)) {
+            return null;
+        }
+
+        //group/as/path/name/version/file
+        final Path relative = root.relativize(path);
+        final int count = relative.getNameCount();
+        if (count < 4) {
+            return null;
+        }
+
+        final String group = relative.subpath(0, count - 3).toString().replace(File.separatorChar, '.');
+        final File versionDirectory = modulesDirectory.toPath()
+                .resolve(group)
+                .resolve(relative.getName(count - 3))
+                .resolve(relative.getName(count - 2))
+                .toFile();
+
+        //Gradle names the directories after the hash without its leading zeros.
+        final String hash = sha1.toLowerCase(Locale.ROOT);
+        final String compactHash = hash.replaceFirst("^0+(?=.)", "");
+        for (String directory : compactHash.equals(hash) ? new String[]{hash} : new String[]{compactHash, hash}) {
+            final File candidate = new File(new File(versionDirectory, directory), relative.getFileName().toString());
+            if (verifiedFiles.isVerified(candidate, sha1)) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,466 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.common.services.caching.locking.ChannelBasedFileLock;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.util.HashFunction;
+import org.gradle.api.logging.Logging;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads files over a single, shared HTTP client.
+ * <p>
+ * Connections are reused between downloads, and HTTP/2 is used where the server supports it.
+ * The size of a file is taken from the response itself, there is no separate request for it.
+ * A download whose connection can not be established within the connect timeout, or which does not receive any data
+ * within the read timeout, is aborted and retried with an exponential backoff.
+ * Files are first written to a partial file next to the target, a retry, or a later build, resumes the partial file
+ * with a range request instead of starting over.
+ * The validator of the response which started the partial file is stored next to it, and sent along with the range request,
+ * so that a file which changed on the server in the meantime is downloaded in full instead of being appended to stale bytes.
+ * A lock file next to the target ensures that only one thread or process at a time downloads to the same partial file.
+ * A target which already matches the expected hash, or which another thread or process completed while waiting for the lock,
+ * is not downloaded again.
+ * The SHA-1 hash of the file is computed while it is written, a file which does not match its expected hash is rejected
+ * before it replaces the target, without reading it again.
+ */
+public final class HttpDownloader implements AutoCloseable {
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("^bytes (\\d+)-\\d+/(\\d+|\\*)$");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final String VALIDATOR_SUFFIX = ".validator";
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final CacheLogger LOCK_LOGGER = new CacheLogger(Logging.getLogger(HttpDownloader.class), "download", false, false);
+
+    /**
+     * Receives the progress of a download.
+     */
+    public interface Listener {
+
+        /**
+         * Invoked when the response starts.
+         *
+         * @param size The total size of the file, or -1 if the server did not report it.
+         * @param resumedFrom The amount of bytes which were already present from an earlier attempt.
+         */
+        default void started(long size, long resumedFrom) {
+        }
+
+        /**
+         * Invoked when data was received.
+         *
+         * @param bytes The amount of bytes received since the last invocation.
+         */
+        default void progress(long bytes) {
+        }
+    }
+
+    /**
+     * Indicates that the downloaded file did not match its expected hash.
+     * It is not retried, unless the download was resumed from a partial file which might have been corrupt.
+     */
+    public static final class HashMismatchException extends IOException {
+        public HashMismatchException(URI uri, String expected, String actual) {
+            super("Downloaded file %s does not match the expected hash. Expected: %s Actual: %s".formatted(uri, expected, actual));
+        }
+    }
+
+    /**
+     * Indicates that the server answered with a status which does not allow a retry, like a missing file.
+     */
+    public static final class HttpStatusException extends IOException {
+        private final int status;
+
+        public HttpStatusException(URI uri, int status) {
+            super("Failed to download %s: HTTP %d".formatted(uri, status));
+            this.status = status;
+        }
+
+        public int status() {
+            return status;
+        }
+    }
+
+    private final HttpClient client;
+    private final Duration readTimeout;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final ScheduledExecutorService watchdog;
+
+    public HttpDownloader(Duration connectTimeout, Duration readTimeout, int maxAttempts, Duration initialBackoff) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.readTimeout = readTimeout;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = initialBackoff.multipliedBy(64);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "NeoGradle download watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Downloads the given uri to the given file, replacing it atomically once the download completed.
+     *
+     * @param uri The uri to download.
+     * @param target The file to download to.
+     * @param listener The listener for the progress, if any.
+     * @return The SHA-1 hash of the downloaded file.
+     * @throws IOException If the file could not be downloaded within the allowed attempts.
+     */
+    public String download(URI uri, File target, @Nullable Listener listener) throws IOException {
+        return download(uri, target, null, listener);
+    }
+
+    /**
+     * Downloads the given uri to the given file, replacing it atomically once the download completed and matched the expected hash.
+     *
+     * @param uri The uri to download.
+     * @param target The file to download to.
+     * @param sha1 The expected SHA-1 hash of the file, or null if any content is accepted.
+     * @param listener The listener for the progress, if any.
+     * @return The SHA-1 hash of the downloaded file.
+     * @throws HashMismatchException If the downloaded file does not match the expected hash, the target is then left untouched.
+     * @throws IOException If the file could not be downloaded within the allowed attempts.
+     */
+    public String download(URI uri, File target, @Nullable String sha1, @Nullable Listener listener) throws IOException {
+        final Path targetPath = target.toPath().toAbsolutePath();
+        final Path partial = targetPath.resolveSibling(targetPath.getFileName() + PARTIAL_SUFFIX);
+
+        Files.createDirectories(targetPath.getParent());
+
+        final String existing = existingHash(targetPath, sha1);
+        if (existing != null) {
+            return existing;
+        }
+        final Optional<FileTime> checked = lastModified(targetPath);
+
+        //Downloads of the same file share the partial file, so they can not run at the same time, neither within this build nor in other builds.
+        try (ChannelBasedFileLock lock = new ChannelBasedFileLock(targetPath.resolveSibling(targetPath.getFileName() + LOCK_SUFFIX).toFile(), LOCK_LOGGER)) {
+            try {
+                //Another thread or build may have completed the same download while this one waited for the lock.
+                if (!checked.equals(lastModified(targetPath))) {
+                    final String completed = existingHash(targetPath, sha1);
+                    if (completed != null) {
+                        return completed;
+                    }
+                }
+
+                return downloadLocked(uri, targetPath, partial, sha1, listener);
+            } finally {
+                deleteLockFile(lock);
+            }
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to release the lock of download: %s".formatted(targetPath), e);
+        }
+    }
+
+    /**
+     * @return The hash of the target, if it exists and matches the expected hash, otherwise null.
+     */
+    @Nullable
+    private static String existingHash(Path target, @Nullable String sha1) throws IOException {
+        if (sha1 == null || !Files.isRegularFile(target)) {
+            return null;
+        }
+
+        final String hash = HexFormat.of().formatHex(digest(target).digest());
+        return hash.equalsIgnoreCase(sha1) ? hash : null;
+    }
+
+    private static Optional<FileTime> lastModified(Path file) throws IOException {
+        try {
+            return Optional.of(Files.getLastModifiedTime(file));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    private String downloadLocked(URI uri, Path targetPath, Path partial, @Nullable String sha1, @Nullable Listener listener) throws IOException {
+        IOException failure = null;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            if (attempt > 0) {
+                sleep(backoff(attempt));
+            }
+
+            try {
+                final Download download = downloadOnce(uri, partial, listener);
+                if (sha1 != null && !download.sha1().equalsIgnoreCase(sha1)) {
+                    deletePartial(partial);
+                    final HashMismatchException mismatch = new HashMismatchException(uri, sha1, download.sha1());
+                    if (!download.resumed()) {
+                        throw mismatch;
+                    }
+
+                    //The partial file of an earlier attempt might have been corrupt, try again from scratch.
+                    failure = addAttempt(failure, mismatch);
+                    continue;
+                }
+
+                move(partial, targetPath);
+                Files.deleteIfExists(validatorOf(partial));
+                return download.sha1();
+            } catch (HashMismatchException e) {
+                throw e;
+            } catch (HttpStatusException e) {
+                if (!isRetryable(e.status())) {
+                    deletePartial(partial);
+                    throw e;
+                }
+                failure = addAttempt(failure, e);
+            } catch (IOException e) {
+                failure = addAttempt(failure, e);
+            }
+        }
+
+        throw failure;
+    }
+
+    private record Download(String sha1, boolean resumed) {}
+
+    private Download downloadOnce(URI uri, Path partial, @Nullable Listener listener) throws IOException {
+        final long existing = Files.exists(partial) ? Files.size(partial) : 0;
+        final Path validator = validatorOf(partial);
+
+        //The request timeout only covers the time until the response headers arrive, stalled bodies are handled by the watchdog.
+        final HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(readTimeout).GET();
+        if (existing > 0) {
+            request.header("Range", "bytes=%d-".formatted(existing));
+            //The server answers with the full file instead of the range, if the file changed since the partial file was started.
+            if (Files.exists(validator)) {
+                request.header("If-Range", Files.readString(validator, StandardCharsets.UTF_8));
+            }
+        }
+
+        final HttpResponse<InputStream> response = send(request.build());
+        try (InputStream body = response.body()) {
+            final int status = response.statusCode();
+            if (status == 416 && existing > 0) {
+                //The partial file does not fit the remote file, start over.
+                deletePartial(partial);
+                throw new IOException("Partial download of %s is not valid for the remote file".formatted(uri));
+            }
+
+            if (status != 200 && status != 206) {
+                throw new HttpStatusException(uri, status);
+            }
+
+            final boolean resumed = status == 206 && existing > 0 && resumesAt(response, existing);
+            if (status == 206 && !resumed) {
+                deletePartial(partial);
+                throw new IOException("Server sent an unexpected range for %s".formatted(uri));
+            }
+
+            final long length = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (listener != null) {
+                listener.started(length < 0 ? -1 : length + (resumed ? existing : 0), resumed ? existing : 0);
+            }
+
+            if (!resumed) {
+                storeValidator(validator, response);
+            }
+
+            //Only the bytes of an earlier attempt are read back, everything received now is hashed as it is written.
+            final MessageDigest digest = resumed ? digest(partial) : HashFunction.SHA1.get();
+            final StandardOpenOption mode = resumed ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+            try (OutputStream output = new DigestOutputStream(Files.newOutputStream(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode), digest)) {
+                copy(body, output, listener);
+            }
+
+            return new Download(HexFormat.of().formatHex(digest.digest()), resumed);
+        }
+    }
+
+    private static Path validatorOf(Path partial) {
+        return partial.resolveSibling(partial.getFileName() + VALIDATOR_SUFFIX);
+    }
+
+    /**
+     * Stores the validator of the response which starts a new partial file, preferring a strong entity tag over the modification date.
+     * Weak entity tags can not be used for range requests.
+     */
+    private static void storeValidator(Path validator, HttpResponse<?> response) throws IOException {
+        final Optional<String> value = response.headers().firstValue("ETag")
+                .filter(tag -> !tag.startsWith("W/"))
+                .or(() -> response.headers().firstValue("Last-Modified"));
+        if (value.isPresent()) {
+            Files.writeString(validator, value.get(), StandardCharsets.UTF_8);
+        } else {
+            Files.deleteIfExists(validator);
+        }
+    }
+
+    private static void deletePartial(Path partial) throws IOException {
+        Files.deleteIfExists(partial);
+        Files.deleteIfExists(validatorOf(partial));
+    }
+
+    /**
+     * Deletes the lock file while it is still held, so that none is left next to the download.
+     * Downloads which were waiting on it lock a new one.
+     */
+    private static void deleteLockFile(ChannelBasedFileLock lock) {
+        try {
+            lock.delete();
+        } catch (IOException e) {
+            LOCK_LOGGER.debug("Failed to delete the lock file of a download", e);
+        }
+    }
+
+    private static MessageDigest digest(Path file) throws IOException {
+        final MessageDigest digest = HashFunction.SHA1.get();
+        try (InputStream stream = Files.newInputStream(file)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest;
+    }
+
+    private HttpResponse<InputStream> send(HttpRequest request) throws IOException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading: %s".formatted(request.uri()), e);
+        }
+    }
+
+    /**
+     * Copies the body to the output, closing the body when no data arrives within the read timeout.
+     * Closing the body aborts the exchange, which makes the blocked read fail.
+     */
+    private void copy(InputStream body, OutputStream output, @Nullable Listener listener) throws IOException {
+        final long timeoutNanos = readTimeout.toNanos();
+        final AtomicLong lastRead = new AtomicLong(System.nanoTime());
+        final AtomicBoolean stalled = new AtomicBoolean(false);
+
+        final ScheduledFuture<?> check = watchdog.scheduleAtFixedRate(() -> {
+            if (System.nanoTime() - lastRead.get() > timeoutNanos) {
+                stalled.set(true);
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                    //The read will fail either way.
+                }
+            }
+        }, timeoutNanos / 4, timeoutNanos / 4, TimeUnit.NANOSECONDS);
+
+        try {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                lastRead.set(System.nanoTime());
+                output.write(buffer, 0, read);
+                if (listener != null) {
+                    listener.progress(read);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            if (stalled.get()) {
+                throw new IOException("No data received within %dms".formatted(readTimeout.toMillis()), e);
+            }
+            throw e;
+        } finally {
+            check.cancel(false);
+        }
+
+        if (stalled.get()) {
+            throw new IOException("No data received within %dms".formatted(readTimeout.toMillis()));
+        }
+    }
+
+    private static boolean resumesAt(HttpResponse<?> response, long existing) {
+        final Optional<String> range = response.headers().firstValue("Content-Range");
+        if (range.isEmpty()) {
+            return false;
+        }
+
+        final Matcher matcher = CONTENT_RANGE.matcher(range.get().trim());
+        return matcher.matches() && Long.parseLong(matcher.group(1)) == existing;
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 408 || status == 429 || status >= 500;
+    }
+
+    private Duration backoff(int attempt) {
+        final long base = initialBackoff.toMillis() << Math.min(attempt - 1, 20);
+        final long capped = Math.min(base, maxBackoff.toMillis());
+        //Jitter avoids that many parallel downloads retry in lockstep
+        return Duration.ofMillis(capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1));
+    }
+
+    private static IOException addAttempt(@Nullable IOException failure, IOException attempt) {
+        if (failure == null) {
+            return attempt;
+        }
+
+        failure.addSuppressed(attempt);
+        return failure;
+    }
+
+    private static void sleep(Duration duration) throws IOException {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry a download", e);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+    }
+}
@@ -0,0 +1,142 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.common.util.FileDownloadingUtils;
+import net.neoforged.gradle.common.util.VersionJson;
+import net.neoforged.gradle.util.FileUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locates files in the installations of the official launcher, so that they do not need to be downloaded again.
+ * <p>
+ * The assets and libraries caches in the Gradle user home use the same layout as the {@code assets} and {@code libraries}
+ * directories of a launcher installation. A file which is about to be downloaded into one of the caches is looked up
+ * at the same relative location in every known installation, and only used if it matches the hash from the asset index
+ * or the library metadata.
+ * <p>
+ * Matches are copied instead of linked, as the launcher may replace its files in place, which would change the linked cache entry.
+ */
+public final class LauncherFiles extends LocalFileSource {
+
+    private final List<File> installations;
+    private final Map<File, String> mirroredDirectories;
+
+    private LauncherFiles(List<File> installations, Map<File, String> mirroredDirectories, VerifiedFiles verifiedFiles) {
+        super(verifiedFiles);
+        this.installations = installations;
+        this.mirroredDirectories = mirroredDirectories;
+    }
+
+    /**
+     * Creates a locator for the given installations of the launcher.
+     *
+     * @param installations The directories of the installations, which do not need to exist.
+     * @param assetsDirectory The assets cache, which mirrors the assets directory of an installation.
+     * @param librariesDirectory The libraries cache, which mirrors the libraries directory of an installation.
+     * @param verifiedFiles The index used to verify the hashes of the located files.
+     * @return The locator.
+     */
+    public static LauncherFiles create(List<File> installations, File assetsDirectory, File librariesDirectory, VerifiedFiles verifiedFiles) {
+        final List<File> existing = new ArrayList<>();
+        for (File installation : installations) {
+            if (installation.isDirectory() && !existing.contains(installation.getAbsoluteFile())) {
+                existing.add(installation.getAbsoluteFile());
+            }
+        }
+
+        final Map<File, String> mirroredDirectories = new LinkedHashMap<>();
+        mirroredDirectories.put(assetsDirectory.getAbsoluteFile(), "assets");
+        mirroredDirectories.put(librariesDirectory.getAbsoluteFile(), "libraries");
+        return new LauncherFiles(List.copyOf(existing), mirroredDirectories, verifiedFiles);
+    }
+
+    /**
+     * @return The directories in which the official launcher is installed by default on the current platform.
+     */
+    public static List<File> getDefaultInstallations() {
+        final List<File> installations = new ArrayList<>();
+        installations.add(FileDownloadingUtils.getMCDir());
+
+        final String home = System.getProperty("user.home");
+        switch (VersionJson.OS.getCurrent()) {
+            case WINDOWS -> {
+                //The launcher of the Microsoft Store keeps its files in the local cache of its package.
+                final String localAppData = System.getenv("LOCALAPPDATA");
+                if (localAppData != null) {
+                    installations.add(new File(localAppData, "Packages\\Microsoft.4297127D64EC6_8wekyb3d8bbwe\\LocalCache\\Roaming\\.minecraft"));
+                }
+            }
+            case LINUX -> {
+                installations.add(new File(home, ".var/app/com.mojang.Minecraft/.minecraft"));
+                installations.add(new File(home, "snap/mc-installer/current/.minecraft"));
+            }
+            default -> {
+            }
+        }
+
+        return installations;
+    }
+
+    /**
+     * @return The installations of the launcher which exist.
+     */
+    public List<File> getInstallations() {
+        return installations;
+    }
+
+    /**
+     * Looks up a file with the given hash, at the location of the given output in any of the installations.
+     *
+     * @param output The file in the assets or libraries cache.
+     * @param sha1 The expected SHA-1 hash of the file.
+     * @return The matching file of an installation, or null if no installation contains it.
+     * @throws IOException If a candidate could not be read.
+     */
+    @Nullable
+    @Override
+    public File find(File output, String sha1) throws IOException {
+        if (installations.isEmpty()) {
+            return null;
+        }
+
+        final Path path = output.getAbsoluteFile().toPath();
+        for (Map.Entry<File, String> mirrored : mirroredDirectories.entrySet()) {
+            final Path root = mirrored.getKey().toPath();
+            if (!path.startsWith(root)) {
+                continue;
+            }
+
+            final Path relative = root.relativize(path);
+            for (File installation : installations) {
+                final File candidate = installation.toPath().resolve(mirrored.getValue()).resolve(relative).toFile();
+                if (verifiedFiles.isVerified(candidate, sha1)) {
+                    return candidate;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    protected void transfer(File source, File output) throws IOException {
+        final Path target = output.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        final Path temporary = FileUtils.temporaryPath(target.getParent(), output.getName());
+        try {
+            Files.copy(source.toPath(), temporary, StandardCopyOption.REPLACE_EXISTING);
+            FileUtils.atomicMove(temporary, target);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.util.FileUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A location on this machine which might already contain files that are about to be downloaded.
+ * <p>
+ * A candidate is only used if it matches the expected hash of the file, which is checked through the {@link VerifiedFiles}.
+ * By default, a match is linked to the output, or copied where links are not supported, so that it survives the cleanup of the source.
+ */
+public abstract class LocalFileSource {
+
+    protected final VerifiedFiles verifiedFiles;
+
+    protected LocalFileSource(VerifiedFiles verifiedFiles) {
+        this.verifiedFiles = verifiedFiles;
+    }
+
+    /**
+     * Looks up a file with the given hash, which is about to be downloaded to the given output.
+     *
+     * @param output The file which is about to be downloaded.
+     * @param sha1 The expected SHA-1 hash of the file.
+     * @return The matching file of this source, or null if this source does not contain it.
+     * @throws IOException If a candidate could not be read.
+     */
+    @Nullable
+    public abstract File find(File output, String sha1) throws IOException;
+
+    /**
+     * Links or copies the file with the given hash from this source to the given output, if this source contains it.
+     *
+     * @param output The file which is about to be downloaded.
+     * @param sha1 The expected SHA-1 hash of the file.
+     * @return True if the output was taken from this source.
+     * @throws IOException If the file could not be linked or copied.
+     */
+    public boolean materialize(File output, String sha1) throws IOException {
+        final File source = find(output, sha1);
+        if (source == null) {
+            return false;
+        }
+
+        transfer(source, output);
+        verifiedFiles.record(output, sha1);
+        return true;
+    }
+
+    /**
+     * Places the given file of this source at the given output.
+     *
+     * @param source The matching file of this source.
+     * @param output The file which is about to be downloaded.
+     * @throws IOException If the file could not be linked or copied.
+     */
+    protected void transfer(File source, File output) throws IOException {
+        FileUtils.linkOrCopy(source.toPath(), output.toPath());
+    }
+
+    /**
+     * Takes the file with the given hash from the first of the given sources which contains it.
+     *
+     * @param sources The sources, in the order in which they are consulted.
+     * @param output The file which is about to be downloaded.
+     * @param sha1 The expected SHA-1 hash of the file.
+     * @return True if the output was taken from one of the sources.
+     * @throws IOException If the file could not be linked or copied.
+     */
+    public static boolean materialize(List<? extends LocalFileSource> sources, File output, String sha1) throws IOException {
+        for (LocalFileSource source : sources) {
+            if (source.materialize(output, sha1)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,382 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.util.FileUtils;
+import net.neoforged.gradle.util.HashFunction;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A single archive which contains every remote input of a set of runtimes, for builds on machines without network access.
+ * <p>
+ * The archive starts with an index, which lists the path, size and SHA-1 hash of every file in it.
+ * Files below {@code minecraft/} mirror the layout of the Minecraft cache in the Gradle user home, files below {@code tools/}
+ * form a maven repository containing the jars of the tools.
+ * <p>
+ * Importing a bundle extracts and verifies all files once, records them as verified and keeps a copy of the index next to the cache.
+ * The download services consult that index before they go to the network, so builds resolve everything the bundle contains locally.
+ */
+public final class OfflineBundle {
+
+    public static final String INDEX_ENTRY_NAME = "bundle-index.tsv";
+    public static final String IMPORTED_INDEX_FILE_NAME = "offline-bundle.tsv";
+    public static final String TOOLS_DIRECTORY_NAME = "offline-tools";
+    public static final String MINECRAFT_PREFIX = "minecraft/";
+    public static final String TOOLS_PREFIX = "tools/";
+
+    private static final String HEADER = "# ng-offline-bundle 1";
+    private static final String SOURCE_PREFIX = "# source\t";
+
+    /**
+     * A single file of the bundle.
+     *
+     * @param path The path of the file in the bundle.
+     * @param sha1 The SHA-1 hash of the file.
+     * @param size The size of the file in bytes.
+     */
+    public record Entry(String path, String sha1, long size) {}
+
+    /**
+     * A single module in the maven repository of the tools.
+     *
+     * @param group The group of the module.
+     * @param name The name of the module.
+     * @param version The version of the module.
+     */
+    public record Tool(String group, String name, String version) {}
+
+    /**
+     * A bundle without any files, for builds which did not import one.
+     */
+    public static final OfflineBundle NONE = new OfflineBundle(new File("."), Map.of());
+
+    private final File directory;
+    private final Map<String, Entry> entries;
+
+    private OfflineBundle(File directory, Map<String, Entry> entries) {
+        this.directory = directory;
+        this.entries = entries;
+    }
+
+    /**
+     * Writes a bundle containing the given files.
+     *
+     * @param archive The archive to write, which is replaced atomically.
+     * @param files The files to bundle, keyed by their path in the bundle.
+     * @throws IOException If a file could not be read or the archive could not be written.
+     */
+    public static void write(File archive, SortedMap<String, File> files) throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, File> file : files.entrySet()) {
+            entries.add(new Entry(validate(file.getKey()), HashFunction.SHA1.hash(file.getValue()), file.getValue().length()));
+        }
+
+        final Path target = archive.getAbsoluteFile().toPath();
+        Files.createDirectories(target.getParent());
+        final Path temporary = FileUtils.temporaryPath(target.getParent(), archive.getName());
+        try {
+            try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(temporary))) {
+                //Most of the content are jars and compressed assets, which do not get much smaller.
+                zip.setLevel(Deflater.BEST_SPEED);
+
+                zip.putNextEntry(FileUtils.getStableEntry(INDEX_ENTRY_NAME));
+                final Writer writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+                writeIndex(writer, entries, null);
+                writer.flush();
+                zip.closeEntry();
+
+                for (Entry entry : entries) {
+                    zip.putNextEntry(FileUtils.getStableEntry(entry.path()));
+                    Files.copy(files.get(entry.path()).toPath(), zip);
+                    zip.closeEntry();
+                }
+            }
+
+            FileUtils.atomicMove(temporary, target);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Imports the given bundle into the given cache directory, unless exactly this archive was imported before.
+     *
+     * @param archive The bundle.
+     * @param directory The Minecraft cache directory in the Gradle user home.
+     * @param verifiedFiles The index in which the extracted files are recorded as verified.
+     * @return The imported bundle.
+     * @throws IOException If the bundle could not be read, or one of its files does not match its hash.
+     */
+    public static OfflineBundle importIfChanged(File archive, File directory, VerifiedFiles verifiedFiles) throws IOException {
+        final File index = new File(directory, IMPORTED_INDEX_FILE_NAME);
+        if (index.isFile()) {
+            try (BufferedReader reader = Files.newBufferedReader(index.toPath(), StandardCharsets.UTF_8)) {
+                if (HEADER.equals(reader.readLine()) && source(archive).equals(reader.readLine())) {
+                    return load(directory);
+                }
+            }
+        }
+
+        return importTo(archive, directory, verifiedFiles);
+    }
+
+    /**
+     * Imports the given bundle into the given cache directory.
+     * Every file is verified against the hash from the index of the bundle before it is moved into place.
+     *
+     * @param archive The bundle.
+     * @param directory The Minecraft cache directory in the Gradle user home.
+     * @param verifiedFiles The index in which the extracted files are recorded as verified.
+     * @return The imported bundle.
+     * @throws IOException If the bundle could not be read, or one of its files does not match its hash.
+     */
+    public static OfflineBundle importTo(File archive, File directory, VerifiedFiles verifiedFiles) throws IOException {
+        try (ZipFile zip = new ZipFile(archive)) {
+            final ZipEntry indexEntry = zip.getEntry(INDEX_ENTRY_NAME);
+            if (indexEntry == null) {
+                throw new IOException("Not an offline bundle, the index is missing: %s".formatted(archive.getAbsolutePath()));
+            }
+
+            final Map<String, Entry> entries;
+            try (Reader reader = new InputStreamReader(zip.getInputStream(indexEntry), StandardCharsets.UTF_8)) {
+                entries = readIndex(reader);
+            }
+            if (entries == null) {
+                throw new IOException("Unsupported offline bundle: %s".formatted(archive.getAbsolutePath()));
+            }
+
+            final OfflineBundle bundle = new OfflineBundle(directory, entries);
+
+            //The entries are independent of each other, and the zip file supports concurrent reads.
+            try {
+                entries.values().parallelStream().forEach(entry -> {
+                    try {
+                        bundle.extract(zip, entry, verifiedFiles);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            //The index is written last, so an interrupted import is simply repeated by the next build.
+            final Path index = new File(directory, IMPORTED_INDEX_FILE_NAME).toPath();
+            Files.createDirectories(index.getParent());
+            final Path temporary = FileUtils.temporaryPath(index.getParent(), IMPORTED_INDEX_FILE_NAME);
+            try {
+                try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                    writeIndex(writer, entries.values(), source(archive));
+                }
+                FileUtils.atomicMove(temporary, index);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+
+            return bundle;
+        }
+    }
+
+    /**
+     * Loads the bundle which was imported into the given cache directory.
+     *
+     * @param directory The Minecraft cache directory in the Gradle user home.
+     * @return The imported bundle, or {@link #NONE} if no bundle was imported.
+     */
+    public static OfflineBundle load(File directory) {
+        final File index = new File(directory, IMPORTED_INDEX_FILE_NAME);
+        if (!index.isFile()) {
+            return NONE;
+        }
+
+        try (Reader reader = Files.newBufferedReader(index.toPath(), StandardCharsets.UTF_8)) {
+            final Map<String, Entry> entries = readIndex(reader);
+            return entries == null ? NONE : new OfflineBundle(directory, entries);
+        } catch (IOException | RuntimeException e) {
+            //A broken index only means that the files are downloaded as usual.
+            return NONE;
+        }
+    }
+
+    /**
+     * @return The files of the bundle.
+     */
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * @return The directory of the maven repository containing the tools of the bundle.
+     */
+    public File getToolsDirectory() {
+        return new File(directory, TOOLS_DIRECTORY_NAME);
+    }
+
+    /**
+     * @return The modules of the tools in the bundle.
+     */
+    public Set<Tool> getTools() {
+        final Set<Tool> tools = new LinkedHashSet<>();
+        for (String path : entries.keySet()) {
+            if (!path.startsWith(TOOLS_PREFIX)) {
+                continue;
+            }
+
+            //group/as/path/name/version/file
+            final List<String> segments = List.of(path.substring(TOOLS_PREFIX.length()).split("/"));
+            if (segments.size() >= 4) {
+                tools.add(new Tool(String.join(".", segments.subList(0, segments.size() - 3)), segments.get(segments.size() - 3), segments.get(segments.size() - 2)));
+            }
+        }
+        return tools;
+    }
+
+    /**
+     * Materializes the given file of the Minecraft cache from the bundle, if the bundle contains it.
+     *
+     * @param path The path of the file relative to the Minecraft cache directory.
+     * @param output The file to materialize, which might be the imported file itself.
+     * @param verifiedFiles The index used to verify the imported file.
+     * @return True if the output was taken from the bundle.
+     * @throws IOException If the file could not be linked or copied.
+     */
+    public boolean materialize(String path, File output, VerifiedFiles verifiedFiles) throws IOException {
+        final Entry entry = entries.get(MINECRAFT_PREFIX + Path.of(path).normalize().toString().replace('\\', '/'));
+        if (entry == null) {
+            return false;
+        }
+
+        final File source = resolve(entry.path());
+        if (!verifiedFiles.isVerified(source, entry.sha1())) {
+            return false;
+        }
+
+        if (!source.getAbsoluteFile().equals(output.getAbsoluteFile())) {
+            FileUtils.linkOrCopy(source.toPath(), output.toPath());
+            verifiedFiles.record(output, entry.sha1());
+        }
+        return true;
+    }
+
+    private File resolve(String path) {
+        if (path.startsWith(MINECRAFT_PREFIX)) {
+            return new File(directory, path.substring(MINECRAFT_PREFIX.length()));
+        }
+
+        return new File(getToolsDirectory(), path.substring(TOOLS_PREFIX.length()));
+    }
+
+    private void extract(ZipFile zip, Entry entry, VerifiedFiles verifiedFiles) throws IOException {
+        final File output = resolve(entry.path());
+        if (verifiedFiles.isVerified(output, entry.sha1())) {
+            return;
+        }
+
+        final ZipEntry zipEntry = zip.getEntry(entry.path());
+        if (zipEntry == null) {
+            throw new IOException("The offline bundle does not contain the indexed file: %s".formatted(entry.path()));
+        }
+
+        final Path target = output.toPath();
+        Files.createDirectories(target.getParent());
+        final Path temporary = FileUtils.temporaryPath(target.getParent(), output.getName());
+        try {
+            final MessageDigest digest = HashFunction.SHA1.get();
+            try (InputStream stream = new DigestInputStream(zip.getInputStream(zipEntry), digest)) {
+                Files.copy(stream, temporary, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            final String hash = HashFunction.SHA1.pad(new BigInteger(1, digest.digest()).toString(16));
+            if (!hash.equalsIgnoreCase(entry.sha1())) {
+                throw new IOException("The file %s of the offline bundle is corrupt, expected hash %s but got %s".formatted(entry.path(), entry.sha1(), hash));
+            }
+
+            FileUtils.atomicMove(temporary, target);
+            verifiedFiles.record(output, entry.sha1());
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static String source(File archive) {
+        return SOURCE_PREFIX + archive.length() + "\t" + archive.lastModified() + "\t" + archive.getAbsolutePath();
+    }
+
+    private static String validate(String path) {
+        if (!path.startsWith(MINECRAFT_PREFIX) && !path.startsWith(TOOLS_PREFIX)) {
+            throw new IllegalArgumentException("Unknown offline bundle path: " + path);
+        }
+
+        final Path normalized = Path.of(path).normalize();
+        if (normalized.isAbsolute() || normalized.startsWith("..") || !normalized.toString().replace('\\', '/').equals(path)) {
+            throw new IllegalArgumentException("Invalid offline bundle path: " + path);
+        }
+
+        return path;
+    }
+
+    private static void writeIndex(Writer writer, Collection<Entry> entries, @Nullable String source) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        if (source != null) {
+            writer.write(source);
+            writer.write('\n');
+        }
+        for (Entry entry : entries) {
+            writer.write(entry.sha1() + "\t" + entry.size() + "\t" + entry.path() + "\n");
+        }
+    }
+
+    @Nullable
+    private static Map<String, Entry> readIndex(Reader input) throws IOException {
+        final BufferedReader reader = new BufferedReader(input);
+        if (!HEADER.equals(reader.readLine())) {
+            return null;
+        }
+
+        final Map<String, Entry> entries = new LinkedHashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            final String[] parts = line.split("\t", 3);
+            if (parts.length != 3) {
+                throw new IOException("Malformed offline bundle index line: " + line);
+            }
+
+            final String path = validate(parts[2]);
+            entries.put(path, new Entry(path, parts[0], Long.parseLong(parts[1])));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,75 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Remembers which downloaded files were verified against their expected SHA-1 hash.
+ * <p>
+ * Assets are content addressed and libraries never change for a given version, so once a file was verified
+ * it only needs to be hashed again when its size, last modified time or file key changes.
+ * Checking an existing file on a warm machine therefore only costs a stat call, instead of reading the whole file.
+ * The index lives in the Gradle user home and is shared by all projects and builds.
+ */
+public final class VerifiedFiles {
+
+    private final FileHashIndex index;
+    private final boolean reverify;
+
+    private VerifiedFiles(FileHashIndex index, boolean reverify) {
+        this.index = index;
+        this.reverify = reverify;
+    }
+
+    /**
+     * Loads the index of verified files from the given directory.
+     *
+     * @param directory The directory to store the index in.
+     * @param reverify Whether every file should be hashed again when it is checked, regardless of its metadata.
+     * @return The verified files.
+     */
+    public static VerifiedFiles load(File directory, boolean reverify) {
+        return new VerifiedFiles(FileHashIndex.load(directory, Hashing.sha1()), reverify);
+    }
+
+    /**
+     * Checks whether the given file exists and has the expected hash.
+     *
+     * @param file The file to check.
+     * @param sha1 The expected SHA-1 hash.
+     * @return True if the file exists and matches the hash.
+     * @throws IOException If the file could not be read.
+     */
+    public boolean isVerified(File file, String sha1) throws IOException {
+        if (!file.isFile()) {
+            return false;
+        }
+
+        final HashCode hash = reverify ? index.rehashFile(file) : index.hashFile(file);
+        return hash.toString().equalsIgnoreCase(sha1);
+    }
+
+    /**
+     * Remembers that the given file was verified to have the given hash.
+     *
+     * @param file The file.
+     * @param sha1 The SHA-1 hash of the content of the file.
+     * @throws IOException If the metadata of the file could not be read.
+     */
+    public void record(File file, String sha1) throws IOException {
+        index.record(file, HashCode.fromString(sha1));
+    }
+
+    /**
+     * Writes the index to disk if it changed.
+     *
+     * @throws IOException If the index could not be written.
+     */
+    public void save() throws IOException {
+        index.save();
+    }
+}
@@ -0,0 +1,99 @@
+package net.neoforged.gradle.common.services.metadata;
+
+import net.neoforged.gradle.common.util.LauncherManifest;
+import net.neoforged.gradle.common.util.VersionJson;
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.api.services.BuildServiceRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Parses the launcher manifest and version jsons once per build, and shares the parsed objects between all projects.
+ * <p>
+ * Parsed objects are keyed by the hash of the file content, so copies of the same file in different projects share
+ * a single parsed object. Files whose size and last modified time did not change since they were last read are not read again.
+ */
+public abstract class MinecraftMetadataService implements BuildService<BuildServiceParameters.None> {
+
+    public static final String NAME = "MinecraftMetadataService";
+
+    private record Stamp(long size, long lastModified, HashCode hash) {}
+
+    private record Key(Class<?> type, HashCode hash) {}
+
+    private final Map<String, Stamp> stamps = new ConcurrentHashMap<>();
+    private final Map<Key, Object> parsed = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the service, if it is not registered yet.
+     *
+     * @param project The project to register the service for.
+     * @return The provider of the service.
+     */
+    public static Provider<MinecraftMetadataService> register(Project project) {
+        return project.getGradle().getSharedServices().registerIfAbsent(NAME, MinecraftMetadataService.class, spec -> {});
+    }
+
+    /**
+     * Looks up the service from the given registry.
+     *
+     * @param registry The build service registry.
+     * @return The metadata service.
+     */
+    public static MinecraftMetadataService get(BuildServiceRegistry registry) {
+        return (MinecraftMetadataService) registry.getRegistrations().getByName(NAME).getService().get();
+    }
+
+    /**
+     * @param file The launcher manifest file.
+     * @return The parsed launcher manifest, shared with all other readers of the same content.
+     */
+    public LauncherManifest getLauncherManifest(File file) {
+        return get(file, LauncherManifest.class, LauncherManifest::get);
+    }
+
+    /**
+     * @param file The version json file.
+     * @return The parsed version json, shared with all other readers of the same content.
+     */
+    public VersionJson getVersionJson(File file) {
+        return get(file, VersionJson.class, VersionJson::get);
+    }
+
+    private <T> T get(File file, Class<T> type, Function<InputStream, T> parser) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            final String path = file.getAbsolutePath();
+
+            final Stamp stamp = stamps.get(path);
+            if (stamp != null && stamp.size() == attributes.size() && stamp.lastModified() == attributes.lastModifiedTime().toMillis()) {
+                final Object known = parsed.get(new Key(type, stamp.hash()));
+                if (known != null) {
+                    return type.cast(known);
+                }
+            }
+
+            final byte[] content = Files.readAllBytes(file.toPath());
+            final HashCode hash = Hashing.sha1().hashBytes(content);
+            stamps.put(path, new Stamp(content.length, attributes.lastModifiedTime().toMillis(), hash));
+
+            return type.cast(parsed.computeIfAbsent(new Key(type, hash), key -> parser.apply(new ByteArrayInputStream(content))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read: " + file.getAbsolutePath(), e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package net.neoforged.gradle.common.services.natives;
+
+import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
+import net.neoforged.gradle.common.services.caching.locking.LockManager;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.services.download.HttpDownloader;
+import net.neoforged.gradle.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A cache of extracted native libraries, shared by all projects and builds through the Gradle user home.
+ * <p>
+ * Every natives jar is stored in its own entry, keyed by the SHA-1 hash of the jar, next to the native files extracted from it.
+ * As the hash changes with every version of the natives, an entry never changes once it was created.
+ * Entries are created under the lock of the caching infrastructure, so concurrent builds never extract the same jar at the same time,
+ * and an entry whose creation failed is created again by the next build which needs it.
+ * Builds link the files of the entries into their own directories, instead of downloading and extracting them again.
+ */
+public final class NativesCache {
+
+    public static final String FILES_DIRECTORY_NAME = "files";
+
+    /**
+     * A single entry of the cache.
+     *
+     * @param jar The natives jar.
+     * @param files The directory containing the native files extracted from the jar.
+     */
+    public record Entry(File jar, File files) {}
+
+    private final File directory;
+    private final HttpDownloader downloader;
+    private final boolean offline;
+    private final CacheLogger logger;
+
+    public NativesCache(File directory, HttpDownloader downloader, boolean offline, CacheLogger logger) {
+        this.directory = directory;
+        this.downloader = downloader;
+        this.offline = offline;
+        this.logger = logger;
+    }
+
+    /**
+     * Returns the entry of the given natives jar, downloading and extracting it if the cache does not contain it yet.
+     *
+     * @param url The url of the natives jar.
+     * @param sha1 The SHA-1 hash of the natives jar.
+     * @return The entry.
+     * @throws IOException If the jar could not be downloaded or extracted.
+     */
+    public Entry get(String url, String sha1) throws IOException {
+        final File entryDirectory = new File(directory, sha1.toLowerCase(Locale.ROOT));
+        final Entry entry = new Entry(new File(entryDirectory, url.substring(url.lastIndexOf('/') + 1)), new File(entryDirectory, FILES_DIRECTORY_NAME));
+        Files.createDirectories(entryDirectory.toPath());
+
+        try (FileBasedLock lock = LockManager.createLock(entryDirectory, logger)) {
+            if (!lock.hasPreviousFailure() && entry.jar().isFile() && entry.files().isDirectory()) {
+                logger.debug("Using cached natives: %s".formatted(entryDirectory.getAbsolutePath()));
+                lock.updateAccessTime();
+                lock.markAsSuccess();
+                return entry;
+            }
+
+            if (offline) {
+                throw new IllegalStateException("Cannot download the natives %s as Gradle is running in offline mode and they are not cached".formatted(url));
+            }
+
+            FileUtils.delete(entry.files().toPath());
+            downloader.download(URI.create(url), entry.jar(), sha1, null);
+            extract(entry.jar(), entry.files());
+
+            lock.markAsSuccess();
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to release the lock of the cached natives: %s".formatted(entryDirectory.getAbsolutePath()), e);
+        }
+    }
+
+    /**
+     * Extracts the native files of the given jar, flattening their paths and skipping the metadata of the jar.
+     */
+    private static void extract(File jar, File target) throws IOException {
+        Files.createDirectories(target.toPath());
+        try (ZipFile zip = new ZipFile(jar)) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || entry.getName().startsWith("META-INF")) {
+                    continue;
+                }
+
+                final String name = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+                if (name.isEmpty() || name.equals("..")) {
+                    continue;
+                }
+
+                try (InputStream stream = zip.getInputStream(entry)) {
+                    Files.copy(stream, new File(target, name).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    /**
+     * Links all files of the given directory into the given target directory, copying them where links are not supported.
+     *
+     * @param source The directory containing the files.
+     * @param target The directory to link the files into.
+     * @throws IOException If a file could not be linked.
+     */
+    public static void linkFiles(File source, File target) throws IOException {
+        final File[] files = source.listFiles(File::isFile);
+        if (files == null) {
+            throw new IOException("Not a directory: %s".formatted(source.getAbsolutePath()));
+        }
+
+        for (File file : files) {
+            FileUtils.linkOrCopy(file.toPath(), new File(target, file.getName()).toPath());
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package net.neoforged.gradle.common.tasks;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import net.neoforged.gradle.common.runtime.tasks.DownloadAssets;
+import net.neoforged.gradle.common.runtime.tasks.ExtractNatives;
+import net.neoforged.gradle.common.runtime.tasks.ListLibraries;
+import net.neoforged.gradle.common.services.caching.locking.LockManager;
+import net.neoforged.gradle.common.services.download.OfflineBundle;
+import net.neoforged.gradle.common.util.FileCacheUtils;
+import net.neoforged.gradle.common.util.SerializationUtils;
+import net.neoforged.gradle.common.util.ToolUtilities;
+import net.neoforged.gradle.common.util.VersionJson;
+import net.neoforged.gradle.dsl.common.extensions.subsystems.Subsystems;
+import net.neoforged.gradle.dsl.common.extensions.subsystems.Tools;
+import net.neoforged.gradle.dsl.common.tasks.WithOutput;
+import net.neoforged.gradle.dsl.common.util.CacheFileSelector;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+/**
+ * Exports every remote input of the runtimes of the project into a single offline bundle.
+ * <p>
+ * The bundle contains the launcher manifest, the version jsons, jars and mappings, the libraries, the asset index and its objects,
+ * the extracted natives and the tools. Importing it on another machine, by setting {@code net.neoforged.gradle.download.offlineBundle}
+ * or running {@link ImportOfflineBundle}, allows the same runtimes to be set up without any network access.
+ */
+@DisableCachingByDefault(because = "The bundle only packs files which are already cached locally.")
+public abstract class ExportOfflineBundle extends DefaultTask {
+
+    public ExportOfflineBundle() {
+        setGroup("neogradle");
+        setDescription("Exports all remote inputs of the runtimes of this project into a single archive, for builds without network access");
+
+        getOutput().convention(getProject().getLayout().getBuildDirectory().file("offline-bundle.zip"));
+        getCacheDirectory().convention(FileCacheUtils.getMinecraftCacheDirectory(getProject()));
+        getProjectCacheDirectory().convention(getProject().getLayout().getProjectDirectory().dir(".gradle/caches/minecraft"));
+
+        //The inputs are collected lazily from the tasks of all runtimes, which also makes this task depend on them.
+        getGameArtifacts().from((Callable<List<?>>) () -> getProject().getTasks().withType(FileCacheProviding.class).stream().map(WithOutput::getOutput).toList());
+        getAssetIndexes().from((Callable<List<?>>) () -> getProject().getTasks().withType(DownloadAssets.class).stream().map(DownloadAssets::getAssetIndexFile).toList());
+        getLibraryLists().from((Callable<List<?>>) () -> getProject().getTasks().withType(ListLibraries.class).stream().map(WithOutput::getOutput).toList());
+        getNatives().from((Callable<List<?>>) () -> getProject().getTasks().withType(ExtractNatives.class).stream().map(ExtractNatives::getOutputDirectory).toList());
+
+        final Tools tools = getProject().getExtensions().getByType(Subsystems.class).getTools();
+        for (Property<String> tool : List.of(tools.getJST(), tools.getDevLogin(), tools.getBinaryPatcher(), tools.getAccessTransformer(), tools.getAutoRenamingTool(), tools.getDecompiler(), tools.getInstallerTools(), tools.getJarSplitter())) {
+            if (tool.isPresent() && !getToolCoordinates().get().contains(tool.get())) {
+                getToolCoordinates().add(tool.get());
+                getToolJars().from(ToolUtilities.resolveTool(getProject(), tool));
+            }
+        }
+    }
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getGameArtifacts();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getAssetIndexes();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getLibraryLists();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getNatives();
+
+    /**
+     * @return The maven coordinates of the tools.
+     */
+    @Input
+    public abstract ListProperty<String> getToolCoordinates();
+
+    /**
+     * @return The jars of the tools, in the order of their coordinates.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getToolJars();
+
+    /**
+     * @return The Minecraft cache directory in the Gradle user home, which contains the libraries, assets and natives.
+     */
+    @Internal
+    public abstract DirectoryProperty getCacheDirectory();
+
+    /**
+     * @return The Minecraft cache directory of the project, which contains the version jsons, jars and mappings.
+     */
+    @Internal
+    public abstract DirectoryProperty getProjectCacheDirectory();
+
+    @OutputFile
+    public abstract RegularFileProperty getOutput();
+
+    @TaskAction
+    public void export() throws IOException {
+        final Path cacheDirectory = getCacheDirectory().get().getAsFile().toPath().normalize();
+        final Path projectCacheDirectory = getProjectCacheDirectory().get().getAsFile().toPath().normalize();
+        final SortedMap<String, File> files = new TreeMap<>();
+
+        for (File artifact : getGameArtifacts()) {
+            addMinecraftFile(files, projectCacheDirectory, artifact);
+
+            if (artifact.getName().equals("metadata.json")) {
+                //The natives are extracted once into the shared cache, the entries are exported including their health marker.
+                for (VersionJson.LibraryDownload library : VersionJson.get(artifact).getNatives()) {
+                    final Path entry = cacheDirectory.resolve("natives").resolve(library.getSha1().toLowerCase(Locale.ROOT));
+                    if (!Files.isDirectory(entry)) {
+                        throw new IOException("Can not export %s into the offline bundle, as it is not cached. Set up the runtimes first.".formatted(entry));
+                    }
+
+                    try (Stream<Path> stream = Files.walk(entry)) {
+                        for (Path file : stream.filter(Files::isRegularFile).filter(file -> !file.getFileName().toString().equals(LockManager.LOCK_FILE_NAME)).toList()) {
+                            addMinecraftFile(files, cacheDirectory, file.toFile());
+                        }
+                    }
+                }
+            }
+        }
+
+        //The launcher manifest is always read during configuration, even by projects which do not cache it themselves.
+        final String launcherMetadata = CacheFileSelector.launcherMetadata().getCacheFileName();
+        if (!files.containsKey(OfflineBundle.MINECRAFT_PREFIX + launcherMetadata)) {
+            addMinecraftFile(files, cacheDirectory, cacheDirectory.resolve(launcherMetadata).toFile());
+        }
+
+        for (File assetIndex : getAssetIndexes()) {
+            addMinecraftFile(files, cacheDirectory, assetIndex);
+
+            final JsonObject objects = SerializationUtils.fromJson(assetIndex, JsonObject.class).getAsJsonObject("objects");
+            for (Map.Entry<String, JsonElement> object : objects.entrySet()) {
+                final String hash = object.getValue().getAsJsonObject().get("hash").getAsString();
+                addMinecraftFile(files, cacheDirectory, cacheDirectory.resolve("assets/objects").resolve(hash.substring(0, 2)).resolve(hash).toFile());
+            }
+        }
+
+        for (File libraryList : getLibraryLists()) {
+            for (String line : Files.readAllLines(libraryList.toPath(), StandardCharsets.UTF_8)) {
+                if (line.startsWith("-e=")) {
+                    addMinecraftFile(files, cacheDirectory, new File(line.substring(3)));
+                }
+            }
+        }
+
+        final List<String> toolCoordinates = getToolCoordinates().get();
+        final List<File> toolJars = List.copyOf(getToolJars().getFiles());
+        if (toolCoordinates.size() != toolJars.size()) {
+            throw new IllegalStateException("Resolved %d jars for the tools %s".formatted(toolJars.size(), toolCoordinates));
+        }
+
+        final File poms = new File(getTemporaryDir(), "poms");
+        for (int i = 0; i < toolCoordinates.size(); i++) {
+            addTool(files, poms, toolCoordinates.get(i), toolJars.get(i));
+        }
+
+        OfflineBundle.write(getOutput().get().getAsFile(), files);
+        getLogger().lifecycle("Exported {} files into the offline bundle {}", files.size(), getOutput().get().getAsFile().getAbsolutePath());
+    }
+
+    private static void addMinecraftFile(SortedMap<String, File> files, Path root, File file) throws IOException {
+        final Path path = file.toPath().normalize();
+        if (!path.startsWith(root)) {
+            //Files outside the caches, like local libraries, are not remote inputs.
+            return;
+        }
+
+        if (!file.isFile()) {
+            throw new IOException("Can not export %s into the offline bundle, as it is not cached. Set up the runtimes first.".formatted(file.getAbsolutePath()));
+        }
+
+        files.put(OfflineBundle.MINECRAFT_PREFIX + root.relativize(path).toString().replace('\\', '/'), file);
+    }
+
+    /**
+     * Adds the jar of the given tool in the maven layout, next to a pom without dependencies, as only the jar itself is executed.
+     */
+    private static void addTool(SortedMap<String, File> files, File poms, String coordinates, File jar) throws IOException {
+        String notation = coordinates;
+        String extension = "jar";
+        if (notation.contains("@")) {
+            extension = notation.substring(notation.indexOf('@') + 1);
+            notation = notation.substring(0, notation.indexOf('@'));
+        }
+
+        final String[] parts = notation.split(":");
+        if (parts.length < 3) {
+            throw new IllegalArgumentException("Can not export the tool %s into the offline bundle, its coordinates are incomplete".formatted(coordinates));
+        }
+
+        final String directory = OfflineBundle.TOOLS_PREFIX + parts[0].replace('.', '/') + "/" + parts[1] + "/" + parts[2] + "/";
+        final String baseName = parts[1] + "-" + parts[2];
+
+        final File pom = new File(poms, baseName + ".pom");
+        Files.createDirectories(poms.toPath());
+        Files.writeString(pom.toPath(), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                  <modelVersion>4.0.0</modelVersion>
+                  <groupId>%s</groupId>
+                  <artifactId>%s</artifactId>
+                  <version>%s</version>
+                </project>
+                """.formatted(parts[0], parts[1], parts[2]), StandardCharsets.UTF_8);
+
+        files.put(directory + baseName + ".pom", pom);
+        files.put(directory + baseName + (parts.length > 3 ? "-" + parts[3] : "") + "." + extension, jar);
+    }
+}
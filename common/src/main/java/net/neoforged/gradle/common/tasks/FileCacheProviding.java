@@ -1,15 +1,19 @@
 package net.neoforged.gradle.common.tasks;
 
-import com.google.gson.JsonObject;
+import net.neoforged.gradle.common.services.download.DownloadService;
+import net.neoforged.gradle.common.services.download.FreshnessPolicy;
+import net.neoforged.gradle.common.services.download.VerifiedFiles;
+import net.neoforged.gradle.common.services.metadata.MinecraftMetadataService;
 import net.neoforged.gradle.common.util.FileDownloadingUtils;
-import net.neoforged.gradle.common.util.SerializationUtils;
+import net.neoforged.gradle.common.util.VersionJson;
 import net.neoforged.gradle.dsl.common.tasks.NeoGradleBase;
 import net.neoforged.gradle.dsl.common.tasks.WithOutput;
 import net.neoforged.gradle.dsl.common.tasks.WithWorkspace;
 import net.neoforged.gradle.dsl.common.util.CacheFileSelector;
-import net.neoforged.gradle.util.HashFunction;
+import net.neoforged.gradle.util.FileUtils;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
@@ -18,6 +22,8 @@ import org.gradle.work.DisableCachingByDefault;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
 
 @DisableCachingByDefault(because = "This is an abstract underlying task which provides defaults and systems for caching game artifacts.")
 public abstract class FileCacheProviding extends NeoGradleBase implements WithOutput, WithWorkspace {
@@ -35,6 +41,12 @@ public abstract class FileCacheProviding extends NeoGradleBase implements WithOu
     @Internal
     public abstract DirectoryProperty getFileCache();
 
+    @ServiceReference(DownloadService.NAME)
+    public abstract Property<DownloadService> getDownloadService();
+
+    @ServiceReference(MinecraftMetadataService.NAME)
+    public abstract Property<MinecraftMetadataService> getMetadataService();
+
     @Nested
     public abstract Property<CacheFileSelector> getSelector();
 
@@ -42,36 +54,73 @@ public abstract class FileCacheProviding extends NeoGradleBase implements WithOu
     @Input
     public abstract Property<Boolean> getIsOffline();
     
-    protected void downloadJsonTo(String url) {
+    protected void downloadJsonTo(String url, FreshnessPolicy freshness) {
         final File output = getOutput().get().getAsFile();
+        final boolean bundled = materializeFromOfflineBundle(output);
+
+        //Metadata from the offline bundle is revalidated like any other cached metadata, and only used as is when that is not possible.
         FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(url, null, "json", null, null);
-        boolean didWork = FileDownloadingUtils.downloadThrowing(getIsOffline().get(), info, output);
-        setDidWork(didWork);
+        try {
+            boolean didWork = FileDownloadingUtils.downloadThrowing(getIsOffline().get(), info, output, freshness);
+            setDidWork(didWork);
+        } catch (RuntimeException e) {
+            if (!bundled) {
+                throw e;
+            }
+
+            getLogger().info("Failed to revalidate {}, using the file of the offline bundle", output, e);
+        }
     }
     
     protected File doDownloadVersionDownloadToCache(final String artifact, final String potentialError, File versionManifest) {
-        JsonObject json = SerializationUtils.fromJson(versionManifest, JsonObject.class);
+        final VersionJson json = getMetadataService().get().getVersionJson(versionManifest);
 
-        final JsonObject artifactInfo = json.getAsJsonObject("downloads").getAsJsonObject(artifact);
-        final String url = artifactInfo.get("url").getAsString();
-        final String hash = artifactInfo.get("sha1").getAsString();
-        final String version = json.getAsJsonObject().get("id").getAsString();
+        final VersionJson.Download artifactInfo = Objects.requireNonNull(json.getDownloads(), "downloads").get(artifact);
+        final String url = artifactInfo.getUrl().toString();
+        final String hash = artifactInfo.getSha1();
+        final String version = json.getId();
 
         final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(url, hash, "jar", version, artifact);
 
         final File output = getOutput().get().getAsFile();
+        final VerifiedFiles verifiedFiles = getDownloadService().get().getVerifiedFiles();
         try {
-            if (output.exists()) {
-                final String fileHash = HashFunction.SHA1.hash(output);
-                if (fileHash.equals(hash)) {
-                    return output;
-                }
+            if (verifiedFiles.isVerified(output, hash)) {
+                return output;
+            }
+
+            if (materializeFromOfflineBundle(output)) {
+                return output;
+            }
+
+            //The artifact might have been prefetched during configuration, in which case it only needs to be linked.
+            final File prefetched = getDownloadService().get().getPrefetcher().await(hash);
+            if (prefetched != null && !prefetched.equals(output) && verifiedFiles.isVerified(prefetched, hash)) {
+                FileUtils.linkOrCopy(prefetched.toPath(), output.toPath());
+                verifiedFiles.record(output, hash);
+                return output;
             }
 
-            FileDownloadingUtils.downloadTo(getIsOffline().get(), info, output);
+            FileDownloadingUtils.downloadTo(getIsOffline().get(), info, output, verifiedFiles);
             return output;
         } catch (IOException e) {
             throw new RuntimeException(potentialError, e);
         }
     }
+
+    /**
+     * Takes the output from the offline bundle in use, which mirrors the layout of this cache, if the bundle contains it.
+     */
+    private boolean materializeFromOfflineBundle(File output) {
+        final CacheFileSelector selector = getSelector().get();
+        try {
+            return getDownloadService().get().getOfflineBundle().materialize(
+                    selector.getCacheDirectory() + "/" + selector.getCacheFileName(),
+                    output,
+                    getDownloadService().get().getVerifiedFiles()
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to take %s from the offline bundle".formatted(output.getAbsolutePath()), e);
+        }
+    }
 }
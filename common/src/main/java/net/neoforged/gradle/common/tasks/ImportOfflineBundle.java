@@ -0,0 +1,52 @@
+package net.neoforged.gradle.common.tasks;
+
+import net.neoforged.gradle.common.services.download.DownloadService;
+import net.neoforged.gradle.common.services.download.OfflineBundle;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.ServiceReference;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+import org.gradle.work.DisableCachingByDefault;
+
+import java.io.IOException;
+
+/**
+ * Imports an offline bundle, created by {@link ExportOfflineBundle}, into the caches of the Gradle user home.
+ * <p>
+ * Builds which set {@code net.neoforged.gradle.download.offlineBundle} import the bundle automatically before anything is downloaded,
+ * this task allows preparing the caches of a machine ahead of time.
+ */
+@DisableCachingByDefault(because = "The task only fills the caches of the Gradle user home.")
+public abstract class ImportOfflineBundle extends DefaultTask {
+
+    public ImportOfflineBundle() {
+        setGroup("neogradle");
+        setDescription("Imports an offline bundle into the caches, so that its runtimes can be set up without network access");
+
+        getBundle().convention(getProject().getLayout().file(getProject().getProviders().gradleProperty(DownloadService.OFFLINE_BUNDLE_PROPERTY).map(getProject()::file)));
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    @ServiceReference(DownloadService.NAME)
+    public abstract Property<DownloadService> getDownloadService();
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getBundle();
+
+    @Option(option = "bundle", description = "The offline bundle to import.")
+    public void setBundle(String path) {
+        getBundle().set(getProject().file(path));
+    }
+
+    @TaskAction
+    public void importBundle() throws IOException {
+        final OfflineBundle bundle = getDownloadService().get().importOfflineBundle(getBundle().get().getAsFile());
+        getLogger().lifecycle("Imported {} files from the offline bundle {}", bundle.getEntries().size(), getBundle().get().getAsFile().getAbsolutePath());
+    }
+}
@@ -13,6 +13,6 @@ public abstract class MinecraftLauncherFileCacheProvider extends FileCacheProvid
     
     @TaskAction
     public void doRun() throws Exception {
-        downloadJsonTo(UrlConstants.MOJANG_MANIFEST);
+        downloadJsonTo(UrlConstants.MOJANG_MANIFEST, getDownloadService().get().getLauncherManifestFreshness());
     }
 }
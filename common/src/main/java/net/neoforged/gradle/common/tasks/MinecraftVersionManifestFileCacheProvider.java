@@ -28,6 +28,6 @@ public abstract class MinecraftVersionManifestFileCacheProvider extends FileCach
     public abstract Property<String> getDownloadUrl();
 
     private void downloadVersionManifestToCache() {
-        downloadJsonTo(getDownloadUrl().get());
+        downloadJsonTo(getDownloadUrl().get(), getDownloadService().get().getVersionMetadataFreshness());
     }
 }
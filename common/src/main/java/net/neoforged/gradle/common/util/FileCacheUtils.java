@@ -79,6 +79,11 @@ public final class FileCacheUtils {
         });
     }
     
+    @NotNull
+    public static DirectoryProperty getMinecraftCacheDirectory(Project project) {
+        return project.getObjects().directoryProperty().fileValue(new File(project.getGradle().getGradleUserHomeDir(), "caches/minecraft"));
+    }
+    
     @NotNull
     public static DirectoryProperty getAssetsCacheDirectory(Project project) {
         return project.getObjects().directoryProperty().fileValue(new File(project.getGradle().getGradleUserHomeDir(), "caches/minecraft/assets"));
@@ -88,4 +93,9 @@ public final class FileCacheUtils {
     public static DirectoryProperty getLibrariesCacheDirectory(Project project) {
         return project.getObjects().directoryProperty().fileValue(new File(project.getGradle().getGradleUserHomeDir(), "caches/minecraft/libraries"));
     }
+    
+    @NotNull
+    public static DirectoryProperty getNativesCacheDirectory(Project project) {
+        return project.getObjects().directoryProperty().fileValue(new File(project.getGradle().getGradleUserHomeDir(), "caches/minecraft/natives"));
+    }
 }
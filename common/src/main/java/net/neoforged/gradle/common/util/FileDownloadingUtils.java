@@ -1,5 +1,8 @@
 package net.neoforged.gradle.common.util;
 
+import net.neoforged.gradle.common.services.download.FreshnessPolicy;
+import net.neoforged.gradle.common.services.download.VerifiedFiles;
+import net.neoforged.gradle.util.FileUtils;
 import net.neoforged.gradle.util.HashFunction;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Optional;
@@ -16,6 +19,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
 
 public final class FileDownloadingUtils {
 
@@ -25,8 +31,17 @@ public final class FileDownloadingUtils {
 
 
     public static boolean downloadThrowing(boolean isOffline, FileDownloadingUtils.DownloadInfo info, File file) {
+        return downloadThrowing(isOffline, info, file, FreshnessPolicy.ALWAYS);
+    }
+
+    /**
+     * Downloads the file, unless it was checked against the server recently enough according to the given policy.
+     *
+     * @return True if a file was downloaded, false if the file was already up-to-date.
+     */
+    public static boolean downloadThrowing(boolean isOffline, FileDownloadingUtils.DownloadInfo info, File file, FreshnessPolicy freshness) {
         try {
-            return downloadTo(isOffline, info, file);
+            return downloadTo(isOffline, info, file, null, freshness);
         } catch (IOException e) {
             throw new RuntimeException(String.format("Failed to download the file from: %s to: %s", info.url, file), e);
         }
@@ -36,17 +51,42 @@ public final class FileDownloadingUtils {
      * @return True if a file was downloaded, false if the file was already up-to-date.
      */
     public static boolean downloadTo(boolean isOffline, DownloadInfo info, File file) throws IOException {
-        // Check if file exists in local installer cache
-        if (info.type != null && info.type.equals("jar") && info.side.equals("client")) {
-            File localPath = new File(getMCDir() + File.separator + "versions" + File.separator + info.version + File.separator + info.version + ".jar");
-            if (localPath.exists() && HashFunction.SHA1.hash(localPath).equalsIgnoreCase(info.hash)) {
-                org.apache.commons.io.FileUtils.copyFile(localPath, file);
-                return true;
-            }
+        return downloadTo(isOffline, info, file, null);
+    }
+
+    /**
+     * Downloads the file, validating it against the hash of the download info, if any, while it is downloaded.
+     *
+     * @param verifiedFiles The index in which a validated download is recorded, if any.
+     * @return True if a file was downloaded, false if the file was already up-to-date.
+     */
+    public static boolean downloadTo(boolean isOffline, DownloadInfo info, File file, @Nullable VerifiedFiles verifiedFiles) throws IOException {
+        return downloadTo(isOffline, info, file, verifiedFiles, FreshnessPolicy.ALWAYS);
+    }
+
+    /**
+     * Downloads the file, validating it against the hash of the download info, if any, while it is downloaded.
+     * An existing file which is still fresh according to the given policy is used without making a request.
+     *
+     * @param verifiedFiles The index in which a validated download is recorded, if any.
+     * @param freshness The policy which decides whether an existing file needs to be checked against the server.
+     * @return True if a file was downloaded, false if the file was already up-to-date.
+     */
+    public static boolean downloadTo(boolean isOffline, DownloadInfo info, File file, @Nullable VerifiedFiles verifiedFiles, FreshnessPolicy freshness) throws IOException {
+        if (copyFromLauncher(info, file, verifiedFiles)) {
+            return true;
         }
 
         if (!isOffline) {
-            return copyURLToFileIfNewer(new URL(info.url), file.toPath());
+            if (freshness.isFresh(file)) {
+                return false;
+            }
+
+            final boolean downloaded = copyURLToFileIfNewer(new URL(info.url), file.toPath(), info.hash, verifiedFiles);
+            if (!FreshnessPolicy.ALWAYS.equals(freshness)) {
+                FreshnessPolicy.markChecked(file);
+            }
+            return downloaded;
         } else if (!file.exists()) {
             throw new RuntimeException("Could not find the file: " + file + " and we are offline.");
         } else {
@@ -54,11 +94,50 @@ public final class FileDownloadingUtils {
         }
     }
 
+    /**
+     * Copies the client jar from the versions of the installed launcher, if it contains the jar with the hash of the download info.
+     * The jar is copied instead of linked, as the launcher may replace it in place.
+     *
+     * @param verifiedFiles The index in which the hash of the jar of the launcher and the copy are recorded, if any.
+     * @return True if the file was taken from the launcher.
+     */
+    public static boolean copyFromLauncher(DownloadInfo info, File file, @Nullable VerifiedFiles verifiedFiles) throws IOException {
+        if (!"jar".equals(info.type) || !"client".equals(info.side) || info.version == null || info.hash == null) {
+            return false;
+        }
+
+        final File localPath = new File(getMCDir() + File.separator + "versions" + File.separator + info.version + File.separator + info.version + ".jar");
+        if (!localPath.isFile()) {
+            return false;
+        }
+
+        final boolean matches = verifiedFiles != null ? verifiedFiles.isVerified(localPath, info.hash) : HashFunction.SHA1.hash(localPath).equalsIgnoreCase(info.hash);
+        if (!matches) {
+            return false;
+        }
+
+        final Path target = file.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        final Path temporary = FileUtils.temporaryPath(target.getParent(), file.getName());
+        try {
+            Files.copy(localPath.toPath(), temporary, StandardCopyOption.REPLACE_EXISTING);
+            FileUtils.atomicMove(temporary, target);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+        if (verifiedFiles != null) {
+            verifiedFiles.record(file, info.hash);
+        }
+        return true;
+    }
+
     /**
      * Downloads a file, but attempts to make a conditional request to only re-download if the file has been
      * changed on the remote-server.
+     * The hash of the file is computed while it is downloaded, a file which does not match the expected hash never replaces the target.
      */
-    private static boolean copyURLToFileIfNewer(URL url, Path target) throws IOException {
+    private static boolean copyURLToFileIfNewer(URL url, Path target, @Nullable String expectedHash, @Nullable VerifiedFiles verifiedFiles) throws IOException {
         HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
 
         urlConnection.setUseCaches(true);
@@ -100,16 +179,26 @@ public final class FileDownloadingUtils {
             Path tempFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".download");
 
             try {
-                try (InputStream stream = urlConnection.getInputStream()) {
+                final MessageDigest digest = HashFunction.SHA1.get();
+                try (InputStream stream = new DigestInputStream(urlConnection.getInputStream(), digest)) {
                     Files.copy(stream, tempFile, StandardCopyOption.REPLACE_EXISTING);
                 }
 
+                final String hash = HexFormat.of().formatHex(digest.digest());
+                if (expectedHash != null && !hash.equalsIgnoreCase(expectedHash)) {
+                    throw new IOException("Downloaded file " + url + " does not match the expected hash. Expected: " + expectedHash + " Actual: " + hash);
+                }
+
                 move(target, tempFile);
 
                 if (urlConnection.getLastModified() != 0) {
                     Files.setLastModifiedTime(target, FileTime.fromMillis(urlConnection.getLastModified()));
                 }
 
+                if (expectedHash != null && verifiedFiles != null) {
+                    verifiedFiles.record(target.toFile(), hash);
+                }
+
                 return true;
             } finally {
                 Files.deleteIfExists(tempFile);
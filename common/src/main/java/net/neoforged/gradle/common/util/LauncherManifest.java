@@ -0,0 +1,107 @@
+package net.neoforged.gradle.common.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import javax.annotation.Nullable;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The launcher manifest, which lists all released versions of the game and where to find their version json.
+ * <p>
+ * Versions are indexed by their id on first lookup, instead of scanning the list on every lookup.
+ */
+public class LauncherManifest implements Serializable {
+
+    /**
+     * The version selector which selects the newest version in the manifest.
+     */
+    public static final String LATEST = "+";
+
+    private static final Gson GSON = new GsonBuilder().create();
+
+    public static LauncherManifest get(InputStream stream) {
+        return GSON.fromJson(new InputStreamReader(stream, StandardCharsets.UTF_8), LauncherManifest.class);
+    }
+
+    private List<Version> versions;
+
+    private transient Map<String, Version> _versions = null;
+
+    public List<Version> getVersions() {
+        return versions == null ? Collections.emptyList() : Collections.unmodifiableList(versions);
+    }
+
+    /**
+     * Finds the version with the given id.
+     *
+     * @param id The id of the version, or {@link #LATEST} for the newest version.
+     * @return The version, or null if the manifest does not contain it.
+     */
+    @Nullable
+    public Version findVersion(String id) {
+        final List<Version> versions = getVersions();
+        if (LATEST.equals(id)) {
+            return versions.isEmpty() ? null : versions.get(0);
+        }
+
+        Map<String, Version> index = _versions;
+        if (index == null) {
+            index = new LinkedHashMap<>();
+            for (Version version : versions) {
+                index.putIfAbsent(version.getId(), version);
+            }
+            _versions = index;
+        }
+
+        return index.get(id);
+    }
+
+    /**
+     * Finds the version with the given id.
+     *
+     * @param id The id of the version, or {@link #LATEST} for the newest version.
+     * @return The version.
+     * @throws IllegalStateException If the manifest does not contain the version.
+     */
+    public Version getVersion(String id) {
+        final Version version = findVersion(id);
+        if (version == null) {
+            throw new IllegalStateException("Could not find the correct version json for version: " + id);
+        }
+
+        return version;
+    }
+
+    public static class Version implements Serializable {
+        private String id;
+        private String type;
+        private String url;
+        @Nullable
+        private String sha1;
+
+        public String getId() {
+            return id;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        @Nullable
+        public String getSha1() {
+            return sha1;
+        }
+    }
+}
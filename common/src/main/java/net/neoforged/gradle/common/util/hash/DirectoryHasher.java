@@ -0,0 +1,163 @@
+package net.neoforged.gradle.common.util.hash;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Hashes directories as a Merkle tree.
+ * <p>
+ * The children of every directory are sorted by name, so the resulting hash does not depend on the order in which
+ * the file system lists them. Files are hashed in parallel, directories combine the names, types and hashes of their children.
+ * The name of the root directory itself is not part of the hash.
+ */
+public final class DirectoryHasher {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    private static final byte FILE_MARKER = 0;
+    private static final byte DIRECTORY_MARKER = 1;
+
+    /**
+     * The result of hashing a directory.
+     *
+     * @param hash The root hash of the directory.
+     * @param files The content hashes of all files in the directory, keyed by their '/' separated path relative to the directory, sorted by path.
+     */
+    public record Tree(HashCode hash, Map<String, HashCode> files) {}
+
+    private DirectoryHasher() {
+        throw new IllegalStateException("Can not instantiate an instance of: DirectoryHasher. This is a utility class");
+    }
+
+    /**
+     * Computes the Merkle hash of the given directory.
+     *
+     * @param hashFunction The hash function to use.
+     * @param directory The directory to hash.
+     * @return The root hash of the directory.
+     * @throws IOException If a file could not be read.
+     */
+    public static HashCode hash(HashFunction hashFunction, File directory) throws IOException {
+        return invoke(new DirectoryTask(hashFunction, directory, "", null));
+    }
+
+    /**
+     * Computes the Merkle tree of the given directory, including the hashes of the individual files.
+     *
+     * @param hashFunction The hash function to use.
+     * @param directory The directory to hash.
+     * @return The tree of the directory.
+     * @throws IOException If a file could not be read.
+     */
+    public static Tree tree(HashFunction hashFunction, File directory) throws IOException {
+        final Map<String, HashCode> files = Collections.synchronizedMap(new TreeMap<>());
+        final HashCode hash = invoke(new DirectoryTask(hashFunction, directory, "", files));
+        return new Tree(hash, Collections.unmodifiableMap(new TreeMap<>(files)));
+    }
+
+    /**
+     * Hashes the content of the given files in parallel.
+     *
+     * @param hashFunction The hash function to use.
+     * @param files The files to hash.
+     * @return The hashes of the files, in the same order as the given files.
+     * @throws IOException If a file could not be read.
+     */
+    public static List<HashCode> hashFiles(HashFunction hashFunction, List<File> files) throws IOException {
+        return invoke(new RecursiveTask<>() {
+            @Override
+            protected List<HashCode> compute() {
+                final List<FileTask> tasks = files.stream().map(file -> new FileTask(hashFunction, file)).toList();
+                return ForkJoinTask.invokeAll(tasks).stream().map(ForkJoinTask::join).toList();
+            }
+        });
+    }
+
+    private static <T> T invoke(RecursiveTask<T> task) throws IOException {
+        try {
+            return POOL.invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class FileTask extends RecursiveTask<HashCode> {
+        private final HashFunction hashFunction;
+        private final File file;
+
+        private FileTask(HashFunction hashFunction, File file) {
+            this.hashFunction = hashFunction;
+            this.file = file;
+        }
+
+        @Override
+        protected HashCode compute() {
+            try {
+                return hashFunction.hashFile(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class DirectoryTask extends RecursiveTask<HashCode> {
+        private final HashFunction hashFunction;
+        private final File directory;
+        private final String path;
+        @Nullable
+        private final Map<String, HashCode> files;
+
+        private DirectoryTask(HashFunction hashFunction, File directory, String path, @Nullable Map<String, HashCode> files) {
+            this.hashFunction = hashFunction;
+            this.directory = directory;
+            this.path = path;
+            this.files = files;
+        }
+
+        @Override
+        protected HashCode compute() {
+            final File[] children = Objects.requireNonNull(directory.listFiles(), () -> "Failed to list: " + directory.getAbsolutePath());
+            Arrays.sort(children, Comparator.comparing(File::getName));
+
+            final List<RecursiveTask<HashCode>> tasks = new ArrayList<>(children.length);
+            for (File child : children) {
+                final String childPath = path.isEmpty() ? child.getName() : path + "/" + child.getName();
+                tasks.add(child.isDirectory()
+                        ? new DirectoryTask(hashFunction, child, childPath, files)
+                        : new FileTask(hashFunction, child));
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            final Hasher hasher = hashFunction.newHasher();
+            hasher.putInt(children.length);
+            for (int i = 0; i < children.length; i++) {
+                final File child = children[i];
+                final RecursiveTask<HashCode> task = tasks.get(i);
+                final HashCode childHash = task.join();
+
+                hasher.putByte(task instanceof DirectoryTask ? DIRECTORY_MARKER : FILE_MARKER);
+                hasher.putString(child.getName());
+                hasher.putHash(childHash);
+
+                if (files != null && task instanceof FileTask) {
+                    files.put(path.isEmpty() ? child.getName() : path + "/" + child.getName(), childHash);
+                }
+            }
+            return hasher.hash();
+        }
+    }
+}
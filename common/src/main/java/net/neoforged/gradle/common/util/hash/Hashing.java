@@ -13,7 +13,7 @@ import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Objects;
+import java.util.Locale;
 
 public class Hashing {
     private static final HashFunction MD5 = MessageDigestHashFunction.of("MD5");
@@ -64,15 +64,7 @@ public class Hashing {
         Hasher hasher = newHasher();
         hasher.putString("DIRECTORY");
         hasher.putString(file.getName());
-        for (File listFile : Objects.requireNonNull(file.listFiles())) {
-            final HashCode innerHash;
-            if (listFile.isFile()) {
-                 innerHash = hashFile(listFile);
-            } else {
-                innerHash = hashDirectory(listFile);
-            }
-            hasher.putHash(innerHash);
-        }
+        hasher.putHash(DirectoryHasher.hash(DEFAULT, file));
         return hasher.hash();
     }
 
@@ -102,11 +94,36 @@ public class Hashing {
         return SHA512;
     }
 
+    /**
+     * @return The 128-bit MurmurHash3, a fast non-cryptographic hash function for local content keys.
+     */
+    public static HashFunction murmur3_128() {
+        return Murmur3HashFunction.INSTANCE;
+    }
+
+    /**
+     * Looks up a hash function by name, ignoring case and dashes, for example "sha256" or "murmur3".
+     *
+     * @param name The name of the hash function.
+     * @return The hash function.
+     * @throws IllegalArgumentException If no hash function with the given name is known.
+     */
+    public static HashFunction forName(String name) {
+        return switch (name.toLowerCase(Locale.ROOT).replace("-", "")) {
+            case "md5" -> md5();
+            case "sha1" -> sha1();
+            case "sha256" -> sha256();
+            case "sha512" -> sha512();
+            case "murmur3", "murmur3128" -> murmur3_128();
+            default -> throw new IllegalArgumentException("Unknown hash function: " + name);
+        };
+    }
+
     static {
         DEFAULT = sha512();
     }
 
-    private static class DefaultHasher implements Hasher {
+    static class DefaultHasher implements Hasher {
         private final PrimitiveHasher hasher;
 
         public DefaultHasher(PrimitiveHasher unsafeHasher) {
@@ -374,14 +391,7 @@ public class Hashing {
         public HashCode hashFile(File file) throws IOException {
             if (file.exists()) {
                 if (file.isDirectory()) {
-                    final Hasher hasher = this.newHasher();
-
-                    for (File listFile : Objects.requireNonNull(file.listFiles())) {
-                        final HashCode innerHash = this.hashFile(listFile);
-                        hasher.putHash(innerHash);
-                    }
-
-                    return hasher.hash();
+                    return DirectoryHasher.hash(this, file);
                 } else {
                     HashingOutputStream hashingOutputStream = this.primitiveStreamHasher();
                     Files.copy(file, hashingOutputStream);
@@ -0,0 +1,299 @@
+package net.neoforged.gradle.common.util.hash;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The 128-bit variant of MurmurHash3 (x64), a fast non-cryptographic hash.
+ * <p>
+ * It is suitable for local content keys, where collisions are not an adversarial concern, and is considerably faster than a message digest.
+ * Primitives are mixed in directly without intermediate allocations, strings are mixed in as UTF-8.
+ */
+final class Murmur3HashFunction implements HashFunction {
+
+    static final Murmur3HashFunction INSTANCE = new Murmur3HashFunction();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Murmur3HashFunction() {
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return "MURMUR3-128";
+    }
+
+    @Override
+    public PrimitiveHasher newPrimitiveHasher() {
+        return new Murmur3Hasher();
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new Hashing.DefaultHasher(newPrimitiveHasher());
+    }
+
+    @Override
+    public HashCode hashBytes(byte[] bytes) {
+        final PrimitiveHasher hasher = newPrimitiveHasher();
+        hasher.putBytes(bytes);
+        return hasher.hash();
+    }
+
+    @Override
+    public HashCode hashString(CharSequence string) {
+        final PrimitiveHasher hasher = newPrimitiveHasher();
+        hasher.putString(string);
+        return hasher.hash();
+    }
+
+    @Override
+    public HashCode hashStream(InputStream stream) throws IOException {
+        final PrimitiveHasher hasher = newPrimitiveHasher();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            hasher.putBytes(buffer, 0, read);
+        }
+        return hasher.hash();
+    }
+
+    @Override
+    public HashCode hashFile(File file) throws IOException {
+        if (file.isDirectory()) {
+            return DirectoryHasher.hash(this, file);
+        }
+
+        try (InputStream stream = new FileInputStream(file)) {
+            return hashStream(stream);
+        }
+    }
+
+    @Override
+    public int getHexDigits() {
+        return 32;
+    }
+
+    @Override
+    public String toString() {
+        return getAlgorithm();
+    }
+
+    private static final class Murmur3Hasher implements PrimitiveHasher {
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final byte[] tail = new byte[16];
+        private int tailLength;
+        private long length;
+        private long h1;
+        private long h2;
+        private boolean done;
+
+        @Override
+        public void putBytes(byte[] bytes) {
+            putBytes(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void putBytes(byte[] bytes, int off, int len) {
+            checkNotDone();
+            length += len;
+
+            //Complete a partially filled block first
+            if (tailLength > 0) {
+                final int count = Math.min(16 - tailLength, len);
+                System.arraycopy(bytes, off, tail, tailLength, count);
+                tailLength += count;
+                off += count;
+                len -= count;
+                if (tailLength < 16) {
+                    return;
+                }
+
+                mixBlock(getLong(tail, 0), getLong(tail, 8));
+                tailLength = 0;
+            }
+
+            while (len >= 16) {
+                mixBlock(getLong(bytes, off), getLong(bytes, off + 8));
+                off += 16;
+                len -= 16;
+            }
+
+            System.arraycopy(bytes, off, tail, 0, len);
+            tailLength = len;
+        }
+
+        @Override
+        public void putByte(byte value) {
+            checkNotDone();
+            length++;
+            tail[tailLength++] = value;
+            if (tailLength == 16) {
+                mixBlock(getLong(tail, 0), getLong(tail, 8));
+                tailLength = 0;
+            }
+        }
+
+        @Override
+        public void putInt(int value) {
+            putLittleEndian(value, 4);
+        }
+
+        @Override
+        public void putLong(long value) {
+            putLittleEndian(value, 8);
+        }
+
+        @Override
+        public void putDouble(double value) {
+            putLong(Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        public void putBoolean(boolean value) {
+            putByte((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public void putString(CharSequence value) {
+            final int length = value.length();
+            for (int i = 0; i < length; i++) {
+                final char c = value.charAt(i);
+                if (c < 0x80) {
+                    putByte((byte) c);
+                } else if (c < 0x800) {
+                    putByte((byte) (0xC0 | (c >>> 6)));
+                    putByte((byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    putByte((byte) (0xF0 | (codePoint >>> 18)));
+                    putByte((byte) (0x80 | ((codePoint >>> 12) & 0x3F)));
+                    putByte((byte) (0x80 | ((codePoint >>> 6) & 0x3F)));
+                    putByte((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    putByte((byte) (0xE0 | (c >>> 12)));
+                    putByte((byte) (0x80 | ((c >>> 6) & 0x3F)));
+                    putByte((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+        }
+
+        @Override
+        public void putHash(HashCode hashCode) {
+            hashCode.appendToHasher(this);
+        }
+
+        @Override
+        public HashCode hash() {
+            checkNotDone();
+            done = true;
+
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = tailLength - 1; i >= 8; i--) {
+                k2 = (k2 << 8) | (tail[i] & 0xFFL);
+            }
+            for (int i = Math.min(tailLength, 8) - 1; i >= 0; i--) {
+                k1 = (k1 << 8) | (tail[i] & 0xFFL);
+            }
+
+            if (tailLength > 8) {
+                h2 ^= mixK2(k2);
+            }
+            if (tailLength > 0) {
+                h1 ^= mixK1(k1);
+            }
+
+            h1 ^= length;
+            h2 ^= length;
+
+            h1 += h2;
+            h2 += h1;
+
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+
+            h1 += h2;
+            h2 += h1;
+
+            return new HashCode.HashCode128(h1, h2);
+        }
+
+        private void putLittleEndian(long value, int bytes) {
+            checkNotDone();
+            if (tailLength + bytes <= 16) {
+                for (int i = 0; i < bytes; i++) {
+                    tail[tailLength++] = (byte) (value >>> (i * 8));
+                }
+                length += bytes;
+                if (tailLength == 16) {
+                    mixBlock(getLong(tail, 0), getLong(tail, 8));
+                    tailLength = 0;
+                }
+                return;
+            }
+
+            for (int i = 0; i < bytes; i++) {
+                putByte((byte) (value >>> (i * 8)));
+            }
+        }
+
+        private void mixBlock(long k1, long k2) {
+            h1 ^= mixK1(k1);
+
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        private void checkNotDone() {
+            if (done) {
+                throw new IllegalStateException("Cannot reuse hasher!");
+            }
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+
+        private static long getLong(byte[] bytes, int offset) {
+            return (bytes[offset] & 0xFFL)
+                    | (bytes[offset + 1] & 0xFFL) << 8
+                    | (bytes[offset + 2] & 0xFFL) << 16
+                    | (bytes[offset + 3] & 0xFFL) << 24
+                    | (bytes[offset + 4] & 0xFFL) << 32
+                    | (bytes[offset + 5] & 0xFFL) << 40
+                    | (bytes[offset + 6] & 0xFFL) << 48
+                    | (bytes[offset + 7] & 0xFFL) << 56;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package net.neoforged.gradle.common.services.caching;
+
+import net.neoforged.gradle.common.services.caching.cache.BlobStore;
+import net.neoforged.gradle.common.services.caching.eviction.CacheEvictor;
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.services.caching.hasher.PathNormalizer;
+import net.neoforged.gradle.common.services.caching.jobs.ICacheableJob;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.services.caching.remote.RemoteCache;
+import net.neoforged.gradle.common.services.caching.remote.RemoteCacheBackend;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.logging.Logging;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CachedExecutionBuilderTest {
+
+    @TempDir
+    public File tempDir;
+
+    private File cacheDir;
+    private BlobStore blobs;
+    private CachedExecutionBuilder.Options options;
+    private Project project;
+    private final List<String> executions = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        project = ProjectBuilder.builder().withProjectDir(new File(tempDir, "project")).withGradleUserHomeDir(new File(tempDir, "gradle")).build();
+        useCache("cache", null);
+    }
+
+    /**
+     * Switches to the local cache in the given directory, backed by the given remote cache.
+     */
+    private void useCache(String directory, @Nullable RemoteCache remote) {
+        cacheDir = new File(tempDir, directory);
+        blobs = new BlobStore(cacheDir, Hashing.sha256());
+        options = new CachedExecutionBuilder.Options(
+                true,
+                cacheDir,
+                false,
+                blobs,
+                FileHashIndex.load(cacheDir, Hashing.sha256()),
+                new PathNormalizer(Map.of("project", project.getProjectDir())),
+                new CacheEvictor(cacheDir, 0, 0, new CacheLogger(Logging.getLogger(CachedExecutionBuilderTest.class), "test", false, false)),
+                new CachedExecutionBuilder.LoggingOptions(false, false),
+                null,
+                remote
+        );
+    }
+
+    /**
+     * A remote cache which holds its entries in memory and remembers which entries were requested.
+     */
+    private static final class MemoryBackend implements RemoteCacheBackend {
+        private final Map<String, byte[]> entries = new ConcurrentHashMap<>();
+        private final List<String> loads = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public boolean load(String key, File target) throws IOException {
+            loads.add(key);
+            final byte[] entry = entries.get(key);
+            if (entry == null) {
+                return false;
+            }
+
+            Files.createDirectories(target.getParentFile().toPath());
+            Files.write(target.toPath(), entry);
+            return true;
+        }
+
+        @Override
+        public void store(String key, File source) throws IOException {
+            entries.put(key, Files.readAllBytes(source.toPath()));
+        }
+    }
+
+    private RemoteCache remote(MemoryBackend backend, String directory) {
+        return new RemoteCache(backend, true, new File(tempDir, directory), new CacheLogger(Logging.getLogger(CachedExecutionBuilderTest.class), "test", false, false));
+    }
+
+    /**
+     * Runs the given stages against an empty local cache, which only uploads into the given remote cache.
+     */
+    private void populate(MemoryBackend backend, List<Stage> stages) throws IOException {
+        try (RemoteCache remote = remote(backend, "populating")) {
+            useCache("populating", remote);
+            run(stages);
+        }
+        deleteOutputs(stages);
+        backend.loads.clear();
+    }
+
+    /**
+     * A stage which writes its name and input into its output, optionally reading the output of an earlier stage while doing so.
+     */
+    private final class Stage implements ICacheableJob<String, String> {
+        private final String name;
+        private final boolean requiresInput;
+        @Nullable
+        private final Stage reads;
+        private boolean fails;
+
+        private Stage(String name, boolean requiresInput, @Nullable Stage reads) {
+            this.name = name;
+            this.requiresInput = requiresInput;
+            this.reads = reads;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public File output() {
+            return new File(project.getLayout().getBuildDirectory().getAsFile().get(), name + ".txt");
+        }
+
+        @Override
+        public boolean createsDirectory() {
+            return false;
+        }
+
+        @Override
+        public boolean requiresInput() {
+            return requiresInput;
+        }
+
+        @Override
+        public String execute(String input) throws Throwable {
+            executions.add(name);
+            if (fails) {
+                throw new IOException("Stage " + name + " failed");
+            }
+
+            if (requiresInput && input == null) {
+                throw new IllegalStateException("Stage " + name + " is missing its input");
+            }
+
+            final String upstream = reads == null ? "" : Files.readString(reads.output().toPath());
+            Files.createDirectories(output().getParentFile().toPath());
+            Files.writeString(output().toPath(), content(input, upstream));
+            return name + "-result";
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+        private String content(@Nullable String input, String upstream) {
+            return name + ":" + input + ":" + upstream;
+        }
+
+        /**
+         * Makes the cache entry of this stage unusable, by removing its stored content.
+         */
+        private void invalidate() throws IOException {
+            final String content = Files.readString(output().toPath());
+            assertTrue(blobs.blob(Hashing.sha256().hashBytes(content.getBytes(StandardCharsets.UTF_8))).delete());
+        }
+    }
+
+    private Task task(File... declaredOutputs) {
+        return project.getTasks().create("generate" + project.getTasks().size(), DefaultTask.class, task -> {
+            task.getInputs().property("input", "value");
+            task.getOutputs().files((Object[]) declaredOutputs);
+        });
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void run(List<Stage> stages, File... declaredOutputs) throws IOException {
+        executions.clear();
+        CachedExecutionBuilder builder = new CachedExecutionBuilder<>(options, task(declaredOutputs), (ICacheableJob) stages.get(0));
+        for (Stage stage : stages.subList(1, stages.size())) {
+            builder = builder.withStage(stage);
+        }
+        builder.execute();
+    }
+
+    private static void deleteOutputs(List<Stage> stages) {
+        for (Stage stage : stages) {
+            assertTrue(stage.output().delete());
+        }
+    }
+
+    @Test
+    public void allStagesAreExecutedOnFirstRun() throws IOException {
+        final Stage first = new Stage("first", false, null);
+        final Stage second = new Stage("second", true, null);
+        final Stage last = new Stage("last", true, null);
+
+        run(List.of(first, second, last));
+
+        assertEquals(List.of("first", "second", "last"), executions);
+        assertEquals("last:second-result:", Files.readString(last.output().toPath()));
+    }
+
+    @Test
+    public void onlyFinalOutputIsRestoredWhenAllStagesHit() throws IOException {
+        final Stage first = new Stage("first", false, null);
+        final Stage second = new Stage("second", true, null);
+        final Stage last = new Stage("last", true, null);
+        final List<Stage> stages = List.of(first, second, last);
+
+        run(stages);
+        deleteOutputs(stages);
+        run(stages);
+
+        assertEquals(List.of(), executions);
+        assertTrue(last.output().exists());
+        assertFalse(first.output().exists());
+        assertFalse(second.output().exists());
+    }
+
+    @Test
+    public void declaredIntermediateOutputIsRestored() throws IOException {
+        final Stage first = new Stage("first", false, null);
+        final Stage last = new Stage("last", true, null);
+        final List<Stage> stages = List.of(first, last);
+
+        run(stages, first.output());
+        deleteOutputs(stages);
+        run(stages, first.output());
+
+        assertEquals(List.of(), executions);
+        assertTrue(first.output().exists());
+        assertTrue(last.output().exists());
+    }
+
+    @Test
+    public void intermediateMissExecutesItsInputAndRestoresFinalHit() throws IOException {
+        final Stage first = new Stage("first", false, null);
+        final Stage second = new Stage("second", true, null);
+        final Stage last = new Stage("last", true, null);
+        final List<Stage> stages = List.of(first, second, last);
+
+        run(stages);
+        second.invalidate();
+        deleteOutputs(stages);
+        run(stages);
+
+        //The second stage needs the in-memory result of the first one, the last stage is still valid.
+        assertEquals(List.of("first", "second"), executions);
+        assertEquals("last:second-result:", Files.readString(last.output().toPath()));
+    }
+
+    @Test
+    public void finalMissRestoresUpstreamOutput() throws IOException {
+        final Stage first = new Stage("first", false, null);
+        final Stage last = new Stage("last", false, first);
+        final List<Stage> stages = List.of(first, last);
+
+        run(stages);
+        last.invalidate();
+        deleteOutputs(stages);
+        run(stages);
+
+        //The last stage only reads the output of the first one, which is restored instead of executed.
+        assertEquals(List.of("last"), executions);
+        assertEquals("last:null:first:null:", Files.readString(last.output().toPath()));
+    }
+
+    @Test
+    public void finalMissExecutesUpstreamWhenItRequiresItsResult() throws IOException {
+        final Stage first = new Stage("first", false, null);
+        final Stage last = new Stage("last", true, first);
+        final List<Stage> stages = List.of(first, last);
+
+        run(stages);
+        last.invalidate();
+        deleteOutputs(stages);
+        run(stages);
+
+        assertEquals(List.of("first", "last"), executions);
+    }
+
+    @Test
+    public void stagesWhichDoNotRunStayHealthyWhenLaterStageFails() throws IOException {
+        final Stage first = new Stage("first", false, null);
+        final Stage last = new Stage("last", false, first);
+        final List<Stage> stages = List.of(first, last);
+
+        run(stages);
+        last.invalidate();
+        last.fails = true;
+        assertThrows(GradleException.class, () -> run(stages));
+        assertEquals(List.of("last"), executions);
+
+        last.fails = false;
+        run(stages);
+
+        assertEquals(List.of("last"), executions);
+    }
+
+    @Test
+    public void failedStageIsExecutedAgain() throws IOException {
+        final Stage first = new Stage("first", false, null);
+        final List<Stage> stages = List.of(first);
+
+        first.fails = true;
+        assertThrows(GradleException.class, () -> run(stages));
+
+        first.fails = false;
+        run(stages);
+        run(stages);
+
+        assertEquals(List.of(), executions);
+        assertTrue(first.output().exists());
+    }
+
+    @Test
+    public void onlyNeededStagesAreFetchedFromRemote() throws IOException {
+        final Stage first = new Stage("first", false, null);
+        final Stage second = new Stage("second", true, null);
+        final Stage last = new Stage("last", true, null);
+        final List<Stage> stages = List.of(first, second, last);
+        final MemoryBackend backend = new MemoryBackend();
+        populate(backend, stages);
+
+        try (RemoteCache remote = remote(backend, "fetching")) {
+            useCache("fetching", remote);
+            run(stages);
+        }
+
+        assertEquals(List.of(), executions);
+        assertEquals(1, backend.loads.size(), "Intermediate stages were fetched although their output is not needed");
+        assertEquals("last:second-result:", Files.readString(last.output().toPath()));
+        assertFalse(first.output().exists());
+    }
+
+    @Test
+    public void stagesAreFetchedWhenAnExecutedStageNeedsThem() throws IOException {
+        final Stage first = new Stage("first", false, null);
+        final Stage last = new Stage("last", false, first);
+        final MemoryBackend backend = new MemoryBackend();
+        populate(backend, List.of(first));
+
+        try (RemoteCache remote = remote(backend, "fetching")) {
+            useCache("fetching", remote);
+            run(List.of(first, last));
+        }
+
+        //The last stage is not in the remote cache, it reads the output of the first one, which is.
+        assertEquals(List.of("last"), executions);
+        assertEquals(2, backend.loads.size());
+        assertEquals("last:null:first:null:", Files.readString(last.output().toPath()));
+    }
+}
@@ -0,0 +1,139 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlobStoreTest {
+
+    @TempDir
+    public File tempDir;
+
+    private BlobStore blobs;
+
+    @BeforeEach
+    public void setUp() {
+        blobs = new BlobStore(new File(tempDir, "cache"), Hashing.sha256());
+    }
+
+    @Test
+    public void storedFileIsLinkedIntoTheStore() throws IOException {
+        final File source = write(new File(tempDir, "output.txt"), "content");
+
+        final HashCode hash = blobs.put(source);
+
+        assertEquals(Hashing.sha256().hashBytes("content".getBytes(StandardCharsets.UTF_8)), hash);
+        assertTrue(Files.isSameFile(source.toPath(), blobs.blob(hash).toPath()));
+        assertTrue(blobs.isBlob(hash, source));
+        assertTrue(isReadOnly(blobs.blob(hash)), "Blob is writable");
+        assertTrue(isReadOnly(source), "Link to the blob is writable");
+    }
+
+    @Test
+    public void equalContentIsStoredOnce() throws IOException {
+        final File first = write(new File(tempDir, "first.txt"), "content");
+        final File second = write(new File(tempDir, "second.txt"), "content");
+
+        final HashCode hash = blobs.put(first);
+        assertEquals(hash, blobs.put(second));
+
+        assertEquals(1, countBlobs());
+        assertTrue(blobs.isBlob(hash, first));
+        //The blob already existed, so the second file is left alone.
+        assertFalse(blobs.isBlob(hash, second));
+        assertEquals("content", Files.readString(second.toPath()));
+    }
+
+    @Test
+    public void restoredFileIsLinkedToTheBlob() throws IOException {
+        final HashCode hash = blobs.put(write(new File(tempDir, "output.txt"), "content"));
+
+        final File target = new File(tempDir, "restored/output.txt");
+        blobs.restore(hash, target);
+
+        assertEquals("content", Files.readString(target.toPath()));
+        assertTrue(blobs.isBlob(hash, target));
+        assertTrue(isReadOnly(target), "Restored link to the blob is writable");
+    }
+
+    @Test
+    public void restoringMissingBlobFails() {
+        final HashCode hash = Hashing.sha256().hashBytes("missing".getBytes(StandardCharsets.UTF_8));
+        final File target = new File(tempDir, "restored.txt");
+
+        assertThrows(IOException.class, () -> blobs.restore(hash, target));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void replacingRestoredFileKeepsTheBlob() throws IOException {
+        final File source = write(new File(tempDir, "output.txt"), "content");
+        final HashCode hash = blobs.put(source);
+        final File target = new File(tempDir, "restored.txt");
+        blobs.restore(hash, target);
+
+        blobs.delete(target.toPath());
+        write(target, "changed");
+        blobs.delete(source.toPath());
+
+        assertEquals("changed", Files.readString(target.toPath()));
+        assertEquals("content", Files.readString(blobs.blob(hash).toPath()));
+        assertTrue(isReadOnly(blobs.blob(hash)));
+    }
+
+    @Test
+    public void cleaningDirectoryKeepsTheBlobs() throws IOException {
+        final HashCode hash = blobs.put(write(new File(tempDir, "output.txt"), "content"));
+        final File directory = new File(tempDir, "workspace");
+        blobs.restore(hash, new File(directory, "a.txt"));
+        blobs.restore(hash, new File(directory, "nested/b.txt"));
+
+        blobs.cleanDirectory(directory.toPath());
+
+        assertTrue(directory.isDirectory());
+        assertEquals(0, Objects.requireNonNull(directory.list()).length);
+        assertEquals("content", Files.readString(blobs.blob(hash).toPath()));
+        assertTrue(isReadOnly(blobs.blob(hash)));
+    }
+
+    private long countBlobs() throws IOException {
+        try (Stream<Path> files = Files.walk(new File(tempDir, "cache/" + BlobStore.DIRECTORY_NAME).toPath())) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    /**
+     * Checks the permissions of the file, instead of asking whether it can be written, which is always true for privileged users.
+     */
+    static boolean isReadOnly(File file) throws IOException {
+        final Path path = file.toPath();
+        if (Files.getFileAttributeView(path, PosixFileAttributeView.class) != null) {
+            return !Files.getPosixFilePermissions(path).contains(PosixFilePermission.OWNER_WRITE);
+        }
+
+        return (Boolean) Files.getAttribute(path, "dos:readonly");
+    }
+
+    private static File write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+}
@@ -0,0 +1,95 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DirectoryCacheTest {
+
+    @TempDir
+    public File tempDir;
+
+    private DirectoryCache cache() {
+        final File cacheDir = new File(tempDir, "cache");
+        return new DirectoryCache(
+                new File(cacheDir, "entry"),
+                new BlobStore(cacheDir, Hashing.sha256()),
+                FileHashIndex.load(cacheDir, Hashing.sha256())
+        );
+    }
+
+    @Test
+    public void restoringAnEqualDirectoryDoesNothing() throws IOException {
+        final File output = new File(tempDir, "output");
+        write(new File(output, "a/b.txt"), "b");
+        write(new File(output, "c.txt"), "c");
+
+        final DirectoryCache cache = cache();
+        cache.loadFrom(output);
+
+        assertFalse(cache.restoreTo(output));
+    }
+
+    @Test
+    public void onlyDifferingFilesAreRewritten() throws IOException {
+        final File output = new File(tempDir, "output");
+        write(new File(output, "a/b.txt"), "b");
+        write(new File(output, "c.txt"), "c");
+        write(new File(output, "d.txt"), "d");
+
+        final DirectoryCache cache = cache();
+        cache.loadFrom(output);
+
+        //A workspace with an equal copy of one file, a modified file, a missing file and an extra file and directory
+        final File workspace = new File(tempDir, "workspace");
+        final File copy = write(new File(workspace, "a/b.txt"), "b");
+        write(new File(workspace, "c.txt"), "changed");
+        write(new File(workspace, "extra/e.txt"), "e");
+        final Object copyKey = fileKey(copy);
+
+        assertTrue(cache.restoreTo(workspace));
+
+        assertEquals(copyKey, fileKey(copy), "Unchanged file was rewritten");
+        assertEquals("b", Files.readString(copy.toPath()));
+        assertEquals("c", Files.readString(new File(workspace, "c.txt").toPath()));
+        assertEquals("d", Files.readString(new File(workspace, "d.txt").toPath()));
+        assertFalse(new File(workspace, "extra").exists());
+
+        assertFalse(cache.restoreTo(workspace));
+    }
+
+    @Test
+    public void fileIsReplacedByDirectory() throws IOException {
+        final File output = new File(tempDir, "output");
+        write(new File(output, "a/b.txt"), "b");
+
+        final DirectoryCache cache = cache();
+        cache.loadFrom(output);
+
+        final File workspace = new File(tempDir, "workspace");
+        write(new File(workspace, "a"), "not a directory");
+
+        assertTrue(cache.restoreTo(workspace));
+        assertEquals("b", Files.readString(new File(workspace, "a/b.txt").toPath()));
+    }
+
+    private static Object fileKey(File file) throws IOException {
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    private static File write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+}
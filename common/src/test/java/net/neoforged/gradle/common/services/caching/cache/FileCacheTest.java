@@ -0,0 +1,98 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileCacheTest {
+
+    @TempDir
+    public File tempDir;
+
+    private BlobStore blobs;
+
+    @BeforeEach
+    public void setUp() {
+        blobs = new BlobStore(new File(tempDir, "cache"), Hashing.sha256());
+    }
+
+    private FileCache cache(String name) {
+        return new FileCache(new File(tempDir, "cache/" + name), blobs);
+    }
+
+    @Test
+    public void storedOutputIsRestored() throws IOException {
+        final File output = write(new File(tempDir, "output.txt"), "content");
+        final FileCache cache = cache("entry");
+        cache.loadFrom(output);
+
+        final File target = new File(tempDir, "restored/output.txt");
+        assertTrue(cache.restoreTo(target));
+
+        assertEquals("content", Files.readString(target.toPath()));
+        assertTrue(cache.isRestorable());
+        assertFalse(cache.restoreTo(target), "Equal output was restored again");
+    }
+
+    @Test
+    public void changedOutputIsReplaced() throws IOException {
+        final File output = write(new File(tempDir, "output.txt"), "content");
+        final FileCache cache = cache("entry");
+        cache.loadFrom(output);
+
+        final File target = write(new File(tempDir, "restored.txt"), "changed");
+        assertTrue(cache.restoreTo(target));
+
+        assertEquals("content", Files.readString(target.toPath()));
+    }
+
+    @Test
+    public void restoredOutputCannotCorruptOtherEntries() throws IOException {
+        final File first = write(new File(tempDir, "first.txt"), "content");
+        final File second = write(new File(tempDir, "second.txt"), "content");
+        final FileCache firstCache = cache("first");
+        final FileCache secondCache = cache("second");
+        firstCache.loadFrom(first);
+        secondCache.loadFrom(second);
+
+        //Both entries share one blob, which every restored output is linked to.
+        final File restored = new File(tempDir, "restored.txt");
+        firstCache.restoreTo(restored);
+        assertTrue(BlobStoreTest.isReadOnly(restored), "Restored output can be written into");
+
+        //A task which runs again replaces its output.
+        blobs.delete(restored.toPath());
+        write(restored, "changed");
+
+        assertTrue(secondCache.isRestorable());
+        final File other = new File(tempDir, "other.txt");
+        secondCache.restoreTo(other);
+        assertEquals("content", Files.readString(other.toPath()));
+    }
+
+    @Test
+    public void missingOutputIsRestoredAsMissing() throws IOException {
+        final FileCache cache = cache("entry");
+        cache.loadFrom(new File(tempDir, "missing.txt"));
+
+        final File target = write(new File(tempDir, "restored.txt"), "stale");
+        assertTrue(cache.restoreTo(target));
+
+        assertFalse(target.exists());
+    }
+
+    private static File write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+}
@@ -0,0 +1,123 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PackedDirectoryCacheTest {
+
+    @TempDir
+    public File tempDir;
+
+    private PackedDirectoryCache cache() {
+        final File cacheDir = new File(tempDir, "cache");
+        return new PackedDirectoryCache(
+                new File(cacheDir, "entry"),
+                new BlobStore(cacheDir, Hashing.sha256()),
+                FileHashIndex.load(cacheDir, Hashing.sha256())
+        );
+    }
+
+    @Test
+    public void storedDirectoryIsRestored() throws IOException {
+        final File output = new File(tempDir, "output");
+        write(new File(output, "a/b.txt"), "b");
+        write(new File(output, "c.txt"), "c");
+        new File(output, "empty/nested").mkdirs();
+
+        final PackedDirectoryCache cache = cache();
+        cache.loadFrom(output);
+        assertTrue(cache.isRestorable());
+        assertTrue(new File(tempDir, "cache/entry/" + PackedDirectoryCache.ARCHIVE_FILE_NAME).isFile());
+
+        final File restored = new File(tempDir, "restored");
+        assertTrue(cache.restoreTo(restored));
+
+        assertEquals("b", Files.readString(new File(restored, "a/b.txt").toPath()));
+        assertEquals("c", Files.readString(new File(restored, "c.txt").toPath()));
+        assertTrue(new File(restored, "empty/nested").isDirectory());
+    }
+
+    @Test
+    public void restoringAnEqualDirectoryDoesNothing() throws IOException {
+        final File output = new File(tempDir, "output");
+        write(new File(output, "a/b.txt"), "b");
+        final Object key = fileKey(write(new File(output, "c.txt"), "c"));
+
+        final PackedDirectoryCache cache = cache();
+        cache.loadFrom(output);
+
+        assertFalse(cache.restoreTo(output));
+        assertEquals(key, fileKey(new File(output, "c.txt")), "Unchanged file was rewritten");
+    }
+
+    @Test
+    public void onlyDifferingFilesAreExtracted() throws IOException {
+        final File output = new File(tempDir, "output");
+        write(new File(output, "a/b.txt"), "b");
+        write(new File(output, "c.txt"), "c");
+        write(new File(output, "d.txt"), "d");
+
+        final PackedDirectoryCache cache = cache();
+        cache.loadFrom(output);
+
+        final File workspace = new File(tempDir, "workspace");
+        final File copy = write(new File(workspace, "a/b.txt"), "b");
+        write(new File(workspace, "c.txt"), "changed");
+        write(new File(workspace, "extra.txt"), "extra");
+        final Object copyKey = fileKey(copy);
+
+        assertTrue(cache.restoreTo(workspace));
+
+        assertEquals(copyKey, fileKey(copy), "Unchanged file was rewritten");
+        assertEquals("c", Files.readString(new File(workspace, "c.txt").toPath()));
+        assertEquals("d", Files.readString(new File(workspace, "d.txt").toPath()));
+        assertFalse(new File(workspace, "extra.txt").exists());
+
+        assertFalse(cache.restoreTo(workspace));
+    }
+
+    @Test
+    public void missingOutputIsRestoredAsEmptyDirectory() throws IOException {
+        final PackedDirectoryCache cache = cache();
+        cache.loadFrom(new File(tempDir, "missing"));
+        assertTrue(cache.isRestorable());
+
+        final File restored = new File(tempDir, "restored");
+        assertTrue(cache.restoreTo(restored));
+
+        assertTrue(restored.isDirectory());
+    }
+
+    @Test
+    public void entryWithoutArchiveIsNotRestorable() throws IOException {
+        final File output = new File(tempDir, "output");
+        write(new File(output, "c.txt"), "c");
+
+        final PackedDirectoryCache cache = cache();
+        cache.loadFrom(output);
+        Files.delete(new File(tempDir, "cache/entry/" + PackedDirectoryCache.ARCHIVE_FILE_NAME).toPath());
+
+        assertFalse(cache.isRestorable());
+    }
+
+    private static Object fileKey(File file) throws IOException {
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    private static File write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+}
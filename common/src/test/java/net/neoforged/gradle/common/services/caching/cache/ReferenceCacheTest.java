@@ -0,0 +1,122 @@
+package net.neoforged.gradle.common.services.caching.cache;
+
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReferenceCacheTest {
+
+    private static final long AN_HOUR_AGO = System.currentTimeMillis() - 60 * 60 * 1000;
+
+    @TempDir
+    public File tempDir;
+
+    private File output;
+    private File first;
+    private File second;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        output = new File(tempDir, "assets");
+        first = write(new File(output, "objects/ab/first"), "first");
+        second = write(new File(output, "objects/cd/second"), "second");
+    }
+
+    private static File write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.writeString(file.toPath(), content);
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(AN_HOUR_AGO));
+        return file;
+    }
+
+    /**
+     * Replaces the content of the file without changing its size or last modified time, which can only be noticed by hashing the file.
+     */
+    private static void replaceContent(File file, String content) throws IOException {
+        final FileTime lastModified = Files.getLastModifiedTime(file.toPath());
+        Files.writeString(file.toPath(), content);
+        Files.setLastModifiedTime(file.toPath(), lastModified);
+    }
+
+    private ReferenceCache cache() throws IOException {
+        final ReferenceCache cache = new ReferenceCache(new File(tempDir, "cache/entry"), output, Hashing.sha256());
+        cache.loadFrom(output, List.of(second, first));
+        return cache;
+    }
+
+    @Test
+    public void referencedFilesAreTheResult() throws IOException {
+        assertTrue(cache().isRestorable());
+        assertEquals(Set.of(first, second), cache().restoreResult());
+    }
+
+    @Test
+    public void filesWithUnchangedMetadataAreNotHashed() throws IOException {
+        final ReferenceCache cache = cache();
+
+        replaceContent(first, "other");
+
+        assertTrue(cache.isRestorable());
+    }
+
+    @Test
+    public void touchedFilesAreHashedAndRemembered() throws IOException {
+        final ReferenceCache cache = cache();
+        Files.setLastModifiedTime(first.toPath(), FileTime.fromMillis(AN_HOUR_AGO + 1000));
+
+        assertTrue(cache.isRestorable());
+
+        //The new timestamp was remembered, so the file is not hashed again.
+        replaceContent(first, "other");
+        assertTrue(cache.isRestorable());
+    }
+
+    @Test
+    public void touchedFileWithChangedContentIsNotRestorable() throws IOException {
+        final ReferenceCache cache = cache();
+
+        write(first, "other");
+        Files.setLastModifiedTime(first.toPath(), FileTime.fromMillis(AN_HOUR_AGO + 1000));
+
+        assertFalse(cache.isRestorable());
+    }
+
+    @Test
+    public void fileWithChangedSizeIsNotRestorable() throws IOException {
+        final ReferenceCache cache = cache();
+
+        write(second, "changed");
+
+        assertFalse(cache.isRestorable());
+    }
+
+    @Test
+    public void missingFileIsNotRestorable() throws IOException {
+        final ReferenceCache cache = cache();
+
+        Files.delete(second.toPath());
+
+        assertFalse(cache.isRestorable());
+    }
+
+    @Test
+    public void resultMustBeTheReferencedFiles() {
+        final ReferenceCache cache = new ReferenceCache(new File(tempDir, "cache/entry"), output, Hashing.sha256());
+
+        assertThrows(IllegalStateException.class, () -> cache.loadFrom(output, output));
+        assertFalse(cache.isRestorable());
+    }
+}
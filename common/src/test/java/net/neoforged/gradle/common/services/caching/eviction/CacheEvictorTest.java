@@ -0,0 +1,155 @@
+package net.neoforged.gradle.common.services.caching.eviction;
+
+import net.neoforged.gradle.common.services.caching.cache.BlobStore;
+import net.neoforged.gradle.common.services.caching.cache.FileCache;
+import net.neoforged.gradle.common.services.caching.locking.FileBasedLock;
+import net.neoforged.gradle.common.services.caching.locking.LockManager;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheEvictorTest {
+
+    @TempDir
+    public File tempDir;
+
+    private File cacheDir;
+    private BlobStore blobs;
+    private CacheLogger logger;
+
+    @BeforeEach
+    public void setUp() {
+        cacheDir = new File(tempDir, "cache");
+        blobs = new BlobStore(cacheDir, Hashing.sha256());
+        logger = new CacheLogger(Logging.getLogger(CacheEvictorTest.class), "test", false, false);
+    }
+
+    /**
+     * Stores an entry with the given content, which was last used at the given time.
+     */
+    private File entry(String name, String content, long lastAccess) throws Exception {
+        final File output = new File(tempDir, "outputs/" + name);
+        Files.createDirectories(output.getParentFile().toPath());
+        Files.writeString(output.toPath(), content);
+
+        final File entryDirectory = new File(cacheDir, name);
+        final FileCache cache = new FileCache(entryDirectory, blobs);
+        try (FileBasedLock lock = cache.createLock(logger)) {
+            cache.loadFrom(output);
+            lock.markAsSuccess();
+        }
+
+        assertTrue(new File(entryDirectory, LockManager.LOCK_FILE_NAME).setLastModified(lastAccess));
+        return entryDirectory;
+    }
+
+    private File blob(String content) {
+        return blobs.blob(Hashing.sha256().hashBytes(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private CacheEvictor evictor(int maxEntries) {
+        return new CacheEvictor(cacheDir, maxEntries, 0, logger);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsRemovedEntirely() throws Exception {
+        final File old = entry("aaaaaaaa", "old", 1000);
+        final File recent = entry("bbbbbbbb", "recent", 2000);
+
+        evictor(1).evict();
+
+        assertFalse(old.exists(), "Evicted entry directory, including its lock file, was kept");
+        assertFalse(blob("old").exists());
+        assertTrue(recent.isDirectory());
+        assertTrue(blob("recent").exists());
+    }
+
+    @Test
+    public void blobsAreKeptWhileEntriesAreStored() throws Exception {
+        final File old = entry("aaaaaaaa", "old", 1000);
+        entry("bbbbbbbb", "recent", 2000);
+
+        //Another entry which stores the same content might not have written its manifest yet.
+        try (Closeable storing = blobs.lockForStoring()) {
+            evictor(1).evict();
+        }
+
+        assertFalse(old.exists());
+        assertTrue(blob("old").exists());
+    }
+
+    @Test
+    public void deletedLinksAreRemovedWithTheirBlob() throws Exception {
+        entry("aaaaaaaa", "old", 1000);
+        entry("bbbbbbbb", "recent", 2000);
+        final File oldLink = deletedLink("old");
+        final File recentLink = deletedLink("recent");
+
+        evictor(1).evict();
+
+        assertFalse(oldLink.exists());
+        assertTrue(recentLink.exists(), "Deleted link of a referenced blob was removed");
+    }
+
+    /**
+     * Creates a link to the blob with the given content, like one which was deleted from its output on Windows.
+     */
+    private File deletedLink(String content) throws IOException {
+        final File blob = blob(content);
+        final File link = new File(blob.getParentFile(), blob.getName() + ".0000" + BlobStore.DELETED_SUFFIX);
+        Files.createLink(link.toPath(), blob.toPath());
+        return link;
+    }
+
+    @Test
+    public void lockedEntryIsNotEvicted() throws Exception {
+        final File old = entry("aaaaaaaa", "old", 1000);
+        final File recent = entry("bbbbbbbb", "recent", 2000);
+
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch evicted = new CountDownLatch(1);
+        final Thread user = new Thread(() -> {
+            try (FileBasedLock lock = LockManager.createLock(old, logger)) {
+                locked.countDown();
+                evicted.await();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        user.start();
+        try {
+            locked.await();
+            evictor(1).evict();
+        } finally {
+            evicted.countDown();
+            user.join();
+        }
+
+        assertTrue(old.isDirectory());
+        assertFalse(recent.exists());
+    }
+
+    @Test
+    public void cacheWithinBoundsIsNotChanged() throws Exception {
+        final File old = entry("aaaaaaaa", "old", 1000);
+        final File recent = entry("bbbbbbbb", "recent", 2000);
+
+        evictor(2).evict();
+
+        assertTrue(old.isDirectory());
+        assertTrue(recent.isDirectory());
+    }
+}
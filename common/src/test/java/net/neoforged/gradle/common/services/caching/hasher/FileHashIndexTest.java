@@ -0,0 +1,149 @@
+package net.neoforged.gradle.common.services.caching.hasher;
+
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileHashIndexTest {
+
+    private static final long AN_HOUR_AGO = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+
+    @TempDir
+    File tempDir;
+
+    private FileHashIndex load() {
+        return FileHashIndex.load(new File(tempDir, "cache"), Hashing.sha1());
+    }
+
+    private File write(String name, String content, long lastModified) throws IOException {
+        final File file = new File(tempDir, name);
+        Files.writeString(file.toPath(), content);
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(lastModified));
+        return file;
+    }
+
+    /**
+     * Replaces the content of the file without changing its metadata, which the index can only notice by reading the file.
+     */
+    private static void replaceContent(File file, String content) throws IOException {
+        final FileTime lastModified = Files.getLastModifiedTime(file.toPath());
+        Files.writeString(file.toPath(), content);
+        Files.setLastModifiedTime(file.toPath(), lastModified);
+    }
+
+    private static HashCode hash(String content) {
+        return Hashing.sha1().hashString(content);
+    }
+
+    @Test
+    public void unchangedFileIsNotReadAgain() throws IOException {
+        final FileHashIndex index = load();
+        final File file = write("input.txt", "first", AN_HOUR_AGO);
+        assertEquals(hash("first"), index.hashFile(file));
+
+        replaceContent(file, "other");
+
+        assertEquals(hash("first"), index.hashFile(file));
+        assertEquals(hash("other"), index.rehashFile(file));
+    }
+
+    @Test
+    public void fileWithChangedMetadataIsReadAgain() throws IOException {
+        final FileHashIndex index = load();
+        final File file = write("input.txt", "first", AN_HOUR_AGO);
+        index.hashFile(file);
+
+        write("input.txt", "other", AN_HOUR_AGO + 1000);
+
+        assertEquals(hash("other"), index.hashFile(file));
+    }
+
+    @Test
+    public void recentlyModifiedFileIsNotIndexed() throws IOException {
+        final FileHashIndex index = load();
+        final File file = write("input.txt", "first", System.currentTimeMillis());
+        assertEquals(hash("first"), index.hashFile(file));
+
+        //A modification within the timestamp granularity of the file system does not change the metadata.
+        replaceContent(file, "other");
+
+        assertEquals(hash("other"), index.hashFile(file));
+    }
+
+    @Test
+    public void recordedFileIsIndexedEvenIfRecentlyModified() throws IOException {
+        final FileHashIndex index = load();
+        final File file = write("input.txt", "first", System.currentTimeMillis());
+        index.record(file, hash("first"));
+
+        replaceContent(file, "other");
+
+        assertEquals(hash("first"), index.hashFile(file));
+    }
+
+    @Test
+    public void savedIndexIsLoadedByTheNextBuild() throws IOException {
+        final File file = write("input.txt", "first", AN_HOUR_AGO);
+        final FileHashIndex index = load();
+        index.hashFile(file);
+        index.save();
+
+        replaceContent(file, "other");
+
+        assertEquals(hash("first"), load().hashFile(file));
+    }
+
+    @Test
+    public void saveKeepsTheEntriesOfAnotherBuild() throws IOException {
+        final File first = write("first.txt", "first", AN_HOUR_AGO);
+        final File second = write("second.txt", "second", AN_HOUR_AGO);
+        final FileHashIndex firstBuild = load();
+        final FileHashIndex secondBuild = load();
+
+        firstBuild.hashFile(first);
+        secondBuild.hashFile(second);
+        firstBuild.save();
+        secondBuild.save();
+
+        replaceContent(first, "other");
+        replaceContent(second, "other!");
+
+        final FileHashIndex index = load();
+        assertEquals(hash("first"), index.hashFile(first));
+        assertEquals(hash("second"), index.hashFile(second));
+    }
+
+    @Test
+    public void saveDropsEntriesOfDeletedFiles() throws IOException {
+        final File file = write("input.txt", "first", AN_HOUR_AGO);
+        final FileHashIndex index = load();
+        index.hashFile(file);
+        index.save();
+
+        Files.delete(file.toPath());
+        final FileHashIndex next = load();
+        next.hashFile(write("other.txt", "other", AN_HOUR_AGO));
+        next.save();
+
+        try (Stream<Path> files = Files.list(new File(tempDir, "cache").toPath())) {
+            for (Path indexFile : files.toList()) {
+                final String content = Files.readString(indexFile);
+                assertTrue(content.contains("other.txt"));
+                assertFalse(content.contains("input.txt"));
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package net.neoforged.gradle.common.services.caching.hasher;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PathNormalizerTest {
+
+    private static PathNormalizer normalizer(File project, File gradleUserHome) {
+        final Map<String, File> roots = new LinkedHashMap<>();
+        roots.put("project", project);
+        roots.put("gradleUserHome", gradleUserHome);
+        roots.put("cache", new File(gradleUserHome, "caches/ng_execute"));
+        return new PathNormalizer(roots);
+    }
+
+    private static String path(String path) {
+        return new File(path).getAbsolutePath();
+    }
+
+    @Test
+    public void pathsInDifferentWorkspacesAreEqual() {
+        final PathNormalizer first = normalizer(new File("/work/first"), new File("/home/first/.gradle"));
+        final PathNormalizer second = normalizer(new File("/work/second"), new File("/home/second/.gradle"));
+
+        assertEquals(
+                first.normalize(new File("/work/first/build/neoForm/output.jar")),
+                second.normalize(new File("/work/second/build/neoForm/output.jar"))
+        );
+        assertEquals(
+                first.normalize("--input %s --libraries %s".formatted(path("/work/first/build/in.jar"), path("/home/first/.gradle/caches/modules-2"))),
+                second.normalize("--input %s --libraries %s".formatted(path("/work/second/build/in.jar"), path("/home/second/.gradle/caches/modules-2")))
+        );
+    }
+
+    @Test
+    public void nestedRootIsPreferred() {
+        final PathNormalizer normalizer = normalizer(new File("/work/project"), new File("/home/user/.gradle"));
+
+        assertEquals("${cache}/abc", normalizer.normalize(new File("/home/user/.gradle/caches/ng_execute/abc")));
+        assertEquals("${gradleUserHome}/caches/other", normalizer.normalize(new File("/home/user/.gradle/caches/other")));
+    }
+
+    @Test
+    public void siblingWithCommonPrefixIsNotReplaced() {
+        final PathNormalizer normalizer = normalizer(new File("/work/project"), new File("/home/user/.gradle"));
+
+        assertEquals(path("/work/project2/file"), normalizer.normalize(path("/work/project2/file")));
+        assertEquals("${project}", normalizer.normalize(path("/work/project")));
+    }
+
+    @Test
+    public void pathsOutsideOfRootsAreKept() {
+        final PathNormalizer normalizer = normalizer(new File("/work/project"), new File("/home/user/.gradle"));
+
+        assertEquals(path("/opt/java/bin/java").replace(File.separatorChar, '/'), normalizer.normalize(new File("/opt/java/bin/java")));
+    }
+
+    @Test
+    public void collectionsAndMapsAreNormalized() {
+        final PathNormalizer normalizer = normalizer(new File("/work/project"), new File("/home/user/.gradle"));
+
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("output", new File("/work/project/build/out"));
+        map.put("log", path("/work/project/build/log.log"));
+
+        final Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("log", "${project}" + File.separator + "build" + File.separator + "log.log");
+        expected.put("output", "${project}/build/out");
+
+        assertEquals(expected, normalizer.normalizeValue(map));
+        assertEquals(List.of("${project}/a", 1), normalizer.normalizeValue(List.of(new File("/work/project/a"), 1)));
+    }
+}
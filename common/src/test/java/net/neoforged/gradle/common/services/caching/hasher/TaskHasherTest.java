@@ -0,0 +1,127 @@
+package net.neoforged.gradle.common.services.caching.hasher;
+
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.logging.Logging;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class TaskHasherTest {
+
+    @TempDir
+    File tempDir;
+
+    private static void write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.writeString(file.toPath(), content);
+    }
+
+    private HashCode key(String root, Map<String, String> inputs) throws IOException {
+        return key(root + "/project", root + "/gradle", inputs);
+    }
+
+    /**
+     * Creates a project with a task whose inputs are the given files.
+     * Paths of inputs starting with {@code ~/} are relative to the Gradle user home, all others are relative to the project directory.
+     */
+    private HashCode key(String projectPath, String gradleUserHomePath, Map<String, String> inputs) throws IOException {
+        final File projectDirectory = new File(tempDir, projectPath);
+        final File gradleUserHome = new File(tempDir, gradleUserHomePath);
+        final List<File> files = inputs.keySet().stream()
+                .map(input -> input.startsWith("~/") ? new File(gradleUserHome, input.substring(2)) : new File(projectDirectory, input))
+                .map(input -> input.toPath().normalize().toFile())
+                .toList();
+        int file = 0;
+        for (String content : inputs.values()) {
+            write(files.get(file++), content);
+        }
+
+        final Project project = ProjectBuilder.builder().withProjectDir(projectDirectory).withGradleUserHomeDir(gradleUserHome).build();
+        final Task task = project.getTasks().create("generate", DefaultTask.class, generate -> {
+            generate.getInputs().property("output", new File(projectDirectory, "build/output.jar"));
+            generate.getInputs().files(files);
+        });
+
+        final Map<String, File> roots = new LinkedHashMap<>();
+        roots.put("project", projectDirectory);
+        roots.put("gradleUserHome", gradleUserHome);
+
+        final FileHashIndex fileHashes = FileHashIndex.load(new File(projectDirectory.getParentFile(), "index"), Hashing.sha1());
+        return new TaskHasher(task, fileHashes, new PathNormalizer(roots), new CacheLogger(Logging.getLogger(TaskHasherTest.class), "test", false, false)).create();
+    }
+
+    private static Map<String, String> inputs(String... pathsAndContents) {
+        final Map<String, String> inputs = new LinkedHashMap<>();
+        for (int i = 0; i < pathsAndContents.length; i += 2) {
+            inputs.put(pathsAndContents[i], pathsAndContents[i + 1]);
+        }
+        return inputs;
+    }
+
+    @Test
+    public void sameInputsUnderDifferentRootsHaveEqualKeys() throws IOException {
+        final Map<String, String> inputs = inputs("src/a/input.txt", "first", "src/b/input.txt", "second", "src/z.txt", "third");
+
+        assertEquals(key("checkout", inputs), key("other/location/of/the/checkout", inputs));
+    }
+
+    @Test
+    public void orderOfInputsDoesNotDependOnRoots() throws IOException {
+        //The Gradle user home sorts before the project in the first layout and after it in the second one.
+        final Map<String, String> inputs = inputs("src/input.txt", "first", "~/caches/library.jar", "second");
+
+        assertEquals(key("first/project", "first/a-gradle", inputs), key("second/project", "second/z-gradle", inputs));
+    }
+
+    @Test
+    public void filesWithSameNameInDifferentDirectoriesAreDistinguished() throws IOException {
+        assertNotEquals(
+                key("first", inputs("src/a/input.txt", "content")),
+                key("second", inputs("src/b/input.txt", "content"))
+        );
+    }
+
+    @Test
+    public void filesOutsideOfRootsAreIdentifiedByNameOnly() throws IOException {
+        //The parent of the project is not a root, so these files are identified by their name and content.
+        assertEquals(
+                key("first", inputs("../outside/library.jar", "content")),
+                key("second/somewhere/else", inputs("../other/library.jar", "content"))
+        );
+        assertNotEquals(
+                key("third", inputs("../outside/library.jar", "content")),
+                key("fourth", inputs("../outside/library.jar", "changed"))
+        );
+    }
+
+    @Test
+    public void equallyNamedFilesOutsideOfRootsAreOrderedByContent() throws IOException {
+        assertEquals(
+                key("first", inputs("../a/library.jar", "content", "../b/library.jar", "other")),
+                key("second", inputs("../a/library.jar", "other", "../b/library.jar", "content"))
+        );
+    }
+
+    @Test
+    public void changedContentChangesKey() throws IOException {
+        assertNotEquals(
+                key("first", inputs("src/input.txt", "content")),
+                key("second", inputs("src/input.txt", "changed"))
+        );
+    }
+}
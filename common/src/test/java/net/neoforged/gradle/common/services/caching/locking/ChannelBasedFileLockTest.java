@@ -0,0 +1,169 @@
+package net.neoforged.gradle.common.services.caching.locking;
+
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChannelBasedFileLockTest {
+
+    @TempDir
+    public File tempDir;
+
+    private final CacheLogger logger = new CacheLogger(Logging.getLogger(ChannelBasedFileLockTest.class), "test", false, false);
+
+    @Test
+    public void deletedLockFileIsReplacedByNextOwner() throws Exception {
+        final File lockFile = new File(tempDir, "entry/lock");
+
+        try (ChannelBasedFileLock lock = ChannelBasedFileLock.tryLock(lockFile, logger)) {
+            assertNotNull(lock);
+            lock.delete();
+            assertFalse(lockFile.exists());
+        }
+
+        try (ChannelBasedFileLock lock = ChannelBasedFileLock.tryLock(lockFile, logger)) {
+            assertNotNull(lock);
+            assertTrue(lockFile.exists());
+            assertEquals(0, lockFile.length());
+        }
+    }
+
+    @Test
+    public void waiterOfDeletedLockFileLocksItsReplacement() throws Exception {
+        final File lockFile = new File(tempDir, "entry/lock");
+
+        final CompletableFuture<Long> waiter;
+        try (ChannelBasedFileLock lock = ChannelBasedFileLock.tryLock(lockFile, logger)) {
+            assertNotNull(lock);
+            waiter = CompletableFuture.supplyAsync(() -> {
+                try (ChannelBasedFileLock next = new ChannelBasedFileLock(lockFile, logger)) {
+                    return lockFile.length();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            lock.delete();
+            //The directory of the lock is removed together with the lock file.
+            assertTrue(lockFile.getParentFile().delete());
+        }
+
+        assertEquals(Long.valueOf(0), waiter.get(10, TimeUnit.SECONDS));
+        assertTrue(lockFile.exists());
+    }
+
+    @Test
+    public void threadsHoldTheLockExclusively() throws Exception {
+        final File lockFile = new File(tempDir, "lock");
+        final AtomicInteger holders = new AtomicInteger();
+        final AtomicInteger acquisitions = new AtomicInteger();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        try (ChannelBasedFileLock lock = new ChannelBasedFileLock(lockFile, logger)) {
+                            assertEquals(1, holders.incrementAndGet());
+                            acquisitions.incrementAndGet();
+                            Thread.yield();
+                            holders.decrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(8 * 50, acquisitions.get());
+    }
+
+    @Test
+    public void lockIsReentrantWithinAThread() throws Exception {
+        final File lockFile = new File(tempDir, "lock");
+
+        try (ChannelBasedFileLock outer = new ChannelBasedFileLock(lockFile, logger)) {
+            try (ChannelBasedFileLock inner = new ChannelBasedFileLock(lockFile, logger)) {
+                assertFalse(isLockableByOtherThread(lockFile));
+            }
+
+            assertFalse(isLockableByOtherThread(lockFile), "Closing the inner lock released the outer one");
+        }
+
+        assertTrue(isLockableByOtherThread(lockFile));
+    }
+
+    @Test
+    public void lockCanBeAcquiredAgainAfterRelease() throws Exception {
+        final File lockFile = new File(tempDir, "lock");
+
+        for (int i = 0; i < 100; i++) {
+            try (ChannelBasedFileLock lock = ChannelBasedFileLock.tryLock(lockFile, logger)) {
+                assertNotNull(lock);
+            }
+            assertTrue(isLockableByOtherThread(lockFile));
+        }
+    }
+
+    @Test
+    public void lockHeldOutsideOfThisClassIsAwaited() throws Exception {
+        final File lockFile = new File(tempDir, "lock");
+
+        //Locks the file for the whole process without going through this class, like a copy of it in another class loader.
+        final CompletableFuture<Void> waiter;
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock foreign = channel.lock()) {
+            assertNull(ChannelBasedFileLock.tryLock(lockFile, logger));
+
+            waiter = CompletableFuture.runAsync(() -> {
+                try (ChannelBasedFileLock lock = new ChannelBasedFileLock(lockFile, logger)) {
+                    assertTrue(lockFile.exists());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            Thread.sleep(100);
+            assertFalse(waiter.isDone());
+        }
+
+        waiter.get(10, TimeUnit.SECONDS);
+    }
+
+    private boolean isLockableByOtherThread(File lockFile) throws Exception {
+        return CompletableFuture.supplyAsync(() -> {
+            try (ChannelBasedFileLock lock = ChannelBasedFileLock.tryLock(lockFile, logger)) {
+                return lock != null;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }).get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,174 @@
+package net.neoforged.gradle.common.services.caching.remote;
+
+import net.neoforged.gradle.common.services.caching.cache.BlobStore;
+import net.neoforged.gradle.common.services.caching.cache.DirectoryCache;
+import net.neoforged.gradle.common.services.caching.cache.FileCache;
+import net.neoforged.gradle.common.services.caching.hasher.FileHashIndex;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HttpRemoteCacheBackendTest {
+
+    @TempDir
+    public File tempDir;
+
+    private InMemoryCacheServer server;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = new InMemoryCacheServer();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void storedEntryCanBeLoaded() throws IOException {
+        final HttpRemoteCacheBackend backend = new HttpRemoteCacheBackend(server.url(), null, null);
+        final File source = write(new File(tempDir, "source"), "content");
+
+        backend.store("abcdef", source);
+
+        final File target = new File(tempDir, "target");
+        assertTrue(backend.load("abcdef", target));
+        assertEquals("content", Files.readString(target.toPath()));
+    }
+
+    @Test
+    public void missingEntryIsNotLoaded() throws IOException {
+        final HttpRemoteCacheBackend backend = new HttpRemoteCacheBackend(server.url(), null, null);
+
+        final File target = new File(tempDir, "target");
+        assertFalse(backend.load("abcdef", target));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void serverErrorIsReported() {
+        final HttpRemoteCacheBackend backend = new HttpRemoteCacheBackend(server.url(), null, null);
+        server.forceStatus(500);
+
+        assertThrows(IOException.class, () -> backend.load("abcdef", new File(tempDir, "target")));
+        assertThrows(IOException.class, () -> backend.store("abcdef", write(new File(tempDir, "source"), "content")));
+        assertFalse(new File(tempDir, "target").exists());
+    }
+
+    @Test
+    public void credentialsAreSentAsBasicAuthentication() throws IOException {
+        final HttpRemoteCacheBackend backend = new HttpRemoteCacheBackend(server.url(), "user", "secret");
+
+        backend.load("abcdef", new File(tempDir, "target"));
+
+        final String expected = "Basic " + Base64.getEncoder().encodeToString("user:secret".getBytes(StandardCharsets.UTF_8));
+        assertEquals(expected, server.lastAuthorization());
+    }
+
+    @Test
+    public void directoryIsSharedBetweenLocalCaches() throws Exception {
+        final File output = new File(tempDir, "output");
+        write(new File(output, "a/b.txt"), "b");
+        write(new File(output, "c.txt"), "c");
+        new File(output, "empty").mkdirs();
+
+        //The first machine executes the stage and pushes its output
+        try (RemoteCache remote = remoteCache(new File(tempDir, "first"), true)) {
+            remote.store("entry", output, true);
+        }
+        assertEquals(1, server.entries().size());
+
+        //The second machine misses locally and loads the entry from the remote cache
+        final File secondCache = new File(tempDir, "second");
+        final DirectoryCache cache = new DirectoryCache(
+                new File(secondCache, "entry"),
+                new BlobStore(secondCache, Hashing.sha256()),
+                FileHashIndex.load(secondCache, Hashing.sha256())
+        );
+        try (RemoteCache remote = remoteCache(secondCache, false)) {
+            assertTrue(remote.fetch("entry", cache, true));
+            assertFalse(remote.fetch("missing", cache, true));
+        }
+
+        final File restored = new File(tempDir, "restored");
+        assertTrue(cache.restoreTo(restored));
+        assertEquals("b", Files.readString(new File(restored, "a/b.txt").toPath()));
+        assertEquals("c", Files.readString(new File(restored, "c.txt").toPath()));
+        assertTrue(new File(restored, "empty").isDirectory());
+    }
+
+    @Test
+    public void fileIsSharedBetweenLocalCaches() throws Exception {
+        final File output = write(new File(tempDir, "output.jar"), "jar");
+
+        try (RemoteCache remote = remoteCache(new File(tempDir, "first"), true)) {
+            remote.store("entry", output, false);
+        }
+
+        final File secondCache = new File(tempDir, "second");
+        final FileCache cache = new FileCache(new File(secondCache, "entry"), new BlobStore(secondCache, Hashing.sha256()));
+        try (RemoteCache remote = remoteCache(secondCache, false)) {
+            assertTrue(remote.fetch("entry", cache, false));
+        }
+
+        final File restored = new File(tempDir, "restored.jar");
+        assertTrue(cache.restoreTo(restored));
+        assertEquals("jar", Files.readString(restored.toPath()));
+    }
+
+    @Test
+    public void entriesAreOnlyPushedWhenEnabled() throws Exception {
+        final File output = write(new File(tempDir, "output.jar"), "jar");
+
+        try (RemoteCache remote = remoteCache(new File(tempDir, "cache"), false)) {
+            remote.store("entry", output, false);
+        }
+
+        assertEquals(0, server.requests());
+    }
+
+    @Test
+    public void unreachableRemoteCacheIsDisabled() throws Exception {
+        final File cacheDir = new File(tempDir, "cache");
+        final FileCache cache = new FileCache(new File(cacheDir, "entry"), new BlobStore(cacheDir, Hashing.sha256()));
+        server.forceStatus(500);
+
+        try (RemoteCache remote = remoteCache(cacheDir, true)) {
+            assertFalse(remote.fetch("entry", cache, false));
+            assertFalse(remote.fetch("entry", cache, false));
+        }
+
+        assertEquals(1, server.requests());
+    }
+
+    private RemoteCache remoteCache(File cacheDir, boolean push) {
+        return new RemoteCache(
+                new HttpRemoteCacheBackend(server.url(), null, null),
+                push,
+                cacheDir,
+                new CacheLogger(Logging.getLogger(HttpRemoteCacheBackendTest.class), "test", false, false)
+        );
+    }
+
+    private static File write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+}
@@ -0,0 +1,97 @@
+package net.neoforged.gradle.common.services.caching.remote;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An embedded HTTP cache server which keeps its entries in memory, speaking the same protocol as {@link HttpRemoteCacheBackend}.
+ */
+public final class InMemoryCacheServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Map<String, byte[]> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int forcedStatus = 0;
+    private volatile String lastAuthorization;
+
+    public InMemoryCacheServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/cache/", this::handle);
+        this.server.start();
+    }
+
+    public URI url() {
+        return URI.create("http://%s:%d/cache/".formatted(server.getAddress().getHostString(), server.getAddress().getPort()));
+    }
+
+    public Map<String, byte[]> entries() {
+        return entries;
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    public String lastAuthorization() {
+        return lastAuthorization;
+    }
+
+    /**
+     * Answers every following request with the given status, or handles them normally when zero.
+     *
+     * @param status The status to answer with.
+     */
+    public void forceStatus(int status) {
+        this.forcedStatus = status;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+
+        try (exchange) {
+            final String key = exchange.getRequestURI().getPath().substring("/cache/".length());
+            if (forcedStatus != 0) {
+                exchange.sendResponseHeaders(forcedStatus, -1);
+                return;
+            }
+
+            switch (exchange.getRequestMethod()) {
+                case "GET" -> {
+                    final byte[] entry = entries.get(key);
+                    if (entry == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+
+                    exchange.sendResponseHeaders(200, entry.length);
+                    try (OutputStream stream = exchange.getResponseBody()) {
+                        stream.write(entry);
+                    }
+                }
+                case "PUT" -> {
+                    try (InputStream stream = exchange.getRequestBody()) {
+                        entries.put(key, stream.readAllBytes());
+                    }
+                    exchange.sendResponseHeaders(201, -1);
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,107 @@
+package net.neoforged.gradle.common.services.caching.report;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class CacheReportTest {
+
+    @TempDir
+    File tempDir;
+
+    private JsonObject write(CacheReport report) throws IOException {
+        final File file = new File(tempDir, "reports/cache.json");
+        report.write(file);
+        return JsonParser.parseString(Files.readString(file.toPath())).getAsJsonObject();
+    }
+
+    @Test
+    public void reportContainsTasksStagesAndSummary() throws IOException {
+        final CacheReport report = new CacheReport(new InputFingerprints(tempDir, tempDir));
+        final HashCode hash = Hashing.sha1().hashString("task");
+
+        final CacheReport.Task task = report.task(":generate");
+        task.onHashed(hash, 5);
+        task.onInputsChanged(List.of(new InputFingerprints.Change("input", InputFingerprints.ChangeType.CHANGED)));
+        final CacheReport.Stage decompile = task.stage("decompile");
+        decompile.onLocked(2);
+        decompile.onResult(CacheReport.Result.HIT);
+        decompile.onRestored(3, 100);
+        final CacheReport.Stage recompile = task.stage("recompile");
+        recompile.onResult(CacheReport.Result.MISS);
+        recompile.onExecuted(40, 200);
+
+        final JsonObject json = write(report);
+
+        assertEquals(1, json.get("version").getAsInt());
+
+        final JsonObject summary = json.getAsJsonObject("summary");
+        assertEquals(1, summary.get("tasks").getAsInt());
+        assertEquals(1, summary.get("stageHits").getAsInt());
+        assertEquals(1, summary.get("stageMisses").getAsInt());
+        assertEquals(5, summary.get("hashingMillis").getAsLong());
+        assertEquals(2, summary.get("lockWaitMillis").getAsLong());
+        assertEquals(100, summary.get("bytesRestored").getAsLong());
+        assertEquals(200, summary.get("bytesStored").getAsLong());
+        assertEquals(40, summary.get("executionMillis").getAsLong());
+
+        final JsonObject taskJson = json.getAsJsonArray("tasks").get(0).getAsJsonObject();
+        assertEquals(":generate", taskJson.get("path").getAsString());
+        assertEquals(hash.toString(), taskJson.get("hash").getAsString());
+
+        final JsonObject change = taskJson.getAsJsonArray("changedInputs").get(0).getAsJsonObject();
+        assertEquals("input", change.get("input").getAsString());
+        assertEquals("CHANGED", change.get("change").getAsString());
+
+        final JsonArray stages = taskJson.getAsJsonArray("stages");
+        assertEquals(2, stages.size());
+        final JsonObject decompileJson = stages.get(0).getAsJsonObject();
+        assertEquals("decompile", decompileJson.get("name").getAsString());
+        assertEquals("HIT", decompileJson.get("result").getAsString());
+        assertEquals(3, decompileJson.get("restoreMillis").getAsLong());
+        assertEquals(100, decompileJson.get("bytesRestored").getAsLong());
+        final JsonObject recompileJson = stages.get(1).getAsJsonObject();
+        assertEquals("recompile", recompileJson.get("name").getAsString());
+        assertEquals("MISS", recompileJson.get("result").getAsString());
+        assertEquals(200, recompileJson.get("bytesStored").getAsLong());
+    }
+
+    @Test
+    public void bypassedStagesAreNeitherHitsNorMisses() throws IOException {
+        final CacheReport report = new CacheReport(new InputFingerprints(tempDir, tempDir));
+        final CacheReport.Task task = report.task(":generate");
+        task.stage("decompile").onResult(CacheReport.Result.BYPASSED);
+
+        final JsonObject json = write(report);
+
+        final JsonObject summary = json.getAsJsonObject("summary");
+        assertEquals(0, summary.get("stageHits").getAsInt());
+        assertEquals(0, summary.get("stageMisses").getAsInt());
+        assertFalse(json.getAsJsonArray("tasks").get(0).getAsJsonObject().has("changedInputs"));
+    }
+
+    @Test
+    public void sameStageIsReportedOnce() throws IOException {
+        final CacheReport report = new CacheReport(new InputFingerprints(tempDir, tempDir));
+        final CacheReport.Task task = report.task(":generate");
+        task.stage("decompile").onExecuted(10, 1);
+        task.stage("decompile").onExecuted(20, 2);
+
+        final JsonObject stage = write(report).getAsJsonArray("tasks").get(0).getAsJsonObject().getAsJsonArray("stages").get(0).getAsJsonObject();
+
+        assertEquals(30, stage.get("executionMillis").getAsLong());
+        assertEquals(3, stage.get("bytesStored").getAsLong());
+    }
+}
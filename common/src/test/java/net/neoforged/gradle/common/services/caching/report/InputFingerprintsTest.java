@@ -0,0 +1,72 @@
+package net.neoforged.gradle.common.services.caching.report;
+
+import net.neoforged.gradle.common.util.hash.HashCode;
+import net.neoforged.gradle.common.util.hash.Hashing;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class InputFingerprintsTest {
+
+    @TempDir
+    File tempDir;
+
+    private static HashCode hash(String content) {
+        return Hashing.sha1().hashString(content);
+    }
+
+    private InputFingerprints fingerprints(String rootProject) {
+        return new InputFingerprints(new File(tempDir, "cache"), new File(tempDir, rootProject));
+    }
+
+    @Test
+    public void firstExecutionHasNoChanges() {
+        assertNull(fingerprints("project").update(":generate", Map.of("input", hash("content"))));
+    }
+
+    @Test
+    public void unchangedInputsHaveNoChanges() {
+        final InputFingerprints fingerprints = fingerprints("project");
+        fingerprints.update(":generate", Map.of("input", hash("content")));
+
+        assertEquals(List.of(), fingerprints.update(":generate", Map.of("input", hash("content"))));
+    }
+
+    @Test
+    public void addedRemovedAndChangedInputsAreDetected() {
+        final InputFingerprints fingerprints = fingerprints("project");
+        fingerprints.update(":generate", Map.of("changed", hash("before"), "removed", hash("removed"), "unchanged", hash("same")));
+
+        final List<InputFingerprints.Change> changes = fingerprints.update(":generate", Map.of("added", hash("added"), "changed", hash("after"), "unchanged", hash("same")));
+
+        assertEquals(List.of(
+                new InputFingerprints.Change("added", InputFingerprints.ChangeType.ADDED),
+                new InputFingerprints.Change("changed", InputFingerprints.ChangeType.CHANGED),
+                new InputFingerprints.Change("removed", InputFingerprints.ChangeType.REMOVED)
+        ), changes);
+    }
+
+    @Test
+    public void fingerprintsAreRememberedAcrossBuilds() {
+        fingerprints("project").update(":generate", Map.of("input", hash("before")));
+
+        assertEquals(
+                List.of(new InputFingerprints.Change("input", InputFingerprints.ChangeType.CHANGED)),
+                fingerprints("project").update(":generate", Map.of("input", hash("after")))
+        );
+    }
+
+    @Test
+    public void equallyNamedTasksOfDifferentRootProjectsAreSeparated() {
+        fingerprints("first").update(":generate", Map.of("input", hash("first")));
+
+        assertNull(fingerprints("second").update(":generate", Map.of("input", hash("second"))));
+        assertEquals(List.of(), fingerprints("first").update(":generate", Map.of("input", hash("first"))));
+    }
+}
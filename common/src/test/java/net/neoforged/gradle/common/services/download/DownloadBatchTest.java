@@ -0,0 +1,143 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.util.HashFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DownloadBatchTest {
+
+    @TempDir
+    File tempDir;
+
+    private StubFileServer server;
+    private HttpDownloader downloader;
+    private ExecutorService executor;
+    private VerifiedFiles verifiedFiles;
+    private DownloadBatch batch;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new StubFileServer();
+        downloader = new HttpDownloader(Duration.ofSeconds(5), Duration.ofSeconds(5), 2, Duration.ofMillis(10));
+        executor = Executors.newFixedThreadPool(4);
+        verifiedFiles = VerifiedFiles.load(tempDir, false);
+        batch = new DownloadBatch(downloader, verifiedFiles, List.of(), executor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        downloader.close();
+        server.close();
+    }
+
+    private FileDownload serve(String name) {
+        final byte[] content = ("content of " + name).getBytes(StandardCharsets.UTF_8);
+        server.put(name, content);
+        return new FileDownload(server.url(name).toString(), HashFunction.SHA1.hash(content), new File(tempDir, name));
+    }
+
+    /**
+     * A source which contains the files of the given directory, under the names of the outputs.
+     */
+    private LocalFileSource source(String directory) {
+        return new LocalFileSource(verifiedFiles) {
+            @Override
+            public File find(File output, String sha1) throws IOException {
+                final File candidate = new File(new File(tempDir, directory), output.getName());
+                return verifiedFiles.isVerified(candidate, sha1) ? candidate : null;
+            }
+        };
+    }
+
+    @Test
+    public void downloadsAllFiles() throws IOException {
+        final List<FileDownload> downloads = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            downloads.add(serve("file" + i));
+        }
+        final AtomicInteger completed = new AtomicInteger();
+
+        batch.download(downloads, false, download -> completed.incrementAndGet());
+
+        assertEquals(50, completed.get());
+        assertEquals(50, server.requests().size());
+        for (FileDownload download : downloads) {
+            assertEquals(download.sha1(), HashFunction.SHA1.hash(download.output()));
+        }
+    }
+
+    @Test
+    public void skipsFilesWhichAlreadyExist() throws IOException {
+        final FileDownload download = serve("existing");
+        Files.writeString(download.output().toPath(), "content of existing");
+        final AtomicInteger completed = new AtomicInteger();
+
+        batch.download(List.of(download), false, ignored -> completed.incrementAndGet());
+
+        assertEquals(1, completed.get());
+        assertTrue(server.requests().isEmpty());
+    }
+
+    @Test
+    public void replacesExistingFilesWithTheWrongHash() throws IOException {
+        final FileDownload download = serve("corrupt");
+        Files.writeString(download.output().toPath(), "corrupted");
+
+        batch.download(List.of(download), false, ignored -> {});
+
+        assertEquals("content of corrupt", Files.readString(download.output().toPath()));
+        assertEquals(1, server.requestCount("corrupt"));
+    }
+
+    @Test
+    public void rejectsDownloadsWithTheWrongHash() {
+        final FileDownload served = serve("mismatch");
+        final FileDownload download = new FileDownload(served.url(), HashFunction.SHA1.hash("something else"), served.output());
+
+        assertThrows(IOException.class, () -> batch.download(List.of(download), false, ignored -> {}));
+        assertFalse(download.output().exists());
+    }
+
+    @Test
+    public void failsOfflineForMissingFiles() {
+        final FileDownload download = serve("offline");
+
+        assertThrows(IllegalStateException.class, () -> batch.download(List.of(download), true, ignored -> {}));
+        assertTrue(server.requests().isEmpty());
+    }
+
+    @Test
+    public void filesOfTheFirstMatchingSourceAreNotDownloaded() throws IOException {
+        final FileDownload download = serve("local");
+        Files.createDirectories(new File(tempDir, "stale").toPath());
+        Files.writeString(new File(tempDir, "stale/local").toPath(), "stale content");
+        Files.createDirectories(new File(tempDir, "installation").toPath());
+        Files.writeString(new File(tempDir, "installation/local").toPath(), "content of local");
+        final DownloadBatch batch = new DownloadBatch(downloader, verifiedFiles, List.of(source("missing"), source("stale"), source("installation")), executor);
+
+        batch.download(List.of(download), true, ignored -> {});
+
+        assertTrue(server.requests().isEmpty());
+        assertEquals("content of local", Files.readString(download.output().toPath()));
+        assertTrue(verifiedFiles.isVerified(download.output(), download.sha1()));
+    }
+}
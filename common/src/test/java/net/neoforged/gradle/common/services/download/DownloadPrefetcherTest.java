@@ -0,0 +1,115 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.util.HashFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DownloadPrefetcherTest {
+
+    @TempDir
+    File tempDir;
+
+    private StubFileServer server;
+    private HttpDownloader downloader;
+    private ExecutorService executor;
+    private DownloadPrefetcher prefetcher;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new StubFileServer();
+        downloader = new HttpDownloader(Duration.ofSeconds(5), Duration.ofSeconds(5), 2, Duration.ofMillis(10));
+        executor = Executors.newFixedThreadPool(2);
+        prefetcher = new DownloadPrefetcher(new DownloadBatch(downloader, VerifiedFiles.load(tempDir, false), List.of(), executor), executor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        downloader.close();
+        server.close();
+    }
+
+    private FileDownload serve(String name) {
+        final byte[] content = ("content of " + name).getBytes(StandardCharsets.UTF_8);
+        server.put(name, content);
+        return new FileDownload(server.url(name).toString(), HashFunction.SHA1.hash(content), new File(tempDir, name));
+    }
+
+    @Test
+    public void prefetchedFileIsAvailable() throws IOException {
+        final FileDownload download = serve("client.jar");
+
+        final File file = DownloadPrefetcher.join(prefetcher.prefetch(download));
+
+        assertEquals(download.output(), file);
+        assertEquals(download.sha1(), HashFunction.SHA1.hash(file));
+        assertEquals(download.output(), prefetcher.await(download.sha1().toUpperCase()));
+    }
+
+    @Test
+    public void sameContentIsOnlyDownloadedOnce() throws IOException {
+        final FileDownload download = serve("client.jar");
+
+        final CompletableFuture<File> first = prefetcher.prefetch(download);
+        final CompletableFuture<File> second = prefetcher.prefetch(new FileDownload(download.url(), download.sha1(), new File(tempDir, "other.jar")));
+        DownloadPrefetcher.join(second);
+
+        assertSame(first, second);
+        assertEquals(1, server.requestCount("client.jar"));
+    }
+
+    @Test
+    public void manyFilesAreFetchedConcurrently() throws IOException {
+        final CompletableFuture<?>[] downloads = new CompletableFuture<?>[10];
+        for (int i = 0; i < downloads.length; i++) {
+            downloads[i] = prefetcher.prefetch(serve("file" + i));
+        }
+
+        CompletableFuture.allOf(downloads).join();
+
+        assertEquals(10, server.requests().size());
+    }
+
+    @Test
+    public void contentWhichWasNotPrefetchedIsNotAwaited() {
+        assertNull(prefetcher.await(HashFunction.SHA1.hash("missing".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void failedPrefetchIsReportedToJoinButNotToAwait() {
+        final FileDownload download = new FileDownload(server.url("missing.jar").toString(), "0000000000000000000000000000000000000000", new File(tempDir, "missing.jar"));
+
+        final CompletableFuture<File> future = prefetcher.prefetch(download);
+
+        assertThrows(IOException.class, () -> DownloadPrefetcher.join(future));
+        assertNull(prefetcher.await(download.sha1()));
+    }
+
+    @Test
+    public void failedPrefetchIsStartedAgain() throws IOException {
+        final byte[] content = "content of client.jar".getBytes(StandardCharsets.UTF_8);
+        final FileDownload download = new FileDownload(server.url("client.jar").toString(), HashFunction.SHA1.hash(content), new File(tempDir, "client.jar"));
+        assertThrows(IOException.class, () -> DownloadPrefetcher.join(prefetcher.prefetch(download)));
+
+        server.put("client.jar", content);
+        final File file = DownloadPrefetcher.join(prefetcher.prefetch(download));
+
+        assertEquals(download.sha1(), HashFunction.SHA1.hash(file));
+    }
+}
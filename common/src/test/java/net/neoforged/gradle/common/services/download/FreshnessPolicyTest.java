@@ -0,0 +1,106 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.common.util.FileDownloadingUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FreshnessPolicyTest {
+
+    private static final byte[] MANIFEST = "{\"versions\":[]}".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    File tempDir;
+
+    private StubFileServer server;
+    private File target;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new StubFileServer();
+        server.put("manifest.json", MANIFEST);
+        target = new File(tempDir, "manifest.json");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    private boolean download(FreshnessPolicy freshness) throws IOException {
+        final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(server.url("manifest.json").toString(), null, "json", null, null);
+        return FileDownloadingUtils.downloadTo(false, info, target, null, freshness);
+    }
+
+    @Test
+    public void freshFileIsUsedWithoutRequest() throws IOException {
+        final FreshnessPolicy freshness = FreshnessPolicy.ofSeconds(3600);
+
+        assertTrue(download(freshness));
+        assertFalse(download(freshness));
+        assertFalse(download(freshness));
+
+        assertEquals(1, server.requestCount("manifest.json"));
+        assertArrayEquals(MANIFEST, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void alwaysRevalidatesAndWritesNoSidecar() throws IOException {
+        assertTrue(download(FreshnessPolicy.ALWAYS));
+        assertFalse(download(FreshnessPolicy.ALWAYS));
+
+        assertEquals(2, server.requestCount("manifest.json"));
+        assertFalse(FreshnessPolicy.sidecarOf(target).exists());
+    }
+
+    @Test
+    public void expiredFileIsRevalidated() throws IOException, InterruptedException {
+        final FreshnessPolicy freshness = new FreshnessPolicy(Duration.ofMillis(1));
+
+        assertTrue(download(freshness));
+        Thread.sleep(20);
+        assertFalse(download(freshness));
+
+        assertEquals(2, server.requestCount("manifest.json"));
+    }
+
+    @Test
+    public void immutableFileIsOnlyCheckedOnce() throws IOException {
+        //A file cached before freshness was tracked has no sidecar and is checked once.
+        Files.write(target.toPath(), MANIFEST);
+        Files.setLastModifiedTime(target.toPath(), FileTime.fromMillis(0));
+        assertTrue(download(FreshnessPolicy.IMMUTABLE));
+        assertFalse(download(FreshnessPolicy.IMMUTABLE));
+        assertFalse(download(FreshnessPolicy.IMMUTABLE));
+
+        assertEquals(1, server.requestCount("manifest.json"));
+    }
+
+    @Test
+    public void modifiedFileIsRevalidated() throws IOException {
+        assertTrue(download(FreshnessPolicy.IMMUTABLE));
+
+        Files.write(target.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(target.toPath(), FileTime.fromMillis(0));
+        assertTrue(download(FreshnessPolicy.IMMUTABLE));
+
+        assertEquals(2, server.requestCount("manifest.json"));
+        assertArrayEquals(MANIFEST, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void negativeTimeToLiveIsImmutable() {
+        assertSame(FreshnessPolicy.IMMUTABLE, FreshnessPolicy.ofSeconds(-1));
+        assertSame(FreshnessPolicy.ALWAYS, FreshnessPolicy.ofSeconds(0));
+    }
+}
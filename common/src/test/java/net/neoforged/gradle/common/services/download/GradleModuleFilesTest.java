@@ -0,0 +1,123 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.util.HashFunction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GradleModuleFilesTest {
+
+    @TempDir
+    File tempDir;
+
+    private File modules;
+    private File libraries;
+    private GradleModuleFiles moduleFiles;
+
+    @BeforeEach
+    public void setUp() {
+        modules = new File(tempDir, "caches/modules-2/files-2.1");
+        libraries = new File(tempDir, "caches/minecraft/libraries");
+        moduleFiles = GradleModuleFiles.create(modules, libraries, VerifiedFiles.load(new File(tempDir, "index"), false));
+    }
+
+    /**
+     * Stores the given content in the module cache, in the directory which Gradle uses for an artifact with the given hash.
+     */
+    private File module(String coordinates, String hashDirectory, String fileName, byte[] content) throws IOException {
+        final File file = new File(modules, coordinates.replace(':', '/') + "/" + hashDirectory + "/" + fileName);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static byte[] content(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds content whose hash has a leading zero, which Gradle drops from the name of its directory.
+     */
+    private static byte[] contentWithLeadingZero() {
+        for (int attempt = 0; ; attempt++) {
+            final byte[] content = content("library " + attempt);
+            if (HashFunction.SHA1.hash(content).charAt(0) == '0') {
+                return content;
+            }
+        }
+    }
+
+    @Test
+    public void groupOfNestedDirectoriesIsJoinedWithDots() throws IOException {
+        final byte[] content = content("library");
+        final String hash = HashFunction.SHA1.hash(content);
+        final File expected = module("com.example.group:library:1.0", hash, "library-1.0.jar", content);
+
+        assertEquals(expected, moduleFiles.find(new File(libraries, "com/example/group/library/1.0/library-1.0.jar"), hash));
+    }
+
+    @Test
+    public void directoryWithoutLeadingZeroesIsFound() throws IOException {
+        final byte[] content = contentWithLeadingZero();
+        final String hash = HashFunction.SHA1.hash(content);
+        final File expected = module("com.example:library:1.0", hash.replaceFirst("^0+", ""), "library-1.0.jar", content);
+
+        assertEquals(expected, moduleFiles.find(new File(libraries, "com/example/library/1.0/library-1.0.jar"), hash));
+    }
+
+    @Test
+    public void directoryWithLeadingZeroesIsFound() throws IOException {
+        final byte[] content = contentWithLeadingZero();
+        final String hash = HashFunction.SHA1.hash(content);
+        final File expected = module("com.example:library:1.0", hash, "library-1.0.jar", content);
+
+        assertEquals(expected, moduleFiles.find(new File(libraries, "com/example/library/1.0/library-1.0.jar"), hash));
+    }
+
+    @Test
+    public void classifiedArtifactIsFoundNextToTheMainArtifact() throws IOException {
+        final byte[] main = content("library");
+        final byte[] natives = content("natives");
+        final String nativesHash = HashFunction.SHA1.hash(natives);
+        module("com.example:library:1.0", HashFunction.SHA1.hash(main), "library-1.0.jar", main);
+        final File expected = module("com.example:library:1.0", nativesHash, "library-1.0-natives-linux.jar", natives);
+
+        assertEquals(expected, moduleFiles.find(new File(libraries, "com/example/library/1.0/library-1.0-natives-linux.jar"), nativesHash));
+    }
+
+    @Test
+    public void artifactOfOtherCoordinatesIsNotUsed() throws IOException {
+        final byte[] content = content("library");
+        final String hash = HashFunction.SHA1.hash(content);
+        module("com.example:library:1.0", hash, "library-1.0.jar", content);
+
+        assertNull(moduleFiles.find(new File(libraries, "com/example/library/2.0/library-1.0.jar"), hash));
+        assertNull(moduleFiles.find(new File(libraries, "com/example/other/1.0/library-1.0.jar"), hash));
+        assertNull(moduleFiles.find(new File(libraries, "org/example/library/1.0/library-1.0.jar"), hash));
+    }
+
+    @Test
+    public void directoryNameIsNotTrustedAsHash() throws IOException {
+        final String hash = HashFunction.SHA1.hash(content("library"));
+        module("com.example:library:1.0", hash, "library-1.0.jar", content("tampered"));
+
+        assertNull(moduleFiles.find(new File(libraries, "com/example/library/1.0/library-1.0.jar"), hash));
+    }
+
+    @Test
+    public void pathsWithoutCoordinatesAreNotLocated() throws IOException {
+        final byte[] content = content("library");
+        final String hash = HashFunction.SHA1.hash(content);
+        module("com.example:library:1.0", hash, "library-1.0.jar", content);
+
+        assertNull(moduleFiles.find(new File(libraries, "library/1.0/library-1.0.jar"), hash));
+        assertNull(moduleFiles.find(new File(tempDir, "com/example/library/1.0/library-1.0.jar"), hash));
+    }
+}
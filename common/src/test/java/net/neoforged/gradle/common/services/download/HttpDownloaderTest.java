@@ -0,0 +1,290 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.util.HashFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HttpDownloaderTest {
+
+    @TempDir
+    File tempDir;
+
+    private StubFileServer server;
+    private HttpDownloader downloader;
+    private byte[] content;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new StubFileServer();
+        downloader = new HttpDownloader(Duration.ofSeconds(5), Duration.ofMillis(500), 3, Duration.ofMillis(10));
+
+        content = new byte[200 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        server.put("file.bin", content);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        downloader.close();
+        server.close();
+    }
+
+    @Test
+    public void downloadsWithASingleRequest() throws IOException {
+        final File target = new File(tempDir, "nested/file.bin");
+        final AtomicLong size = new AtomicLong();
+        final AtomicLong received = new AtomicLong();
+
+        downloader.download(server.url("file.bin"), target, new HttpDownloader.Listener() {
+            @Override
+            public void started(long total, long resumedFrom) {
+                size.set(total);
+            }
+
+            @Override
+            public void progress(long bytes) {
+                received.addAndGet(bytes);
+            }
+        });
+
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertEquals(List.of("GET /file.bin"), server.requests());
+        assertEquals(content.length, size.get());
+        assertEquals(content.length, received.get());
+        assertFalse(new File(tempDir, "nested/file.bin.part").exists());
+    }
+
+    @Test
+    public void resumesAPartialDownload() throws IOException {
+        final File target = new File(tempDir, "file.bin");
+        Files.write(new File(tempDir, "file.bin.part").toPath(), Arrays.copyOf(content, 1000));
+
+        downloader.download(server.url("file.bin"), target, null);
+
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertEquals(List.of("bytes=1000-"), server.ranges());
+    }
+
+    @Test
+    public void restartsWhenTheServerIgnoresTheRange() throws IOException {
+        final File target = new File(tempDir, "file.bin");
+        Files.write(new File(tempDir, "file.bin.part").toPath(), "garbage".getBytes(StandardCharsets.UTF_8));
+        server.supportsRanges(false);
+
+        downloader.download(server.url("file.bin"), target, null);
+
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertEquals(1, server.requestCount("file.bin"));
+    }
+
+    @Test
+    public void retriesServerErrors() throws IOException {
+        final File target = new File(tempDir, "file.bin");
+        server.fail("file.bin", new StubFileServer.Fault.Status(503));
+        server.fail("file.bin", new StubFileServer.Fault.Status(429));
+
+        downloader.download(server.url("file.bin"), target, null);
+
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertEquals(3, server.requestCount("file.bin"));
+    }
+
+    @Test
+    public void doesNotRetryMissingFiles() {
+        final File target = new File(tempDir, "missing.bin");
+
+        final HttpDownloader.HttpStatusException exception = assertThrows(HttpDownloader.HttpStatusException.class,
+                () -> downloader.download(server.url("missing.bin"), target, null));
+
+        assertEquals(404, exception.status());
+        assertEquals(1, server.requestCount("missing.bin"));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void givesUpAfterTheMaximumAttempts() {
+        final File target = new File(tempDir, "file.bin");
+        for (int i = 0; i < 3; i++) {
+            server.fail("file.bin", new StubFileServer.Fault.Status(500));
+        }
+
+        assertThrows(IOException.class, () -> downloader.download(server.url("file.bin"), target, null));
+        assertEquals(3, server.requestCount("file.bin"));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void returnsTheHashOfTheDownload() throws IOException {
+        final File target = new File(tempDir, "file.bin");
+
+        final String hash = downloader.download(server.url("file.bin"), target, HashFunction.SHA1.hash(content), null);
+
+        assertEquals(HashFunction.SHA1.hash(content), hash);
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void rejectsAMismatchingDownloadWithoutTouchingTheTarget() throws IOException {
+        final File target = new File(tempDir, "file.bin");
+        Files.writeString(target.toPath(), "previous");
+
+        assertThrows(HttpDownloader.HashMismatchException.class,
+                () -> downloader.download(server.url("file.bin"), target, HashFunction.SHA1.hash("something else"), null));
+
+        assertEquals("previous", Files.readString(target.toPath()));
+        assertFalse(new File(tempDir, "file.bin.part").exists());
+        assertEquals(1, server.requestCount("file.bin"));
+    }
+
+    @Test
+    public void restartsWhenAResumedDownloadDoesNotMatch() throws IOException {
+        final File target = new File(tempDir, "file.bin");
+        Files.write(new File(tempDir, "file.bin.part").toPath(), new byte[1000]);
+
+        final String hash = downloader.download(server.url("file.bin"), target, HashFunction.SHA1.hash(content), null);
+
+        assertEquals(HashFunction.SHA1.hash(content), hash);
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertEquals(List.of("bytes=1000-"), server.ranges());
+        assertEquals(2, server.requestCount("file.bin"));
+    }
+
+    @Test
+    public void resumesAfterAStalledResponse() throws IOException {
+        final File target = new File(tempDir, "file.bin");
+        server.fail("file.bin", new StubFileServer.Fault.Stall(4096));
+
+        final String hash = downloader.download(server.url("file.bin"), target, HashFunction.SHA1.hash(content), null);
+
+        assertEquals(HashFunction.SHA1.hash(content), hash);
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertEquals(2, server.requestCount("file.bin"));
+        assertEquals(List.of("bytes=4096-"), server.ranges());
+    }
+
+    @Test
+    public void resumesWithTheValidatorOfTheInterruptedResponse() throws IOException {
+        final File target = new File(tempDir, "file.bin");
+        server.fail("file.bin", new StubFileServer.Fault.Stall(4096));
+
+        downloader.download(server.url("file.bin"), target, HashFunction.SHA1.hash(content), null);
+
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertEquals(List.of(server.etag("file.bin")), server.ifRanges());
+        assertEquals(List.of("file.bin"), Arrays.asList(tempDir.list()));
+    }
+
+    @Test
+    public void restartsWhenTheFileChangedSinceThePartialDownload() throws Exception {
+        final File target = new File(tempDir, "file.bin");
+        final String staleTag = server.etag("file.bin");
+        server.fail("file.bin", new StubFileServer.Fault.Stall(4096));
+        try (HttpDownloader singleAttempt = new HttpDownloader(Duration.ofSeconds(5), Duration.ofMillis(500), 1, Duration.ofMillis(10))) {
+            assertThrows(IOException.class, () -> singleAttempt.download(server.url("file.bin"), target, null));
+        }
+
+        final byte[] changed = Arrays.copyOf(content, content.length + 1);
+        server.put("file.bin", changed);
+        final String hash = downloader.download(server.url("file.bin"), target, HashFunction.SHA1.hash(changed), null);
+
+        assertEquals(HashFunction.SHA1.hash(changed), hash);
+        assertArrayEquals(changed, Files.readAllBytes(target.toPath()));
+        assertEquals(List.of(staleTag), server.ifRanges());
+        assertEquals(2, server.requestCount("file.bin"));
+    }
+
+    @Test
+    public void concurrentDownloadsOfTheSameFileDoNotShareThePartialFile() throws Exception {
+        final File target = new File(tempDir, "file.bin");
+
+        final List<CompletableFuture<String>> downloads = List.of(
+                CompletableFuture.supplyAsync(() -> download(target)),
+                CompletableFuture.supplyAsync(() -> download(target)),
+                CompletableFuture.supplyAsync(() -> download(target))
+        );
+
+        for (CompletableFuture<String> download : downloads) {
+            assertEquals(HashFunction.SHA1.hash(content), download.get(30, TimeUnit.SECONDS));
+        }
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertEquals(List.of("GET /file.bin"), server.requests());
+    }
+
+    @Test
+    public void matchingTargetIsNotDownloadedAgain() throws IOException {
+        final File target = new File(tempDir, "file.bin");
+        Files.write(target.toPath(), content);
+
+        assertEquals(HashFunction.SHA1.hash(content), download(target));
+
+        assertTrue(server.requests().isEmpty());
+        assertFalse(new File(tempDir, "file.bin.lock").exists());
+    }
+
+    @Test
+    public void waitsForADownloadOfAnotherProcess() throws Exception {
+        final File target = new File(tempDir, "file.bin");
+
+        //Locks the download for the whole process without going through the downloader, like another build would.
+        final CompletableFuture<String> waiter;
+        try (FileChannel channel = FileChannel.open(new File(tempDir, "file.bin.lock").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock foreign = channel.lock()) {
+            waiter = CompletableFuture.supplyAsync(() -> download(target));
+
+            Thread.sleep(200);
+            assertFalse(waiter.isDone());
+            assertTrue(server.requests().isEmpty());
+        }
+
+        assertEquals(HashFunction.SHA1.hash(content), waiter.get(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void downloadCompletedByAnotherProcessIsNotRepeated() throws Exception {
+        final File target = new File(tempDir, "file.bin");
+
+        final CompletableFuture<String> waiter;
+        try (FileChannel channel = FileChannel.open(new File(tempDir, "file.bin.lock").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock foreign = channel.lock()) {
+            waiter = CompletableFuture.supplyAsync(() -> download(target));
+
+            Thread.sleep(200);
+            Files.write(target.toPath(), content);
+        }
+
+        assertEquals(HashFunction.SHA1.hash(content), waiter.get(30, TimeUnit.SECONDS));
+        assertTrue(server.requests().isEmpty());
+    }
+
+    private String download(File target) {
+        try {
+            return downloader.download(server.url("file.bin"), target, HashFunction.SHA1.hash(content), null);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
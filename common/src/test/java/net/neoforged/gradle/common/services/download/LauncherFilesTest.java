@@ -0,0 +1,104 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.util.HashFunction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LauncherFilesTest {
+
+    private static final byte[] ASSET = "asset".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LIBRARY = "library".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    File tempDir;
+
+    private File installation;
+    private File assets;
+    private File libraries;
+    private VerifiedFiles verifiedFiles;
+    private LauncherFiles launcherFiles;
+    private String assetHash;
+    private String libraryHash;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        installation = new File(tempDir, ".minecraft");
+        assets = new File(tempDir, "caches/minecraft/assets");
+        libraries = new File(tempDir, "caches/minecraft/libraries");
+
+        assetHash = HashFunction.SHA1.hash(ASSET);
+        libraryHash = HashFunction.SHA1.hash(LIBRARY);
+        write(new File(installation, "assets/objects/" + assetHash.substring(0, 2) + "/" + assetHash), ASSET);
+        write(new File(installation, "libraries/org/example/library/1.0/library-1.0.jar"), LIBRARY);
+
+        verifiedFiles = VerifiedFiles.load(new File(tempDir, "index"), false);
+        launcherFiles = LauncherFiles.create(List.of(new File(tempDir, "missing"), installation), assets, libraries, verifiedFiles);
+    }
+
+    private static void write(File file, byte[] content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content);
+    }
+
+    private File asset(String hash) {
+        return new File(assets, "objects/" + hash.substring(0, 2) + "/" + hash);
+    }
+
+    @Test
+    public void onlyExistingInstallationsAreUsed() {
+        assertEquals(List.of(installation.getAbsoluteFile()), launcherFiles.getInstallations());
+    }
+
+    @Test
+    public void assetIsTakenFromInstallation() throws IOException {
+        final File output = asset(assetHash);
+
+        assertTrue(launcherFiles.materialize(output, assetHash));
+
+        assertArrayEquals(ASSET, Files.readAllBytes(output.toPath()));
+        assertTrue(verifiedFiles.isVerified(output, assetHash));
+    }
+
+    @Test
+    public void libraryIsTakenFromInstallation() throws IOException {
+        final File output = new File(libraries, "org/example/library/1.0/library-1.0.jar");
+
+        assertTrue(launcherFiles.materialize(output, libraryHash));
+
+        assertArrayEquals(LIBRARY, Files.readAllBytes(output.toPath()));
+    }
+
+    @Test
+    public void filesAreCopiedInsteadOfLinked() throws IOException {
+        final File output = new File(libraries, "org/example/library/1.0/library-1.0.jar");
+        final File source = new File(installation, "libraries/org/example/library/1.0/library-1.0.jar");
+
+        assertTrue(launcherFiles.materialize(output, libraryHash));
+        write(source, ASSET);
+
+        assertFalse(Files.isSameFile(source.toPath(), output.toPath()));
+        assertArrayEquals(LIBRARY, Files.readAllBytes(output.toPath()));
+    }
+
+    @Test
+    public void fileWithDifferentHashIsNotUsed() throws IOException {
+        final File output = new File(libraries, "org/example/library/1.0/library-1.0.jar");
+
+        assertFalse(launcherFiles.materialize(output, assetHash));
+        assertFalse(output.exists());
+    }
+
+    @Test
+    public void filesOutsideOfTheCachesAreNotLocated() throws IOException {
+        assertNull(launcherFiles.find(new File(tempDir, "objects/" + assetHash.substring(0, 2) + "/" + assetHash), assetHash));
+    }
+}
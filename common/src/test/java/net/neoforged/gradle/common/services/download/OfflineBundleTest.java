@@ -0,0 +1,127 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.util.HashFunction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OfflineBundleTest {
+
+    private static final byte[] VERSION_JSON = "{\"id\":\"1.21\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ASSET = "asset".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TOOL = "tool".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    File tempDir;
+
+    private File archive;
+    private File cache;
+    private VerifiedFiles verifiedFiles;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        final SortedMap<String, File> files = new TreeMap<>();
+        files.put("minecraft/versions/1.21/metadata.json", write(new File(tempDir, "source/metadata.json"), VERSION_JSON));
+        files.put("minecraft/assets/objects/ab/abcdef", write(new File(tempDir, "source/abcdef"), ASSET));
+        files.put("tools/net/neoforged/jst/jst-cli-bundle/1.0.67/jst-cli-bundle-1.0.67.jar", write(new File(tempDir, "source/jst.jar"), TOOL));
+
+        archive = new File(tempDir, "bundle.zip");
+        OfflineBundle.write(archive, files);
+
+        cache = new File(tempDir, "caches/minecraft");
+        verifiedFiles = VerifiedFiles.load(cache, false);
+    }
+
+    private static File write(File file, byte[] content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    @Test
+    public void importedFilesArePlacedIntoTheCaches() throws IOException {
+        final OfflineBundle bundle = OfflineBundle.importTo(archive, cache, verifiedFiles);
+
+        assertEquals(3, bundle.getEntries().size());
+        assertArrayEquals(VERSION_JSON, Files.readAllBytes(new File(cache, "versions/1.21/metadata.json").toPath()));
+        assertTrue(verifiedFiles.isVerified(new File(cache, "assets/objects/ab/abcdef"), HashFunction.SHA1.hash(ASSET)));
+        assertArrayEquals(TOOL, Files.readAllBytes(new File(bundle.getToolsDirectory(), "net/neoforged/jst/jst-cli-bundle/1.0.67/jst-cli-bundle-1.0.67.jar").toPath()));
+    }
+
+    @Test
+    public void importedBundleIsLoadedByLaterBuilds() throws IOException {
+        OfflineBundle.importTo(archive, cache, verifiedFiles);
+
+        final OfflineBundle bundle = OfflineBundle.load(cache);
+
+        assertEquals(3, bundle.getEntries().size());
+        assertEquals(Set.of(new OfflineBundle.Tool("net.neoforged.jst", "jst-cli-bundle", "1.0.67")), bundle.getTools());
+    }
+
+    @Test
+    public void unchangedBundleIsNotImportedAgain() throws IOException {
+        OfflineBundle.importTo(archive, cache, verifiedFiles);
+        final File json = new File(cache, "versions/1.21/metadata.json");
+        assertTrue(json.setLastModified(0));
+
+        OfflineBundle.importIfChanged(archive, cache, verifiedFiles);
+
+        assertEquals(0, json.lastModified());
+    }
+
+    @Test
+    public void cachedFileIsMaterializedFromTheBundle() throws IOException {
+        final OfflineBundle bundle = OfflineBundle.importTo(archive, cache, verifiedFiles);
+        final File output = new File(tempDir, "project/.gradle/caches/minecraft/versions/1.21/metadata.json");
+
+        assertTrue(bundle.materialize("versions/1.21/metadata.json", output, verifiedFiles));
+        assertArrayEquals(VERSION_JSON, Files.readAllBytes(output.toPath()));
+
+        assertFalse(bundle.materialize("versions/1.21/client.jar", new File(tempDir, "client.jar"), verifiedFiles));
+    }
+
+    @Test
+    public void modifiedImportedFileIsNotUsed() throws IOException {
+        final OfflineBundle bundle = OfflineBundle.importTo(archive, cache, verifiedFiles);
+        Files.writeString(new File(cache, "versions/1.21/metadata.json").toPath(), "{}");
+
+        assertFalse(bundle.materialize("versions/1.21/metadata.json", new File(tempDir, "metadata.json"), verifiedFiles));
+    }
+
+    @Test
+    public void corruptBundleIsRejected() throws IOException {
+        final File corrupt = new File(tempDir, "corrupt.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(corrupt.toPath()))) {
+            zip.putNextEntry(new ZipEntry(OfflineBundle.INDEX_ENTRY_NAME));
+            zip.write(("# ng-offline-bundle 1\n" + HashFunction.SHA1.hash(ASSET) + "\t5\tminecraft/assets/objects/ab/abcdef\n").getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("minecraft/assets/objects/ab/abcdef"));
+            zip.write("other".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+
+        assertThrows(IOException.class, () -> OfflineBundle.importTo(corrupt, cache, verifiedFiles));
+        assertFalse(new File(cache, "assets/objects/ab/abcdef").exists());
+        assertSame(OfflineBundle.NONE, OfflineBundle.load(cache));
+    }
+
+    @Test
+    public void pathsOutsideOfTheCachesAreRejected() {
+        final SortedMap<String, File> files = new TreeMap<>();
+        files.put("minecraft/../../escape", new File(tempDir, "source/abcdef"));
+
+        assertThrows(IllegalArgumentException.class, () -> OfflineBundle.write(new File(tempDir, "escape.zip"), files));
+    }
+}
@@ -0,0 +1,200 @@
+package net.neoforged.gradle.common.services.download;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.neoforged.gradle.util.HashFunction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An embedded HTTP server which serves files from memory, supports range and conditional requests and can be scripted to fail.
+ * Files are served with their modification date and an entity tag derived from their content.
+ */
+public final class StubFileServer implements AutoCloseable {
+
+    private static final Pattern RANGE = Pattern.compile("^bytes=(\\d+)-$");
+
+    /**
+     * A scripted answer to a single request.
+     */
+    public sealed interface Fault {
+        /**
+         * Answers with the given status and no body.
+         */
+        record Status(int status) implements Fault {}
+
+        /**
+         * Sends the headers and the given amount of bytes of the file, then stops sending data without closing the connection.
+         */
+        record Stall(int bytes) implements Fault {}
+    }
+
+    private final HttpServer server;
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    private final Map<String, ZonedDateTime> lastModified = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Fault>> faults = new ConcurrentHashMap<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private final List<String> ifRanges = new CopyOnWriteArrayList<>();
+    private volatile boolean supportsRanges = true;
+
+    public StubFileServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "Stub file server");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        this.server.start();
+    }
+
+    public URI url(String path) {
+        return URI.create("http://%s:%d/%s".formatted(server.getAddress().getHostString(), server.getAddress().getPort(), path));
+    }
+
+    public void put(String path, byte[] content) {
+        files.put("/" + path, content);
+        lastModified.put("/" + path, ZonedDateTime.now(ZoneOffset.UTC).withNano(0));
+    }
+
+    /**
+     * Answers the next request for the given path with the given fault, instead of the file.
+     */
+    public void fail(String path, Fault fault) {
+        faults.computeIfAbsent("/" + path, key -> new ConcurrentLinkedQueue<>()).add(fault);
+    }
+
+    public void supportsRanges(boolean supportsRanges) {
+        this.supportsRanges = supportsRanges;
+    }
+
+    /**
+     * @return The methods and paths of all requests, in the order they were received.
+     */
+    public List<String> requests() {
+        return requests;
+    }
+
+    /**
+     * @return The range headers of all requests which had one.
+     */
+    public List<String> ranges() {
+        return ranges;
+    }
+
+    /**
+     * @return The If-Range headers of all requests which had one.
+     */
+    public List<String> ifRanges() {
+        return ifRanges;
+    }
+
+    /**
+     * @return The entity tag under which the file at the given path is served.
+     */
+    public String etag(String path) {
+        return "\"%s\"".formatted(HashFunction.SHA1.hash(files.get("/" + path)));
+    }
+
+    public long requestCount(String path) {
+        return requests.stream().filter(request -> request.endsWith(" /" + path)).count();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        requests.add(exchange.getRequestMethod() + " " + path);
+
+        final String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null) {
+            ranges.add(range);
+        }
+
+        final String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        if (ifRange != null) {
+            ifRanges.add(ifRange);
+        }
+
+        try (exchange) {
+            final Queue<Fault> queue = faults.get(path);
+            final Fault fault = queue == null ? null : queue.poll();
+            if (fault instanceof Fault.Status status) {
+                exchange.sendResponseHeaders(status.status(), -1);
+                return;
+            }
+
+            final byte[] content = files.get(path);
+            if (content == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            final ZonedDateTime modified = lastModified.get(path);
+            final String etag = etag(path.substring(1));
+            exchange.getResponseHeaders().add("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(modified));
+            exchange.getResponseHeaders().add("ETag", etag);
+
+            final String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+            if (ifModifiedSince != null && !ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).isBefore(modified)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            int offset = 0;
+            //A range whose validator does not match the current file is ignored, and the full file is sent instead.
+            final boolean rangeValid = ifRange == null || ifRange.equals(etag) || ifRange.equals(DateTimeFormatter.RFC_1123_DATE_TIME.format(modified));
+            if (range != null && supportsRanges && rangeValid) {
+                final Matcher matcher = RANGE.matcher(range);
+                if (!matcher.matches() || Integer.parseInt(matcher.group(1)) >= content.length) {
+                    exchange.getResponseHeaders().add("Content-Range", "bytes */%d".formatted(content.length));
+                    exchange.sendResponseHeaders(416, -1);
+                    return;
+                }
+
+                offset = Integer.parseInt(matcher.group(1));
+                exchange.getResponseHeaders().add("Content-Range", "bytes %d-%d/%d".formatted(offset, content.length - 1, content.length));
+            }
+
+            exchange.sendResponseHeaders(offset > 0 ? 206 : 200, content.length - offset);
+            try (OutputStream body = exchange.getResponseBody()) {
+                if (fault instanceof Fault.Stall stall) {
+                    body.write(content, offset, Math.min(stall.bytes(), content.length - offset));
+                    body.flush();
+                    sleepUntilClosed();
+                    return;
+                }
+
+                body.write(content, offset, content.length - offset);
+            }
+        }
+    }
+
+    private static void sleepUntilClosed() {
+        try {
+            Thread.sleep(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
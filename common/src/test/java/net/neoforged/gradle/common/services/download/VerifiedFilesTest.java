@@ -0,0 +1,92 @@
+package net.neoforged.gradle.common.services.download;
+
+import net.neoforged.gradle.util.HashFunction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VerifiedFilesTest {
+
+    @TempDir
+    File tempDir;
+
+    /**
+     * Replaces the content of the file without changing its size or last modified time, which only a rehash notices.
+     */
+    private static void tamper(File file, String content) throws IOException {
+        final long lastModified = file.lastModified();
+        Files.writeString(file.toPath(), content);
+        file.setLastModified(lastModified);
+    }
+
+    private File file(String name, String content) throws IOException {
+        final File file = new File(tempDir, name);
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+
+    @Test
+    public void trustsRecordedFilesWithoutReadingThem() throws IOException {
+        final VerifiedFiles verifiedFiles = VerifiedFiles.load(new File(tempDir, "index"), false);
+        final File file = file("asset", "original");
+        final String sha1 = HashFunction.SHA1.hash(file);
+        verifiedFiles.record(file, sha1);
+
+        tamper(file, "tampered");
+
+        assertTrue(verifiedFiles.isVerified(file, sha1));
+    }
+
+    @Test
+    public void persistsAcrossBuilds() throws IOException {
+        final File file = file("asset", "original");
+        final String sha1 = HashFunction.SHA1.hash(file);
+
+        final VerifiedFiles first = VerifiedFiles.load(new File(tempDir, "index"), false);
+        first.record(file, sha1);
+        first.save();
+
+        tamper(file, "tampered");
+
+        assertTrue(VerifiedFiles.load(new File(tempDir, "index"), false).isVerified(file, sha1));
+    }
+
+    @Test
+    public void rehashesFilesWhoseMetadataChanged() throws IOException {
+        final VerifiedFiles verifiedFiles = VerifiedFiles.load(new File(tempDir, "index"), false);
+        final File file = file("asset", "original");
+        final String sha1 = HashFunction.SHA1.hash(file);
+        verifiedFiles.record(file, sha1);
+
+        Files.writeString(file.toPath(), "a different size");
+
+        assertFalse(verifiedFiles.isVerified(file, sha1));
+    }
+
+    @Test
+    public void rehashesEverythingWhenRequested() throws IOException {
+        final File file = file("asset", "original");
+        final String sha1 = HashFunction.SHA1.hash(file);
+
+        final VerifiedFiles first = VerifiedFiles.load(new File(tempDir, "index"), false);
+        first.record(file, sha1);
+        first.save();
+
+        tamper(file, "tampered");
+
+        assertFalse(VerifiedFiles.load(new File(tempDir, "index"), true).isVerified(file, sha1));
+    }
+
+    @Test
+    public void rejectsMissingFiles() throws IOException {
+        final VerifiedFiles verifiedFiles = VerifiedFiles.load(new File(tempDir, "index"), false);
+
+        assertFalse(verifiedFiles.isVerified(new File(tempDir, "missing"), "0123456789abcdef0123456789abcdef01234567"));
+    }
+}
@@ -0,0 +1,95 @@
+package net.neoforged.gradle.common.services.metadata;
+
+import net.neoforged.gradle.common.util.LauncherManifest;
+import net.neoforged.gradle.common.util.VersionJson;
+import org.gradle.api.services.BuildServiceParameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class MinecraftMetadataServiceTest {
+
+    private static final String MANIFEST = """
+            {
+              "latest": { "release": "1.21.1", "snapshot": "24w33a" },
+              "versions": [
+                { "id": "24w33a", "type": "snapshot", "url": "https://example.com/24w33a.json", "sha1": "aa" },
+                { "id": "1.21.1", "type": "release", "url": "https://example.com/1.21.1.json", "sha1": "bb" },
+                { "id": "1.21", "type": "release", "url": "https://example.com/1.21.json", "sha1": "cc" }
+              ]
+            }
+            """;
+
+    @TempDir
+    File tempDir;
+
+    private final MinecraftMetadataService service = new MinecraftMetadataService() {
+        @Override
+        public BuildServiceParameters.None getParameters() {
+            return null;
+        }
+    };
+
+    private File write(String name, String content) throws IOException {
+        final File file = new File(tempDir, name);
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+
+    @Test
+    public void looksUpVersionsById() throws IOException {
+        final LauncherManifest manifest = service.getLauncherManifest(write("manifest.json", MANIFEST));
+
+        assertEquals("https://example.com/1.21.json", manifest.getVersion("1.21").getUrl());
+        assertEquals("24w33a", manifest.getVersion(LauncherManifest.LATEST).getId());
+        assertNull(manifest.findVersion("1.0"));
+    }
+
+    @Test
+    public void sharesParsedFilesWithTheSameContent() throws IOException {
+        final File first = write("first_manifest.json", MANIFEST);
+        final File second = write("second_manifest.json", MANIFEST);
+
+        assertSame(service.getLauncherManifest(first), service.getLauncherManifest(first));
+        assertSame(service.getLauncherManifest(first), service.getLauncherManifest(second));
+    }
+
+    @Test
+    public void parsesChangedFilesAgain() throws IOException {
+        final File file = write("manifest.json", MANIFEST);
+        final LauncherManifest before = service.getLauncherManifest(file);
+
+        Files.writeString(file.toPath(), MANIFEST.replace("1.21.1", "1.21.10"));
+        final LauncherManifest after = service.getLauncherManifest(file);
+
+        assertNotSame(before, after);
+        assertEquals("https://example.com/1.21.10.json", after.getVersion("1.21.10").getUrl());
+    }
+
+    @Test
+    public void parsesVersionJsons() throws IOException {
+        final File file = write("1.21.json", """
+                {
+                  "id": "1.21",
+                  "downloads": {
+                    "client": { "sha1": "dd", "size": 1, "url": "https://example.com/client.jar" }
+                  },
+                  "libraries": []
+                }
+                """);
+
+        final VersionJson json = service.getVersionJson(file);
+
+        assertEquals("1.21", json.getId());
+        assertEquals("dd", json.getDownloads().get("client").getSha1());
+        assertSame(json, service.getVersionJson(file));
+    }
+}
@@ -0,0 +1,149 @@
+package net.neoforged.gradle.common.services.natives;
+
+import net.neoforged.gradle.common.services.caching.locking.IOControlledFileBasedLock;
+import net.neoforged.gradle.common.services.caching.logging.CacheLogger;
+import net.neoforged.gradle.common.services.download.HttpDownloader;
+import net.neoforged.gradle.common.services.download.StubFileServer;
+import net.neoforged.gradle.util.HashFunction;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NativesCacheTest {
+
+    private static final byte[] LIBRARY = "native library".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    File tempDir;
+
+    private StubFileServer server;
+    private HttpDownloader downloader;
+    private String url;
+    private String sha1;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new StubFileServer();
+        downloader = new HttpDownloader(Duration.ofSeconds(5), Duration.ofSeconds(5), 2, Duration.ofMillis(10));
+
+        final byte[] jar = createJar();
+        server.put("lwjgl-natives-linux.jar", jar);
+        url = server.url("lwjgl-natives-linux.jar").toString();
+        sha1 = HashFunction.SHA1.hash(jar);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        downloader.close();
+        server.close();
+    }
+
+    private static byte[] createJar() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zip.write("Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("linux/x64/org/lwjgl/"));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("linux/x64/org/lwjgl/liblwjgl.so"));
+            zip.write(LIBRARY);
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    private NativesCache cache(boolean offline) {
+        return new NativesCache(new File(tempDir, "natives"), downloader, offline, new CacheLogger(Logging.getLogger(NativesCacheTest.class), "test", false, false));
+    }
+
+    @Test
+    public void nativesAreExtractedFlat() throws IOException {
+        final NativesCache.Entry entry = cache(false).get(url, sha1);
+
+        assertEquals(sha1, HashFunction.SHA1.hash(entry.jar()));
+        assertArrayEquals(LIBRARY, Files.readAllBytes(new File(entry.files(), "liblwjgl.so").toPath()));
+        assertEquals(1, entry.files().list().length);
+    }
+
+    @Test
+    public void cachedNativesAreSharedBetweenBuilds() throws IOException {
+        cache(false).get(url, sha1);
+        final NativesCache.Entry entry = cache(false).get(url, sha1);
+
+        assertTrue(new File(entry.files(), "liblwjgl.so").isFile());
+        assertEquals(1, server.requestCount("lwjgl-natives-linux.jar"));
+    }
+
+    @Test
+    public void cachedNativesAreAvailableOffline() throws IOException {
+        cache(false).get(url, sha1);
+
+        assertTrue(cache(true).get(url, sha1).files().isDirectory());
+    }
+
+    @Test
+    public void missingNativesFailOffline() {
+        assertThrows(IllegalStateException.class, () -> cache(true).get(url, sha1));
+        assertEquals(0, server.requests().size());
+    }
+
+    @Test
+    public void incompleteEntryIsCreatedAgain() throws IOException {
+        final NativesCache.Entry entry = cache(false).get(url, sha1);
+        assertTrue(new File(entry.jar().getParentFile(), IOControlledFileBasedLock.HEALTHY_FILE_NAME).delete());
+        assertTrue(new File(entry.files(), "liblwjgl.so").delete());
+
+        cache(false).get(url, sha1);
+
+        //The jar of the incomplete entry still matches its hash, so it is only extracted again.
+        assertEquals(1, server.requestCount("lwjgl-natives-linux.jar"));
+        assertTrue(new File(entry.files(), "liblwjgl.so").isFile());
+    }
+
+    @Test
+    public void incompleteEntryWithCorruptJarIsDownloadedAgain() throws IOException {
+        final NativesCache.Entry entry = cache(false).get(url, sha1);
+        assertTrue(new File(entry.jar().getParentFile(), IOControlledFileBasedLock.HEALTHY_FILE_NAME).delete());
+        Files.write(entry.jar().toPath(), new byte[] {1, 2, 3});
+
+        cache(false).get(url, sha1);
+
+        assertEquals(2, server.requestCount("lwjgl-natives-linux.jar"));
+        assertTrue(new File(entry.files(), "liblwjgl.so").isFile());
+    }
+
+    @Test
+    public void filesAreLinkedIntoTarget() throws IOException {
+        final NativesCache.Entry entry = cache(false).get(url, sha1);
+        final File target = new File(tempDir, "run/natives");
+        Files.createDirectories(target.toPath());
+        Files.writeString(new File(target, "liblwjgl.so").toPath(), "stale");
+
+        NativesCache.linkFiles(entry.files(), target);
+
+        assertArrayEquals(LIBRARY, Files.readAllBytes(new File(target, "liblwjgl.so").toPath()));
+
+        //Removing the linked file does not touch the cache.
+        Files.delete(new File(target, "liblwjgl.so").toPath());
+        assertTrue(new File(entry.files(), "liblwjgl.so").isFile());
+        assertFalse(new File(target, "liblwjgl.so").exists());
+    }
+}
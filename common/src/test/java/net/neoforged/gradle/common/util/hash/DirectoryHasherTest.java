@@ -0,0 +1,99 @@
+package net.neoforged.gradle.common.util.hash;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class DirectoryHasherTest {
+
+    private static final List<String> PATHS = List.of("a.txt", "b/c.txt", "b/d/e.txt", "f.txt", "g/h.txt");
+    private static final List<String> REVERSED_PATHS = List.of("g/h.txt", "f.txt", "b/d/e.txt", "b/c.txt", "a.txt");
+
+    @TempDir
+    File tempDir;
+
+    private static void write(File directory, String path, String content) throws IOException {
+        final File file = new File(directory, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.writeString(file.toPath(), content);
+    }
+
+    private File create(String name, List<String> paths) throws IOException {
+        final File directory = new File(tempDir, name);
+        Files.createDirectories(directory.toPath());
+        for (String path : paths) {
+            write(directory, path, "content of " + path);
+        }
+        return directory;
+    }
+
+    @Test
+    public void hashDoesNotDependOnTheOrderOfCreation() throws IOException {
+        //Most file systems list the entries of a directory in the order in which they were created, or in the order of their hashes.
+        final File forward = create("forward", PATHS);
+        final File backward = create("backward", REVERSED_PATHS);
+
+        assertEquals(DirectoryHasher.hash(Hashing.sha1(), forward), DirectoryHasher.hash(Hashing.sha1(), backward));
+        assertEquals(DirectoryHasher.tree(Hashing.sha1(), forward), DirectoryHasher.tree(Hashing.sha1(), backward));
+    }
+
+    @Test
+    public void hashIsStableAcrossInvocations() throws IOException {
+        final File directory = create("directory", PATHS);
+
+        assertEquals(DirectoryHasher.hash(Hashing.sha1(), directory), DirectoryHasher.hash(Hashing.sha1(), directory));
+    }
+
+    @Test
+    public void hashDependsOnNamesAndContent() throws IOException {
+        final HashCode original = DirectoryHasher.hash(Hashing.sha1(), create("original", PATHS));
+
+        final File renamed = create("renamed", List.of("a.txt", "b/c.txt", "b/d/e.txt", "f.txt"));
+        write(renamed, "g/i.txt", "content of g/h.txt");
+        final File changed = create("changed", PATHS);
+        write(changed, "b/d/e.txt", "changed");
+
+        assertNotEquals(original, DirectoryHasher.hash(Hashing.sha1(), renamed));
+        assertNotEquals(original, DirectoryHasher.hash(Hashing.sha1(), changed));
+    }
+
+    @Test
+    public void filesAreDistinguishedFromDirectories() throws IOException {
+        final File file = new File(tempDir, "file");
+        write(file, "entry", "");
+        final File directory = new File(tempDir, "directory");
+        Files.createDirectories(new File(directory, "entry").toPath());
+
+        assertNotEquals(DirectoryHasher.hash(Hashing.sha1(), file), DirectoryHasher.hash(Hashing.sha1(), directory));
+    }
+
+    @Test
+    public void treeContainsTheHashesOfAllFiles() throws IOException {
+        final DirectoryHasher.Tree tree = DirectoryHasher.tree(Hashing.sha1(), create("directory", PATHS));
+
+        assertEquals(PATHS, List.copyOf(tree.files().keySet()));
+        for (Map.Entry<String, HashCode> file : tree.files().entrySet()) {
+            assertEquals(Hashing.sha1().hashString("content of " + file.getKey()), file.getValue());
+        }
+    }
+
+    @Test
+    public void filesAreHashedInTheGivenOrder() throws IOException {
+        final File directory = create("directory", PATHS);
+        final List<File> files = REVERSED_PATHS.stream().map(path -> new File(directory, path)).toList();
+
+        final List<HashCode> hashes = DirectoryHasher.hashFiles(Hashing.sha1(), files);
+
+        for (int i = 0; i < files.size(); i++) {
+            assertEquals(Hashing.sha1().hashFile(files.get(i)), hashes.get(i));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package net.neoforged.gradle.common.util.hash;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class Murmur3HashFunctionTest {
+
+    private static final HashFunction MURMUR3 = Hashing.murmur3_128();
+
+    //One, two, three and four byte encodings in UTF-8
+    private static final String TEXT = "ascii, \u00e9\u00e8, \u4e2d\u6587, \ud83d\ude00";
+
+    @SuppressWarnings("UnstableApiUsage")
+    private static final com.google.common.hash.HashFunction GUAVA = com.google.common.hash.Hashing.murmur3_128();
+
+    private static byte[] bytes(int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + 7);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void knownVectorsAreMatched() {
+        assertEquals("00000000000000000000000000000000", MURMUR3.hashBytes(new byte[0]).toString());
+        assertEquals("67f8103e694299624753ebba820bdb92", MURMUR3.hashString("hell").toString());
+        assertEquals("6c1b07bc7bbc4be347939ac4a93c437a", MURMUR3.hashString("The quick brown fox jumps over the lazy dog").toString());
+    }
+
+    @Test
+    public void everyLengthMatchesGuava() {
+        for (int length = 0; length <= 33; length++) {
+            final byte[] bytes = bytes(length);
+            assertArrayEquals(GUAVA.hashBytes(bytes).asBytes(), MURMUR3.hashBytes(bytes).toByteArray(), "Length " + length);
+        }
+    }
+
+    @Test
+    public void chunkedInputMatchesOneShot() {
+        for (int length = 0; length <= 33; length++) {
+            final byte[] bytes = bytes(length);
+            final HashCode expected = MURMUR3.hashBytes(bytes);
+
+            for (int split = 0; split <= length; split++) {
+                final PrimitiveHasher hasher = MURMUR3.newPrimitiveHasher();
+                hasher.putBytes(bytes, 0, split);
+                hasher.putBytes(bytes, split, length - split);
+                assertEquals(expected, hasher.hash(), "Length " + length + " split at " + split);
+            }
+
+            final PrimitiveHasher byteByByte = MURMUR3.newPrimitiveHasher();
+            for (byte value : bytes) {
+                byteByByte.putByte(value);
+            }
+            assertEquals(expected, byteByByte.hash(), "Length " + length + " byte by byte");
+
+            //A slice of a larger array, as passed by stream hashing
+            final byte[] padded = new byte[length + 10];
+            System.arraycopy(bytes, 0, padded, 5, length);
+            final PrimitiveHasher slice = MURMUR3.newPrimitiveHasher();
+            slice.putBytes(padded, 5, length);
+            assertEquals(expected, slice.hash(), "Length " + length + " as slice");
+        }
+    }
+
+    @Test
+    public void primitivesMatchGuava() {
+        //Every offset within a block, so that primitives are split over block boundaries
+        for (int prefix = 0; prefix < 16; prefix++) {
+            final byte[] bytes = bytes(prefix);
+
+            final PrimitiveHasher hasher = MURMUR3.newPrimitiveHasher();
+            hasher.putBytes(bytes);
+            hasher.putInt(0x12345678);
+            hasher.putLong(0x0123456789abcdefL);
+            hasher.putByte((byte) 0xfe);
+            hasher.putBoolean(true);
+            hasher.putDouble(Math.PI);
+            hasher.putString(TEXT);
+
+            final com.google.common.hash.Hasher guava = GUAVA.newHasher();
+            guava.putBytes(bytes);
+            guava.putInt(0x12345678);
+            guava.putLong(0x0123456789abcdefL);
+            guava.putByte((byte) 0xfe);
+            guava.putBoolean(true);
+            guava.putDouble(Math.PI);
+            guava.putString(TEXT, StandardCharsets.UTF_8);
+
+            assertArrayEquals(guava.hash().asBytes(), hasher.hash().toByteArray(), "Prefix " + prefix);
+        }
+    }
+
+    @Test
+    public void streamMatchesGuava() throws IOException {
+        //Larger than the buffer, and not a multiple of the block size
+        final byte[] bytes = bytes(100_003);
+
+        assertArrayEquals(GUAVA.hashBytes(bytes).asBytes(), MURMUR3.hashStream(new ByteArrayInputStream(bytes)).toByteArray());
+    }
+
+    @Test
+    public void hasherCannotBeReused() {
+        final PrimitiveHasher hasher = MURMUR3.newPrimitiveHasher();
+        hasher.putInt(1);
+        hasher.hash();
+
+        assertThrows(IllegalStateException.class, () -> hasher.putInt(2));
+        assertThrows(IllegalStateException.class, hasher::hash);
+    }
+}
@@ -0,0 +1,54 @@
+package net.neoforged.gradle.neoform
+
+import net.neoforged.gradle.neoform.caching.NeoFormCacheWarmup
+import net.neoforged.trainingwheels.gradle.functional.BuilderBasedTestSpecification
+import org.gradle.testkit.runner.TaskOutcome
+
+class CacheWarmupTests extends BuilderBasedTestSpecification {
+
+    private static final String NEOFORM_VERSION = "1.20.2-20230921.152923"
+
+    @Override
+    protected void configurePluginUnderTest() {
+        pluginUnderTest = "net.neoforged.gradle.neoform";
+        injectIntoAllProject = true;
+    }
+
+    def "warmup only limits the runtimes it created"() {
+        given:
+        def project = create "neoform-warmup-limits-own-runtimes", {
+            it.build("""
+            java {
+                toolchain {
+                    languageVersion = JavaLanguageVersion.of(17)
+                }
+            }
+
+            dependencies {
+                implementation 'net.minecraft:neoform_client:${NEOFORM_VERSION}'
+            }
+
+            gradle.projectsEvaluated {
+                neoFormRuntime.definitions.values().each { runtime ->
+                    def limited = runtime.rawJarTask.get().requiredServices.elements.any { it.name == 'NeoFormCacheWarmupLimiter' }
+                    println "Runtime \${runtime.specification.distribution.name} limited: \${limited}"
+                }
+            }
+            """)
+            it.withToolchains()
+            it.withGlobalCacheDirectory(tempDir)
+            it.property(NeoFormCacheWarmup.VERSIONS_PROPERTY, NEOFORM_VERSION)
+            it.property(NeoFormCacheWarmup.DISTRIBUTIONS_PROPERTY, "client,server")
+        }
+
+        when:
+        def run = project.run {
+            it.tasks('help')
+        }
+
+        then:
+        run.task(':help').outcome == TaskOutcome.SUCCESS
+        run.output.contains("Runtime client limited: false")
+        run.output.contains("Runtime server limited: true")
+    }
+}
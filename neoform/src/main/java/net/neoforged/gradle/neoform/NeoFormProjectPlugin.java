@@ -21,6 +21,7 @@
 package net.neoforged.gradle.neoform;
 
 import net.neoforged.gradle.common.CommonPlugin;
+import net.neoforged.gradle.neoform.caching.NeoFormCacheWarmup;
 import net.neoforged.gradle.neoform.dependency.NeoFormDependencyManager;
 import net.neoforged.gradle.neoform.naming.NeoFormOfficialNamingChannelConfigurator;
 import net.neoforged.gradle.neoform.runtime.extensions.NeoFormRuntimeExtension;
@@ -47,6 +48,9 @@ public class NeoFormProjectPlugin implements Plugin<Project> {
         // Setup handling of the dependencies
         NeoFormDependencyManager.apply(project);
 
+        // Allow the cache to be populated for a list of versions
+        NeoFormCacheWarmup.apply(project);
+
         // Add Known repos
         project.getRepositories().maven(e -> {
             e.setName(NEO_FORM_MAVEN);
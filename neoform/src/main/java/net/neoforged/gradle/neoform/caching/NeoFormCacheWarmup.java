@@ -0,0 +1,108 @@
+package net.neoforged.gradle.neoform.caching;
+
+import net.neoforged.gradle.common.services.caching.CachedExecutionService;
+import net.neoforged.gradle.common.util.ProjectUtils;
+import net.neoforged.gradle.dsl.common.util.DistributionType;
+import net.neoforged.gradle.neoform.runtime.definition.NeoFormRuntimeDefinition;
+import net.neoforged.gradle.neoform.runtime.extensions.NeoFormRuntimeExtension;
+import net.neoforged.gradle.neoform.util.NeoFormRuntimeUtils;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Registers the {@code warmCache} task, which runs the NeoForm pipeline for a list of versions,
+ * so that their outputs end up in the shared cache without a mod project depending on them.
+ * <p>
+ * The versions are only turned into runtimes when they are configured, which is meant to be done on the command line
+ * of the build that bakes the cache, for example {@code ./gradlew warmCache -Pnet.neoforged.gradle.caching.warmup.versions=1.21.1-20240808.144430}.
+ * The amount of versions that are processed at the same time is limited by a shared build service,
+ * tasks of the same project only run in parallel when the configuration cache is enabled.
+ * Only the runtimes which the warmup creates are limited, a version which the project already depends on keeps its runtime as it is.
+ */
+public final class NeoFormCacheWarmup {
+
+    public static final String TASK_NAME = "warmCache";
+
+    public static final String VERSIONS_PROPERTY = CachedExecutionService.CACHING_PROPERTY_PREFIX + "warmup.versions";
+    public static final String DISTRIBUTIONS_PROPERTY = CachedExecutionService.CACHING_PROPERTY_PREFIX + "warmup.distributions";
+    public static final String PARALLELISM_PROPERTY = CachedExecutionService.CACHING_PROPERTY_PREFIX + "warmup.parallelism";
+
+    private static final String LIMITER_NAME = "NeoFormCacheWarmupLimiter";
+
+    /**
+     * Limits the amount of warmup tasks which run at the same time.
+     */
+    public abstract static class Limiter implements BuildService<BuildServiceParameters.None> {
+    }
+
+    private NeoFormCacheWarmup() {
+        throw new IllegalStateException("Can not instantiate an instance of: NeoFormCacheWarmup. This is a utility class");
+    }
+
+    public static void apply(final Project project) {
+        final TaskProvider<Task> warmCache = project.getTasks().register(TASK_NAME, task -> {
+            task.setGroup("neogradle");
+            task.setDescription("Runs the NeoForm pipeline for the versions in the '%s' property, to populate the cache".formatted(VERSIONS_PROPERTY));
+        });
+
+        final List<String> versions = split(project.getProviders().gradleProperty(VERSIONS_PROPERTY).getOrElse(""));
+        if (versions.isEmpty()) {
+            return;
+        }
+
+        final List<DistributionType> distributions = split(project.getProviders().gradleProperty(DISTRIBUTIONS_PROPERTY).getOrElse("joined"))
+                .stream()
+                .map(name -> DistributionType.valueOf(name.toUpperCase(Locale.ROOT)))
+                .toList();
+        final int parallelism = project.getProviders().gradleProperty(PARALLELISM_PROPERTY).map(Integer::parseInt).getOrElse(1);
+
+        final Provider<Limiter> limiter = project.getGradle().getSharedServices().registerIfAbsent(
+                LIMITER_NAME,
+                Limiter.class,
+                spec -> spec.getMaxParallelUsages().set(Math.max(1, parallelism))
+        );
+
+        //Let the project configure its access transformers and interface injections first, they are part of the pipeline.
+        ProjectUtils.afterEvaluate(project, () -> {
+            final NeoFormRuntimeExtension runtimes = project.getExtensions().getByType(NeoFormRuntimeExtension.class);
+            final Set<String> existing = Set.copyOf(runtimes.getDefinitions().keySet());
+            for (String version : versions) {
+                for (DistributionType distribution : distributions) {
+                    final NeoFormRuntimeDefinition runtime = runtimes.maybeCreate(builder -> {
+                        builder.withDistributionType(distribution).withNeoFormVersion(version);
+                        NeoFormRuntimeUtils.configureDefaultRuntimeSpecBuilder(project, builder);
+                    });
+
+                    //Runtimes which the project itself uses are not limited, their tasks run as usual.
+                    if (!existing.contains(runtime.getSpecification().getIdentifier())) {
+                        final List<TaskProvider<? extends Task>> tasks = new ArrayList<>(runtime.getTasks().values());
+                        tasks.add(runtime.getSourceJarTask());
+                        tasks.add(runtime.getRawJarTask());
+                        for (TaskProvider<? extends Task> task : tasks) {
+                            task.configure(t -> t.usesService(limiter));
+                        }
+                    }
+
+                    warmCache.configure(task -> task.dependsOn(runtime.getSourceJarTask(), runtime.getRawJarTask()));
+                }
+            }
+        });
+    }
+
+    private static List<String> split(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(entry -> !entry.isEmpty())
+                .toList();
+    }
+}
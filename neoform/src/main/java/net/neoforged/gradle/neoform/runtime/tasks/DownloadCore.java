@@ -1,12 +1,15 @@
 package net.neoforged.gradle.neoform.runtime.tasks;
 
-import com.google.gson.JsonObject;
+import net.neoforged.gradle.common.services.metadata.MinecraftMetadataService;
 import net.neoforged.gradle.common.util.FileDownloadingUtils;
-import net.neoforged.gradle.common.util.SerializationUtils;
+import net.neoforged.gradle.common.util.VersionJson;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.*;
 
+import java.util.Objects;
+
 @CacheableTask
 public abstract class DownloadCore extends DownloadFile {
 
@@ -21,12 +24,12 @@ public abstract class DownloadCore extends DownloadFile {
     @Override
     public void run() throws Exception {
         if (!getDownloadInfo().isPresent()) {
-            JsonObject json = SerializationUtils.fromJson(getDownloadedVersionJson().get().getAsFile(), JsonObject.class);
+            final VersionJson json = getMetadataService().get().getVersionJson(getDownloadedVersionJson().get().getAsFile());
 
-            JsonObject artifactInfo = json.getAsJsonObject("downloads").getAsJsonObject(getArtifact().get());
-            String url = artifactInfo.get("url").getAsString();
-            String hash = artifactInfo.get("sha1").getAsString();
-            String version = json.getAsJsonObject().get("id").getAsString();
+            final VersionJson.Download artifactInfo = Objects.requireNonNull(json.getDownloads(), "downloads").get(getArtifact().get());
+            String url = artifactInfo.getUrl().toString();
+            String hash = artifactInfo.getSha1();
+            String version = json.getId();
             final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(url, hash, getExtension().get(), version, getArtifact().get());
 
             doDownloadFrom(info);
@@ -44,4 +47,7 @@ public abstract class DownloadCore extends DownloadFile {
 
     @Input
     public abstract Property<String> getExtension();
+
+    @ServiceReference(MinecraftMetadataService.NAME)
+    public abstract Property<MinecraftMetadataService> getMetadataService();
 }
@@ -1,10 +1,11 @@
 package net.neoforged.gradle.neoform.runtime.tasks;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import net.neoforged.gradle.common.services.metadata.MinecraftMetadataService;
 import net.neoforged.gradle.common.util.FileDownloadingUtils;
-import net.neoforged.gradle.common.util.SerializationUtils;
+import net.neoforged.gradle.common.util.LauncherManifest;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.*;
 
 @CacheableTask
@@ -19,18 +20,15 @@ public abstract class DownloadVersionJson extends DownloadFile {
     @Override
     public void run() throws Exception {
         if (!getDownloadInfo().isPresent()) {
-            JsonObject json = SerializationUtils.fromJson(getDownloadedManifest().get().getAsFile(), JsonObject.class);
-
-            for (JsonElement e : json.getAsJsonArray("versions")) {
-                String v = e.getAsJsonObject().get("id").getAsString();
-                if (v.equals(getMinecraftVersion().get().toString())) {
-                    final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(e.getAsJsonObject().get("url").getAsString(), null, "json", v, null);
-                    doDownloadFrom(info);
-                    return;
-                }
+            final LauncherManifest manifest = getMetadataService().get().getLauncherManifest(getDownloadedManifest().get().getAsFile());
+
+            final LauncherManifest.Version version = manifest.findVersion(getMinecraftVersion().get().toString());
+            if (version == null) {
+                throw new IllegalStateException("Could not find the correct version json.");
             }
 
-            throw new IllegalStateException("Could not find the correct version json.");
+            final FileDownloadingUtils.DownloadInfo info = new FileDownloadingUtils.DownloadInfo(version.getUrl(), null, "json", version.getId(), null);
+            doDownloadFrom(info);
         } else {
             super.run();
         }
@@ -39,4 +37,7 @@ public abstract class DownloadVersionJson extends DownloadFile {
     @InputFile
     @PathSensitive(PathSensitivity.NONE)
     public abstract RegularFileProperty getDownloadedManifest();
+
+    @ServiceReference(MinecraftMetadataService.NAME)
+    public abstract Property<MinecraftMetadataService> getMetadataService();
 }
@@ -21,6 +21,7 @@ import java.nio.file.*;
 import java.util.List;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -126,6 +127,33 @@ public final class FileUtils {
         }
     }
 
+    /**
+     * Materializes the given source file at the given destination, as a hard link if the file system supports it and as a copy otherwise.
+     * The destination is replaced atomically, so readers never observe a missing or partially written file.
+     *
+     * @param source The source file
+     * @param destination The destination file
+     * @throws IOException If neither a link nor a copy could be created
+     */
+    public static void linkOrCopy(Path source, Path destination) throws IOException {
+        final Path parent = destination.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        final Path temporary = parent.resolve("." + destination.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try {
+                Files.createLink(temporary, source);
+            } catch (final IOException | UnsupportedOperationException ex) {
+                // Links can not span file systems, and might not be permitted at all.
+                Files.copy(source, temporary, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            FileUtils.atomicMove(temporary, destination);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
     /**
      * Atomically moves the given source file to the given destination file.
      * If the atomic move is not supported, the file will be moved normally.